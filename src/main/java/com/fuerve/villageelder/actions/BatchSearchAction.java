@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.actions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import com.fuerve.villageelder.actions.results.BatchSearchResult;
+import com.fuerve.villageelder.actions.results.SearchResultItem;
+import com.fuerve.villageelder.search.Search;
+import com.fuerve.villageelder.search.Searcher;
+
+/**
+ * This class represents the action of executing a batch of related
+ * searches, such as the counts and facets of a dashboard, against a
+ * single snapshot of an index of revision histories.
+ * @author lparker
+ *
+ */
+public class BatchSearchAction extends Action<BatchSearchResult> {
+   private final Searcher searcher;
+   private final List<Search> searches;
+   private ExecutorService executor;
+   
+   /**
+    * Initializes a new instance of BatchSearchAction.
+    * @param ssearcher The {@link Searcher} with which to execute the
+    * searches.
+    * @param ssearches The searches to execute, created with
+    * {@link Search} constructors rather than the Searcher.
+    */
+   public BatchSearchAction(final Searcher ssearcher, final List<Search> ssearches) {
+      searcher = ssearcher;
+      searches = ssearches;
+   }
+   
+   /**
+    * Sets the executor on which the searches run concurrently.
+    * @param eexecutor The executor, or null to run the searches one
+    * after the other on the calling thread.
+    */
+   public void setExecutor(final ExecutorService eexecutor) {
+      executor = eexecutor;
+   }
+   
+   @Override
+   public BatchSearchResult doWork() throws ActionException {
+      try {
+         searcher.search(searches, executor);
+         
+         final List<SearchResultItem> items =
+               new ArrayList<SearchResultItem>(searches.size());
+         for (Search search : searches) {
+            final SearchResultItem item =
+                  new SearchResultItem(
+                        search.getCollector().topDocs(),
+                        search.getFacetResults()
+                  );
+            item.setFacetCountsEstimated(search.isFacetCountsEstimated());
+            item.setTopGroups(search.getTopGroups());
+            item.setTimedOut(search.isTimedOut());
+            item.setVersion(search.getVersion());
+            items.add(item);
+         }
+         
+         final BatchSearchResult result = new BatchSearchResult();
+         result.aggregate(items);
+         return result;
+      } catch (IOException e) {
+         throw new ActionException(e);
+      }
+   }
+}
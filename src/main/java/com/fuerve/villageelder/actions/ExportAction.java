@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.actions;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.lucene.queryparser.classic.ParseException;
+
+import com.fuerve.villageelder.actions.results.ExportResult;
+import com.fuerve.villageelder.actions.results.ExportResultItem;
+import com.fuerve.villageelder.search.RevisionExporter;
+
+/**
+ * This class represents the action of exporting every revision that
+ * matches a query.
+ * @author lparker
+ *
+ */
+public class ExportAction extends Action<ExportResult> {
+   private final RevisionExporter exporter;
+   private final String query;
+   private final Writer writer;
+   
+   /**
+    * Initializes a new instance of ExportAction.
+    * @param eexporter The {@link RevisionExporter} with which to write
+    * the revisions.
+    * @param qquery The query whose revisions to export.
+    * @param wwriter The writer to which to write the revisions.
+    */
+   public ExportAction(
+         final RevisionExporter eexporter,
+         final String qquery,
+         final Writer wwriter) {
+      exporter = eexporter;
+      query = qquery;
+      writer = wwriter;
+   }
+   
+   @Override
+   public ExportResult doWork() throws ActionException {
+      try {
+         final long count = exporter.export(query, writer);
+         final ExportResult result = new ExportResult();
+         result.aggregate(new ExportResultItem(count, exporter.isPartial()));
+         return result;
+      } catch (ParseException e) {
+         throw new ActionException(e);
+      } catch (IOException e) {
+         throw new ActionException(e);
+      }
+   }
+}
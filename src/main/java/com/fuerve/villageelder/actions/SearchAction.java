@@ -19,11 +19,16 @@
 package com.fuerve.villageelder.actions;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.TopDocs;
 
 import com.fuerve.villageelder.actions.results.SearchResult;
 import com.fuerve.villageelder.actions.results.SearchResultItem;
+import com.fuerve.villageelder.search.GroupRequest;
 import com.fuerve.villageelder.search.Searcher;
 
 /**
@@ -36,6 +41,11 @@ public class SearchAction extends Action<SearchResult> {
    private final Searcher searcher;
    private int count = 0;
    private Collector collector;
+   private GroupRequest grouping;
+   private boolean loadDocuments;
+   private Set<String> fields;
+   private boolean loadSummaries;
+   private long version = -1L;
    
    /**
     * Initializes a new instance of SearchAction with a {@link Searcher}.
@@ -65,8 +75,59 @@ public class SearchAction extends Action<SearchResult> {
       count = ccount;
    }
    
+   /**
+    * Groups the hits of the search by the value of a doc values
+    * field, such as Author, TopLevelPath or Day.  Grouping is not
+    * applied to searches that use a custom {@link Collector}.
+    * @param ggrouping The grouping to apply, or null to leave the
+    * hits ungrouped.
+    */
+   public void setGrouping(final GroupRequest ggrouping) {
+      grouping = ggrouping;
+   }
+   
+   /**
+    * Requests the stored documents of the top documents, loaded lazily
+    * with only the given fields.
+    * @param ffields The names of the stored fields to load, or none to
+    * load every stored field.
+    */
+   public void setFields(final String... ffields) {
+      loadDocuments = true;
+      fields = ffields.length == 0 ? null : new HashSet<String>(Arrays.asList(ffields));
+   }
+   
+   /**
+    * Requests the summaries of the revisions of the top documents,
+    * which are read from a single short stored field and so are much
+    * cheaper to load for a list of results than the documents.
+    * @param lloadSummaries True to load the summaries.
+    */
+   public void setSummaries(final boolean lloadSummaries) {
+      loadSummaries = lloadSummaries;
+   }
+   
+   /**
+    * Runs the search against a particular version of the index, such
+    * as the one reported by the result of an earlier page of the same
+    * search, so that later pages neither repeat nor skip hits when the
+    * searcher is refreshed in between.
+    * @param vversion The reader version, or a negative number to
+    * search the current reader.
+    */
+   public void setVersion(final long vversion) {
+      version = vversion;
+   }
+   
    @Override
    public SearchResult doWork() throws ActionException {
+      if (grouping != null && searcher.getSearch() != null) {
+         searcher.getSearch().setGrouping(grouping);
+      }
+      if (version >= 0 && searcher.getSearch() != null) {
+         searcher.getSearch().setVersion(version);
+      }
+      
       try {
          if (collector != null) {
             searcher.search(collector);
@@ -82,12 +143,20 @@ public class SearchAction extends Action<SearchResult> {
       final SearchResult result = new SearchResult();
       
       try {
-         result.aggregate(
-               new SearchResultItem(
-                     searcher.getCollector().topDocs(),
-                     searcher.getFacetsCollector().getFacetResults()
-               )
-         );
+         final TopDocs topDocs = searcher.getCollector().topDocs();
+         final SearchResultItem item =
+               new SearchResultItem(topDocs, searcher.getFacetResults());
+         item.setFacetCountsEstimated(searcher.isFacetCountsEstimated());
+         item.setTopGroups(searcher.getTopGroups());
+         item.setTimedOut(searcher.isTimedOut());
+         item.setVersion(searcher.getSearch().getVersion());
+         if (loadDocuments) {
+            item.setDocuments(searcher.getDocuments(topDocs.scoreDocs, fields));
+         }
+         if (loadSummaries) {
+            item.setSummaries(searcher.getSummaries(topDocs.scoreDocs));
+         }
+         result.aggregate(item);
          
          return result;
       } catch (IOException e) {
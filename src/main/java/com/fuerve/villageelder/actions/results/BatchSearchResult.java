@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.actions.results;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class aggregates the results of a batch of searches against
+ * the index, one {@link SearchResultItem} per search in the order of
+ * the batch.
+ * 
+ * @author lparker
+ *
+ */
+public class BatchSearchResult extends Result<List<SearchResultItem>>
+   implements Iterable<SearchResultItem> {
+   /**
+    * Gets an iterator into the results of the searches of the batch.
+    * @return An iterator over the result of each search.
+    */
+   public Iterator<SearchResultItem> iterator() {
+      return this.getValue().iterator();
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.actions.Result#aggregate(java.lang.Object)
+    */
+   @Override
+   public void aggregate(List<SearchResultItem> vvalue) {
+      setValue(vvalue);
+   }
+   
+   /**
+    * Gets the number of searches in the batch.
+    * @return The number of search results, or zero if there is no
+    * result.
+    */
+   public int size() {
+      List<SearchResultItem> value = getValue();
+      if (value == null) {
+         return 0;
+      } else {
+         return value.size();
+      }
+   }
+   
+   /**
+    * Gets the result of one search of the batch.
+    * @param index The position of the search in the batch.
+    * @return The result of the search.
+    */
+   public SearchResultItem get(final int index) {
+      return getValue().get(index);
+   }
+}
@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.actions.results;
+
+/**
+ * This class contains the result of an export operation.
+ * @author lparker
+ *
+ */
+public class ExportResult extends Result<ExportResultItem> {
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.actions.Result#aggregate(java.lang.Object)
+    */
+   @Override
+   public void aggregate(ExportResultItem vvalue) {
+      setValue(vvalue);
+   }
+   
+   /**
+    * Gets the number of revisions that were exported.
+    * @return The number of exported revisions, or -1 if there is no
+    * result.
+    */
+   public long getRevisionCount() {
+      ExportResultItem value = getValue();
+      if (value == null) {
+         return -1;
+      } else {
+         return value.getRevisionCount();
+      }
+   }
+   
+   /**
+    * Gets whether only some of the matching revisions were exported,
+    * because the search ran past its deadline.
+    * @return True if the export is partial, false if it is complete or
+    * there is no result.
+    */
+   public boolean isPartial() {
+      ExportResultItem value = getValue();
+      if (value == null) {
+         return false;
+      } else {
+         return value.isPartial();
+      }
+   }
+}
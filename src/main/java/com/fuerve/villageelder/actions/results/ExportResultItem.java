@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.actions.results;
+
+/**
+ * This class contains the result of an export operation.
+ * @author lparker
+ *
+ */
+public class ExportResultItem {
+   private final long revisions;
+   private final boolean partial;
+   
+   /**
+    * Initializes a new instance of ExportResultItem.
+    * @param rrevisions The number of revisions that were exported.
+    * @param ppartial True if the search ran past its deadline and only
+    * some of the matching revisions were exported.
+    */
+   public ExportResultItem(final long rrevisions, final boolean ppartial) {
+      revisions = rrevisions;
+      partial = ppartial;
+   }
+   
+   /**
+    * Gets the number of revisions that were exported.
+    * @return The number of exported revisions.
+    */
+   public long getRevisionCount() {
+      return revisions;
+   }
+   
+   /**
+    * Gets whether only some of the matching revisions were exported.
+    * @return True if the export is partial.
+    */
+   public boolean isPartial() {
+      return partial;
+   }
+}
@@ -20,8 +20,13 @@ package com.fuerve.villageelder.actions.results;
 
 import java.util.List;
 
+import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.search.FacetResult;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.util.BytesRef;
+
+import com.fuerve.villageelder.common.RevisionSummary;
 
 /**
  * This class aggregates the result of a search against the index.
@@ -63,4 +68,93 @@ public class SearchResult extends Result<SearchResultItem> {
          return value.getFacetResults();
       }
    }
+   
+   /**
+    * Gets whether the facet counts from a search query were
+    * estimated from a sample of its hits.
+    * @return True if the facet counts are estimated, false if
+    * they are exact or there is no result.
+    */
+   public boolean isFacetCountsEstimated() {
+      SearchResultItem value = getValue();
+      if (value == null) {
+         return false;
+      } else {
+         return value.isFacetCountsEstimated();
+      }
+   }
+   
+   /**
+    * Gets the top groups from a grouped search query.
+    * @return The top groups returned by a search, or null if it was
+    * not grouped.
+    */
+   public TopGroups<BytesRef> getTopGroups() {
+      SearchResultItem value = getValue();
+      if (value == null) {
+         return null;
+      } else {
+         return value.getTopGroups();
+      }
+   }
+   
+   /**
+    * Gets whether a search query ran past its deadline.
+    * @return True if the results of the search are partial, false if
+    * they are complete or there is no result.
+    */
+   public boolean isTimedOut() {
+      SearchResultItem value = getValue();
+      if (value == null) {
+         return false;
+      } else {
+         return value.isTimedOut();
+      }
+   }
+   
+   /**
+    * Gets the stored documents of the top documents returned by a
+    * search query, in the same order.
+    * @return The stored documents, or null if they were not requested
+    * or there is no result.
+    */
+   public Iterable<Document> getDocuments() {
+      SearchResultItem value = getValue();
+      if (value == null) {
+         return null;
+      } else {
+         return value.getDocuments();
+      }
+   }
+   
+   /**
+    * Gets the summaries of the revisions of the top documents returned
+    * by a search query, in the same order.
+    * @return The summaries, or null if they were not requested or
+    * there is no result.
+    */
+   public Iterable<RevisionSummary> getSummaries() {
+      SearchResultItem value = getValue();
+      if (value == null) {
+         return null;
+      } else {
+         return value.getSummaries();
+      }
+   }
+   
+   /**
+    * Gets the version of the reader that a search query ran against,
+    * which later pages of the same query pass back to read the same
+    * snapshot of the index.
+    * @return The reader version, or a negative number if it is
+    * unknown or there is no result.
+    */
+   public long getVersion() {
+      SearchResultItem value = getValue();
+      if (value == null) {
+         return -1L;
+      } else {
+         return value.getVersion();
+      }
+   }
 }
@@ -20,8 +20,13 @@ package com.fuerve.villageelder.actions.results;
 
 import java.util.List;
 
+import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.search.FacetResult;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.util.BytesRef;
+
+import com.fuerve.villageelder.common.RevisionSummary;
 
 /**
  * This class contains the results of a search that has been
@@ -33,6 +38,12 @@ import org.apache.lucene.search.TopDocs;
 public class SearchResultItem {
    private final TopDocs topDocs;
    private final List<FacetResult> facetResults;
+   private boolean facetCountsEstimated;
+   private TopGroups<BytesRef> topGroups;
+   private boolean timedOut;
+   private Iterable<Document> documents;
+   private Iterable<RevisionSummary> summaries;
+   private long version = -1L;
    
    /**
     * Initializes a new instance of SearchResultItem with
@@ -66,4 +77,120 @@ public class SearchResultItem {
    public List<FacetResult> getFacetResults() {
       return facetResults;
    }
+   
+   /**
+    * Gets whether the facet counts returned by a search query
+    * were estimated from a sample of its hits.
+    * @return True if the facet counts are estimated, false if
+    * they are exact.
+    */
+   public boolean isFacetCountsEstimated() {
+      return facetCountsEstimated;
+   }
+   
+   /**
+    * Sets whether the facet counts of this search result were
+    * estimated from a sample of its hits.
+    * @param ffacetCountsEstimated True if the facet counts are
+    * estimated, false if they are exact.
+    */
+   public void setFacetCountsEstimated(final boolean ffacetCountsEstimated) {
+      facetCountsEstimated = ffacetCountsEstimated;
+   }
+   
+   /**
+    * Gets the top groups returned by a grouped search query, along
+    * with the top documents of each group and the number of groups
+    * that matched.
+    * @return The top groups, or null if the query was not grouped.
+    */
+   public TopGroups<BytesRef> getTopGroups() {
+      return topGroups;
+   }
+   
+   /**
+    * Sets the top groups returned by a grouped search query.
+    * @param ttopGroups The top groups, or null if the query was not
+    * grouped.
+    */
+   public void setTopGroups(final TopGroups<BytesRef> ttopGroups) {
+      topGroups = ttopGroups;
+   }
+   
+   /**
+    * Gets whether the search ran past its deadline, in which case
+    * its top documents, facets and groups cover only the hits that
+    * were collected before the deadline.
+    * @return True if the search timed out.
+    */
+   public boolean isTimedOut() {
+      return timedOut;
+   }
+   
+   /**
+    * Sets whether the search ran past its deadline.
+    * @param ttimedOut True if the search timed out and its results
+    * are partial.
+    */
+   public void setTimedOut(final boolean ttimedOut) {
+      timedOut = ttimedOut;
+   }
+   
+   /**
+    * Gets the stored documents of the top documents of the search, in
+    * the same order.  The documents may be loaded lazily as they are
+    * iterated, with only some of their fields.
+    * @return The stored documents, or null if they were not requested.
+    */
+   public Iterable<Document> getDocuments() {
+      return documents;
+   }
+   
+   /**
+    * Sets the stored documents of the top documents of the search.
+    * @param ddocuments The stored documents, in the same order as the
+    * top documents, or null if they were not requested.
+    */
+   public void setDocuments(final Iterable<Document> ddocuments) {
+      documents = ddocuments;
+   }
+   
+   /**
+    * Gets the summaries of the revisions of the top documents of the
+    * search, in the same order.  The summaries are loaded lazily as
+    * they are iterated.
+    * @return The summaries, or null if they were not requested.
+    */
+   public Iterable<RevisionSummary> getSummaries() {
+      return summaries;
+   }
+   
+   /**
+    * Sets the summaries of the revisions of the top documents of the
+    * search.
+    * @param ssummaries The summaries, in the same order as the top
+    * documents, or null if they were not requested.
+    */
+   public void setSummaries(final Iterable<RevisionSummary> ssummaries) {
+      summaries = ssummaries;
+   }
+   
+   /**
+    * Gets the version of the reader that the search ran against.  A
+    * later page of the same search passes this version back, so that
+    * it is read from the same snapshot of the index.
+    * @return The reader version, or a negative number if it is unknown.
+    */
+   public long getVersion() {
+      return version;
+   }
+   
+   /**
+    * Sets the version of the reader that the search ran against.
+    * @param vversion The reader version, or a negative number if it
+    * is unknown.
+    */
+   public void setVersion(final long vversion) {
+      version = vversion;
+   }
 }
@@ -23,9 +23,12 @@ import java.util.Map;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import com.fuerve.villageelder.client.commandline.commands.Batch;
 import com.fuerve.villageelder.client.commandline.commands.Command;
+import com.fuerve.villageelder.client.commandline.commands.Export;
 import com.fuerve.villageelder.client.commandline.commands.Index;
 import com.fuerve.villageelder.client.commandline.commands.Version;
+import com.fuerve.villageelder.client.commandline.commands.Watch;
 
 /**
  * This class is the entry point for the command line interface
@@ -59,7 +62,7 @@ public class Main {
          
          if (commandMap.containsKey(commandName)) {
             final Command command = commandMap.get(commandName);
-            command.execute(remainingArgs);
+            return command.execute(remainingArgs);
          }
          return 0;
       }
@@ -73,5 +76,8 @@ public class Main {
    private static void setupCommandMap() {
       commandMap.put("version", new Version());
       commandMap.put("index", new Index());
+      commandMap.put("export", new Export());
+      commandMap.put("watch", new Watch());
+      commandMap.put("batch", new Batch(commandMap));
    }
 }
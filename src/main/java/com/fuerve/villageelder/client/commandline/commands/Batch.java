@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * The 'batch' command, which runs many commands, one per line of a
+ * file or of standard input, in a single process.  The commands share
+ * the loaded configuration and their open indices and repositories,
+ * which are closed once the batch ends.  Arguments are separated by
+ * whitespace and may be quoted with double or single quotes, blank
+ * lines are skipped, and lines that start with '#' are comments.
+ * @author lparker
+ *
+ */
+public class Batch extends Command {
+   private static final String ENCODING = "UTF-8";
+   private static final String STANDARD_INPUT = "-";
+   
+   private final Map<String, Command> commands;
+   
+   private String file;
+   private boolean stopOnError;
+   
+   private boolean doOperation = true;
+   
+   /**
+    * Initializes a new instance of Batch.
+    * @param ccommands The commands that a batch may run, by name.
+    */
+   public Batch(final Map<String, Command> ccommands) {
+      super();
+      if (ccommands == null) {
+         throw new IllegalArgumentException("A batch requires commands to run");
+      }
+      commands = ccommands;
+      addOption("?", "help", false, "Show help for the batch command");
+      addOption("f", "file", true, "The file of commands to run, one per line (default standard input)");
+      addOption("x", "stoponerror", false, "Stop at the first command that fails");
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.client.commandline.commands.Command#getCommandName()
+    */
+   @Override
+   protected String getCommandName() {
+      return "batch";
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.client.commandline.commands.Command#execute(java.lang.String[])
+    */
+   @Override
+   public int execute(final String[] args) {
+      file = null;
+      stopOnError = false;
+      doOperation = true;
+      
+      parseArgs(args);
+      if (doOperation == false) {
+         return 0;
+      }
+      
+      BufferedReader reader = null;
+      final Session session = new Session(getSearcherFactory());
+      int failures = 0;
+      try {
+         final InputStream input =
+               file == null || STANDARD_INPUT.equals(file) ?
+                     System.in : new FileInputStream(file);
+         reader = new BufferedReader(new InputStreamReader(input, ENCODING));
+         
+         String line;
+         int lineNumber = 0;
+         while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int code;
+            try {
+               final String[] tokens = tokenize(line);
+               if (tokens.length == 0) {
+                  continue;
+               }
+               code = run(tokens, session);
+            } catch (IllegalArgumentException e) {
+               System.err.println("ERROR: " + e.getMessage());
+               code = 1;
+            }
+            
+            if (code != 0) {
+               failures++;
+               System.err.println(
+                     String.format("ERROR: Line %d failed: %s", lineNumber, line.trim())
+               );
+               if (stopOnError) {
+                  break;
+               }
+            }
+         }
+      } catch (IOException e) {
+         System.err.println("ERROR: " + e.getMessage());
+         return 1;
+      } finally {
+         try {
+            if (reader != null && file != null && STANDARD_INPUT.equals(file) == false) {
+               reader.close();
+            }
+            session.close();
+         } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage());
+         }
+      }
+      
+      return failures == 0 ? 0 : 1;
+   }
+   
+   /**
+    * Runs a single command of the batch with the shared resources.
+    * @param tokens The name of the command followed by its arguments.
+    * @param session The resources shared by the batch.
+    * @return The return code of the command.
+    */
+   private int run(final String[] tokens, final Session session) {
+      final Command command = commands.get(tokens[0]);
+      if (command == null || command == this) {
+         System.err.println("Unknown command: " + tokens[0]);
+         return 1;
+      }
+      
+      command.setSession(session);
+      try {
+         return command.execute(ArrayUtils.subarray(tokens, 1, tokens.length));
+      } finally {
+         command.setSession(null);
+      }
+   }
+   
+   /**
+    * Splits a line of a batch into the name of a command and its
+    * arguments.
+    * @param line The line.
+    * @return The name of the command followed by its arguments, or an
+    * empty array if the line is blank or a comment.
+    */
+   static String[] tokenize(final String line) {
+      final List<String> result = new ArrayList<String>();
+      final String trimmed = line.trim();
+      if (trimmed.startsWith("#")) {
+         return new String[0];
+      }
+      
+      final StringBuilder token = new StringBuilder();
+      boolean inToken = false;
+      char quote = 0;
+      for (int i = 0; i < trimmed.length(); i++) {
+         final char c = trimmed.charAt(i);
+         if (quote != 0) {
+            if (c == quote) {
+               quote = 0;
+            } else {
+               token.append(c);
+            }
+         } else if (c == '"' || c == '\'') {
+            quote = c;
+            inToken = true;
+         } else if (Character.isWhitespace(c)) {
+            if (inToken) {
+               result.add(token.toString());
+               token.setLength(0);
+               inToken = false;
+            }
+         } else {
+            token.append(c);
+            inToken = true;
+         }
+      }
+      if (quote != 0) {
+         throw new IllegalArgumentException("Unterminated quote in batch line: " + line);
+      }
+      if (inToken) {
+         result.add(token.toString());
+      }
+      return result.toArray(new String[result.size()]);
+   }
+   
+   /**
+    * Parses the command line arguments passed in to this command.
+    * @param args The arguments that were passed in.
+    */
+   private void parseArgs(final String[] args) {
+      CommandLine commandLine = parseCommandLine(args);
+      if (commandLine.hasOption("?")) {
+         printHelp(true);
+         doOperation = false;
+         return;
+      }
+      
+      if (commandLine.hasOption("f")) {
+         file = commandLine.getOptionValue("f");
+      }
+      
+      stopOnError = commandLine.hasOption("x");
+   }
+}
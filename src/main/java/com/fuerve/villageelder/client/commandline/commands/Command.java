@@ -38,6 +38,7 @@ import com.fuerve.villageelder.configuration.PropertyContainer;
 public abstract class Command {
    private Options options;
    private PropertyContainer propertyContainer;
+   private Session session;
    
    /**
     * Initializes a new instance of Command with
@@ -125,6 +126,44 @@ public abstract class Command {
       return propertyContainer;
    }
    
+   /**
+    * Sets the resources that this command shares with the other
+    * commands of a batch.
+    * @param ssession The shared resources, or null if this command
+    * runs on its own.
+    */
+   public void setSession(final Session ssession) {
+      session = ssession;
+   }
+   
+   /**
+    * Gets the resources that this command shares with the other
+    * commands of a batch.
+    * @return The shared resources, or null if this command runs on
+    * its own and must open and close its own resources.
+    */
+   protected Session getSession() {
+      return session;
+   }
+   
+   /**
+    * Gets the factory with which this command creates its searchers,
+    * which is that of the batch if this command is part of one.
+    * @return The searcher factory.
+    */
+   protected SearcherFactory getSearcherFactory() {
+      if (session != null) {
+         return session.getSearcherFactory();
+      }
+      final PropertyContainer properties = getProperties();
+      return properties == null ?
+            new SearcherFactory(null, null) :
+            new SearcherFactory(
+                  properties.getCommonProperties(),
+                  properties.getSearchProperties()
+            );
+   }
+   
    /**
     * This method shall be implemented by subclasses to return a
     * simple string containing the name of the command, which is
@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.commons.cli.CommandLine;
+
+import com.fuerve.villageelder.actions.ActionException;
+import com.fuerve.villageelder.actions.ExportAction;
+import com.fuerve.villageelder.actions.results.ExportResult;
+import com.fuerve.villageelder.configuration.PropertyContainer;
+import com.fuerve.villageelder.search.ExportFormat;
+import com.fuerve.villageelder.search.RevisionExporter;
+import com.fuerve.villageelder.search.Searcher;
+
+/**
+ * The 'export' command, which writes every revision that matches a
+ * query to a CSV or JSON file, or to standard output.  Progress and
+ * errors are printed to standard error, so that they never mix with
+ * exported revisions.
+ * @author lparker
+ *
+ */
+public class Export extends Command {
+   private static final String ENCODING = "UTF-8";
+   
+   private String indexDir;
+   private String query;
+   private ExportFormat format = ExportFormat.CSV;
+   private String output;
+   private boolean revisionOrder;
+   
+   private boolean doOperation = true;
+   
+   /**
+    * Initializes a new instance of Export.
+    */
+   public Export() {
+      super();
+      addOption("?", "help", false, "Show help for the export command");
+      addOption(null, "indexdir", true, "The directory of the index from which to export");
+      addOption("q", "query", true, "The query whose revisions to export");
+      addOption("f", "format", true, "The format of the export, CSV (default) or JSON");
+      addOption("o", "output", true, "The file to which to export (default standard output)");
+      addOption("r", "revisionorder", false, "Export by ascending revision number rather than index order");
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.client.commandline.commands.Command#getCommandName()
+    */
+   @Override
+   protected String getCommandName() {
+      return "export";
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.client.commandline.commands.Command#execute(java.lang.String[])
+    */
+   @Override
+   public int execute(final String[] args) {
+      setDefaults();
+      
+      if (parseArgs(args) == false) {
+         return 1;
+      }
+      
+      if (doOperation == false) {
+         return 0;
+      }
+      
+      // A batch shares its searchers, which stay open for the commands
+      // that follow.
+      final Session session = getSession();
+      Searcher searcher = null;
+      Writer writer = null;
+      try {
+         if (session != null) {
+            searcher = session.getSearcher(indexDir);
+         } else {
+            searcher = getSearcherFactory().newSearcher(indexDir);
+         }
+         writer =
+               output == null ?
+                     new BufferedWriter(new OutputStreamWriter(System.out, ENCODING)) :
+                     new BufferedWriter(
+                           new OutputStreamWriter(new FileOutputStream(output), ENCODING)
+                     );
+         
+         final RevisionExporter exporter = new RevisionExporter(searcher, format);
+         exporter.setRevisionOrder(revisionOrder);
+         final ExportResult result = new ExportAction(exporter, query, writer).doWork();
+         System.err.println(
+               String.format(
+                     "Revisions: %d%s",
+                     result.getRevisionCount(),
+                     result.isPartial() ? " (partial)" : ""
+               )
+         );
+         return 0;
+      } catch (IOException e) {
+         System.err.println("ERROR: " + e.getMessage());
+         return 1;
+      } catch (ActionException e) {
+         System.err.println("ERROR: " + e.getCause().getMessage());
+         return 1;
+      } finally {
+         try {
+            if (writer != null) {
+               if (output != null) {
+                  writer.close();
+               } else {
+                  writer.flush();
+               }
+            }
+            if (searcher != null && session == null) {
+               searcher.dispose();
+            }
+         } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage());
+         }
+      }
+   }
+   
+   /**
+    * Gathers up properties and sets defaults, forgetting the arguments
+    * of any earlier run of this command.
+    */
+   private void setDefaults() {
+      indexDir = null;
+      query = null;
+      format = ExportFormat.CSV;
+      output = null;
+      revisionOrder = false;
+      doOperation = true;
+      
+      PropertyContainer properties = getProperties();
+      if (properties != null) {
+         // The configured index is opened from its pathname, so that it
+         // is opened with the configured directory type.
+         indexDir = properties.getCommonProperties().getIndexDirectoryPath();
+      }
+   }
+   
+   /**
+    * Parses the command line arguments passed in to this command.
+    * @param args The arguments that were passed in.
+    * @return True if the arguments were correctly parsed, false otherwise.
+    */
+   private boolean parseArgs(final String[] args) {
+      CommandLine commandLine = parseCommandLine(args);
+      if (commandLine.hasOption("?")) {
+         printHelp(true);
+         doOperation = false;
+         return true;
+      }
+      
+      if (commandLine.hasOption("indexdir")) {
+         indexDir = commandLine.getOptionValue("indexdir");
+      }
+      
+      if (commandLine.hasOption("q") == false) {
+         System.err.println("A query is required");
+         printHelp(true);
+         doOperation = false;
+         return false;
+      }
+      query = commandLine.getOptionValue("q");
+      
+      if (commandLine.hasOption("f")) {
+         try {
+            format = ExportFormat.valueOf(commandLine.getOptionValue("f").toUpperCase());
+         } catch (IllegalArgumentException e) {
+            System.err.println("Invalid export format");
+            printHelp(true);
+            doOperation = false;
+            return false;
+         }
+      }
+      
+      if (commandLine.hasOption("o")) {
+         output = commandLine.getOptionValue("o");
+      }
+      
+      revisionOrder = commandLine.hasOption("r");
+      
+      if (indexDir == null) {
+         System.err.println("An index directory is required");
+         doOperation = false;
+         return false;
+      }
+      
+      return true;
+   }
+}
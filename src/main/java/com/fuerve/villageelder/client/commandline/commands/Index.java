@@ -19,6 +19,7 @@
 package com.fuerve.villageelder.client.commandline.commands;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
@@ -29,12 +30,15 @@ import com.fuerve.villageelder.actions.ActionException;
 import com.fuerve.villageelder.actions.FetchRevisionsAction;
 import com.fuerve.villageelder.actions.IndexAction;
 import com.fuerve.villageelder.actions.results.IndexResult;
+import com.fuerve.villageelder.actions.results.IndexResultItem;
 import com.fuerve.villageelder.configuration.PropertyContainer;
 import com.fuerve.villageelder.indexing.Indexer;
 import com.fuerve.villageelder.sourcecontrol.Repository;
 import com.fuerve.villageelder.sourcecontrol.RepositoryFactory;
 import com.fuerve.villageelder.sourcecontrol.RepositoryProviderType;
 import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+import com.fuerve.villageelder.sourcecontrol.SubversionXmlLogReader;
+import com.fuerve.villageelder.sourcecontrol.SubversionXmlLogRepository;
 
 /**
  * The 'index' command.
@@ -42,15 +46,19 @@ import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
  *
  */
 public class Index extends Command {
+   private static final int DEFAULT_FETCH_SIZE = 500;
+   
    private String indexDir = "";
    private Directory indexDirectory;
    private String taxonomyDir = "";
    private Directory taxonomyDirectory;
    private String repository = "";
    private RepositoryProviderType providerType;
+   private boolean lowMemory;
    
    private long startRevision = 0;
    private long endRevision = -1;
+   private int fetchSize = DEFAULT_FETCH_SIZE;
    
    private boolean doOperation = true;
    
@@ -61,11 +69,12 @@ public class Index extends Command {
       super();
       addOption("?", "help", false, "Show help for the index command");
       addOption(null, "indexdir", true, "The directory into which to create/update the index");
-      addOption(null, "taxonomydir", true, "The directory into which to create/update the taxonomy (facet) index");
+      addOption(null, "taxonomydir", true, "The directory into which to create/update the taxonomy (facet) index, if any");
       addOption(null, "repository", true, "The repository path from which to gather revision history");
       addOption(null, "repositoryType", true, "The type of repository from which to gather revision history (ie. Subversion)");
       addOption("s", "start", true, "The revision number at which to start indexing (default 0)");
       addOption("e", "end", true, "The revision number at which to end indexing (default -1 for all)");
+      addOption(null, "fetchsize", true, "The number of revisions to fetch and index at a time (default 500)");
    }
 
    /* (non-Javadoc)
@@ -100,21 +109,18 @@ public class Index extends Command {
       //TODO: Should we inject a sleep in here to give the user
       // a chance to abort?  Or even a yes/no prompt?
       
-      // Grobble the logs and create the index.
-      //TODO: That.
-      List<RevisionInfo> revisions = fetchRevisionHistory();
-      
-      if (revisions == null) {
+      // Grobble the logs and create the index, a chunk of revisions at
+      // a time so that a long history is never held in memory at once.
+      Repository repo =
+            getSession() == null ?
+                  RepositoryFactory.getRepositoryInstance(providerType, repository) :
+                  getSession().getRepository(providerType, repository);
+      if (repo == null) {
+         System.out.println("ERROR: Unknown repository type " + providerType);
          return 1;
-      } else {
-         System.out.println(
-               String.format(
-                     "Revisions: %d", revisions.size()
-               )
-         );
       }
       
-      IndexResult indexResult = indexRevisionHistory(revisions);
+      IndexResult indexResult = indexRevisionHistory(repo);
       if (indexResult == null) {
          return 1;
       } else {
@@ -131,35 +137,14 @@ public class Index extends Command {
    }
    
    /**
-    * Fetches a set of revision logs from the repository.
-    * @return The list of revision entries.
+    * Creates an index out of the revision logs of the repository,
+    * fetching and indexing a chunk of revisions at a time.
+    * @param repo The repository from which to fetch the revision logs.
+    * @return The indexing result, or null if indexing failed.
     */
-   private List<RevisionInfo> fetchRevisionHistory() {
-      Repository repo =
-            RepositoryFactory.getRepositoryInstance(providerType, repository);
-      FetchRevisionsAction fetch =
-            new FetchRevisionsAction(repo, startRevision, endRevision);
-      List<RevisionInfo> result = null;
-      
-      try {
-         result = fetch.doWork().getValue();
-      } catch (ActionException e) {
-         System.out.println("ERROR: " + e.getMessage());
-         if (e.getCause().getCause() != null) {
-            System.out.println("Cause: " + e.getCause().getCause().getMessage());
-         }
-      }
-      
-      return result;
-   }
-   
-   /**
-    * Creates an index out of a set of revision logs.
-    * @param revisions The revision logs to index.
-    * @return The indexing result.
-    */
-   private IndexResult indexRevisionHistory(List<RevisionInfo> revisions) {
+   private IndexResult indexRevisionHistory(final Repository repo) {
       Indexer indexer = new Indexer(indexDirectory, taxonomyDirectory, OpenMode.CREATE);
+      indexer.setLowMemory(lowMemory);
       try {
          indexer.initializeIndex();
       } catch (IOException e) {
@@ -167,14 +152,29 @@ public class Index extends Command {
          return null;
       }
       
-      IndexAction indexAction = new IndexAction(indexer, revisions);
-      IndexResult result = null;
-      
       try {
-         result = indexAction.doWork();
+         final long revisions =
+               repo instanceof SubversionXmlLogRepository ?
+                     indexRevisionLog(
+                           indexer,
+                           (SubversionXmlLogRepository) repo,
+                           startRevision,
+                           endRevision,
+                           fetchSize
+                     ) :
+                     indexRevisionRanges(indexer, repo, startRevision, endRevision, fetchSize);
+         System.out.println(String.format("Revisions: %d", revisions));
+         final IndexResult result = new IndexResult();
+         result.aggregate(new IndexResultItem(indexer.getMaxDoc(), indexer.getTaxonomySize()));
          return result;
+      } catch (IOException e) {
+         System.out.println("ERROR: " + e.getMessage());
+         return null;
       } catch (ActionException e) {
          System.out.println("ERROR: " + e.getMessage());
+         if (e.getCause().getCause() != null) {
+            System.out.println("Cause: " + e.getCause().getCause().getMessage());
+         }
          return null;
       } finally {
          try {
@@ -191,15 +191,101 @@ public class Index extends Command {
    }
    
    /**
-    * Gathers up properties and sets defaults.
+    * Indexes a range of revisions, fetching them from the repository
+    * a chunk at a time.
+    * @param indexer The indexer of the new index.
+    * @param repo The repository from which to fetch the revision logs.
+    * @param start The lowest revision number to index.
+    * @param end The highest revision number to index, or -1 to index
+    * through the head revision.
+    * @param fetchSize The largest number of revisions per chunk.
+    * @return The number of revisions indexed.
+    * @throws IOException A fatal exception occurred while finding the
+    * head revision of the repository.
+    * @throws ActionException A fatal exception occurred while fetching
+    * or indexing a chunk of revisions.
+    */
+   static long indexRevisionRanges(
+         final Indexer indexer,
+         final Repository repo,
+         final long start,
+         final long end,
+         final int fetchSize) throws IOException, ActionException {
+      final long head = end < 0 ? repo.getLatestRevision() : end;
+      long result = 0;
+      for (long begin = Math.max(start, 0); begin <= head; begin += fetchSize) {
+         final List<RevisionInfo> revisions =
+               new FetchRevisionsAction(repo, begin, Math.min(head, begin + fetchSize - 1))
+                     .doWork()
+                     .getValue();
+         new IndexAction(indexer, revisions).doWork();
+         result += revisions.size();
+      }
+      return result;
+   }
+   
+   /**
+    * Indexes a range of revisions of a Subversion log file, reading the
+    * log once from start to end and indexing a chunk at a time.
+    * @param indexer The indexer of the new index.
+    * @param repo The Subversion log file from which to read the
+    * revision logs.
+    * @param start The lowest revision number to index.
+    * @param end The highest revision number to index, or -1 to index
+    * through the head revision.
+    * @param fetchSize The largest number of revisions per chunk.
+    * @return The number of revisions indexed.
+    * @throws IOException A fatal exception occurred while reading the
+    * log file.
+    * @throws ActionException A fatal exception occurred while indexing
+    * a chunk of revisions.
+    */
+   static long indexRevisionLog(
+         final Indexer indexer,
+         final SubversionXmlLogRepository repo,
+         final long start,
+         final long end,
+         final int fetchSize) throws IOException, ActionException {
+      final List<RevisionInfo> revisions = new ArrayList<RevisionInfo>(fetchSize);
+      long result = 0;
+      final SubversionXmlLogReader reader = repo.getRevisions(start, end);
+      try {
+         while (reader.hasNext()) {
+            revisions.add(reader.next());
+            if (revisions.size() == fetchSize || reader.hasNext() == false) {
+               new IndexAction(indexer, revisions).doWork();
+               result += revisions.size();
+               revisions.clear();
+            }
+         }
+      } catch (RuntimeException e) {
+         if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+         }
+         throw e;
+      } finally {
+         reader.close();
+      }
+      return result;
+   }
+   
+   /**
+    * Gathers up properties and sets defaults, forgetting the arguments
+    * of any earlier run of this command.
     */
    private void setDefaults() {
+      startRevision = 0;
+      endRevision = -1;
+      fetchSize = DEFAULT_FETCH_SIZE;
+      doOperation = true;
+      
       PropertyContainer properties = getProperties();
       if (properties != null) {
          indexDirectory = properties.getCommonProperties().getIndexDirectory();
          taxonomyDirectory = properties.getCommonProperties().getTaxonomyDirectory();
          repository = properties.getSourceControlProperties().getRepositoryPath();
          providerType = properties.getSourceControlProperties().getProviderType();
+         lowMemory = properties.getIndexProperties().isLowMemory();
          
          if (indexDirectory != null) {
             indexDir = extractPathFromDirectory(indexDirectory);
@@ -277,6 +363,20 @@ public class Index extends Command {
                return false;
             }
          }
+         
+         if (commandLine.hasOption("fetchsize")) {
+            try {
+               fetchSize = Integer.parseInt(commandLine.getOptionValue("fetchsize"));
+            } catch (NumberFormatException e) {
+               fetchSize = 0;
+            }
+            if (fetchSize < 1) {
+               System.out.println("Invalid fetch size");
+               printHelp(true);
+               doOperation = false;
+               return false;
+            }
+         }
       }
       
       return true;
@@ -293,7 +393,8 @@ public class Index extends Command {
       sb.append("Repository path: " + repository + "\n");
       sb.append("Repository type: " + providerType.toString() + "\n");
       sb.append("Start revision: " + startRevision + "\n");
-      sb.append("End revision: " + endRevision);
+      sb.append("End revision: " + endRevision + "\n");
+      sb.append("Fetch size: " + fetchSize);
       
       System.out.println(sb.toString());
    }
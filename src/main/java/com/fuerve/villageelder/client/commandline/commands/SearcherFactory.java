@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import java.io.IOException;
+
+import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+
+import com.fuerve.villageelder.configuration.CommonProperties;
+import com.fuerve.villageelder.configuration.SearchProperties;
+import com.fuerve.villageelder.search.AdmissionController;
+import com.fuerve.villageelder.search.DocumentCache;
+import com.fuerve.villageelder.search.FilterCache;
+import com.fuerve.villageelder.search.QueryLog;
+import com.fuerve.villageelder.search.QueryLogWarmer;
+import com.fuerve.villageelder.search.Searcher;
+
+/**
+ * Creates the searchers of the commands, configured by the search
+ * properties.  The admission controller, the caches and the query log
+ * are created once, and shared by every searcher of the factory.
+ * @author lparker
+ *
+ */
+public class SearcherFactory {
+   private final CommonProperties commonProperties;
+   private final SearchProperties searchProperties;
+   private boolean sharedInitialized;
+   private AdmissionController admissionController;
+   private FilterCache filterCache;
+   private DocumentCache documentCache;
+   private QueryLog queryLog;
+   
+   /**
+    * Initializes a new instance of SearcherFactory.
+    * @param ccommonProperties The common properties, which choose how
+    * index directories are opened, or null to open them with Lucene's
+    * choice of directory.
+    * @param ssearchProperties The search properties, or null to create
+    * searchers with their default settings.
+    */
+   public SearcherFactory(
+         final CommonProperties ccommonProperties,
+         final SearchProperties ssearchProperties) {
+      commonProperties = ccommonProperties;
+      searchProperties = ssearchProperties;
+   }
+   
+   /**
+    * Creates an initialized searcher of an index on disk.
+    * @param indexDir The pathname of the index.
+    * @return The new searcher.
+    * @throws IOException A fatal exception occurred while opening the
+    * index or loading the query log.
+    */
+   public Searcher newSearcher(final String indexDir) throws IOException {
+      return initialize(new Searcher(indexDir));
+   }
+   
+   /**
+    * Creates an initialized searcher of an index.
+    * @param indexDirectory The directory of the index.
+    * @return The new searcher.
+    * @throws IOException A fatal exception occurred while opening the
+    * index or loading the query log.
+    */
+   public Searcher newSearcher(final Directory indexDirectory) throws IOException {
+      return initialize(new Searcher(indexDirectory));
+   }
+   
+   /**
+    * Creates an initialized near-real-time searcher of an index that
+    * is being written.
+    * @param indexWriter The writer of the index.
+    * @param taxonomyWriter The writer of the taxonomy index.
+    * @return The new searcher.
+    * @throws IOException A fatal exception occurred while opening the
+    * index or loading the query log.
+    */
+   public Searcher newSearcher(
+         final IndexWriter indexWriter,
+         final TaxonomyWriter taxonomyWriter) throws IOException {
+      return initialize(new Searcher(indexWriter, taxonomyWriter));
+   }
+   
+   /**
+    * Applies the search properties to a new searcher and initializes
+    * it.  The directory factory, the warmer and the leases must be set
+    * before the first reader is opened.
+    * @param searcher The searcher to configure.
+    * @return The searcher.
+    * @throws IOException A fatal exception occurred while opening the
+    * index or loading the query log.
+    */
+   private Searcher initialize(final Searcher searcher) throws IOException {
+      if (commonProperties != null) {
+         searcher.setDirectoryFactory(commonProperties.getDirectoryFactory());
+      }
+      if (searchProperties != null) {
+         initializeShared();
+         searcher.setFacetSampling(searchProperties.getFacetSampling());
+         searcher.setTimeout(searchProperties.getTimeout());
+         searcher.setCostEstimator(searchProperties.getQueryCostEstimator());
+         searcher.setAdmissionController(admissionController);
+         searcher.setFilterCache(filterCache);
+         searcher.setDocumentCache(documentCache);
+         searcher.setLowMemory(searchProperties.isLowMemory());
+         searcher.setLeases(searchProperties.getSearcherLeases());
+         if (queryLog != null) {
+            final QueryLogWarmer warmer =
+                  new QueryLogWarmer(queryLog, searchProperties.getWarmQueries());
+            warmer.setFilterCache(filterCache);
+            searcher.setQueryLog(queryLog);
+            searcher.setWarmer(warmer);
+         }
+      }
+      searcher.initializeSearch();
+      return searcher;
+   }
+   
+   /**
+    * Creates the resources that every searcher of this factory shares,
+    * the first time that they are needed.
+    * @throws IOException A fatal exception occurred while loading the
+    * query log.
+    */
+   private void initializeShared() throws IOException {
+      if (sharedInitialized) {
+         return;
+      }
+      admissionController = searchProperties.getAdmissionController();
+      filterCache = searchProperties.getFilterCache();
+      documentCache = searchProperties.getDocumentCache();
+      queryLog = searchProperties.getQueryLog();
+      sharedInitialized = true;
+   }
+}
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.store.Directory;
+
+import com.fuerve.villageelder.search.Searcher;
+import com.fuerve.villageelder.sourcecontrol.Repository;
+import com.fuerve.villageelder.sourcecontrol.RepositoryFactory;
+import com.fuerve.villageelder.sourcecontrol.RepositoryProviderType;
+
+/**
+ * The resources that the commands of a batch share, so that each
+ * index is opened and each repository connected to only once, however
+ * many commands use them.  A searcher is refreshed whenever it is
+ * handed out again, so that it sees what earlier commands indexed.
+ * @author lparker
+ *
+ */
+public class Session {
+   private final Map<Object, Searcher> searchers = new HashMap<Object, Searcher>();
+   private final Map<String, Repository> repositories = new HashMap<String, Repository>();
+   private final SearcherFactory searcherFactory;
+   
+   /**
+    * Initializes a new instance of Session.
+    * @param ssearcherFactory The factory that creates the searchers of
+    * the session.
+    */
+   public Session(final SearcherFactory ssearcherFactory) {
+      if (ssearcherFactory == null) {
+         throw new IllegalArgumentException("A session requires a searcher factory");
+      }
+      searcherFactory = ssearcherFactory;
+   }
+   
+   /**
+    * Gets the factory that creates the searchers of this session.
+    * @return The searcher factory.
+    */
+   public SearcherFactory getSearcherFactory() {
+      return searcherFactory;
+   }
+   
+   /**
+    * Gets an initialized searcher of an index on disk.
+    * @param indexDir The pathname of the index.
+    * @return The searcher, which must not be disposed by the command.
+    * @throws IOException A fatal exception occurred while opening or
+    * refreshing the index.
+    */
+   public Searcher getSearcher(final String indexDir) throws IOException {
+      if (indexDir == null) {
+         throw new IllegalArgumentException("A searcher requires an index");
+      }
+      Searcher result = searchers.get(indexDir);
+      if (result == null) {
+         result = searcherFactory.newSearcher(indexDir);
+         searchers.put(indexDir, result);
+      } else {
+         result.refresh();
+      }
+      return result;
+   }
+   
+   /**
+    * Gets an initialized searcher of an index.
+    * @param indexDirectory The directory of the index.
+    * @return The searcher, which must not be disposed by the command.
+    * @throws IOException A fatal exception occurred while opening or
+    * refreshing the index.
+    */
+   public Searcher getSearcher(final Directory indexDirectory) throws IOException {
+      if (indexDirectory == null) {
+         throw new IllegalArgumentException("A searcher requires an index");
+      }
+      Searcher result = searchers.get(indexDirectory);
+      if (result == null) {
+         result = searcherFactory.newSearcher(indexDirectory);
+         searchers.put(indexDirectory, result);
+      } else {
+         result.refresh();
+      }
+      return result;
+   }
+   
+   /**
+    * Gets a repository.
+    * @param providerType The type of the repository.
+    * @param path The path of the repository.
+    * @return The repository, or null if there is no provider of the
+    * type.
+    */
+   public Repository getRepository(
+         final RepositoryProviderType providerType,
+         final String path) {
+      final String key = providerType + ":" + path;
+      Repository result = repositories.get(key);
+      if (result == null) {
+         result = RepositoryFactory.getRepositoryInstance(providerType, path);
+         if (result != null) {
+            repositories.put(key, result);
+         }
+      }
+      return result;
+   }
+   
+   /**
+    * Gets the number of indices that are open.
+    * @return The number of searchers.
+    */
+   public int getSearcherCount() {
+      return searchers.size();
+   }
+   
+   /**
+    * Closes every index that was opened.
+    * @throws IOException A fatal exception occurred while closing an
+    * index.  Every index is closed regardless.
+    */
+   public void close() throws IOException {
+      IOException failure = null;
+      for (Searcher searcher : searchers.values()) {
+         try {
+            searcher.dispose();
+         } catch (IOException e) {
+            failure = e;
+         }
+      }
+      searchers.clear();
+      repositories.clear();
+      if (failure != null) {
+         throw failure;
+      }
+   }
+}
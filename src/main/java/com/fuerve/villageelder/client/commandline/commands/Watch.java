@@ -0,0 +1,342 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import com.fuerve.villageelder.configuration.PropertyContainer;
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.indexing.RevisionWatcher;
+import com.fuerve.villageelder.search.Searcher;
+import com.fuerve.villageelder.sourcecontrol.Repository;
+import com.fuerve.villageelder.sourcecontrol.RepositoryFactory;
+import com.fuerve.villageelder.sourcecontrol.RepositoryProviderType;
+
+/**
+ * The 'watch' command, which runs until it is stopped, indexing new
+ * revisions as they are committed to the repository.  New revisions
+ * are made searchable through a near-real-time searcher of the index
+ * as soon as they are indexed, and are committed to disk in batches.
+ * Pending revisions are committed when the command is stopped.
+ * @author lparker
+ *
+ */
+public class Watch extends Command {
+   private Directory indexDirectory;
+   private Directory taxonomyDirectory;
+   private String repository = "";
+   private RepositoryProviderType providerType;
+   private boolean lowMemory;
+   
+   private long startRevision;
+   private long minDelay;
+   private long maxDelay;
+   private int commitRevisions;
+   private long commitMillis;
+   
+   private final Object stopSignal = new Object();
+   private boolean running;
+   private volatile Thread shutdownHook;
+   private boolean doOperation = true;
+   
+   /**
+    * Initializes a new instance of Watch.
+    */
+   public Watch() {
+      super();
+      addOption("?", "help", false, "Show help for the watch command");
+      addOption(null, "indexdir", true, "The directory of the index to keep up to date");
+      addOption(null, "taxonomydir", true, "The directory of the taxonomy (facet) index, if any");
+      addOption(null, "repository", true, "The repository path to watch");
+      addOption(null, "repositoryType", true, "The type of repository to watch (ie. Subversion)");
+      addOption("s", "start", true, "The last revision already indexed (default the last revision in the index)");
+      addOption("i", "interval", true, "The delay between polls while revisions arrive, in milliseconds (default 1000)");
+      addOption("m", "maxinterval", true, "The longest delay between idle polls, in milliseconds (default 60000)");
+      addOption("c", "commitrevisions", true, "The number of pending revisions at which to commit (default 1000)");
+      addOption("t", "commitinterval", true, "The longest time a revision waits to be committed, in milliseconds (default 30000)");
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.client.commandline.commands.Command#getCommandName()
+    */
+   @Override
+   protected String getCommandName() {
+      return "watch";
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.client.commandline.commands.Command#execute(java.lang.String[])
+    */
+   @Override
+   public int execute(final String[] args) {
+      setDefaults();
+      
+      if (parseArgs(args) == false) {
+         return 1;
+      }
+      
+      if (doOperation == false) {
+         return 0;
+      }
+      
+      final Repository repo = getSession() == null ?
+            RepositoryFactory.getRepositoryInstance(providerType, repository) :
+            getSession().getRepository(providerType, repository);
+      if (repo == null) {
+         System.out.println("ERROR: Unknown repository type " + providerType);
+         return 1;
+      }
+      
+      final Indexer indexer =
+            new Indexer(indexDirectory, taxonomyDirectory, OpenMode.CREATE_OR_APPEND);
+      indexer.setLowMemory(lowMemory);
+      Searcher searcher = null;
+      final CountDownLatch finished = new CountDownLatch(1);
+      final Thread hook = new Thread() {
+         @Override
+         public void run() {
+            // Let the watch commit what it has indexed before the
+            // process exits.  The watch is signalled rather than
+            // interrupted, since interrupting a write to the index
+            // would close its files.
+            requestStop();
+            try {
+               finished.await();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      };
+      
+      try {
+         indexer.initializeIndex();
+         final long lastRevision =
+               startRevision >= -1 ? startRevision : indexer.getLastRevision();
+         final RevisionWatcher watcher = new RevisionWatcher(repo, indexer, lastRevision);
+         watcher.setDelay(minDelay, maxDelay);
+         watcher.setCommitPolicy(commitRevisions, commitMillis);
+         searcher = getSearcherFactory().newSearcher(
+               indexer.getIndexWriter(),
+               indexer.getTaxonomyWriter()
+         );
+         
+         System.out.println("Watching from revision " + (lastRevision + 1));
+         synchronized (stopSignal) {
+            running = true;
+            shutdownHook = hook;
+         }
+         Runtime.getRuntime().addShutdownHook(hook);
+         watch(watcher, searcher);
+         watcher.commit();
+         return 0;
+      } catch (IOException e) {
+         System.out.println("ERROR: " + e.getMessage());
+         return 1;
+      } catch (IllegalArgumentException e) {
+         System.out.println("ERROR: " + e.getMessage());
+         return 1;
+      } finally {
+         requestStop();
+         shutdownHook = null;
+         try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+         } catch (IllegalStateException e) {
+            // The process is already shutting down.
+         }
+         try {
+            if (searcher != null) {
+               searcher.dispose();
+            }
+            indexer.dispose();
+         } catch (IOException e) {
+            System.out.println("ERROR: " + e.getMessage());
+         } catch (IllegalArgumentException e) {
+            // The index was never initialized.
+         } finally {
+            finished.countDown();
+         }
+      }
+   }
+   
+   /**
+    * Polls the repository until the watch is stopped, refreshing the
+    * searcher whenever new revisions are indexed.  A failed poll is
+    * reported and retried after the next delay.
+    * @param watcher The watcher of the repository.
+    * @param searcher The near-real-time searcher of the index.
+    * @throws IOException A fatal exception occurred while refreshing
+    * the searcher.
+    */
+   private void watch(final RevisionWatcher watcher, final Searcher searcher)
+         throws IOException {
+      while (true) {
+         int indexed = 0;
+         try {
+            indexed = watcher.poll();
+         } catch (IOException e) {
+            System.out.println("ERROR: " + e.getMessage());
+         }
+         
+         if (indexed > 0) {
+            searcher.refresh();
+            System.out.println(
+                  String.format(
+                        "Indexed %d revisions through revision %d (%d pending commit)",
+                        indexed,
+                        watcher.getLastRevision(),
+                        watcher.getPendingCount()
+                  )
+            );
+         }
+         
+         synchronized (stopSignal) {
+            if (running == false) {
+               return;
+            }
+            try {
+               stopSignal.wait(watcher.getDelay());
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               return;
+            }
+            if (running == false) {
+               return;
+            }
+         }
+      }
+   }
+   
+   /**
+    * Stops the watch once its current poll is done.
+    */
+   private void requestStop() {
+      synchronized (stopSignal) {
+         running = false;
+         stopSignal.notifyAll();
+      }
+   }
+   
+   /**
+    * Gets the hook that stops the watch and waits for it to commit when
+    * the process is shut down.
+    * @return The shutdown hook, or null if the watch is not running.
+    */
+   Thread getShutdownHook() {
+      return shutdownHook;
+   }
+   
+   /**
+    * Gathers up properties and sets defaults, forgetting the arguments
+    * of any earlier run of this command.
+    */
+   private void setDefaults() {
+      startRevision = -2;
+      minDelay = 1000L;
+      maxDelay = 60000L;
+      commitRevisions = 1000;
+      commitMillis = 30000L;
+      doOperation = true;
+      
+      PropertyContainer properties = getProperties();
+      if (properties != null) {
+         indexDirectory = properties.getCommonProperties().getIndexDirectory();
+         taxonomyDirectory = properties.getCommonProperties().getTaxonomyDirectory();
+         repository = properties.getSourceControlProperties().getRepositoryPath();
+         providerType = properties.getSourceControlProperties().getProviderType();
+         lowMemory = properties.getIndexProperties().isLowMemory();
+      }
+   }
+   
+   /**
+    * Parses the command line arguments passed in to this command.
+    * @param args The arguments that were passed in.
+    * @return True if the arguments were correctly parsed, false otherwise.
+    */
+   private boolean parseArgs(final String[] args) {
+      CommandLine commandLine = parseCommandLine(args);
+      if (commandLine.hasOption("?")) {
+         printHelp(true);
+         doOperation = false;
+         return true;
+      }
+      
+      try {
+         if (commandLine.hasOption("indexdir")) {
+            indexDirectory = FSDirectory.open(new File(commandLine.getOptionValue("indexdir")));
+         }
+         
+         if (commandLine.hasOption("taxonomydir")) {
+            taxonomyDirectory = FSDirectory.open(new File(commandLine.getOptionValue("taxonomydir")));
+         }
+      } catch (IOException e) {
+         System.out.println("ERROR: " + e.getMessage());
+         doOperation = false;
+         return false;
+      }
+      
+      if (commandLine.hasOption("repository")) {
+         repository = commandLine.getOptionValue("repository");
+      }
+      
+      if (commandLine.hasOption("repositoryType")) {
+         providerType =
+               RepositoryProviderType.valueOf(
+                     commandLine.getOptionValue("repositoryType")
+               );
+      }
+      
+      try {
+         if (commandLine.hasOption("s")) {
+            startRevision = Long.parseLong(commandLine.getOptionValue("s"));
+         }
+         if (commandLine.hasOption("i")) {
+            minDelay = Long.parseLong(commandLine.getOptionValue("i"));
+         }
+         if (commandLine.hasOption("m")) {
+            maxDelay = Long.parseLong(commandLine.getOptionValue("m"));
+         }
+         if (commandLine.hasOption("c")) {
+            commitRevisions = Integer.parseInt(commandLine.getOptionValue("c"));
+         }
+         if (commandLine.hasOption("t")) {
+            commitMillis = Long.parseLong(commandLine.getOptionValue("t"));
+         }
+      } catch (NumberFormatException e) {
+         System.out.println("Invalid number: " + e.getMessage());
+         printHelp(true);
+         doOperation = false;
+         return false;
+      }
+      
+      if (indexDirectory == null || providerType == null) {
+         System.out.println("An index directory and a repository are required");
+         doOperation = false;
+         return false;
+      }
+      
+      return true;
+   }
+}
@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * Opens the Lucene {@link Directory} of an index pathname using a
+ * configurable implementation, optionally preloading the files of
+ * the index so that the first search after a restart does not have
+ * to fault them in from disk one page at a time.
+ * @author lparker
+ *
+ */
+public class DirectoryFactory {
+   private static final int PRELOAD_BUFFER_SIZE = 64 * 1024;
+
+   private final DirectoryType type;
+   private final boolean preload;
+   private final int preloadThreads;
+
+   /**
+    * Initializes a new instance of DirectoryFactory that lets Lucene
+    * choose the implementation and does not preload.
+    */
+   public DirectoryFactory() {
+      this(DirectoryType.FS, false);
+   }
+
+   /**
+    * Initializes a new instance of DirectoryFactory that preloads with
+    * one thread per available processor.
+    * @param ttype The implementation with which to open directories.
+    * @param ppreload Whether to read every file of a directory when it
+    * is opened.
+    */
+   public DirectoryFactory(final DirectoryType ttype, final boolean ppreload) {
+      this(ttype, ppreload, Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * Initializes a new instance of DirectoryFactory.
+    * @param ttype The implementation with which to open directories.
+    * @param ppreload Whether to read every file of a directory when it
+    * is opened.
+    * @param ppreloadThreads The greatest number of files to read at
+    * once while preloading.
+    */
+   public DirectoryFactory(
+         final DirectoryType ttype,
+         final boolean ppreload,
+         final int ppreloadThreads) {
+      if (ttype == null) {
+         throw new IllegalArgumentException("A directory factory requires a type");
+      }
+      if (ppreloadThreads < 1) {
+         throw new IllegalArgumentException(
+               "A directory factory must preload with at least one thread"
+         );
+      }
+      type = ttype;
+      preload = ppreload;
+      preloadThreads = ppreloadThreads;
+   }
+
+   /**
+    * Gets the implementation with which directories are opened.
+    * @return The directory type.
+    */
+   public DirectoryType getType() {
+      return type;
+   }
+
+   /**
+    * Gets whether the files of a directory are read when it is opened.
+    * @return True if directories are preloaded.
+    */
+   public boolean isPreload() {
+      return preload;
+   }
+
+   /**
+    * Opens the directory at a pathname.
+    * @param path The pathname of the directory.
+    * @return The opened directory.
+    * @throws IOException A fatal exception occurred while opening,
+    * copying or preloading the directory.
+    */
+   public Directory open(final String path) throws IOException {
+      if (path == null || path.isEmpty()) {
+         throw new IllegalArgumentException(
+               "An empty pathname was specified for the index directory"
+         );
+      }
+      return open(new File(path));
+   }
+
+   /**
+    * Opens the directory at a pathname.  A heap copy is never
+    * preloaded, since copying it has already read every file.
+    * @param path The pathname of the directory.
+    * @return The opened directory.
+    * @throws IOException A fatal exception occurred while opening,
+    * copying or preloading the directory.
+    */
+   public Directory open(final File path) throws IOException {
+      final Directory directory;
+      switch (type) {
+      case MMAP:
+         directory = new MMapDirectory(path);
+         break;
+      case NIO:
+         directory = new NIOFSDirectory(path);
+         break;
+      case RAM:
+         final Directory source = FSDirectory.open(path);
+         try {
+            return new RAMDirectory(source, IOContext.READ);
+         } finally {
+            source.close();
+         }
+      default:
+         directory = FSDirectory.open(path);
+         break;
+      }
+
+      if (preload) {
+         try {
+            preload(directory, preloadThreads);
+         } catch (IOException e) {
+            directory.close();
+            throw e;
+         }
+      }
+      return directory;
+   }
+
+   /**
+    * Reads every file of a directory from start to end, several files
+    * at a time, so that the pages of the files are resident in the
+    * operating system cache (and, for a memory mapped directory, in
+    * the address space of this process) before they are searched.
+    * @param directory The directory to preload.
+    * @param threads The greatest number of files to read at once.
+    * @throws IOException A fatal exception occurred while reading the
+    * files of the directory.
+    */
+   public static void preload(final Directory directory, final int threads)
+         throws IOException {
+      final String[] files = directory.listAll();
+      if (files.length == 0) {
+         return;
+      }
+
+      final ExecutorService executor =
+            Executors.newFixedThreadPool(Math.min(threads, files.length));
+      try {
+         final List<Future<Void>> futures = new ArrayList<Future<Void>>(files.length);
+         for (final String file : files) {
+            futures.add(executor.submit(new Callable<Void>() {
+               public Void call() throws IOException {
+                  touch(directory, file);
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> future : futures) {
+            await(future);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * Reads a file of a directory from start to end.
+    * @param directory The directory that contains the file.
+    * @param file The name of the file.
+    * @throws IOException A fatal exception occurred while reading the
+    * file.
+    */
+   private static void touch(final Directory directory, final String file)
+         throws IOException {
+      final IndexInput input = directory.openInput(file, IOContext.READONCE);
+      try {
+         final byte[] buffer = new byte[PRELOAD_BUFFER_SIZE];
+         long remaining = input.length();
+         while (remaining > 0) {
+            final int length = (int) Math.min(buffer.length, remaining);
+            input.readBytes(buffer, 0, length);
+            remaining -= length;
+         }
+      } finally {
+         input.close();
+      }
+   }
+
+   /**
+    * Waits for a file to be preloaded.
+    * @param future The future result of the preloading.
+    * @throws IOException The file could not be read.
+    */
+   private static void await(final Future<Void> future) throws IOException {
+      try {
+         future.get();
+      } catch (InterruptedException e) {
+         throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+         final Throwable cause = e.getCause();
+         if (cause instanceof IOException) {
+            throw (IOException) cause;
+         } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         } else if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new RuntimeException(cause);
+      }
+   }
+}
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.common;
+
+/**
+ * DirectoryType - The implementations of Lucene Directory in which
+ * an index may be opened for searching.
+ * @author lparker
+ *
+ */
+public enum DirectoryType {
+   /**
+    * Lets Lucene choose the best file system implementation for the
+    * platform, which is usually memory mapping.
+    */
+   FS,
+   /**
+    * Memory maps the index files, leaving caching to the operating
+    * system.
+    */
+   MMAP,
+   /**
+    * Reads the index files with positional NIO reads.
+    */
+   NIO,
+   /**
+    * Copies the whole index onto the heap when it is opened.  This is
+    * only suitable for small indices that are opened for searching.
+    */
+   RAM
+}
@@ -0,0 +1,304 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * The one-line summary of a revision shown in result lists: its
+ * number, author and date, the first line of its message, the number
+ * of paths that it changed and the top-level directories of those
+ * paths.  The summary is stored with every revision as a single short
+ * field, so that a list of results can be shown without loading the
+ * whole message and every changed path of each revision.
+ * @author lparker
+ *
+ */
+public final class RevisionSummary {
+   /**
+    * The name of the stored field that holds the summary.
+    */
+   public static final String FIELD = "Summary";
+   /**
+    * The greatest number of characters of the message that are kept.
+    */
+   public static final int MAX_MESSAGE_LENGTH = 80;
+   /**
+    * The greatest number of top-level directories that are kept.
+    */
+   public static final int MAX_TOP_LEVEL_PATHS = 5;
+
+   private static final char SEPARATOR = '\t';
+   private static final int PARTS = 6;
+
+   private final long revision;
+   private final String author;
+   private final Date date;
+   private final String message;
+   private final int pathCount;
+   private final List<String> topLevelPaths;
+
+   /**
+    * Initializes a new instance of RevisionSummary.
+    * @param rrevision The revision number.
+    * @param aauthor The author of the revision.
+    * @param ddate The date of the revision.
+    * @param mmessage The first line of the message of the revision,
+    * which is truncated if it is too long.
+    * @param ppathCount The number of paths that the revision changed.
+    * @param ttopLevelPaths The top-level directories of the changed
+    * paths, of which only the first few are kept.
+    */
+   public RevisionSummary(
+         final long rrevision,
+         final String aauthor,
+         final Date ddate,
+         final String mmessage,
+         final int ppathCount,
+         final List<String> ttopLevelPaths) {
+      if (ddate == null) {
+         throw new IllegalArgumentException("A revision summary requires a date");
+      }
+      revision = rrevision;
+      author = clean(aauthor);
+      date = ddate;
+      message = clean(getFirstLine(mmessage));
+      pathCount = ppathCount;
+      final List<String> paths = new ArrayList<String>();
+      if (ttopLevelPaths != null) {
+         for (String path : ttopLevelPaths) {
+            if (paths.size() == MAX_TOP_LEVEL_PATHS) {
+               break;
+            }
+            paths.add(clean(path).replace('/', ' '));
+         }
+      }
+      topLevelPaths = Collections.unmodifiableList(paths);
+   }
+
+   /**
+    * Summarizes a revision.
+    * @param revision The revision to summarize.
+    * @return The summary of the revision.
+    */
+   public static RevisionSummary fromRevision(final RevisionInfo revision) {
+      final Set<String> paths = new LinkedHashSet<String>();
+      for (ChangePath changePath : revision.getChangePaths()) {
+         paths.add(getTopLevelPath(changePath.getPath()));
+      }
+      return new RevisionSummary(
+            revision.getRevision(),
+            revision.getAuthor(),
+            revision.getDate(),
+            revision.getMessage(),
+            revision.getChangePaths().size(),
+            new ArrayList<String>(paths)
+      );
+   }
+
+   /**
+    * Summarizes a revision from its stored document, using the summary
+    * field if it has one and otherwise the full stored fields of the
+    * revision, as in indices written before summaries were stored.
+    * @param document The stored document of the revision.
+    * @return The summary of the revision.
+    */
+   public static RevisionSummary fromDocument(final Document document) {
+      final String encoded = document.get(FIELD);
+      if (encoded != null) {
+         return decode(encoded);
+      }
+
+      final IndexableField date = document.getField("Date");
+      final String[] paths = document.getValues("Path");
+      final Set<String> topLevelPaths = new LinkedHashSet<String>();
+      for (String path : paths) {
+         topLevelPaths.add(getTopLevelPath(path));
+      }
+      return new RevisionSummary(
+            Long.parseLong(document.get("Revision")),
+            document.get("Author"),
+            new Date(date.numericValue().longValue()),
+            document.get("Message"),
+            paths.length,
+            new ArrayList<String>(topLevelPaths)
+      );
+   }
+
+   /**
+    * Encodes this summary as the value of the summary field.
+    * @return The encoded summary.
+    */
+   public String encode() {
+      final StringBuilder result = new StringBuilder();
+      result.append(revision).append(SEPARATOR);
+      result.append(author).append(SEPARATOR);
+      result.append(date.getTime()).append(SEPARATOR);
+      result.append(pathCount).append(SEPARATOR);
+      for (int i = 0; i < topLevelPaths.size(); i++) {
+         if (i > 0) {
+            result.append('/');
+         }
+         result.append(topLevelPaths.get(i));
+      }
+      result.append(SEPARATOR).append(message);
+      return result.toString();
+   }
+
+   /**
+    * Decodes a summary from the value of the summary field.
+    * @param encoded The encoded summary.
+    * @return The decoded summary.
+    */
+   public static RevisionSummary decode(final String encoded) {
+      final String[] parts = encoded.split(String.valueOf(SEPARATOR), PARTS);
+      if (parts.length != PARTS) {
+         throw new IllegalArgumentException("Not a revision summary: " + encoded);
+      }
+      final List<String> paths = new ArrayList<String>();
+      if (parts[4].isEmpty() == false) {
+         for (String path : parts[4].split("/")) {
+            paths.add(path);
+         }
+      }
+      return new RevisionSummary(
+            Long.parseLong(parts[0]),
+            parts[1],
+            new Date(Long.parseLong(parts[2])),
+            parts[5],
+            Integer.parseInt(parts[3]),
+            paths
+      );
+   }
+
+   /**
+    * Gets the revision number.
+    * @return The revision number.
+    */
+   public long getRevision() {
+      return revision;
+   }
+
+   /**
+    * Gets the author of the revision.
+    * @return The author, or the empty string if there is none.
+    */
+   public String getAuthor() {
+      return author;
+   }
+
+   /**
+    * Gets the date of the revision.
+    * @return The date of the revision.
+    */
+   public Date getDate() {
+      return date;
+   }
+
+   /**
+    * Gets the first line of the message of the revision.
+    * @return The first line of the message, truncated to
+    * {@link #MAX_MESSAGE_LENGTH} characters.
+    */
+   public String getMessage() {
+      return message;
+   }
+
+   /**
+    * Gets the number of paths that the revision changed.
+    * @return The number of changed paths.
+    */
+   public int getPathCount() {
+      return pathCount;
+   }
+
+   /**
+    * Gets the top-level directories of the changed paths, in the order
+    * in which they were first changed.
+    * @return Up to {@link #MAX_TOP_LEVEL_PATHS} directory names.
+    */
+   public List<String> getTopLevelPaths() {
+      return topLevelPaths;
+   }
+
+   /**
+    * Gets the top-level directory of a repository path.
+    * @param path The repository path, such as /trunk/src/Main.java.
+    * @return The first component of the path, such as trunk, or the
+    * empty string if the path has none.
+    */
+   public static String getTopLevelPath(final String path) {
+      if (path == null) {
+         return "";
+      }
+      
+      int start = 0;
+      while (start < path.length() && path.charAt(start) == '/') {
+         start++;
+      }
+      int end = path.indexOf('/', start);
+      return end < 0 ? path.substring(start) : path.substring(start, end);
+   }
+
+   /**
+    * Gets the first line of a message, truncated to the greatest length
+    * that is kept.
+    * @param message The message.
+    * @return The first line, or the empty string if there is no message.
+    */
+   private static String getFirstLine(final String message) {
+      if (message == null) {
+         return "";
+      }
+      String line = message.trim();
+      final int end = line.indexOf('\n');
+      if (end >= 0) {
+         line = line.substring(0, end).trim();
+      }
+      if (line.length() > MAX_MESSAGE_LENGTH) {
+         line = line.substring(0, MAX_MESSAGE_LENGTH);
+      }
+      return line;
+   }
+
+   /**
+    * Replaces the characters that separate the parts of an encoded
+    * summary.
+    * @param value The value of a part.
+    * @return The value with every separator replaced by a space, or the
+    * empty string if there is no value.
+    */
+   private static String clean(final String value) {
+      if (value == null) {
+         return "";
+      }
+      return value.replace(SEPARATOR, ' ').replace('\r', ' ').replace('\n', ' ');
+   }
+}
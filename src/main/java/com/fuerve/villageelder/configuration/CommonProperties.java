@@ -32,7 +32,11 @@ import java.io.Reader;
 
 import org.apache.lucene.store.Directory;
 
+import com.fuerve.villageelder.common.DirectoryFactory;
+import com.fuerve.villageelder.common.DirectoryType;
+import com.fuerve.villageelder.configuration.types.BooleanProperty;
 import com.fuerve.villageelder.configuration.types.DirectoryProperty;
+import com.fuerve.villageelder.configuration.types.DirectoryTypeProperty;
 import com.fuerve.villageelder.configuration.types.TypedProperty;
 
 /**
@@ -45,6 +49,8 @@ import com.fuerve.villageelder.configuration.types.TypedProperty;
 public class CommonProperties extends PropertyHandler {
    private static final String INDEX_DIRECTORY_PROPERTY = "Common.IndexDirectory";
    private static final String TAXONOMY_DIRECTORY_PROPERTY = "Common.TaxonomyDirectory";
+   private static final String DIRECTORY_TYPE_PROPERTY = "Common.DirectoryType";
+   private static final String DIRECTORY_PRELOAD_PROPERTY = "Common.DirectoryPreload";
    
    /**
     * Initializes a new instance of CommonProperties by reading
@@ -83,6 +89,8 @@ public class CommonProperties extends PropertyHandler {
    private void requestProperties() {
       requestProperty(INDEX_DIRECTORY_PROPERTY, new DirectoryProperty());
       requestProperty(TAXONOMY_DIRECTORY_PROPERTY, new DirectoryProperty());
+      requestProperty(DIRECTORY_TYPE_PROPERTY, new DirectoryTypeProperty(DirectoryType.FS));
+      requestProperty(DIRECTORY_PRELOAD_PROPERTY, new BooleanProperty(false));
    }
    
    /**
@@ -95,6 +103,16 @@ public class CommonProperties extends PropertyHandler {
       return value == null ? null : value.getValue();
    }
    
+   /**
+    * Gets the pathname of the index directory, so that a searcher may
+    * open it with the configured {@link DirectoryFactory}.
+    * @return The pathname of the index, or null if none is configured.
+    */
+   public String getIndexDirectoryPath() {
+      DirectoryProperty value = (DirectoryProperty) this.<Directory>get(INDEX_DIRECTORY_PROPERTY);
+      return value == null ? null : value.getPath();
+   }
+   
    /**
     * Gets the taxonomy directory.
     * @return The Lucene {@link Directory} object in which the taxonomy
@@ -104,4 +122,18 @@ public class CommonProperties extends PropertyHandler {
       TypedProperty<Directory> value = get(TAXONOMY_DIRECTORY_PROPERTY);
       return value.getValue();
    }
+   
+   /**
+    * Gets the factory with which indices are opened for searching.
+    * The index and taxonomy directories above are always opened by
+    * Lucene's choice of file system directory, since they may also be
+    * written to; searchers open the index from its pathname instead.
+    * @return The {@link DirectoryFactory} of the configured directory
+    * type, which preloads the index files if so configured.
+    */
+   public DirectoryFactory getDirectoryFactory() {
+      TypedProperty<DirectoryType> type = get(DIRECTORY_TYPE_PROPERTY);
+      TypedProperty<Boolean> preload = get(DIRECTORY_PRELOAD_PROPERTY);
+      return new DirectoryFactory(type.getValue(), preload.getValue());
+   }
 }
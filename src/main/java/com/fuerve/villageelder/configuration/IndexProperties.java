@@ -20,6 +20,9 @@ package com.fuerve.villageelder.configuration;
 
 import java.io.Reader;
 
+import com.fuerve.villageelder.configuration.types.BooleanProperty;
+import com.fuerve.villageelder.configuration.types.TypedProperty;
+
 /**
  * This class contains properties specific to the management
  * and operation of Lucene indices.  Things that might go in
@@ -30,12 +33,16 @@ import java.io.Reader;
  *
  */
 public class IndexProperties extends PropertyHandler {
+   private static final String LOW_MEMORY_PROPERTY = "Index.LowMemory";
+   
    /**
     * Initializes a new instance of IndexProperties by reading
     * from the default properties file.
     */
    public IndexProperties() {
       super();
+      
+      requestProperties();
    }
    
    /**
@@ -45,6 +52,8 @@ public class IndexProperties extends PropertyHandler {
     */
    public IndexProperties(final String propertyFilename) {
       super(propertyFilename);
+      
+      requestProperties();
    }
    
    /**
@@ -54,5 +63,22 @@ public class IndexProperties extends PropertyHandler {
     */
    public IndexProperties(Reader ppropertySource) {
       super(ppropertySource);
+      
+      requestProperties();
+   }
+   
+   private void requestProperties() {
+      requestProperty(LOW_MEMORY_PROPERTY, new BooleanProperty(false));
+   }
+   
+   /**
+    * Gets whether indices should be written for searchers with little
+    * memory to spare, making the terms index of the path fields
+    * smaller at the cost of slower term lookups.
+    * @return True if indices should be written for low-memory searchers.
+    */
+   public boolean isLowMemory() {
+      final TypedProperty<Boolean> lowMemory = get(LOW_MEMORY_PROPERTY);
+      return lowMemory.getValue();
    }
 }
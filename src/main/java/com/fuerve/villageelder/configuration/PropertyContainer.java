@@ -18,7 +18,15 @@
  */
 package com.fuerve.villageelder.configuration;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 
 /**
  * This class is just a container for properties classes.
@@ -40,25 +48,29 @@ public class PropertyContainer {
       }
    }
    
+   private static final String DEFAULT_PROPERTY_FILE =
+         "/VillageElder.properties";
+   
    private CommonProperties commonProperties;
    private IndexProperties indexProperties;
    private SearchProperties searchProperties;
    private SourceControlProperties sourceControlProperties;
    
+   /**
+    * Initializes the single instance of PropertyContainer.  The
+    * properties file is read only once, and each properties container
+    * parses its own copy of its contents.
+    * @throws IOException A fatal exception occurred while reading the
+    * properties file.
+    */
    private PropertyContainer() throws IOException {
       final String source = System.getProperty("properties.source");
+      final String contents = readSource(source);
       
-      if (source == null || "default".equals(source.toLowerCase())) {
-         commonProperties = new CommonProperties();
-         indexProperties = new IndexProperties();
-         searchProperties = new SearchProperties();
-         sourceControlProperties = new SourceControlProperties();
-      } else {
-         commonProperties = new CommonProperties(source);
-         indexProperties = new IndexProperties(source);
-         searchProperties = new SearchProperties(source);
-         sourceControlProperties = new SourceControlProperties(source);
-      }
+      commonProperties = new CommonProperties(new StringReader(contents));
+      indexProperties = new IndexProperties(new StringReader(contents));
+      searchProperties = new SearchProperties(new StringReader(contents));
+      sourceControlProperties = new SourceControlProperties(new StringReader(contents));
       
       commonProperties.load();
       indexProperties.load();
@@ -66,6 +78,39 @@ public class PropertyContainer {
       sourceControlProperties.load();
    }
    
+   /**
+    * Reads the whole of the properties file.
+    * @param source The pathname of the properties file, or null or
+    * "default" for the default properties file on the class path.
+    * @return The contents of the properties file.
+    * @throws IOException A fatal exception occurred while reading the
+    * properties file.
+    */
+   private static String readSource(final String source) throws IOException {
+      final InputStream stream;
+      if (source == null || "default".equals(source.toLowerCase())) {
+         stream = PropertyContainer.class.getResourceAsStream(DEFAULT_PROPERTY_FILE);
+         if (stream == null) {
+            throw new FileNotFoundException(DEFAULT_PROPERTY_FILE);
+         }
+      } else {
+         stream = new FileInputStream(new File(source));
+      }
+      
+      final Reader reader = new InputStreamReader(stream);
+      try {
+         final StringWriter result = new StringWriter();
+         final char[] buffer = new char[4096];
+         int read;
+         while ((read = reader.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+         }
+         return result.toString();
+      } finally {
+         reader.close();
+      }
+   }
+   
    /**
     * Gets the single instance of PropertyContainer.
     * @return The reference to the instance of PropertyContainer.
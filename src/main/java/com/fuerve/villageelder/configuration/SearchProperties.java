@@ -18,8 +18,23 @@
  */
 package com.fuerve.villageelder.configuration;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Reader;
 
+import com.fuerve.villageelder.configuration.types.BooleanProperty;
+import com.fuerve.villageelder.configuration.types.DoubleProperty;
+import com.fuerve.villageelder.configuration.types.IntegerProperty;
+import com.fuerve.villageelder.configuration.types.StringProperty;
+import com.fuerve.villageelder.configuration.types.TypedProperty;
+import com.fuerve.villageelder.search.AdmissionController;
+import com.fuerve.villageelder.search.DocumentCache;
+import com.fuerve.villageelder.search.FacetSampling;
+import com.fuerve.villageelder.search.FilterCache;
+import com.fuerve.villageelder.search.QueryCostEstimator;
+import com.fuerve.villageelder.search.QueryLog;
+import com.fuerve.villageelder.search.SearcherLeases;
+
 /**
  * This class contains properties that are specific to the search
  * function.  Things that go in here might include Lucene search
@@ -29,12 +44,43 @@ import java.io.Reader;
  *
  */
 public class SearchProperties extends PropertyHandler {
+   private static final String FACET_SAMPLING_THRESHOLD_PROPERTY =
+         "Search.FacetSampling.Threshold";
+   private static final String FACET_SAMPLING_RATIO_PROPERTY =
+         "Search.FacetSampling.Ratio";
+   private static final String FACET_SAMPLING_EXACT_PROPERTY =
+         "Search.FacetSampling.ExactTopCounts";
+   private static final double DEFAULT_FACET_SAMPLING_RATIO = 0.1;
+   private static final String TIMEOUT_PROPERTY = "Search.TimeoutMillis";
+   private static final int DEFAULT_TIMEOUT = 0;
+   private static final String MAX_EXPANDED_TERMS_PROPERTY = "Search.MaxExpandedTerms";
+   private static final String MAX_CLAUSES_PROPERTY = "Search.MaxClauses";
+   private static final String MAX_CONCURRENT_PROPERTY = "Search.MaxConcurrentSearches";
+   private static final String MAX_QUEUED_PROPERTY = "Search.MaxQueuedSearches";
+   private static final String MAX_QUEUE_WAIT_PROPERTY = "Search.MaxQueueWaitMillis";
+   private static final int DEFAULT_MAX_QUEUED = 16;
+   private static final int DEFAULT_MAX_QUEUE_WAIT = 1000;
+   private static final String FILTER_CACHE_SIZE_PROPERTY = "Search.FilterCacheSize";
+   private static final String DOCUMENT_CACHE_SIZE_PROPERTY = "Search.DocumentCacheMB";
+   private static final long BYTES_PER_MB = 1024L * 1024L;
+   private static final String QUERY_LOG_FILE_PROPERTY = "Search.QueryLogFile";
+   private static final String QUERY_LOG_SIZE_PROPERTY = "Search.QueryLogSize";
+   private static final String WARM_QUERIES_PROPERTY = "Search.WarmQueries";
+   private static final int DEFAULT_QUERY_LOG_SIZE = 1000;
+   private static final int DEFAULT_WARM_QUERIES = 20;
+   private static final String LOW_MEMORY_PROPERTY = "Search.LowMemory";
+   private static final String LEASE_READERS_PROPERTY = "Search.LeaseReaders";
+   private static final String LEASE_AGE_PROPERTY = "Search.LeaseAgeSeconds";
+   private static final int DEFAULT_LEASE_AGE = 300;
+   
    /**
     * Initializes a new instance of SearchProperties by reading
     * from the default properties file.
     */
    public SearchProperties() {
       super();
+      
+      requestProperties();
    }
    
    /**
@@ -44,6 +90,8 @@ public class SearchProperties extends PropertyHandler {
     */
    public SearchProperties(final String propertyFilename) {
       super(propertyFilename);
+      
+      requestProperties();
    }
    
    /**
@@ -53,5 +101,214 @@ public class SearchProperties extends PropertyHandler {
     */
    public SearchProperties(Reader ppropertySource) {
       super(ppropertySource);
+      
+      requestProperties();
+   }
+   
+   private void requestProperties() {
+      requestProperty(FACET_SAMPLING_THRESHOLD_PROPERTY, new IntegerProperty());
+      requestProperty(
+            FACET_SAMPLING_RATIO_PROPERTY,
+            new DoubleProperty(DEFAULT_FACET_SAMPLING_RATIO)
+      );
+      requestProperty(FACET_SAMPLING_EXACT_PROPERTY, new BooleanProperty(true));
+      requestProperty(TIMEOUT_PROPERTY, new IntegerProperty(DEFAULT_TIMEOUT));
+      requestProperty(MAX_EXPANDED_TERMS_PROPERTY, new IntegerProperty());
+      requestProperty(MAX_CLAUSES_PROPERTY, new IntegerProperty());
+      requestProperty(MAX_CONCURRENT_PROPERTY, new IntegerProperty());
+      requestProperty(MAX_QUEUED_PROPERTY, new IntegerProperty(DEFAULT_MAX_QUEUED));
+      requestProperty(
+            MAX_QUEUE_WAIT_PROPERTY,
+            new IntegerProperty(DEFAULT_MAX_QUEUE_WAIT)
+      );
+      requestProperty(FILTER_CACHE_SIZE_PROPERTY, new IntegerProperty());
+      requestProperty(DOCUMENT_CACHE_SIZE_PROPERTY, new IntegerProperty());
+      requestProperty(QUERY_LOG_FILE_PROPERTY, new StringProperty());
+      requestProperty(
+            QUERY_LOG_SIZE_PROPERTY,
+            new IntegerProperty(DEFAULT_QUERY_LOG_SIZE)
+      );
+      requestProperty(
+            WARM_QUERIES_PROPERTY,
+            new IntegerProperty(DEFAULT_WARM_QUERIES)
+      );
+      requestProperty(LOW_MEMORY_PROPERTY, new BooleanProperty(false));
+      requestProperty(LEASE_READERS_PROPERTY, new IntegerProperty());
+      requestProperty(LEASE_AGE_PROPERTY, new IntegerProperty(DEFAULT_LEASE_AGE));
+   }
+   
+   /**
+    * Gets the facet sampling configuration for searches.  Sampling is
+    * opt-in, and is only enabled when a sampling threshold has been
+    * configured.
+    * @return The {@link FacetSampling} configuration, or null if facets
+    * should always be counted exactly.
+    */
+   public FacetSampling getFacetSampling() {
+      final TypedProperty<Integer> threshold = get(FACET_SAMPLING_THRESHOLD_PROPERTY);
+      if (threshold == null || threshold.getValue() == null) {
+         return null;
+      }
+      
+      final TypedProperty<Double> ratio = get(FACET_SAMPLING_RATIO_PROPERTY);
+      final TypedProperty<Boolean> exact = get(FACET_SAMPLING_EXACT_PROPERTY);
+      return new FacetSampling(
+            threshold.getValue(),
+            ratio.getValue(),
+            exact.getValue()
+      );
+   }
+   
+   /**
+    * Gets the deadline for searches, after which a search returns the
+    * partial results that it has collected so far.
+    * @return The deadline of each search, in milliseconds, or zero if
+    * searches have no deadline.
+    */
+   public long getTimeout() {
+      final TypedProperty<Integer> timeout = get(TIMEOUT_PROPERTY);
+      if (timeout == null || timeout.getValue() == null) {
+         return DEFAULT_TIMEOUT;
+      }
+      return timeout.getValue();
+   }
+   
+   /**
+    * Gets the estimator that refuses queries whose cost exceeds the
+    * configured limits.  Cost limits are opt-in, and a limit that has
+    * not been configured is unbounded.
+    * @return The {@link QueryCostEstimator}, or null if neither the
+    * term nor the clause limit has been configured.
+    */
+   public QueryCostEstimator getQueryCostEstimator() {
+      final TypedProperty<Integer> maxTerms = get(MAX_EXPANDED_TERMS_PROPERTY);
+      final TypedProperty<Integer> maxClauses = get(MAX_CLAUSES_PROPERTY);
+      final boolean hasMaxTerms = maxTerms != null && maxTerms.getValue() != null;
+      final boolean hasMaxClauses = maxClauses != null && maxClauses.getValue() != null;
+      if (hasMaxTerms == false && hasMaxClauses == false) {
+         return null;
+      }
+      
+      return new QueryCostEstimator(
+            hasMaxTerms ? maxTerms.getValue() : Long.MAX_VALUE,
+            hasMaxClauses ? maxClauses.getValue() : Integer.MAX_VALUE
+      );
+   }
+   
+   /**
+    * Gets a controller that bounds the number of searches that run at
+    * once.  Admission control is opt-in, and is only enabled when the
+    * number of concurrent searches has been configured.  The caller
+    * should share the controller between every searcher of an index.
+    * @return A new {@link AdmissionController}, or null if the number
+    * of concurrent searches is unbounded.
+    */
+   public AdmissionController getAdmissionController() {
+      final TypedProperty<Integer> maxConcurrent = get(MAX_CONCURRENT_PROPERTY);
+      if (maxConcurrent == null || maxConcurrent.getValue() == null) {
+         return null;
+      }
+      
+      final TypedProperty<Integer> maxQueued = get(MAX_QUEUED_PROPERTY);
+      final TypedProperty<Integer> maxWait = get(MAX_QUEUE_WAIT_PROPERTY);
+      return new AdmissionController(
+            maxConcurrent.getValue(),
+            maxQueued.getValue(),
+            maxWait.getValue()
+      );
+   }
+   
+   /**
+    * Gets a cache for the structured filters of queries.  Filter
+    * caching is opt-in, and is only enabled when the size of the cache
+    * has been configured.  The caller should share the cache between
+    * every searcher of an index.
+    * @return A new {@link FilterCache}, or null if structured clauses
+    * should be scored like any other.
+    */
+   public FilterCache getFilterCache() {
+      final TypedProperty<Integer> size = get(FILTER_CACHE_SIZE_PROPERTY);
+      if (size == null || size.getValue() == null || size.getValue() <= 0) {
+         return null;
+      }
+      
+      return new FilterCache(size.getValue());
+   }
+   
+   /**
+    * Gets a cache for the stored documents of recently viewed
+    * revisions.  Document caching is opt-in, and is only enabled when
+    * the size of the cache, in megabytes, has been configured.  The
+    * caller should share the cache between every searcher of an index.
+    * @return A new {@link DocumentCache}, or null if documents should
+    * always be read from the index.
+    */
+   public DocumentCache getDocumentCache() {
+      final TypedProperty<Integer> size = get(DOCUMENT_CACHE_SIZE_PROPERTY);
+      if (size == null || size.getValue() == null || size.getValue() <= 0) {
+         return null;
+      }
+      
+      return new DocumentCache(size.getValue() * BYTES_PER_MB);
+   }
+   
+   /**
+    * Gets the log of recent queries, which are replayed to warm new
+    * readers.  The query log is opt-in, and is only kept when the
+    * file in which to keep it has been configured.  The log is loaded
+    * from its file, if there is one, and a searcher saves it back when
+    * it is disposed.
+    * @return A new {@link QueryLog}, or null if no queries should be
+    * logged.
+    * @throws IOException A fatal exception occurred while loading the
+    * query log.
+    */
+   public QueryLog getQueryLog() throws IOException {
+      final TypedProperty<String> file = get(QUERY_LOG_FILE_PROPERTY);
+      if (file == null || file.getValue() == null || file.getValue().isEmpty()) {
+         return null;
+      }
+      
+      final TypedProperty<Integer> size = get(QUERY_LOG_SIZE_PROPERTY);
+      final QueryLog result = new QueryLog(new File(file.getValue()), size.getValue());
+      result.load();
+      return result;
+   }
+   
+   /**
+    * Gets the number of the most frequent recent queries to replay
+    * when warming a new reader.
+    * @return The number of queries to replay.
+    */
+   public int getWarmQueries() {
+      final TypedProperty<Integer> warmQueries = get(WARM_QUERIES_PROPERTY);
+      return warmQueries.getValue();
+   }
+   
+   /**
+    * Gets whether searchers should run with as little heap as they can,
+    * trading some latency for memory.
+    * @return True if searchers should run in low-memory mode.
+    */
+   public boolean isLowMemory() {
+      final TypedProperty<Boolean> lowMemory = get(LOW_MEMORY_PROPERTY);
+      return lowMemory.getValue();
+   }
+   
+   /**
+    * Gets the leases through which a searcher keeps replaced readers
+    * open for the later pages of earlier searches.  Leases are opt-in,
+    * and are only kept when the number of readers to retain has been
+    * configured.
+    * @return The searcher leases, or null if only the current reader
+    * should be searched.
+    */
+   public SearcherLeases getSearcherLeases() {
+      final TypedProperty<Integer> readers = get(LEASE_READERS_PROPERTY);
+      if (readers.getValue() == null || readers.getValue() <= 0) {
+         return null;
+      }
+      final TypedProperty<Integer> age = get(LEASE_AGE_PROPERTY);
+      return new SearcherLeases(readers.getValue(), age.getValue());
    }
 }
@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.configuration.types;
+
+/**
+ * This class is a concrete implementation of TypedProperty for Boolean
+ * values.
+ * 
+ * @author lparker
+ *
+ */
+public class BooleanProperty extends TypedProperty<Boolean> {
+   /**
+    * Initializes an instance of BooleanProperty.
+    */
+   public BooleanProperty() {
+      super();
+   }
+   
+   /**
+    * Initializes an instance of BooleanProperty with a
+    * default value.
+    * @param defaultValue The default value of the property.
+    */
+   public BooleanProperty(final Boolean defaultValue) {
+      super(defaultValue);
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.configuration.types.TypedProperty#parse(java.lang.String)
+    */
+   @Override
+   public Boolean parse(String vvalue) {
+      return Boolean.valueOf(vvalue.trim());
+   }
+
+}
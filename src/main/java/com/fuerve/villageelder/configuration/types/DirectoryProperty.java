@@ -18,26 +18,84 @@
  */
 package com.fuerve.villageelder.configuration.types;
 
-import java.io.File;
 import java.io.IOException;
 
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
 
+import com.fuerve.villageelder.common.DirectoryFactory;
 import com.fuerve.villageelder.configuration.types.TypedProperty;
 
 /**
  * This class provides a strongly-typed Lucene {@link Directory}
- * property, parsed from a string pathname.
+ * property, parsed from a string pathname.  The directory is only
+ * opened when its value is first asked for, so that loading the
+ * properties never opens an index that no command uses.
  * 
  * @author lparker
  *
  */
 public class DirectoryProperty extends TypedProperty<Directory> {
+   private final DirectoryFactory directoryFactory;
+   private String path;
+   private Directory directory;
+   
+   /**
+    * Initializes a new instance of DirectoryProperty that lets Lucene
+    * choose the implementation of the directory.
+    */
+   public DirectoryProperty() {
+      this(new DirectoryFactory());
+   }
+   
+   /**
+    * Initializes a new instance of DirectoryProperty.
+    * @param ddirectoryFactory The factory with which to open the
+    * directory.
+    */
+   public DirectoryProperty(final DirectoryFactory ddirectoryFactory) {
+      super();
+      if (ddirectoryFactory == null) {
+         throw new IllegalArgumentException("A directory property requires a factory");
+      }
+      directoryFactory = ddirectoryFactory;
+   }
+   
+   /**
+    * Remembers the pathname of the directory, which is opened when the
+    * value of this property is first asked for.
+    * @param vvalue The pathname of the directory.
+    */
+   @Override
+   public synchronized void doParse(final String vvalue) {
+      path = vvalue == null || vvalue.isEmpty() ? null : vvalue;
+      directory = null;
+   }
+   
+   /**
+    * Gets the pathname of the directory, without opening it.
+    * @return The pathname, or null if none was given.
+    */
+   public synchronized String getPath() {
+      return path;
+   }
+   
+   /**
+    * Gets the directory, opening it the first time.
+    * @return The directory, or null if no pathname was given or the
+    * directory could not be opened.
+    */
+   @Override
+   public synchronized Directory getValue() {
+      if (directory == null && path != null) {
+         directory = parse(path);
+      }
+      return directory == null ? super.getValue() : directory;
+   }
+   
    @Override
    public Directory parse(String vvalue) {
       try {
-         final Directory directory = FSDirectory.open(new File(vvalue));
+         final Directory directory = directoryFactory.open(vvalue);
          return directory;
       } catch (IOException e) {
          return null;
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.configuration.types;
+
+import com.fuerve.villageelder.common.DirectoryType;
+
+/**
+ * This class is a concrete implementation of TypedProperty for
+ * {@link DirectoryType}.
+ * @author lparker
+ *
+ */
+public class DirectoryTypeProperty extends TypedProperty<DirectoryType> {
+
+   /**
+    * Initializes a new instance of DirectoryTypeProperty.
+    */
+   public DirectoryTypeProperty() {
+      super();
+   }
+
+   /**
+    * Initializes a new instance of DirectoryTypeProperty with a
+    * default value.
+    * @param ddefaultValue The default value.
+    */
+   public DirectoryTypeProperty(DirectoryType ddefaultValue) {
+      super(ddefaultValue);
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.configuration.types.TypedProperty#parse(java.lang.String)
+    */
+   @Override
+   public DirectoryType parse(String vvalue) {
+      return DirectoryType.valueOf(vvalue.trim().toUpperCase());
+   }
+
+}
@@ -52,12 +52,25 @@ class IndexManager {
    private OpenMode openMode;
    private Analyzer analyzer;
    private Version luceneVersion;
+   private boolean lowMemory;
    
    private IndexWriter indexWriter;
    private TaxonomyWriter taxonomyWriter;
    
    private boolean initialized;
    
+   /**
+    * Initializes a new instance of IndexManager with a preconstructed Directory
+    * for the regular index only.  No taxonomy index is maintained, so only
+    * doc values facets will be available to searches of this index.  If an
+    * index exists in this location, it will be opened in append mode.
+    * Otherwise, it will be created.
+    * @param iindexDirectory The Directory in which Lucene builds its index.
+    */
+   public IndexManager(final Directory iindexDirectory) {
+      this(iindexDirectory, null, OpenMode.CREATE_OR_APPEND);
+   }
+   
    /**
     * Initializes a new instance of IndexManager with a preconstructed Directory
     * for both the regular index and the taxonomy index.  If an index exists
@@ -78,7 +91,7 @@ class IndexManager {
     * with caution!
     * @param iindexDirectory The Directory in which Lucene builds its index.
     * @param ttaxonomyDirectory The Directory in which Lucene builds its
-    * taxonomy index.
+    * taxonomy index, or null if no taxonomy index should be maintained.
     * @param oopenMode The open mode to use when opening the index.  Use with caution.
     */
    public IndexManager(final Directory iindexDirectory, final Directory ttaxonomyDirectory, final OpenMode oopenMode) {
@@ -144,6 +157,17 @@ class IndexManager {
       initialized = true;
    }
    
+   /**
+    * Sets whether the index is written for readers with little memory
+    * to spare, in which case the terms of the path fields are written
+    * in larger blocks, making their terms index smaller and lookups in
+    * it slower.  This must be set before the index is initialized.
+    * @param llowMemory True to write the index for low-memory readers.
+    */
+   public void setLowMemory(final boolean llowMemory) {
+      lowMemory = llowMemory;
+   }
+   
    /**
     * Readies the index directories for managing of the regular and
     * taxonomy indices by Lucene.
@@ -203,9 +227,14 @@ class IndexManager {
       }
       IndexWriterConfig iwc = new IndexWriterConfig(luceneVersion, analyzer);
       iwc.setOpenMode(openMode);
+      if (lowMemory == true) {
+         iwc.setCodec(new LowMemoryCodec());
+      }
       
       indexWriter = new IndexWriter(indexDirectory, iwc);
-      taxonomyWriter = new DirectoryTaxonomyWriter(taxonomyDirectory, openMode);
+      if (taxonomyDirectory != null) {
+         taxonomyWriter = new DirectoryTaxonomyWriter(taxonomyDirectory, openMode);
+      }
    }
    
    /**
@@ -226,13 +255,35 @@ class IndexManager {
       }
    }
    
+   /**
+    * Commits all pending changes to disk without closing the index
+    * writers.  The taxonomy is committed first, so that the committed
+    * index never refers to categories that the committed taxonomy
+    * lacks.
+    * @throws IOException A fatal exception occurred while trying to
+    * commit the index writers.
+    */
+   public void commit() throws IOException {
+      if (initialized == false) {
+         throw new IllegalArgumentException(
+               "Tried to commit uninitialized index resources"
+         );
+      }
+      if (taxonomyWriter != null) {
+         taxonomyWriter.commit();
+      }
+      indexWriter.commit();
+   }
+   
    /**
     * Closes the index writers, committing all pending changes.
     * @throws IOException A fatal exception occurred while trying to
     * close the index writers.
     */
    private void closeWriters() throws IOException {
-      taxonomyWriter.close();
+      if (taxonomyWriter != null) {
+         taxonomyWriter.close();
+      }
       indexWriter.close();
       
       taxonomyWriter = null;
@@ -252,7 +303,8 @@ class IndexManager {
    /**
     * Gets the taxonomy writer.
     * @return The taxonomy writer, which may be null if the
-    * taxonomy index has not been initialized.
+    * taxonomy index has not been initialized or if this index
+    * has no taxonomy.
     */
    public TaxonomyWriter getTaxonomyWriter() {
       return taxonomyWriter;
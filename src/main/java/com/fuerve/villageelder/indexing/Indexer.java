@@ -19,19 +19,35 @@
 package com.fuerve.villageelder.indexing;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
+import org.apache.lucene.document.DateTools;
+import org.apache.lucene.document.DateTools.Resolution;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.facet.index.FacetFields;
 import org.apache.lucene.facet.taxonomy.CategoryPath;
+import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import com.fuerve.villageelder.common.RevisionSummary;
 import com.fuerve.villageelder.sourcecontrol.ChangePath;
 import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
 
@@ -42,6 +58,19 @@ import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
  */
 public class Indexer {
    private IndexManager indexManager;
+   private Percolator percolator;
+   
+   /**
+    * Initializes a new instance of Indexer with a preconstructed Directory
+    * for the regular index only.  No taxonomy index is written, and facets
+    * are available only through the doc values stored in the regular index.
+    * If an index exists in this location, it will be opened in append mode.
+    * Otherwise, it will be created.
+    * @param iindexDirectory The Directory in which Lucene builds its index.
+    */
+   public Indexer(final Directory iindexDirectory) {
+      this(iindexDirectory, null, OpenMode.CREATE_OR_APPEND);
+   }
    
    /**
     * Initializes a new instance of Indexer with a preconstructed Directory
@@ -63,7 +92,7 @@ public class Indexer {
     * with caution!
     * @param iindexDirectory The Directory in which Lucene builds its index.
     * @param ttaxonomyDirectory The Directory in which Lucene builds its
-    * taxonomy index.
+    * taxonomy index, or null if no taxonomy index should be written.
     * @param oopenMode The open mode to use when opening the index.  Use with caution.
     */
    public Indexer(
@@ -105,6 +134,17 @@ public class Indexer {
       indexManager = new IndexManager(iindexDirectory, ttaxonomyDirectory, oopenMode);
    }
    
+   /**
+    * Sets whether the index is written for searchers with little
+    * memory to spare.  The terms index of the path fields is then
+    * several times smaller, at the cost of slower term lookups.  This
+    * must be set before the index is initialized.
+    * @param lowMemory True to write the index for low-memory searchers.
+    */
+   public void setLowMemory(final boolean lowMemory) {
+      indexManager.setLowMemory(lowMemory);
+   }
+   
    /**
     * Performs the initialization of the index by opening the Directories
     * for the regular and taxonomy indices and instantiating the index
@@ -140,6 +180,18 @@ public class Indexer {
     * index the revision.
     */
    public void indexRevision(final RevisionInfo revision) throws IOException {
+      addRevision(revision);
+      percolate(Collections.singletonList(revision));
+   }
+   
+   /**
+    * Adds a single revision entry to the index, including facet
+    * information.
+    * @param revision The revision entry to index.
+    * @throws IOException A fatal exception occurred while trying to
+    * index the revision.
+    */
+   private void addRevision(final RevisionInfo revision) throws IOException {
       if (indexManager.isInitialized()) {
          Document doc = buildLuceneDocument(revision);
          buildLuceneFacets(doc, revision);
@@ -151,6 +203,45 @@ public class Indexer {
       }
    }
    
+   /**
+    * Sets the saved searches against which newly indexed revisions are
+    * matched.
+    * @param ppercolator The saved searches, or null to match no
+    * searches.
+    */
+   public void setPercolator(final Percolator ppercolator) {
+      percolator = ppercolator;
+   }
+   
+   /**
+    * Gets the saved searches against which newly indexed revisions are
+    * matched.
+    * @return The saved searches, or null if no searches are matched.
+    */
+   public Percolator getPercolator() {
+      return percolator;
+   }
+   
+   /**
+    * Matches a batch of newly indexed revisions against the saved
+    * searches, if there are any.  The documents are built afresh, with
+    * no facet fields, since the documents that were indexed cannot be
+    * indexed a second time.
+    * @param revisions The newly indexed revisions.
+    * @throws IOException A fatal exception occurred while matching the
+    * revisions.
+    */
+   private void percolate(final List<RevisionInfo> revisions) throws IOException {
+      if (percolator == null || percolator.size() == 0) {
+         return;
+      }
+      List<Document> docs = new ArrayList<Document>(revisions.size());
+      for (RevisionInfo revision : revisions) {
+         docs.add(buildLuceneDocument(revision));
+      }
+      percolator.percolate(revisions, docs);
+   }
+   
    /**
     * Builds an indexable Lucene document from a revision entry.
     * @param revision The revision entry from which to build the Lucene
@@ -161,6 +252,15 @@ public class Indexer {
    private Document buildLuceneDocument(final RevisionInfo revision) {
       Document doc = new Document();
 
+      // The summary is stored first, so that a list of results can stop
+      // reading the stored fields of a revision as soon as it has it.
+      doc.add(
+            new StoredField(
+                  RevisionSummary.FIELD,
+                  RevisionSummary.fromRevision(revision).encode()
+            )
+      );
+
       doc.add(
             new LongField(
                   "RevisionNumber",
@@ -169,6 +269,13 @@ public class Indexer {
             )
       );
       
+      doc.add(
+            new NumericDocValuesField(
+                  "RevisionNumber",
+                  revision.getRevision()
+            )
+      );
+      
       doc.add(
             new StringField(
                   "Revision",
@@ -185,6 +292,15 @@ public class Indexer {
             )
       );
       
+      // Flat facets are counted directly from doc values, with no
+      // need for a taxonomy.
+      doc.add(
+            new SortedDocValuesField(
+                  "Author",
+                  new BytesRef(revision.getAuthor() == null ? "" : revision.getAuthor())
+            )
+      );
+      
       doc.add(
             new LongField(
                   "Date",
@@ -193,6 +309,24 @@ public class Indexer {
             )
       );
       
+      // Date histograms are computed at query time from doc values,
+      // rather than from hourly taxonomy categories.
+      doc.add(
+            new NumericDocValuesField(
+                  "Date",
+                  revision.getDate().getTime()
+            )
+      );
+      
+      // Day buckets are grouping keys, so they are stored as sorted
+      // doc values rather than derived from the Date at query time.
+      doc.add(
+            new SortedDocValuesField(
+                  "Day",
+                  new BytesRef(DateTools.dateToString(revision.getDate(), Resolution.DAY))
+            )
+      );
+      
       doc.add(
             new TextField(
                   "Message",
@@ -204,6 +338,15 @@ public class Indexer {
       if (revision.getChangePaths().size() > 0) {
          List<ChangePath> changedPaths = revision.getChangePaths();
          
+         // A revision is grouped under the top-level directory of the
+         // first path that it changed.
+         doc.add(
+               new SortedDocValuesField(
+                     "TopLevelPath",
+                     new BytesRef(RevisionSummary.getTopLevelPath(changedPaths.get(0).getPath()))
+               )
+         );
+         
          for (ChangePath entryPath : changedPaths) {
             doc.add(
                   new StringField(
@@ -221,6 +364,13 @@ public class Indexer {
                   )
             );
             
+            doc.add(
+                  new SortedSetDocValuesField(
+                        "Change",
+                        new BytesRef(entryPath.getChangeType())
+                  )
+            );
+            
             if (entryPath.getCopyPath() != null) {
                doc.add(
                      new StringField(
@@ -264,22 +414,17 @@ public class Indexer {
    private void buildLuceneFacets(
          final Document doc,
          final RevisionInfo revision) throws IOException {
+      if (indexManager.getTaxonomyWriter() == null) {
+         return;
+      }
+      
       List<CategoryPath> categories = new ArrayList<CategoryPath>();
-      SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd/HH");
       
       // Author facet.
       if (revision.getAuthor() != null &&
             revision.getAuthor().isEmpty() == false) {
          categories.add(new CategoryPath("Author", revision.getAuthor()));
       }
-      
-      // Date facet.
-      if (revision.getDate() != null) {
-         Date entryDate = revision.getDate();
-         categories.add(
-               new CategoryPath("Date/" + dateFormat.format(entryDate), '/')
-         );
-      }
 
       if (categories.isEmpty() == false) {
          FacetFields facetFields =
@@ -290,6 +435,8 @@ public class Indexer {
    
    /**
     * Indexes a collection of revisions, including facet information.
+    * The whole collection is matched against the saved searches at
+    * once, after it has been indexed.
     * @param revisions The collection of revisions to index.
     * @throws IOException A fatal exception occurred while interacting
     * with the regular or taxonomy index.
@@ -301,12 +448,82 @@ public class Indexer {
                "Cannot index a null revision"
          );
       } else {
+         List<RevisionInfo> batch = new ArrayList<RevisionInfo>();
          for (RevisionInfo revision : revisions) {
-            indexRevision(revision);
+            addRevision(revision);
+            if (percolator != null) {
+               batch.add(revision);
+            }
          }
+         percolate(batch);
       }
    }
    
+   /**
+    * Commits the revisions indexed so far to disk, without closing the
+    * index.  Committing is costly, so a stream of revisions should be
+    * committed in batches; revisions that have not been committed are
+    * already visible to near-real-time searchers of the writers.
+    * @throws IOException A fatal exception occurred while committing
+    * the regular or taxonomy index.
+    */
+   public void commit() throws IOException {
+      indexManager.commit();
+   }
+   
+   /**
+    * Gets the number of the most recent revision in the index,
+    * including revisions that have not yet been committed.  The
+    * revision is found by a search sorted on the indexed revision
+    * number, so that deleted revisions are ignored and indices written
+    * before revision numbers had doc values are read correctly.
+    * @return The highest revision number in the index, or -1 if the
+    * index is empty.
+    * @throws IOException A fatal exception occurred while reading the
+    * index.
+    */
+   public long getLastRevision() throws IOException {
+      if (indexManager.isInitialized() == false) {
+         throw new IllegalArgumentException(
+               "Tried to read the revisions of an uninitialized Indexer"
+         );
+      }
+      DirectoryReader reader = DirectoryReader.open(indexManager.getIndexWriter(), true);
+      try {
+         final TopFieldDocs top = new IndexSearcher(reader).search(
+               new MatchAllDocsQuery(),
+               1,
+               new Sort(new SortField("RevisionNumber", SortField.Type.LONG, true))
+         );
+         if (top.scoreDocs.length == 0) {
+            return -1;
+         }
+         return (Long) ((FieldDoc) top.scoreDocs[0]).fields[0];
+      } finally {
+         reader.close();
+      }
+   }
+   
+   /**
+    * Gets the writer of the regular index, from which near-real-time
+    * searchers may be opened.
+    * @return The index writer, or null if the index has not been
+    * initialized.
+    */
+   public IndexWriter getIndexWriter() {
+      return indexManager.getIndexWriter();
+   }
+   
+   /**
+    * Gets the writer of the taxonomy index, from which near-real-time
+    * taxonomy readers may be opened.
+    * @return The taxonomy writer, or null if the index has not been
+    * initialized or has no taxonomy.
+    */
+   public TaxonomyWriter getTaxonomyWriter() {
+      return indexManager.getTaxonomyWriter();
+   }
+   
    /**
     * Gets the number of documents in the index, not counting
     * deletions.
@@ -323,12 +540,15 @@ public class Indexer {
    
    /**
     * Gets the number of categories in the taxonomy index.
-    * @return The number of categories in the taxonomy index.
+    * @return The number of categories in the taxonomy index, or zero
+    * if this index has no taxonomy.
     */
    public int getTaxonomySize() {
-      if (indexManager == null || indexManager.getTaxonomyWriter() == null) {
+      if (indexManager == null || indexManager.getIndexWriter() == null) {
          throw new IllegalArgumentException(
                "Tried to count categories in a null index");
+      } else if (indexManager.getTaxonomyWriter() == null) {
+         return 0;
       } else {
          return indexManager.getTaxonomyWriter().getSize();
       }
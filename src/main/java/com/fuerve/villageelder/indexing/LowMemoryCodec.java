@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.indexing;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene41.Lucene41PostingsFormat;
+import org.apache.lucene.codecs.lucene42.Lucene42Codec;
+
+/**
+ * The default codec, except that the terms of the path fields are
+ * written in much larger blocks.  A reader keeps one entry of the
+ * terms index in memory per block, so the terms index of these
+ * fields, which may hold millions of unique terms, shrinks to a
+ * fraction of its usual size.  Each lookup then scans a longer block
+ * on disk.  The blocks are written with the standard postings format,
+ * so indices written with this codec are read by the default codec.
+ * @author lparker
+ *
+ */
+class LowMemoryCodec extends Lucene42Codec {
+   static final int MIN_BLOCK_SIZE = 100;
+   static final int MAX_BLOCK_SIZE = 200;
+
+   private static final Set<String> SPARSE_FIELDS = new HashSet<String>(
+         Arrays.asList("Path", "CopyPath")
+   );
+
+   private final PostingsFormat sparseFormat =
+         new Lucene41PostingsFormat(MIN_BLOCK_SIZE, MAX_BLOCK_SIZE);
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.codecs.lucene42.Lucene42Codec#getPostingsFormatForField(java.lang.String)
+    */
+   @Override
+   public PostingsFormat getPostingsFormatForField(final String field) {
+      if (SPARSE_FIELDS.contains(field)) {
+         return sparseFormat;
+      }
+      return super.getPostingsFormatForField(field);
+   }
+}
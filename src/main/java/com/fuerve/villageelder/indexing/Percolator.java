@@ -0,0 +1,396 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.indexing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+import com.fuerve.villageelder.common.Lucene;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Matches newly indexed revisions against saved searches, so that the
+ * teams that saved them may be alerted.  Each batch of new revisions
+ * is indexed into a small index in memory, against which the saved
+ * searches are run, rather than running every saved search against
+ * the whole index.  Most saved searches cannot match a batch at all,
+ * so every search is registered under terms that any revision it
+ * matches must contain, such as the author of {@code +Author:alice
+ * +Message:fix}, and only the searches whose terms occur in the batch
+ * are run.  Searches with no such terms, such as negations and
+ * ranges, are run against every batch.
+ * @author lparker
+ *
+ */
+public class Percolator {
+   private static final String REVISION_FIELD = "RevisionNumber";
+
+   private final PercolatorSink sink;
+   private final Map<String, SavedSearch> searches = new LinkedHashMap<String, SavedSearch>();
+
+   /**
+    * Initializes a new instance of Percolator.
+    * @param ssink The sink to which matches are sent.
+    */
+   public Percolator(final PercolatorSink ssink) {
+      if (ssink == null) {
+         throw new IllegalArgumentException("A percolator requires a sink");
+      }
+      sink = ssink;
+   }
+
+   /**
+    * Registers a saved search, replacing any search registered with
+    * the same ID.
+    * @param id The ID of the saved search, which is given to the sink
+    * with every match.
+    * @param query The query of the saved search, parsed as a search
+    * would parse it.
+    */
+   public synchronized void register(final String id, final Query query) {
+      if (id == null) {
+         throw new IllegalArgumentException("A saved search requires an ID");
+      }
+      if (query == null) {
+         throw new IllegalArgumentException("A saved search requires a query");
+      }
+      searches.put(id, new SavedSearch(id, query, getRequiredTerms(query)));
+   }
+
+   /**
+    * Removes a saved search.
+    * @param id The ID of the saved search.
+    * @return True if a search was registered with the ID.
+    */
+   public synchronized boolean unregister(final String id) {
+      return searches.remove(id) != null;
+   }
+
+   /**
+    * Gets the number of saved searches.
+    * @return The number of registered searches.
+    */
+   public synchronized int size() {
+      return searches.size();
+   }
+
+   /**
+    * Matches a batch of newly indexed revisions against the saved
+    * searches, sending every match to the sink.
+    * @param revisions The revisions of the batch.
+    * @param documents The documents of the revisions, in the same
+    * order, as they were built for the index.
+    * @throws IOException A fatal exception occurred while indexing the
+    * batch in memory.
+    */
+   void percolate(final List<RevisionInfo> revisions, final List<Document> documents)
+         throws IOException {
+      final List<SavedSearch> saved;
+      synchronized (this) {
+         saved = new ArrayList<SavedSearch>(searches.values());
+      }
+      if (saved.isEmpty() || revisions.isEmpty()) {
+         return;
+      }
+
+      final RAMDirectory directory = new RAMDirectory();
+      final IndexWriter writer = new IndexWriter(
+            directory,
+            new IndexWriterConfig(Lucene.LUCENE_VERSION, Lucene.getPerFieldAnalyzer())
+      );
+      try {
+         writer.addDocuments(documents);
+      } finally {
+         writer.close();
+      }
+
+      final Map<Long, RevisionInfo> byNumber = new HashMap<Long, RevisionInfo>();
+      for (RevisionInfo revision : revisions) {
+         byNumber.put(revision.getRevision(), revision);
+      }
+
+      final DirectoryReader reader = DirectoryReader.open(directory);
+      try {
+         final IndexSearcher searcher = new IndexSearcher(reader);
+         for (SavedSearch search : getCandidates(reader, saved)) {
+            for (Long number : match(searcher, search.query)) {
+               sink.match(search.id, byNumber.get(number));
+            }
+         }
+      } finally {
+         reader.close();
+      }
+   }
+
+   /**
+    * Gets the saved searches that may match a batch, which are those
+    * with no required terms and those whose required terms occur in
+    * the batch.
+    * @param reader The reader of the batch.
+    * @param saved The saved searches.
+    * @return The saved searches to run against the batch, in the order
+    * in which they were registered.
+    * @throws IOException A fatal exception occurred while reading the
+    * terms of the batch.
+    */
+   private static Set<SavedSearch> getCandidates(
+         final DirectoryReader reader,
+         final List<SavedSearch> saved) throws IOException {
+      final Map<RequiredTerm, Boolean> present = new HashMap<RequiredTerm, Boolean>();
+      final Set<SavedSearch> result = new LinkedHashSet<SavedSearch>();
+      for (SavedSearch search : saved) {
+         if (search.requiredTerms == null) {
+            result.add(search);
+            continue;
+         }
+         for (RequiredTerm term : search.requiredTerms) {
+            Boolean found = present.get(term);
+            if (found == null) {
+               found = term.occursIn(reader);
+               present.put(term, found);
+            }
+            if (found) {
+               result.add(search);
+               break;
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Runs a saved search against a batch.
+    * @param searcher The searcher of the batch.
+    * @param query The query of the saved search.
+    * @return The numbers of the matching revisions, in index order.
+    * @throws IOException A fatal exception occurred while searching
+    * the batch.
+    */
+   private static List<Long> match(final IndexSearcher searcher, final Query query)
+         throws IOException {
+      final List<Long> result = new ArrayList<Long>();
+      searcher.search(query, new Collector() {
+         private NumericDocValues revisions;
+
+         @Override
+         public void setScorer(final Scorer scorer) {
+         }
+
+         @Override
+         public void collect(final int doc) {
+            result.add(revisions.get(doc));
+         }
+
+         @Override
+         public void setNextReader(final AtomicReaderContext context) throws IOException {
+            revisions = context.reader().getNumericDocValues(REVISION_FIELD);
+         }
+
+         @Override
+         public boolean acceptsDocsOutOfOrder() {
+            return false;
+         }
+      });
+      return result;
+   }
+
+   /**
+    * Gets terms of which a revision must contain at least one in order
+    * to match a query.
+    * @param query The query.
+    * @return The required terms, or null if any revision might match
+    * the query.
+    */
+   static Set<RequiredTerm> getRequiredTerms(final Query query) {
+      if (query instanceof TermQuery) {
+         return single(new RequiredTerm(((TermQuery) query).getTerm(), false));
+      } else if (query instanceof PrefixQuery) {
+         return single(new RequiredTerm(((PrefixQuery) query).getPrefix(), true));
+      } else if (query instanceof PhraseQuery) {
+         final Term[] terms = ((PhraseQuery) query).getTerms();
+         return terms.length == 0 ? null : single(new RequiredTerm(terms[0], false));
+      } else if (query instanceof ConstantScoreQuery &&
+            ((ConstantScoreQuery) query).getQuery() != null) {
+         return getRequiredTerms(((ConstantScoreQuery) query).getQuery());
+      } else if (query instanceof BooleanQuery) {
+         return getRequiredTerms((BooleanQuery) query);
+      }
+      return null;
+   }
+
+   /**
+    * Gets the required terms of a boolean query.  Any one required
+    * clause is enough to filter with, and the longest term is chosen
+    * since it is likely to be the rarest.  Without required clauses,
+    * one of the optional clauses must match, so their terms may be
+    * used together unless one of them could match anything.
+    * @param query The boolean query.
+    * @return The required terms, or null if any revision might match
+    * the query.
+    */
+   private static Set<RequiredTerm> getRequiredTerms(final BooleanQuery query) {
+      Set<RequiredTerm> best = null;
+      final Set<RequiredTerm> optional = new HashSet<RequiredTerm>();
+      boolean hasRequired = false;
+      boolean filterableOptional = true;
+      for (BooleanClause clause : query.clauses()) {
+         if (clause.isProhibited()) {
+            continue;
+         }
+         final Set<RequiredTerm> terms = getRequiredTerms(clause.getQuery());
+         if (clause.isRequired()) {
+            hasRequired = true;
+            if (terms != null && (best == null || length(terms) > length(best))) {
+               best = terms;
+            }
+         } else if (terms == null) {
+            filterableOptional = false;
+         } else {
+            optional.addAll(terms);
+         }
+      }
+      if (hasRequired) {
+         return best;
+      }
+      return filterableOptional && optional.isEmpty() == false ? optional : null;
+   }
+
+   /**
+    * Gets the length of the shortest of a set of terms, which is how
+    * selective the set is likely to be.
+    * @param terms The terms.
+    * @return The length of the shortest term.
+    */
+   private static int length(final Set<RequiredTerm> terms) {
+      int result = Integer.MAX_VALUE;
+      for (RequiredTerm term : terms) {
+         result = Math.min(result, term.term.bytes().length);
+      }
+      return result;
+   }
+
+   private static Set<RequiredTerm> single(final RequiredTerm term) {
+      final Set<RequiredTerm> result = new HashSet<RequiredTerm>();
+      result.add(term);
+      return result;
+   }
+
+   /**
+    * A saved search and the terms under which it is registered.
+    */
+   private static final class SavedSearch {
+      private final String id;
+      private final Query query;
+      private final Set<RequiredTerm> requiredTerms;
+
+      SavedSearch(final String iid, final Query qquery, final Set<RequiredTerm> rrequiredTerms) {
+         id = iid;
+         query = qquery;
+         requiredTerms = rrequiredTerms;
+      }
+   }
+
+   /**
+    * A term that a revision must contain, or a prefix that one of its
+    * terms must start with.
+    */
+   static final class RequiredTerm {
+      private final Term term;
+      private final boolean prefix;
+
+      RequiredTerm(final Term tterm, final boolean pprefix) {
+         term = tterm;
+         prefix = pprefix;
+      }
+
+      /**
+       * Gets whether this term occurs in an index.
+       * @param reader The reader of the index.
+       * @return True if a document of the index contains the term.
+       * @throws IOException A fatal exception occurred while reading
+       * the terms of the index.
+       */
+      boolean occursIn(final DirectoryReader reader) throws IOException {
+         final Terms terms = MultiFields.getTerms(reader, term.field());
+         if (terms == null) {
+            return false;
+         }
+         final TermsEnum iterator = terms.iterator(null);
+         if (prefix == false) {
+            return iterator.seekExact(term.bytes(), true);
+         }
+         final TermsEnum.SeekStatus status = iterator.seekCeil(term.bytes(), true);
+         if (status == TermsEnum.SeekStatus.END) {
+            return false;
+         }
+         final BytesRef found = iterator.term();
+         return StringHelper.startsWith(found, term.bytes());
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if (o instanceof RequiredTerm == false) {
+            return false;
+         }
+         final RequiredTerm other = (RequiredTerm) o;
+         return prefix == other.prefix && term.equals(other.term);
+      }
+
+      @Override
+      public int hashCode() {
+         return term.hashCode() * 31 + (prefix ? 1 : 0);
+      }
+
+      @Override
+      public String toString() {
+         return prefix ? term + "*" : term.toString();
+      }
+   }
+}
@@ -0,0 +1,38 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.indexing;
+
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Receives the newly indexed revisions that match the saved searches
+ * of a {@link Percolator}, such as to alert the team that saved them.
+ * @author lparker
+ *
+ */
+public interface PercolatorSink {
+   /**
+    * Called once for every saved search that a newly indexed revision
+    * matches, on the thread that indexed the revision, once the batch
+    * of the revision has been indexed.
+    * @param id The ID with which the saved search was registered.
+    * @param revision The revision that matched the saved search.
+    */
+   void match(String id, RevisionInfo revision);
+}
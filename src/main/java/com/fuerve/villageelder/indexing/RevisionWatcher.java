@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.indexing;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fuerve.villageelder.sourcecontrol.Repository;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Polls a repository for new revisions and indexes them as they
+ * arrive.  Each poll asks only for the head revision, and fetches
+ * the revisions after the last one indexed in ranges of a bounded
+ * size.  The delay before the next poll starts short, and doubles
+ * with every poll that finds nothing, up to a maximum, so that an
+ * idle repository is not hammered but a burst of commits is picked
+ * up quickly.  Committing forces the index to disk, so revisions are
+ * only committed once enough of them are pending or the oldest of
+ * them has waited long enough; until then, they are visible only to
+ * near-real-time searchers of the {@link Indexer}.
+ * @author lparker
+ *
+ */
+public class RevisionWatcher {
+   private static final long DEFAULT_MIN_DELAY = 1000L;
+   private static final long DEFAULT_MAX_DELAY = 60000L;
+   private static final int DEFAULT_FETCH_SIZE = 500;
+   private static final int DEFAULT_COMMIT_REVISIONS = 1000;
+   private static final long DEFAULT_COMMIT_MILLIS = 30000L;
+
+   private final Repository repository;
+   private final Indexer indexer;
+   private long lastRevision;
+
+   private long minDelay = DEFAULT_MIN_DELAY;
+   private long maxDelay = DEFAULT_MAX_DELAY;
+   private long delay = DEFAULT_MIN_DELAY;
+   private int fetchSize = DEFAULT_FETCH_SIZE;
+   private int commitRevisions = DEFAULT_COMMIT_REVISIONS;
+   private long commitMillis = DEFAULT_COMMIT_MILLIS;
+
+   private int pending;
+   private long pendingSince;
+
+   /**
+    * Initializes a new instance of RevisionWatcher.
+    * @param rrepository The repository to watch.
+    * @param iindexer The initialized indexer into which to index new
+    * revisions.
+    * @param llastRevision The number of the last revision that has
+    * already been indexed, or -1 to index the whole history.
+    */
+   public RevisionWatcher(
+         final Repository rrepository,
+         final Indexer iindexer,
+         final long llastRevision) {
+      if (rrepository == null) {
+         throw new IllegalArgumentException("A revision watcher requires a repository");
+      }
+      if (iindexer == null) {
+         throw new IllegalArgumentException("A revision watcher requires an indexer");
+      }
+      repository = rrepository;
+      indexer = iindexer;
+      lastRevision = llastRevision;
+   }
+
+   /**
+    * Sets the range of delays between polls.
+    * @param mminDelay The delay after a poll that found new
+    * revisions, in milliseconds.
+    * @param mmaxDelay The longest delay after polls that found
+    * nothing, in milliseconds.
+    */
+   public void setDelay(final long mminDelay, final long mmaxDelay) {
+      if (mminDelay < 1 || mmaxDelay < mminDelay) {
+         throw new IllegalArgumentException(
+               "The delays must be positive, and the minimum may not exceed the maximum"
+         );
+      }
+      minDelay = mminDelay;
+      maxDelay = mmaxDelay;
+      delay = mminDelay;
+   }
+
+   /**
+    * Sets the largest number of revisions to fetch from the
+    * repository at a time.
+    * @param ffetchSize The largest number of revisions per fetch.
+    */
+   public void setFetchSize(final int ffetchSize) {
+      if (ffetchSize < 1) {
+         throw new IllegalArgumentException("At least one revision must be fetched at a time");
+      }
+      fetchSize = ffetchSize;
+   }
+
+   /**
+    * Sets when pending revisions are committed to disk.
+    * @param ccommitRevisions The number of pending revisions at which
+    * to commit.
+    * @param ccommitMillis The time after which to commit the oldest
+    * pending revision, in milliseconds.
+    */
+   public void setCommitPolicy(final int ccommitRevisions, final long ccommitMillis) {
+      if (ccommitRevisions < 1 || ccommitMillis < 0) {
+         throw new IllegalArgumentException(
+               "Revisions must be committed at least one at a time, and never wait negative time"
+         );
+      }
+      commitRevisions = ccommitRevisions;
+      commitMillis = ccommitMillis;
+   }
+
+   /**
+    * Indexes the revisions that have arrived since the last poll, and
+    * commits the pending revisions if they are due.
+    * @return The number of revisions indexed.
+    * @throws IOException A fatal exception occurred while reading the
+    * repository or writing the index.  The delay before the next poll
+    * backs off as though nothing had been found.
+    */
+   public int poll() throws IOException {
+      int result = 0;
+      try {
+         final long head = repository.getLatestRevision();
+         while (lastRevision < head) {
+            final long begin = lastRevision + 1;
+            final long end = Math.min(head, begin + fetchSize - 1);
+            final List<RevisionInfo> revisions = repository.getRevisionRange(begin, end);
+            indexer.indexRevisions(revisions);
+            result += revisions.size();
+            if (pending == 0 && revisions.isEmpty() == false) {
+               pendingSince = now();
+            }
+            pending += revisions.size();
+            lastRevision = end;
+            if (pending >= commitRevisions) {
+               commit();
+            }
+         }
+      } finally {
+         delay = result > 0 ? minDelay : Math.min(maxDelay, delay * 2);
+      }
+      if (pending > 0 && now() - pendingSince >= commitMillis) {
+         commit();
+      }
+      return result;
+   }
+
+   /**
+    * Commits the pending revisions to disk.
+    * @throws IOException A fatal exception occurred while committing
+    * the index.
+    */
+   public void commit() throws IOException {
+      indexer.commit();
+      pending = 0;
+   }
+
+   /**
+    * Gets how long to wait before the next poll.
+    * @return The delay, in milliseconds.
+    */
+   public long getDelay() {
+      return delay;
+   }
+
+   /**
+    * Gets the number of the last revision that has been indexed.
+    * @return The last revision number, or -1 if none has been.
+    */
+   public long getLastRevision() {
+      return lastRevision;
+   }
+
+   /**
+    * Gets the number of revisions that have been indexed but not yet
+    * committed.
+    * @return The number of pending revisions.
+    */
+   public int getPendingCount() {
+      return pending;
+   }
+
+   /**
+    * Gets the current time.
+    * @return The current time, in milliseconds.
+    */
+   long now() {
+      return System.currentTimeMillis();
+   }
+}
@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fuerve.villageelder.search.QueryRejectedException.Reason;
+
+/**
+ * Bounds the number of searches that run at once.  Searches beyond
+ * that number wait in a bounded queue for a limited time, and once
+ * the queue is full, or a search has waited too long, further
+ * searches are refused rather than left to slow down every other
+ * search.  A single instance is meant to be shared by every
+ * {@link Searcher} of an index.
+ * @author lparker
+ *
+ */
+public class AdmissionController {
+   private final Semaphore permits;
+   private final int maxQueued;
+   private final long maxWaitMillis;
+   private final AtomicInteger queued = new AtomicInteger();
+
+   /**
+    * Initializes a new instance of AdmissionController.
+    * @param mmaxConcurrent The greatest number of searches that may
+    * run at once.
+    * @param mmaxQueued The greatest number of searches that may wait
+    * to run.
+    * @param mmaxWaitMillis The longest time that a search may wait to
+    * run, in milliseconds.
+    */
+   public AdmissionController(
+         final int mmaxConcurrent,
+         final int mmaxQueued,
+         final long mmaxWaitMillis) {
+      if (mmaxConcurrent < 1) {
+         throw new IllegalArgumentException(
+               "At least one search must be allowed to run at once"
+         );
+      }
+      if (mmaxQueued < 0) {
+         throw new IllegalArgumentException("The queue length cannot be negative");
+      }
+      if (mmaxWaitMillis < 0) {
+         throw new IllegalArgumentException("The queue wait cannot be negative");
+      }
+      permits = new Semaphore(mmaxConcurrent, true);
+      maxQueued = mmaxQueued;
+      maxWaitMillis = mmaxWaitMillis;
+   }
+
+   /**
+    * Waits for permission to run a search.  Every successful call must
+    * be matched by a call to {@link #release()} once the search is done.
+    * @throws QueryRejectedException The queue is full, or the search
+    * waited too long to run.
+    */
+   public void acquire() throws QueryRejectedException {
+      if (permits.tryAcquire()) {
+         return;
+      }
+
+      if (queued.incrementAndGet() > maxQueued) {
+         queued.decrementAndGet();
+         throw new QueryRejectedException(
+               Reason.OVERLOADED,
+               "Too many searches are waiting to run; try again later"
+         );
+      }
+
+      try {
+         if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS) == false) {
+            throw new QueryRejectedException(
+                  Reason.OVERLOADED,
+                  "The search waited more than " + maxWaitMillis + " ms to run; try again later"
+            );
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new QueryRejectedException(
+               Reason.OVERLOADED,
+               "The search was interrupted while waiting to run"
+         );
+      } finally {
+         queued.decrementAndGet();
+      }
+   }
+
+   /**
+    * Gives back the permission to run a search.
+    */
+   public void release() {
+      permits.release();
+   }
+
+   /**
+    * Gets the number of searches that are waiting to run.
+    * @return The length of the queue.
+    */
+   public int getQueued() {
+      return queued.get();
+   }
+
+   /**
+    * Gets the number of further searches that may run at once.
+    * @return The number of searches that may start without waiting.
+    */
+   public int getAvailable() {
+      return permits.availablePermits();
+   }
+}
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * A request for a histogram of a date field, such as Date, with
+ * calendar buckets of an hour, day, week or month in a given time
+ * zone.  This replaces the hourly date categories that used to be
+ * written to the taxonomy, letting the caller choose the granularity
+ * at query time.  Each bucket is labeled with its start, and buckets
+ * are returned in chronological order.  Weeks start on Monday.
+ * @author lparker
+ *
+ */
+public class DateHistogramFacetRequest extends NumericFacetRequest {
+   /**
+    * The width of the buckets of a date histogram.
+    */
+   public enum Interval {
+      HOUR(Calendar.HOUR_OF_DAY, "yyyy-MM-dd'T'HH"),
+      DAY(Calendar.DAY_OF_MONTH, "yyyy-MM-dd"),
+      WEEK(Calendar.WEEK_OF_YEAR, "yyyy-MM-dd"),
+      MONTH(Calendar.MONTH, "yyyy-MM");
+
+      private final int calendarField;
+      private final String labelPattern;
+
+      private Interval(final int ccalendarField, final String llabelPattern) {
+         calendarField = ccalendarField;
+         labelPattern = llabelPattern;
+      }
+   }
+
+   private final Interval interval;
+   private final TimeZone timeZone;
+
+   /**
+    * Initializes a new instance of DateHistogramFacetRequest in UTC
+    * that returns every non-empty bucket.
+    * @param field The name of the numeric doc values field to count.
+    * @param iinterval The width of each bucket.
+    */
+   public DateHistogramFacetRequest(final String field, final Interval iinterval) {
+      this(field, iinterval, TimeZone.getTimeZone("UTC"));
+   }
+
+   /**
+    * Initializes a new instance of DateHistogramFacetRequest that
+    * returns every non-empty bucket.
+    * @param field The name of the numeric doc values field to count.
+    * @param iinterval The width of each bucket.
+    * @param ttimeZone The time zone in which bucket boundaries fall.
+    */
+   public DateHistogramFacetRequest(
+         final String field,
+         final Interval iinterval,
+         final TimeZone ttimeZone) {
+      this(field, iinterval, ttimeZone, Integer.MAX_VALUE);
+   }
+
+   /**
+    * Initializes a new instance of DateHistogramFacetRequest.
+    * @param field The name of the numeric doc values field to count.
+    * @param iinterval The width of each bucket.
+    * @param ttimeZone The time zone in which bucket boundaries fall.
+    * @param numResults The maximum number of buckets to return.
+    */
+   public DateHistogramFacetRequest(
+         final String field,
+         final Interval iinterval,
+         final TimeZone ttimeZone,
+         final int numResults) {
+      super(field, numResults);
+      if (iinterval == null || ttimeZone == null) {
+         throw new IllegalArgumentException(
+               "A date histogram requires an interval and a time zone"
+         );
+      }
+      interval = iinterval;
+      timeZone = ttimeZone;
+   }
+
+   /**
+    * Gets the width of each bucket.
+    * @return The width of each bucket.
+    */
+   public Interval getInterval() {
+      return interval;
+   }
+
+   /**
+    * Gets the time zone in which bucket boundaries fall.
+    * @return The time zone of the histogram.
+    */
+   public TimeZone getTimeZone() {
+      return timeZone;
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.search.NumericFacetRequest#createCounter()
+    */
+   @Override
+   Counter createCounter() {
+      final Calendar calendar = Calendar.getInstance(timeZone, Locale.ROOT);
+      calendar.setFirstDayOfWeek(Calendar.MONDAY);
+      final SimpleDateFormat format =
+            new SimpleDateFormat(interval.labelPattern, Locale.ROOT);
+      format.setTimeZone(timeZone);
+
+      return new BucketCounter() {
+         @Override
+         long bucketStart(final long value) {
+            calendar.setTimeInMillis(value);
+            switch (interval) {
+               case MONTH:
+                  calendar.set(Calendar.DAY_OF_MONTH, 1);
+                  break;
+               case WEEK:
+                  calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+                  break;
+               default:
+                  break;
+            }
+            if (interval != Interval.HOUR) {
+               calendar.set(Calendar.HOUR_OF_DAY, 0);
+            }
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            return calendar.getTimeInMillis();
+         }
+
+         @Override
+         long bucketEnd(final long start) {
+            calendar.setTimeInMillis(start);
+            calendar.add(interval.calendarField, 1);
+            return calendar.getTimeInMillis();
+         }
+
+         @Override
+         String bucketLabel(final long start) {
+            return format.format(new Date(start));
+         }
+      };
+   }
+}
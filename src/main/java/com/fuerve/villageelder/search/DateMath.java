@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.apache.lucene.document.DateTools;
+
+/**
+ * Evaluates date expressions relative to the current time, such as
+ * {@code NOW-7DAYS/HOUR}, which is seven days ago rounded down to the
+ * start of the hour.  An expression starts with {@code NOW} or with an
+ * absolute {@link DateTools} string, followed by any number of steps:
+ * {@code +} or {@code -} an amount of a unit, or {@code /} a unit to
+ * round down to.  The units are YEAR, MONTH, WEEK, DAY, HOUR, MINUTE,
+ * SECOND and MILLISECOND, in singular or plural and in any case.
+ * Weeks start on Monday, and every step is taken in UTC, just as
+ * {@link DateTools} strings are.  Rounding is what makes relative
+ * ranges reusable: every query for {@code NOW-7DAYS/HOUR} within the
+ * same hour evaluates to the same instant, and so to the same range.
+ * @author lparker
+ *
+ */
+public final class DateMath {
+   /**
+    * The units of date arithmetic and rounding.
+    */
+   enum Unit {
+      YEAR(Calendar.YEAR),
+      MONTH(Calendar.MONTH),
+      WEEK(Calendar.WEEK_OF_YEAR),
+      DAY(Calendar.DAY_OF_MONTH),
+      HOUR(Calendar.HOUR_OF_DAY),
+      MINUTE(Calendar.MINUTE),
+      SECOND(Calendar.SECOND),
+      MILLISECOND(Calendar.MILLISECOND);
+
+      private final int calendarField;
+
+      private Unit(final int ccalendarField) {
+         calendarField = ccalendarField;
+      }
+   }
+
+   private static final String NOW = "NOW";
+   private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+   private DateMath() {
+   }
+
+   /**
+    * Evaluates a date expression.
+    * @param expression The date expression.
+    * @param now The current time, in milliseconds since the epoch.
+    * @return The time that the expression stands for, in milliseconds
+    * since the epoch.
+    * @throws ParseException The expression is malformed.
+    */
+   public static long parse(final String expression, final long now)
+         throws ParseException {
+      if (expression == null || expression.isEmpty()) {
+         throw new ParseException("A date expression is required", 0);
+      }
+
+      final String upper = expression.toUpperCase(Locale.ROOT);
+      int position = 0;
+      while (position < upper.length() && isStep(upper.charAt(position)) == false) {
+         position++;
+      }
+
+      final String anchor = upper.substring(0, position);
+      final Calendar calendar = Calendar.getInstance(UTC, Locale.ROOT);
+      calendar.setFirstDayOfWeek(Calendar.MONDAY);
+      if (NOW.equals(anchor)) {
+         calendar.setTimeInMillis(now);
+      } else {
+         calendar.setTimeInMillis(DateTools.stringToTime(anchor));
+      }
+
+      while (position < upper.length()) {
+         final char operator = upper.charAt(position++);
+         final int amountStart = position;
+         while (position < upper.length() && Character.isDigit(upper.charAt(position))) {
+            position++;
+         }
+         final String amount = upper.substring(amountStart, position);
+         final int unitStart = position;
+         while (position < upper.length() && Character.isLetter(upper.charAt(position))) {
+            position++;
+         }
+         final Unit unit = toUnit(upper.substring(unitStart, position), unitStart);
+
+         if (operator == '/') {
+            if (amount.isEmpty() == false) {
+               throw new ParseException("Rounding takes a unit without an amount", amountStart);
+            }
+            round(calendar, unit);
+         } else {
+            if (amount.isEmpty()) {
+               throw new ParseException("Date arithmetic requires an amount", amountStart);
+            }
+            final int value;
+            try {
+               value = Integer.parseInt(amount);
+            } catch (NumberFormatException e) {
+               throw new ParseException("The amount " + amount + " is too large", amountStart);
+            }
+            calendar.add(unit.calendarField, operator == '-' ? -value : value);
+         }
+      }
+      return calendar.getTimeInMillis();
+   }
+
+   /**
+    * Gets whether a date expression is relative to the current time,
+    * and so evaluates to a different time as the clock moves on.
+    * @param expression The date expression, or null.
+    * @return True if the expression starts with NOW.
+    */
+   public static boolean isRelative(final String expression) {
+      return expression != null &&
+            expression.toUpperCase(Locale.ROOT).startsWith(NOW);
+   }
+
+   /**
+    * Gets whether a character starts a step of an expression.
+    * @param c The character.
+    * @return True if the character is an operator.
+    */
+   private static boolean isStep(final char c) {
+      return c == '+' || c == '-' || c == '/';
+   }
+
+   /**
+    * Gets the unit with a given singular or plural name.
+    * @param name The uppercase name of the unit.
+    * @param offset The offset of the name within the expression.
+    * @return The unit.
+    * @throws ParseException The name is not that of a unit.
+    */
+   private static Unit toUnit(final String name, final int offset)
+         throws ParseException {
+      final String singular =
+            name.endsWith("S") ? name.substring(0, name.length() - 1) : name;
+      try {
+         return Unit.valueOf(singular);
+      } catch (IllegalArgumentException e) {
+         throw new ParseException("Unknown date unit " + name, offset);
+      }
+   }
+
+   /**
+    * Rounds a time down to the start of a unit.
+    * @param calendar The calendar that holds the time.
+    * @param unit The unit to round down to.
+    */
+   private static void round(final Calendar calendar, final Unit unit) {
+      // Every field finer than the unit is reset, in order from the
+      // coarsest, and weeks are rounded to their first day.
+      switch (unit) {
+         case YEAR:
+            calendar.set(Calendar.MONTH, Calendar.JANUARY);
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            break;
+         case MONTH:
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            break;
+         case WEEK:
+            calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+            break;
+         default:
+            break;
+      }
+      if (unit.ordinal() < Unit.HOUR.ordinal()) {
+         calendar.set(Calendar.HOUR_OF_DAY, 0);
+      }
+      if (unit.ordinal() < Unit.MINUTE.ordinal()) {
+         calendar.set(Calendar.MINUTE, 0);
+      }
+      if (unit.ordinal() < Unit.SECOND.ordinal()) {
+         calendar.set(Calendar.SECOND, 0);
+      }
+      if (unit.ordinal() < Unit.MILLISECOND.ordinal()) {
+         calendar.set(Calendar.MILLISECOND, 0);
+      }
+   }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import org.apache.lucene.facet.search.CountFacetRequest;
+import org.apache.lucene.facet.taxonomy.CategoryPath;
+
+/**
+ * A request to count the values of a flat facet directly from the
+ * sorted doc values of the main index, with no taxonomy involved.
+ * This suits dimensions like Author and Change, whose values have no
+ * hierarchy.  The request is a {@link CountFacetRequest} so that its
+ * results can travel alongside taxonomy facet results, but it must
+ * only ever be counted by a {@link DocValuesFacetsCollector}.
+ * @author lparker
+ *
+ */
+public class DocValuesFacetRequest extends CountFacetRequest {
+   private final String field;
+
+   /**
+    * Initializes a new instance of DocValuesFacetRequest.
+    * @param ffield The name of the sorted or sorted set doc values
+    * field to count.
+    * @param numResults The maximum number of facet values to return.
+    */
+   public DocValuesFacetRequest(final String ffield, final int numResults) {
+      super(new CategoryPath(ffield), numResults);
+      field = ffield;
+   }
+
+   /**
+    * Gets the name of the doc values field counted by this request.
+    * @return The name of the doc values field.
+    */
+   public String getField() {
+      return field;
+   }
+}
@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.search.FacetResultNode;
+import org.apache.lucene.facet.taxonomy.CategoryPath;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A {@link Collector} that counts flat facets straight from the
+ * sorted doc values of the main index.  Ordinals are counted into a
+ * primitive array for each segment; when the collector moves on to
+ * the next segment, the non-zero counts are resolved to their values
+ * and folded into the running totals, since ordinals are only
+ * meaningful within a single segment.
+ * @author lparker
+ *
+ */
+public class DocValuesFacetsCollector extends Collector {
+   private final List<DocValuesFacetRequest> requests;
+   private final List<Map<String, Integer>> totals;
+   private final int[] hits;
+
+   private SortedDocValues[] singleValues;
+   private SortedSetDocValues[] multiValues;
+   private int[][] counts;
+
+   /**
+    * Initializes a new instance of DocValuesFacetsCollector.
+    * @param rrequests The doc values facets to count.
+    */
+   public DocValuesFacetsCollector(final List<DocValuesFacetRequest> rrequests) {
+      if (rrequests == null || rrequests.isEmpty()) {
+         throw new IllegalArgumentException(
+               "A doc values facets collector needs at least one facet request"
+         );
+      }
+
+      requests = rrequests;
+      totals = new ArrayList<Map<String, Integer>>(requests.size());
+      for (int i = 0; i < requests.size(); i++) {
+         totals.add(new HashMap<String, Integer>());
+      }
+      hits = new int[requests.size()];
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#setScorer(org.apache.lucene.search.Scorer)
+    */
+   @Override
+   public void setScorer(final Scorer scorer) throws IOException {
+      // Counting does not depend upon scores.
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#collect(int)
+    */
+   @Override
+   public void collect(final int doc) throws IOException {
+      for (int i = 0; i < requests.size(); i++) {
+         final int[] segmentCounts = counts[i];
+         if (singleValues[i] != null) {
+            final int ord = singleValues[i].getOrd(doc);
+            if (ord >= 0) {
+               segmentCounts[ord]++;
+               hits[i]++;
+            }
+         } else if (multiValues[i] != null) {
+            final SortedSetDocValues values = multiValues[i];
+            values.setDocument(doc);
+            long ord = values.nextOrd();
+            if (ord != SortedSetDocValues.NO_MORE_ORDS) {
+               hits[i]++;
+            }
+            while (ord != SortedSetDocValues.NO_MORE_ORDS) {
+               segmentCounts[(int) ord]++;
+               ord = values.nextOrd();
+            }
+         }
+      }
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#setNextReader(org.apache.lucene.index.AtomicReaderContext)
+    */
+   @Override
+   public void setNextReader(final AtomicReaderContext context)
+         throws IOException {
+      foldSegmentCounts();
+
+      final AtomicReader reader = context.reader();
+      singleValues = new SortedDocValues[requests.size()];
+      multiValues = new SortedSetDocValues[requests.size()];
+      counts = new int[requests.size()][];
+
+      for (int i = 0; i < requests.size(); i++) {
+         final String field = requests.get(i).getField();
+         singleValues[i] = reader.getSortedDocValues(field);
+         if (singleValues[i] != null) {
+            counts[i] = new int[singleValues[i].getValueCount()];
+         } else {
+            multiValues[i] = reader.getSortedSetDocValues(field);
+            counts[i] = multiValues[i] == null ?
+                  new int[0] : new int[(int) multiValues[i].getValueCount()];
+         }
+      }
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#acceptsDocsOutOfOrder()
+    */
+   @Override
+   public boolean acceptsDocsOutOfOrder() {
+      return true;
+   }
+
+   /**
+    * Resolves the ordinals counted in the current segment to their
+    * values and adds them to the running totals.
+    */
+   private void foldSegmentCounts() {
+      if (counts == null) {
+         return;
+      }
+
+      final BytesRef scratch = new BytesRef();
+      for (int i = 0; i < requests.size(); i++) {
+         final int[] segmentCounts = counts[i];
+         final Map<String, Integer> total = totals.get(i);
+
+         for (int ord = 0; ord < segmentCounts.length; ord++) {
+            if (segmentCounts[ord] == 0) {
+               continue;
+            }
+            if (singleValues[i] != null) {
+               singleValues[i].lookupOrd(ord, scratch);
+            } else {
+               multiValues[i].lookupOrd(ord, scratch);
+            }
+            final String value = scratch.utf8ToString();
+            if (value.isEmpty() && singleValues[i] != null) {
+               // Documents without a value read back as the empty
+               // value, and should not count as hits.
+               hits[i] -= segmentCounts[ord];
+            }
+            final Integer existing = total.get(value);
+            total.put(value, existing == null ?
+                  segmentCounts[ord] : existing + segmentCounts[ord]);
+         }
+      }
+      counts = null;
+   }
+
+   /**
+    * Gets the facet results for every request, with the values of
+    * each facet ordered by descending count.  Empty values, which
+    * stand in for missing ones, are not reported.
+    * @return The list of facet results, in request order.
+    */
+   public List<FacetResult> getFacetResults() {
+      foldSegmentCounts();
+
+      final List<FacetResult> result = new ArrayList<FacetResult>(requests.size());
+      for (int i = 0; i < requests.size(); i++) {
+         final DocValuesFacetRequest request = requests.get(i);
+         final List<Entry<String, Integer>> values =
+               new ArrayList<Entry<String, Integer>>(totals.get(i).entrySet());
+         Collections.sort(values, new Comparator<Entry<String, Integer>>() {
+            public int compare(
+                  final Entry<String, Integer> left,
+                  final Entry<String, Integer> right) {
+               final int byCount = right.getValue().compareTo(left.getValue());
+               return byCount != 0 ? byCount : left.getKey().compareTo(right.getKey());
+            }
+         });
+
+         final List<FacetResultNode> children = new ArrayList<FacetResultNode>();
+         int validValues = 0;
+         for (Entry<String, Integer> value : values) {
+            if (value.getKey().isEmpty()) {
+               continue;
+            }
+            validValues++;
+            if (children.size() < request.numResults) {
+               final FacetResultNode child =
+                     new FacetResultNode(-1, value.getValue());
+               child.label = new CategoryPath(request.getField(), value.getKey());
+               children.add(child);
+            }
+         }
+
+         final FacetResultNode root = new FacetResultNode(-1, hits[i]);
+         root.label = request.categoryPath;
+         root.subResults = children;
+         result.add(new FacetResult(request, root, validValues));
+      }
+      return result;
+   }
+}
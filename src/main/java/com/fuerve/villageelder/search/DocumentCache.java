@@ -0,0 +1,326 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A cache of the decoded stored documents of recently viewed
+ * revisions, so that showing a popular revision again reads neither
+ * the disk nor decompresses its stored fields.  Documents are cached
+ * for each segment of the index, separately for each set of loaded
+ * fields, and the least recently used documents are evicted once the
+ * estimated size of the cache outgrows its limit.  The documents of a
+ * segment are evicted when the segment is closed.  A cache may be
+ * shared by any number of searches and Searchers of the same index.
+ * @author lparker
+ *
+ */
+public class DocumentCache {
+   private static final long DOCUMENT_OVERHEAD = 64;
+   private static final long FIELD_OVERHEAD = 48;
+
+   private final long maxBytes;
+   private final Map<CacheKey, CachedDocument> cache =
+         new LinkedHashMap<CacheKey, CachedDocument>(16, 0.75f, true);
+   private final Set<Object> watchedCores = new HashSet<Object>();
+   private long sizeInBytes;
+   private long hits;
+   private long misses;
+
+   /**
+    * Initializes a new instance of DocumentCache.
+    * @param mmaxBytes The greatest estimated size of the cached
+    * documents, in bytes.
+    */
+   public DocumentCache(final long mmaxBytes) {
+      if (mmaxBytes < 1) {
+         throw new IllegalArgumentException("A document cache must have a positive size");
+      }
+      maxBytes = mmaxBytes;
+   }
+
+   /**
+    * Gets the stored fields of a document, from the cache if they are
+    * cached and otherwise from the index.  The returned document may
+    * be modified freely by the caller.
+    * @param reader The reader of the index.
+    * @param docID The ID of the document within the reader.
+    * @param fields The names of the stored fields to load, or null to
+    * load every stored field.
+    * @return The document.
+    * @throws IOException A fatal exception occurred while reading the
+    * stored fields.
+    */
+   public Document getDocument(
+         final IndexReader reader,
+         final int docID,
+         final Set<String> fields) throws IOException {
+      final List<AtomicReaderContext> leaves = reader.leaves();
+      final AtomicReaderContext context = leaves.get(ReaderUtil.subIndex(docID, leaves));
+      final AtomicReader segment = context.reader();
+      final CacheKey key = new CacheKey(
+            segment.getCoreCacheKey(),
+            docID - context.docBase,
+            fields == null ? null : Collections.unmodifiableSet(new HashSet<String>(fields))
+      );
+      synchronized (cache) {
+         final CachedDocument cached = cache.get(key);
+         if (cached != null) {
+            hits++;
+            return copy(cached.document);
+         }
+         misses++;
+      }
+
+      // Two views that miss at once may both load the same document,
+      // which is harmless.
+      final Document document = HitDocuments.read(segment, key.doc, fields);
+      final long size = estimateSize(document);
+      if (size <= maxBytes) {
+         synchronized (cache) {
+            final CachedDocument previous = cache.put(key, new CachedDocument(document, size));
+            if (previous != null) {
+               sizeInBytes -= previous.size;
+            }
+            sizeInBytes += size;
+            evictEldest();
+            watch(segment);
+         }
+      }
+      return copy(document);
+   }
+
+   /**
+    * Gets the number of documents in the cache.
+    * @return The number of cached documents.
+    */
+   public int size() {
+      synchronized (cache) {
+         return cache.size();
+      }
+   }
+
+   /**
+    * Gets the estimated size of the cached documents.
+    * @return The size of the cache, in bytes.
+    */
+   public long getSizeInBytes() {
+      synchronized (cache) {
+         return sizeInBytes;
+      }
+   }
+
+   /**
+    * Gets the greatest estimated size of the cached documents.
+    * @return The limit of the cache, in bytes.
+    */
+   public long getMaxBytes() {
+      return maxBytes;
+   }
+
+   /**
+    * Gets the number of times that a document was found in the cache.
+    * @return The number of cache hits.
+    */
+   public long getHitCount() {
+      synchronized (cache) {
+         return hits;
+      }
+   }
+
+   /**
+    * Gets the number of times that a document had to be read from the
+    * index.
+    * @return The number of cache misses.
+    */
+   public long getMissCount() {
+      synchronized (cache) {
+         return misses;
+      }
+   }
+
+   /**
+    * Gets the share of documents that were found in the cache.
+    * @return The hit rate, between zero and one, or zero if no document
+    * has been requested.
+    */
+   public double getHitRate() {
+      synchronized (cache) {
+         final long total = hits + misses;
+         return total == 0 ? 0.0 : (double) hits / total;
+      }
+   }
+
+   /**
+    * Removes every document from the cache.
+    */
+   public void clear() {
+      synchronized (cache) {
+         cache.clear();
+         sizeInBytes = 0;
+      }
+   }
+
+   /**
+    * Evicts the least recently used documents until the cache fits
+    * within its limit.  The caller must hold the lock of the cache.
+    */
+   private void evictEldest() {
+      final Iterator<CachedDocument> documents = cache.values().iterator();
+      while (sizeInBytes > maxBytes && documents.hasNext()) {
+         sizeInBytes -= documents.next().size;
+         documents.remove();
+      }
+   }
+
+   /**
+    * Evicts the documents of a segment once its core is closed.
+    * @param reader The reader of the segment.
+    */
+   private void watch(final AtomicReader reader) {
+      if (reader instanceof SegmentReader &&
+            watchedCores.add(reader.getCoreCacheKey())) {
+         ((SegmentReader) reader).addCoreClosedListener(
+               new SegmentReader.CoreClosedListener() {
+                  public void onClose(final SegmentReader owner) {
+                     evict(owner.getCoreCacheKey());
+                  }
+               }
+         );
+      }
+   }
+
+   /**
+    * Evicts the documents of a closed segment.
+    * @param coreKey The core cache key of the segment.
+    */
+   private void evict(final Object coreKey) {
+      synchronized (cache) {
+         watchedCores.remove(coreKey);
+         final Iterator<Map.Entry<CacheKey, CachedDocument>> entries =
+               cache.entrySet().iterator();
+         while (entries.hasNext()) {
+            final Map.Entry<CacheKey, CachedDocument> entry = entries.next();
+            if (entry.getKey().coreKey == coreKey) {
+               sizeInBytes -= entry.getValue().size;
+               entries.remove();
+            }
+         }
+      }
+   }
+
+   /**
+    * Copies a document, so that callers may modify the documents that
+    * they are given without modifying the cache.  The fields themselves
+    * are shared, since stored fields are never modified once loaded.
+    * @param document The document to copy.
+    * @return The copy.
+    */
+   private static Document copy(final Document document) {
+      final Document result = new Document();
+      for (IndexableField field : document.getFields()) {
+         result.add(field);
+      }
+      return result;
+   }
+
+   /**
+    * Estimates the memory that a document takes up.
+    * @param document The document.
+    * @return The estimated size of the document, in bytes.
+    */
+   static long estimateSize(final Document document) {
+      long size = DOCUMENT_OVERHEAD;
+      for (IndexableField field : document.getFields()) {
+         size += FIELD_OVERHEAD + field.name().length() * 2;
+         final String text = field.stringValue();
+         final BytesRef bytes = field.binaryValue();
+         if (text != null) {
+            size += text.length() * 2;
+         } else if (bytes != null) {
+            size += bytes.length;
+         } else if (field.numericValue() != null) {
+            size += 8;
+         }
+      }
+      return size;
+   }
+
+   /**
+    * A cached document and its estimated size.
+    */
+   private static final class CachedDocument {
+      private final Document document;
+      private final long size;
+
+      CachedDocument(final Document ddocument, final long ssize) {
+         document = ddocument;
+         size = ssize;
+      }
+   }
+
+   /**
+    * The key of a cached document, which is the core of a segment,
+    * the ID of the document within the segment and the loaded fields.
+    */
+   private static final class CacheKey {
+      private final Object coreKey;
+      private final int doc;
+      private final Set<String> fields;
+
+      CacheKey(final Object ccoreKey, final int ddoc, final Set<String> ffields) {
+         coreKey = ccoreKey;
+         doc = ddoc;
+         fields = ffields;
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if (o instanceof CacheKey == false) {
+            return false;
+         }
+         final CacheKey other = (CacheKey) o;
+         return coreKey == other.coreKey && doc == other.doc &&
+               (fields == null ? other.fields == null : fields.equals(other.fields));
+      }
+
+      @Override
+      public int hashCode() {
+         return (System.identityHashCode(coreKey) * 31 + doc) * 31 +
+               (fields == null ? 0 : fields.hashCode());
+      }
+   }
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import org.apache.lucene.facet.sampling.SamplingParams;
+
+/**
+ * Describes how the taxonomy facets of a search should be sampled
+ * when the search matches a very large number of documents.  Once
+ * the number of hits exceeds the threshold, facets are counted over
+ * a random sample of the hits.  The counts of the sample are then
+ * either scaled up to estimate the counts over every hit, or, for
+ * the top facet values only, re-counted exactly against every hit.
+ * A sample never holds more documents than the threshold, so the
+ * cost of counting a sample is bounded no matter how many documents
+ * a search matches.  A single instance may be shared by any number
+ * of searches.
+ * @author lparker
+ *
+ */
+public class FacetSampling {
+   private final int threshold;
+   private final double sampleRatio;
+   private final boolean exactTopCounts;
+
+   /**
+    * Initializes a new instance of FacetSampling.
+    * @param tthreshold The number of hits above which facets are
+    * counted over a sample.
+    * @param ssampleRatio The fraction of the hits to sample, greater
+    * than zero and less than one.
+    * @param eexactTopCounts True if the counts of the top facet values
+    * should be re-counted exactly against every hit, false if the
+    * sampled counts should simply be scaled up.
+    */
+   public FacetSampling(
+         final int tthreshold,
+         final double ssampleRatio,
+         final boolean eexactTopCounts) {
+      if (tthreshold < 1) {
+         throw new IllegalArgumentException(
+               "The sampling threshold must be positive"
+         );
+      }
+      if (ssampleRatio <= 0.0 || ssampleRatio >= 1.0) {
+         throw new IllegalArgumentException(
+               "The sample ratio must be between zero and one"
+         );
+      }
+      threshold = tthreshold;
+      sampleRatio = ssampleRatio;
+      exactTopCounts = eexactTopCounts;
+   }
+
+   /**
+    * Gets the number of hits above which facets are counted over a
+    * sample.
+    * @return The sampling threshold.
+    */
+   public int getThreshold() {
+      return threshold;
+   }
+
+   /**
+    * Gets the fraction of the hits to sample.
+    * @return The sample ratio.
+    */
+   public double getSampleRatio() {
+      return sampleRatio;
+   }
+
+   /**
+    * Gets whether the counts of the top facet values are re-counted
+    * exactly against every hit.
+    * @return True if the top counts are exact, false if they are
+    * scaled estimates.
+    */
+   public boolean isExactTopCounts() {
+      return exactTopCounts;
+   }
+
+   /**
+    * Builds the Lucene sampling parameters described by this instance.
+    * A sample is never smaller than the threshold times the ratio, nor
+    * larger than the threshold itself.
+    * @return The sampling parameters.
+    */
+   SamplingParams getSamplingParams() {
+      final SamplingParams params = new SamplingParams();
+      params.setSamplingThreshold(threshold);
+      params.setSampleRatio(sampleRatio);
+      params.setMaxSampleSize(threshold);
+      params.setMinSampleSize(Math.max(1, (int) (threshold * sampleRatio)));
+      return params;
+   }
+}
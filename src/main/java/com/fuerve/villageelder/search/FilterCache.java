@@ -0,0 +1,436 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+
+/**
+ * A cache of the documents matched by the structured clauses of
+ * queries, such as {@code Author:alice} or {@code RevisionNumber:[1 TO
+ * 100]}, which only ever filter hits and never need to be scored.
+ * {@link #rewrite(Query)} turns those clauses into constant-score
+ * filters, whose documents are cached for each segment of the index,
+ * so that repeating a filter costs an intersection rather than a walk
+ * of its postings.  Sparse sets are packed and dense sets are kept as
+ * bit sets, and the least recently used sets are evicted once the
+ * cache is full.  A cache may be shared by any number of searches and
+ * Searchers of the same index.
+ * @author lparker
+ *
+ */
+public class FilterCache {
+   private final int maxEntries;
+   private final Map<CacheKey, DocIdSet> cache;
+   private final Set<Object> watchedCores = new HashSet<Object>();
+   private final boolean watchCores;
+   private long hits;
+   private long misses;
+
+   /**
+    * Initializes a new instance of FilterCache.
+    * @param mmaxEntries The greatest number of document sets to cache,
+    * counting each segment of each filter separately.
+    */
+   public FilterCache(final int mmaxEntries) {
+      this(mmaxEntries, true);
+   }
+
+   /**
+    * Initializes a new instance of FilterCache.
+    * @param mmaxEntries The greatest number of document sets to cache,
+    * counting each segment of each filter separately.
+    * @param wwatchCores True to evict the document sets of a segment
+    * once it is closed, or false for a short-lived cache that is
+    * dropped long before its segments are closed.
+    */
+   FilterCache(final int mmaxEntries, final boolean wwatchCores) {
+      if (mmaxEntries < 1) {
+         throw new IllegalArgumentException(
+               "A filter cache must hold at least one entry"
+         );
+      }
+      maxEntries = mmaxEntries;
+      watchCores = wwatchCores;
+      cache = new LinkedHashMap<CacheKey, DocIdSet>(16, 0.75f, true) {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(final Entry<CacheKey, DocIdSet> eldest) {
+            return size() > maxEntries;
+         }
+      };
+   }
+
+   /**
+    * Rewrites a query so that its structured clauses are evaluated as
+    * cached constant-score filters.  Structured clauses that every hit
+    * must match are moved out of the scored query altogether, and
+    * other structured clauses are replaced in place, so the rewritten
+    * query matches exactly the same documents as the original.  Only
+    * the scores differ, since structured clauses no longer contribute
+    * to them.
+    * @param query The query to rewrite.
+    * @return The rewritten query, or the original query if it has no
+    * structured clauses.
+    */
+   public Query rewrite(final Query query) {
+      if (isFilter(query)) {
+         return constant(query);
+      } else if (query instanceof BooleanQuery) {
+         return rewriteBoolean((BooleanQuery) query);
+      }
+      return query;
+   }
+
+   /**
+    * Gets a filter that matches the documents of a query, caching them
+    * for each segment of the index.
+    * @param query The query whose documents to filter.
+    * @return The cached filter.
+    */
+   public Filter getFilter(final Query query) {
+      final Query key = query.clone();
+      key.setBoost(1.0f);
+      return new CachedFilter(key);
+   }
+
+   /**
+    * Gets the query whose documents a filter of a filter cache matches.
+    * @param filter The filter.
+    * @return The query of the filter, or null if it is not a filter of
+    * a filter cache.
+    */
+   static Query getFilterQuery(final Filter filter) {
+      return filter instanceof CachedFilter ? ((CachedFilter) filter).query : null;
+   }
+
+   /**
+    * Gets the number of document sets in the cache.
+    * @return The number of cached sets.
+    */
+   public int size() {
+      synchronized (cache) {
+         return cache.size();
+      }
+   }
+
+   /**
+    * Gets the number of times that a filter found its documents in
+    * the cache.
+    * @return The number of cache hits.
+    */
+   public long getHitCount() {
+      synchronized (cache) {
+         return hits;
+      }
+   }
+
+   /**
+    * Gets the number of times that a filter had to compute its
+    * documents.
+    * @return The number of cache misses.
+    */
+   public long getMissCount() {
+      synchronized (cache) {
+         return misses;
+      }
+   }
+
+   /**
+    * Removes every document set from the cache.
+    */
+   public void clear() {
+      synchronized (cache) {
+         cache.clear();
+      }
+   }
+
+   /**
+    * Gets whether a query only filters on structured fields, and may
+    * therefore be evaluated without scoring.
+    * @param query The query.
+    * @return True if the query is a structured filter.
+    */
+   static boolean isFilter(final Query query) {
+      if (query instanceof TermQuery) {
+         return SearchQueryParser.isFilterField(((TermQuery) query).getTerm().field());
+      } else if (query instanceof MultiTermQuery) {
+         return SearchQueryParser.isFilterField(((MultiTermQuery) query).getField());
+      } else if (query instanceof PhraseQuery) {
+         final Term[] terms = ((PhraseQuery) query).getTerms();
+         return terms.length > 0 && SearchQueryParser.isFilterField(terms[0].field());
+      } else if (query instanceof BooleanQuery) {
+         boolean positive = false;
+         for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+            if (isFilter(clause.getQuery()) == false) {
+               return false;
+            }
+            positive |= clause.isProhibited() == false;
+         }
+         return positive;
+      }
+      return false;
+   }
+
+   /**
+    * Rewrites the clauses of a boolean query.
+    * @param query The boolean query.
+    * @return The rewritten query.
+    */
+   private Query rewriteBoolean(final BooleanQuery query) {
+      final List<Filter> required = new ArrayList<Filter>();
+      final BooleanQuery rest = new BooleanQuery(query.isCoordDisabled());
+      rest.setMinimumNumberShouldMatch(query.getMinimumNumberShouldMatch());
+      boolean scoredRequired = false;
+      boolean scoredOptional = false;
+      for (BooleanClause clause : query.clauses()) {
+         if (clause.isRequired() && isFilter(clause.getQuery())) {
+            required.add(getFilter(clause.getQuery()));
+         } else {
+            rest.add(rewrite(clause.getQuery()), clause.getOccur());
+            scoredRequired |= clause.isRequired();
+            scoredOptional |= clause.getOccur() == Occur.SHOULD;
+         }
+      }
+
+      if (required.isEmpty() || scoredRequired == false && scoredOptional) {
+         // Next to required clauses, optional clauses only add to the
+         // score; without them, at least one of them must match.  The
+         // structured clauses must then stay where they are.
+         for (Filter filter : required) {
+            rest.add(new ConstantScoreQuery(filter), Occur.MUST);
+         }
+         rest.setBoost(query.getBoost());
+         return rest;
+      }
+
+      Query result;
+      if (scoredRequired) {
+         result = rest;
+      } else if (rest.clauses().isEmpty()) {
+         result = new ConstantScoreQuery(required.remove(0));
+      } else {
+         rest.add(new ConstantScoreQuery(required.remove(0)), Occur.MUST);
+         result = rest;
+      }
+      for (Filter filter : required) {
+         result = new FilteredQuery(result, filter);
+      }
+      result.setBoost(query.getBoost());
+      return result;
+   }
+
+   /**
+    * Wraps a structured query in a constant-score query over its
+    * cached filter.
+    * @param query The structured query.
+    * @return The constant-score query.
+    */
+   private Query constant(final Query query) {
+      final Query result = new ConstantScoreQuery(getFilter(query));
+      result.setBoost(query.getBoost());
+      return result;
+   }
+
+   /**
+    * Gets the cached documents of a filter for a segment, computing
+    * them if they are not cached.
+    * @param filter The filter.
+    * @param context The segment.
+    * @return The documents of the segment that match the filter,
+    * regardless of deletions.
+    * @throws IOException A fatal exception occurred while reading the
+    * index.
+    */
+   private DocIdSet getDocIdSet(
+         final CachedFilter filter,
+         final AtomicReaderContext context) throws IOException {
+      final AtomicReader reader = context.reader();
+      final CacheKey key = new CacheKey(reader.getCoreCacheKey(), filter.query);
+      synchronized (cache) {
+         final DocIdSet cached = cache.get(key);
+         if (cached != null) {
+            hits++;
+            return cached;
+         }
+         misses++;
+      }
+
+      // Two searches that miss at once may both compute the same set,
+      // which is harmless.
+      final DocIdSet result = compress(
+            new QueryWrapperFilter(filter.query).getDocIdSet(context, null),
+            reader.maxDoc()
+      );
+      synchronized (cache) {
+         cache.put(key, result);
+         watch(reader);
+      }
+      return result;
+   }
+
+   /**
+    * Evicts the document sets of a segment once its core is closed.
+    * @param reader The reader of the segment.
+    */
+   private void watch(final AtomicReader reader) {
+      if (watchCores && reader instanceof SegmentReader &&
+            watchedCores.add(reader.getCoreCacheKey())) {
+         ((SegmentReader) reader).addCoreClosedListener(
+               new SegmentReader.CoreClosedListener() {
+                  public void onClose(final SegmentReader owner) {
+                     evict(owner.getCoreCacheKey());
+                  }
+               }
+         );
+      }
+   }
+
+   /**
+    * Evicts the document sets of a closed segment.
+    * @param coreKey The core cache key of the segment.
+    */
+   private void evict(final Object coreKey) {
+      synchronized (cache) {
+         watchedCores.remove(coreKey);
+         final Iterator<CacheKey> keys = cache.keySet().iterator();
+         while (keys.hasNext()) {
+            if (keys.next().coreKey == coreKey) {
+               keys.remove();
+            }
+         }
+      }
+   }
+
+   /**
+    * Copies the documents of a set into a compact, cacheable set.
+    * @param docs The documents of the set, or null if there are none.
+    * @param maxDoc The number of documents in the segment.
+    * @return The compact set.
+    * @throws IOException A fatal exception occurred while reading the
+    * index.
+    */
+   private static DocIdSet compress(final DocIdSet docs, final int maxDoc)
+         throws IOException {
+      final DocIdSetIterator iterator = docs == null ? null : docs.iterator();
+      if (iterator == null) {
+         return DocIdSet.EMPTY_DOCIDSET;
+      }
+
+      final FixedBitSet bits = new FixedBitSet(maxDoc);
+      bits.or(iterator);
+      return PackedDocIdSet.compact(bits);
+   }
+
+   /**
+    * A filter whose documents are cached for each segment.
+    */
+   private final class CachedFilter extends Filter {
+      private final Query query;
+
+      CachedFilter(final Query qquery) {
+         query = qquery;
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.search.Filter#getDocIdSet(org.apache.lucene.index.AtomicReaderContext, org.apache.lucene.util.Bits)
+       */
+      @Override
+      public DocIdSet getDocIdSet(
+            final AtomicReaderContext context,
+            final Bits acceptDocs) throws IOException {
+         return BitsFilteredDocIdSet.wrap(
+               FilterCache.this.getDocIdSet(this, context),
+               acceptDocs
+         );
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         return o instanceof CachedFilter && query.equals(((CachedFilter) o).query);
+      }
+
+      @Override
+      public int hashCode() {
+         return query.hashCode() ^ 0x5eed;
+      }
+
+      @Override
+      public String toString() {
+         return "CachedFilter(" + query + ")";
+      }
+   }
+
+   /**
+    * The key of a cached document set, which is the core of a segment
+    * and the query of a filter.
+    */
+   private static final class CacheKey {
+      private final Object coreKey;
+      private final Query query;
+
+      CacheKey(final Object ccoreKey, final Query qquery) {
+         coreKey = ccoreKey;
+         query = qquery;
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if (o instanceof CacheKey == false) {
+            return false;
+         }
+         final CacheKey other = (CacheKey) o;
+         return coreKey == other.coreKey && query.equals(other.query);
+      }
+
+      @Override
+      public int hashCode() {
+         return System.identityHashCode(coreKey) * 31 + query.hashCode();
+      }
+   }
+}
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import org.apache.lucene.search.Sort;
+
+/**
+ * A request to group the hits of a search by the value of a sorted
+ * doc values field, such as Author, TopLevelPath or Day, returning
+ * the top documents of each of the top groups along with the number
+ * of groups that matched.
+ * @author lparker
+ *
+ */
+public class GroupRequest {
+   /**
+    * The ways in which the groups of a search may be collected.
+    */
+   public enum Strategy {
+      /**
+       * Runs the query a second time to collect the top documents of
+       * each top group.  This uses no memory beyond the groups, but
+       * scores and matches every hit twice.
+       */
+      TWO_PASS,
+      /**
+       * Runs the query once and caches its hits in memory, replaying
+       * them to collect the top documents of each top group.  If the
+       * hits outgrow the cache, the query is run a second time.
+       */
+      SINGLE_PASS
+   }
+
+   private static final int DEFAULT_GROUPS = 10;
+   private static final int DEFAULT_DOCS_PER_GROUP = 3;
+   private static final double DEFAULT_MAX_CACHE_MB = 4.0;
+
+   private final String field;
+   private final int groups;
+   private final int docsPerGroup;
+   private Strategy strategy = Strategy.TWO_PASS;
+   private double maxCacheMB = DEFAULT_MAX_CACHE_MB;
+   private Sort groupSort;
+   private Sort sortWithinGroup;
+
+   /**
+    * Initializes a new instance of GroupRequest that returns the top
+    * ten groups, with three documents each.
+    * @param ffield The name of the sorted doc values field by which to
+    * group hits.
+    */
+   public GroupRequest(final String ffield) {
+      this(ffield, DEFAULT_GROUPS, DEFAULT_DOCS_PER_GROUP);
+   }
+
+   /**
+    * Initializes a new instance of GroupRequest.
+    * @param ffield The name of the sorted doc values field by which to
+    * group hits.
+    * @param ggroups The maximum number of groups to return.
+    * @param ddocsPerGroup The maximum number of documents to return
+    * for each group.
+    */
+   public GroupRequest(
+         final String ffield,
+         final int ggroups,
+         final int ddocsPerGroup) {
+      if (ffield == null || ffield.isEmpty()) {
+         throw new IllegalArgumentException("A group request requires a field");
+      }
+      if (ggroups < 1) {
+         throw new IllegalArgumentException(
+               "A group request must return at least one group"
+         );
+      }
+      if (ddocsPerGroup < 1) {
+         throw new IllegalArgumentException(
+               "A group request must return at least one document per group"
+         );
+      }
+      field = ffield;
+      groups = ggroups;
+      docsPerGroup = ddocsPerGroup;
+   }
+
+   /**
+    * Gets the name of the field by which hits are grouped.
+    * @return The name of the group field.
+    */
+   public String getField() {
+      return field;
+   }
+
+   /**
+    * Gets the maximum number of groups to return.
+    * @return The maximum number of groups.
+    */
+   public int getGroups() {
+      return groups;
+   }
+
+   /**
+    * Gets the maximum number of documents to return for each group.
+    * @return The maximum number of documents per group.
+    */
+   public int getDocsPerGroup() {
+      return docsPerGroup;
+   }
+
+   /**
+    * Sets the way in which groups are collected.
+    * @param sstrategy The grouping strategy.
+    * @return This request, so that settings may be chained.
+    */
+   public GroupRequest setStrategy(final Strategy sstrategy) {
+      if (sstrategy == null) {
+         throw new IllegalArgumentException("A group request requires a strategy");
+      }
+      strategy = sstrategy;
+      return this;
+   }
+
+   /**
+    * Gets the way in which groups are collected.
+    * @return The grouping strategy, which defaults to two passes.
+    */
+   public Strategy getStrategy() {
+      return strategy;
+   }
+
+   /**
+    * Sets the largest amount of memory in which the hits of a single
+    * pass search may be cached.
+    * @param mmaxCacheMB The size of the cache, in megabytes.
+    * @return This request, so that settings may be chained.
+    */
+   public GroupRequest setMaxCacheMB(final double mmaxCacheMB) {
+      if (mmaxCacheMB <= 0.0) {
+         throw new IllegalArgumentException("The cache size must be positive");
+      }
+      maxCacheMB = mmaxCacheMB;
+      return this;
+   }
+
+   /**
+    * Gets the largest amount of memory in which the hits of a single
+    * pass search may be cached.
+    * @return The size of the cache, in megabytes.
+    */
+   public double getMaxCacheMB() {
+      return maxCacheMB;
+   }
+
+   /**
+    * Sets the order of the groups, which are ranked by their top
+    * document.
+    * @param ggroupSort The order of the groups, or null to use the
+    * sort order of the search.
+    * @return This request, so that settings may be chained.
+    */
+   public GroupRequest setGroupSort(final Sort ggroupSort) {
+      groupSort = ggroupSort;
+      return this;
+   }
+
+   /**
+    * Gets the order of the groups.
+    * @return The order of the groups, or null to use the sort order
+    * of the search.
+    */
+   public Sort getGroupSort() {
+      return groupSort;
+   }
+
+   /**
+    * Sets the order of the documents within each group.
+    * @param ssortWithinGroup The order of the documents within each
+    * group, or null to use the sort order of the search.
+    * @return This request, so that settings may be chained.
+    */
+   public GroupRequest setSortWithinGroup(final Sort ssortWithinGroup) {
+      sortWithinGroup = ssortWithinGroup;
+      return this;
+   }
+
+   /**
+    * Gets the order of the documents within each group.
+    * @return The order of the documents within each group, or null to
+    * use the sort order of the search.
+    */
+   public Sort getSortWithinGroup() {
+      return sortWithinGroup;
+   }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+/**
+ * A request for a histogram of a numeric field, such as
+ * RevisionNumber, with buckets of a fixed width.  Each bucket is
+ * labeled with its inclusive lower bound, and buckets are returned
+ * in ascending order.
+ * @author lparker
+ *
+ */
+public class HistogramFacetRequest extends NumericFacetRequest {
+   private final long interval;
+
+   /**
+    * Initializes a new instance of HistogramFacetRequest that returns
+    * every non-empty bucket.
+    * @param field The name of the numeric doc values field to count.
+    * @param iinterval The width of each bucket.
+    */
+   public HistogramFacetRequest(final String field, final long iinterval) {
+      this(field, iinterval, Integer.MAX_VALUE);
+   }
+
+   /**
+    * Initializes a new instance of HistogramFacetRequest.
+    * @param field The name of the numeric doc values field to count.
+    * @param iinterval The width of each bucket.
+    * @param numResults The maximum number of buckets to return.
+    */
+   public HistogramFacetRequest(
+         final String field,
+         final long iinterval,
+         final int numResults) {
+      super(field, numResults);
+      if (iinterval <= 0) {
+         throw new IllegalArgumentException(
+               "The histogram interval must be positive"
+         );
+      }
+      interval = iinterval;
+   }
+
+   /**
+    * Gets the width of each bucket.
+    * @return The width of each bucket.
+    */
+   public long getInterval() {
+      return interval;
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.search.NumericFacetRequest#createCounter()
+    */
+   @Override
+   Counter createCounter() {
+      return new BucketCounter() {
+         @Override
+         long bucketStart(final long value) {
+            final long remainder = value % interval;
+            return remainder < 0 ? value - remainder - interval : value - remainder;
+         }
+
+         @Override
+         long bucketEnd(final long start) {
+            final long end = start + interval;
+            return end < start ? Long.MAX_VALUE : end;
+         }
+
+         @Override
+         String bucketLabel(final long start) {
+            return Long.toString(start);
+         }
+      };
+   }
+}
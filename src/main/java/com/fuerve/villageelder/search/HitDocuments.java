@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+
+import com.fuerve.villageelder.common.RevisionSummary;
+
+/**
+ * The stored documents of a list of hits, loaded lazily as they are
+ * iterated.  Documents are read a batch at a time, in the order of
+ * their IDs within the batch so that the stored fields are read
+ * front to back, and are returned in the order of the hits.  Only the
+ * requested fields are loaded, which spares reading the message and
+ * every changed path of a revision when a list only shows a few of
+ * its fields.  When only the summary is requested, reading stops as
+ * soon as the summary has been read.  The documents can only be
+ * iterated until the
+ * {@link Searcher} that produced them executes another search.
+ * @author lparker
+ *
+ */
+public class HitDocuments implements Iterable<Document> {
+   private static final Comparator<ScoreDoc> BY_DOC = new Comparator<ScoreDoc>() {
+      public int compare(final ScoreDoc a, final ScoreDoc b) {
+         return a.doc < b.doc ? -1 : a.doc == b.doc ? 0 : 1;
+      }
+   };
+
+   /**
+    * The fields to request in order to load only the summary of each
+    * revision.
+    */
+   static final Set<String> SUMMARY_FIELDS =
+         Collections.singleton(RevisionSummary.FIELD);
+
+   private final IndexSearcher searcher;
+   private final ScoreDoc[] hits;
+   private final Set<String> fields;
+   private final int batchSize;
+   private final DocumentCache cache;
+
+   /**
+    * Initializes a new instance of HitDocuments.
+    * @param ssearcher The searcher of the reader that the hits came from.
+    * @param hhits The hits, in the order in which to return them.
+    * @param ffields The names of the stored fields to load, or null to
+    * load every stored field.
+    * @param bbatchSize The number of documents to read at a time.
+    */
+   HitDocuments(
+         final IndexSearcher ssearcher,
+         final ScoreDoc[] hhits,
+         final Set<String> ffields,
+         final int bbatchSize) {
+      this(ssearcher, hhits, ffields, bbatchSize, null);
+   }
+
+   /**
+    * Initializes a new instance of HitDocuments that reads through a
+    * cache of recently viewed documents.
+    * @param ssearcher The searcher of the reader that the hits came from.
+    * @param hhits The hits, in the order in which to return them.
+    * @param ffields The names of the stored fields to load, or null to
+    * load every stored field.
+    * @param bbatchSize The number of documents to read at a time.
+    * @param ccache The cache of documents, or null to always read the
+    * documents from the index.
+    */
+   HitDocuments(
+         final IndexSearcher ssearcher,
+         final ScoreDoc[] hhits,
+         final Set<String> ffields,
+         final int bbatchSize,
+         final DocumentCache ccache) {
+      if (hhits == null) {
+         throw new IllegalArgumentException("Hit documents require hits");
+      }
+      if (bbatchSize < 1) {
+         throw new IllegalArgumentException("Documents must be read at least one at a time");
+      }
+      searcher = ssearcher;
+      hits = hhits;
+      fields = ffields;
+      batchSize = bbatchSize;
+      cache = ccache;
+   }
+
+   /**
+    * Gets the number of hits.
+    * @return The number of documents to iterate.
+    */
+   public int size() {
+      return hits.length;
+   }
+
+   /**
+    * Gets the names of the stored fields that are loaded.
+    * @return The field names, or null if every stored field is loaded.
+    */
+   public Set<String> getFields() {
+      return fields;
+   }
+
+   /**
+    * Loads a batch of documents in the order of their IDs.
+    * @param start The position of the first hit of the batch.
+    * @param batch The array into which to load the documents of the
+    * batch, in the order of the hits.
+    * @throws IOException A fatal exception occurred while reading the
+    * stored fields.
+    */
+   private void load(final int start, final Document[] batch) throws IOException {
+      final int end = Math.min(hits.length, start + batch.length);
+      final Integer[] order = new Integer[end - start];
+      for (int i = 0; i < order.length; i++) {
+         order[i] = start + i;
+      }
+      Arrays.sort(order, new Comparator<Integer>() {
+         public int compare(final Integer a, final Integer b) {
+            return BY_DOC.compare(hits[a], hits[b]);
+         }
+      });
+      for (Integer position : order) {
+         final int doc = hits[position].doc;
+         final IndexReader reader = searcher.getIndexReader();
+         batch[position - start] = cache == null ?
+               read(reader, doc, fields) :
+               cache.getDocument(reader, doc, fields);
+      }
+   }
+
+   /**
+    * Reads the stored fields of a document from the index.
+    * @param reader The reader of the index.
+    * @param doc The ID of the document within the reader.
+    * @param fields The names of the stored fields to load, or null to
+    * load every stored field.
+    * @return The document.
+    * @throws IOException A fatal exception occurred while reading the
+    * stored fields.
+    */
+   static Document read(
+         final IndexReader reader,
+         final int doc,
+         final Set<String> fields) throws IOException {
+      if (fields == null) {
+         return reader.document(doc);
+      } else if (SUMMARY_FIELDS.equals(fields)) {
+         final SummaryVisitor visitor = new SummaryVisitor();
+         reader.document(doc, visitor);
+         return visitor.getDocument();
+      }
+      return reader.document(doc, fields);
+   }
+
+   /* (non-Javadoc)
+    * @see java.lang.Iterable#iterator()
+    */
+   public Iterator<Document> iterator() {
+      return new Iterator<Document>() {
+         private final Document[] batch = new Document[Math.min(batchSize, Math.max(1, hits.length))];
+         private int next;
+
+         public boolean hasNext() {
+            return next < hits.length;
+         }
+
+         public Document next() {
+            if (next >= hits.length) {
+               throw new NoSuchElementException();
+            }
+            final int offset = next % batch.length;
+            if (offset == 0) {
+               try {
+                  load(next, batch);
+               } catch (IOException e) {
+                  throw new RuntimeException(e);
+               }
+            }
+            next++;
+            return batch[offset];
+         }
+
+         public void remove() {
+            throw new UnsupportedOperationException();
+         }
+      };
+   }
+
+   /**
+    * Loads the summary of a revision and stops reading as soon as it
+    * has it.  Revisions indexed before summaries were stored have no
+    * summary, so every one of their fields is loaded instead, from
+    * which the summary can be built.
+    */
+   private static class SummaryVisitor extends DocumentStoredFieldVisitor {
+      private boolean hasSummary;
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.document.DocumentStoredFieldVisitor#needsField(org.apache.lucene.index.FieldInfo)
+       */
+      @Override
+      public Status needsField(final FieldInfo fieldInfo) throws IOException {
+         if (hasSummary) {
+            return Status.STOP;
+         }
+         if (RevisionSummary.FIELD.equals(fieldInfo.name)) {
+            hasSummary = true;
+         }
+         return Status.YES;
+      }
+   }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.util.Iterator;
+
+import org.apache.lucene.document.Document;
+
+import com.fuerve.villageelder.common.RevisionSummary;
+
+/**
+ * The summaries of the revisions of a list of hits, loaded lazily as
+ * they are iterated.  Only the stored summary of each revision is
+ * read, so that a list of results does not load the message and every
+ * changed path of each revision.  The summaries can only be iterated
+ * until the {@link Searcher} that produced them executes another
+ * search.
+ * @author lparker
+ *
+ */
+public class HitSummaries implements Iterable<RevisionSummary> {
+   private final HitDocuments documents;
+
+   /**
+    * Initializes a new instance of HitSummaries.
+    * @param ddocuments The documents of the hits, which must load only
+    * the summary field.
+    */
+   HitSummaries(final HitDocuments ddocuments) {
+      if (ddocuments == null) {
+         throw new IllegalArgumentException("Hit summaries require hit documents");
+      }
+      if (HitDocuments.SUMMARY_FIELDS.equals(ddocuments.getFields()) == false) {
+         throw new IllegalArgumentException("Hit summaries must only load the summary field");
+      }
+      documents = ddocuments;
+   }
+
+   /**
+    * Gets the number of hits.
+    * @return The number of summaries to iterate.
+    */
+   public int size() {
+      return documents.size();
+   }
+
+   /* (non-Javadoc)
+    * @see java.lang.Iterable#iterator()
+    */
+   public Iterator<RevisionSummary> iterator() {
+      final Iterator<Document> iterator = documents.iterator();
+      return new Iterator<RevisionSummary>() {
+         public boolean hasNext() {
+            return iterator.hasNext();
+         }
+
+         public RevisionSummary next() {
+            return RevisionSummary.fromDocument(iterator.next());
+         }
+
+         public void remove() {
+            throw new UnsupportedOperationException();
+         }
+      };
+   }
+}
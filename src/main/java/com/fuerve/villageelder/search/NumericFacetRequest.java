@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.lucene.facet.search.CountFacetRequest;
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.search.FacetResultNode;
+import org.apache.lucene.facet.taxonomy.CategoryPath;
+
+/**
+ * The base class of facet requests that are computed at query time
+ * from the numeric doc values of the main index, such as date
+ * histograms and revision number ranges.  Like
+ * {@link DocValuesFacetRequest}, these requests are
+ * {@link CountFacetRequest}s only so that their results can travel
+ * alongside taxonomy facet results; they must only ever be counted
+ * by a {@link NumericFacetsCollector}.
+ * @author lparker
+ *
+ */
+public abstract class NumericFacetRequest extends CountFacetRequest {
+   private final String field;
+
+   /**
+    * Initializes a new instance of NumericFacetRequest.
+    * @param ffield The name of the numeric doc values field to count.
+    * @param numResults The maximum number of facet values to return.
+    */
+   protected NumericFacetRequest(final String ffield, final int numResults) {
+      super(new CategoryPath(ffield), numResults);
+      field = ffield;
+   }
+
+   /**
+    * Gets the name of the numeric doc values field counted by this
+    * request.
+    * @return The name of the numeric doc values field.
+    */
+   public String getField() {
+      return field;
+   }
+
+   /**
+    * Creates a new counter to hold the counts of a single search
+    * for this request.
+    * @return A new, empty counter.
+    */
+   abstract Counter createCounter();
+
+   /**
+    * Accumulates the values of a single search for a numeric facet
+    * request and turns them into a {@link FacetResult}.
+    */
+   abstract static class Counter {
+      /**
+       * Counts the value of a single matching document.
+       * @param value The value of the document.
+       */
+      abstract void count(long value);
+
+      /**
+       * Gets the facet result for the values counted so far.
+       * @return The facet result.
+       */
+      abstract FacetResult getFacetResult();
+   }
+
+   /**
+    * A counter that assigns each value to a single bucket, keyed by
+    * the start of the bucket, and reports the buckets in ascending
+    * order.  Because documents are largely indexed in revision order,
+    * consecutive matches tend to fall into the same bucket, so the
+    * current bucket is counted in a primitive and only folded into
+    * the totals when a value falls outside of it.
+    */
+   abstract class BucketCounter extends Counter {
+      private final TreeMap<Long, Integer> totals = new TreeMap<Long, Integer>();
+      private long currentStart;
+      private long currentEnd;
+      private int currentCount;
+      private int hits;
+
+      /**
+       * Gets the start of the bucket that contains a value.
+       * @param value The value.
+       * @return The inclusive lower bound of the bucket.
+       */
+      abstract long bucketStart(long value);
+
+      /**
+       * Gets the end of a bucket.
+       * @param start The start of the bucket.
+       * @return The exclusive upper bound of the bucket.
+       */
+      abstract long bucketEnd(long start);
+
+      /**
+       * Gets the label under which a bucket is reported.
+       * @param start The start of the bucket.
+       * @return The label of the bucket.
+       */
+      abstract String bucketLabel(long start);
+
+      /* (non-Javadoc)
+       * @see com.fuerve.villageelder.search.NumericFacetRequest.Counter#count(long)
+       */
+      @Override
+      void count(final long value) {
+         hits++;
+         if (currentCount > 0 && value >= currentStart && value < currentEnd) {
+            currentCount++;
+            return;
+         }
+
+         flush();
+         currentStart = bucketStart(value);
+         currentEnd = bucketEnd(currentStart);
+         currentCount = 1;
+      }
+
+      /**
+       * Folds the count of the current bucket into the totals.
+       */
+      private void flush() {
+         if (currentCount > 0) {
+            final Integer existing = totals.get(currentStart);
+            totals.put(currentStart, existing == null ?
+                  currentCount : existing + currentCount);
+            currentCount = 0;
+         }
+      }
+
+      /* (non-Javadoc)
+       * @see com.fuerve.villageelder.search.NumericFacetRequest.Counter#getFacetResult()
+       */
+      @Override
+      FacetResult getFacetResult() {
+         flush();
+
+         final List<FacetResultNode> children = new ArrayList<FacetResultNode>();
+         for (Entry<Long, Integer> bucket : totals.entrySet()) {
+            if (children.size() >= numResults) {
+               break;
+            }
+            children.add(
+                  createNode(bucketLabel(bucket.getKey()), bucket.getValue())
+            );
+         }
+         return createResult(children, hits, totals.size());
+      }
+   }
+
+   /**
+    * Creates a node in the result of this request.
+    * @param label The label of the node, below the field name.
+    * @param count The count of the node.
+    * @return The result node.
+    */
+   FacetResultNode createNode(final String label, final int count) {
+      final FacetResultNode node = new FacetResultNode(-1, count);
+      node.label = new CategoryPath(field, label);
+      return node;
+   }
+
+   /**
+    * Creates the result of this request.
+    * @param children The nodes beneath the root of the result.
+    * @param hits The number of documents counted.
+    * @param validValues The total number of non-empty buckets.
+    * @return The facet result.
+    */
+   FacetResult createResult(
+         final List<FacetResultNode> children,
+         final int hits,
+         final int validValues) {
+      final FacetResultNode root = new FacetResultNode(-1, hits);
+      root.label = categoryPath;
+      root.subResults = children;
+      return new FacetResult(this, root, validValues);
+   }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * A {@link Collector} that computes histogram and range facets at
+ * query time from the numeric doc values of the main index.
+ * Segments that have no doc values for a requested field contribute
+ * nothing to its counts.
+ * @author lparker
+ *
+ */
+public class NumericFacetsCollector extends Collector {
+   private final List<NumericFacetRequest> requests;
+   private final NumericFacetRequest.Counter[] counters;
+   private final NumericDocValues[] values;
+
+   /**
+    * Initializes a new instance of NumericFacetsCollector.
+    * @param rrequests The numeric facets to count.
+    */
+   public NumericFacetsCollector(final List<NumericFacetRequest> rrequests) {
+      if (rrequests == null || rrequests.isEmpty()) {
+         throw new IllegalArgumentException(
+               "A numeric facets collector needs at least one facet request"
+         );
+      }
+
+      requests = rrequests;
+      counters = new NumericFacetRequest.Counter[requests.size()];
+      for (int i = 0; i < requests.size(); i++) {
+         counters[i] = requests.get(i).createCounter();
+      }
+      values = new NumericDocValues[requests.size()];
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#setScorer(org.apache.lucene.search.Scorer)
+    */
+   @Override
+   public void setScorer(final Scorer scorer) throws IOException {
+      // Counting does not depend upon scores.
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#collect(int)
+    */
+   @Override
+   public void collect(final int doc) throws IOException {
+      for (int i = 0; i < values.length; i++) {
+         if (values[i] != null) {
+            counters[i].count(values[i].get(doc));
+         }
+      }
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#setNextReader(org.apache.lucene.index.AtomicReaderContext)
+    */
+   @Override
+   public void setNextReader(final AtomicReaderContext context)
+         throws IOException {
+      for (int i = 0; i < requests.size(); i++) {
+         values[i] = context.reader().getNumericDocValues(requests.get(i).getField());
+      }
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#acceptsDocsOutOfOrder()
+    */
+   @Override
+   public boolean acceptsDocsOutOfOrder() {
+      return true;
+   }
+
+   /**
+    * Gets the facet results for every request.
+    * @return The list of facet results, in request order.
+    */
+   public List<FacetResult> getFacetResults() {
+      final List<FacetResult> result = new ArrayList<FacetResult>(counters.length);
+      for (NumericFacetRequest.Counter counter : counters) {
+         result.add(counter.getFacetResult());
+      }
+      return result;
+   }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.packed.PackedInts;
+
+/**
+ * An immutable {@link DocIdSet} that stores a sorted list of document
+ * IDs, each packed into just as many bits as the largest document ID
+ * of the segment requires.  A sparse set takes a few bytes per
+ * document rather than one bit per document of the segment, at the
+ * cost of random access; its iterator advances by galloping through
+ * the list.
+ * @author lparker
+ *
+ */
+final class PackedDocIdSet extends DocIdSet {
+   private final PackedInts.Mutable docs;
+   private final int size;
+
+   /**
+    * Initializes a new instance of PackedDocIdSet with the documents
+    * of a bit set.
+    * @param bits The documents of the set.
+    */
+   public PackedDocIdSet(final FixedBitSet bits) {
+      size = bits.cardinality();
+      docs = PackedInts.getMutable(
+            size,
+            bitsPerDoc(bits.length()),
+            PackedInts.COMPACT
+      );
+      int index = 0;
+      for (int doc = bits.nextSetBit(0); doc >= 0;
+            doc = doc + 1 < bits.length() ? bits.nextSetBit(doc + 1) : -1) {
+         docs.set(index++, doc);
+      }
+   }
+
+   /**
+    * Copies the documents of a bit set into whichever of a packed set
+    * or the bit set itself is smaller.
+    * @param bits The documents of the set.
+    * @return The compact set.
+    */
+   public static DocIdSet compact(final FixedBitSet bits) {
+      final int cardinality = bits.cardinality();
+      if (cardinality == 0) {
+         return DocIdSet.EMPTY_DOCIDSET;
+      } else if ((long) cardinality * bitsPerDoc(bits.length()) >= bits.length()) {
+         // The bit set is no larger than the packed set, and allows
+         // random access besides.
+         return bits;
+      }
+      return new PackedDocIdSet(bits);
+   }
+
+   /**
+    * Gets the number of bits in which each document of a segment is
+    * packed.
+    * @param maxDoc The number of documents in the segment.
+    * @return The number of bits per document.
+    */
+   public static int bitsPerDoc(final int maxDoc) {
+      return PackedInts.bitsRequired(Math.max(0, maxDoc - 1));
+   }
+
+   /**
+    * Gets the number of documents in this set.
+    * @return The number of documents.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Gets the amount of memory used by the documents of this set.
+    * @return The memory used, in bytes.
+    */
+   public long ramBytesUsed() {
+      return docs.ramBytesUsed();
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.DocIdSet#isCacheable()
+    */
+   @Override
+   public boolean isCacheable() {
+      return true;
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.DocIdSet#iterator()
+    */
+   @Override
+   public DocIdSetIterator iterator() {
+      return new DocIdSetIterator() {
+         private int index = -1;
+         private int doc = -1;
+
+         @Override
+         public int docID() {
+            return doc;
+         }
+
+         @Override
+         public int nextDoc() {
+            if (index < size) {
+               index++;
+            }
+            doc = index < size ? (int) docs.get(index) : NO_MORE_DOCS;
+            return doc;
+         }
+
+         @Override
+         public int advance(final int target) {
+            // Gallop forward until a document at or past the target
+            // is found, then search back within the last step.
+            int lo = index + 1;
+            int hi = lo;
+            int step = 1;
+            while (hi < size && docs.get(hi) < target) {
+               lo = hi + 1;
+               hi = lo + step;
+               step <<= 1;
+            }
+            if (hi > size) {
+               hi = size;
+            }
+            while (lo < hi) {
+               final int mid = (lo + hi) >>> 1;
+               if (docs.get(mid) < target) {
+                  lo = mid + 1;
+               } else {
+                  hi = mid;
+               }
+            }
+            index = lo;
+            doc = index < size ? (int) docs.get(index) : NO_MORE_DOCS;
+            return doc;
+         }
+      };
+   }
+}
@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.facet.params.CategoryListParams;
+import org.apache.lucene.facet.params.FacetSearchParams;
+import org.apache.lucene.facet.search.CountFacetRequest;
+import org.apache.lucene.facet.search.FacetArrays;
+import org.apache.lucene.facet.search.FacetRequest;
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.search.FacetsAccumulator;
+import org.apache.lucene.facet.search.FacetsAggregator;
+import org.apache.lucene.facet.search.FacetsCollector.MatchingDocs;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * A {@link FacetsAccumulator} that counts the category ordinals of
+ * each segment on a pool of worker threads.  Every worker takes
+ * segments one at a time and counts them into an int array of its
+ * own, and the arrays of the workers are summed once they are all
+ * done.  The summed counts are then rolled up and ranked exactly as
+ * the serial accumulator would, so the results are identical.
+ * @author lparker
+ *
+ */
+class ParallelFacetsAccumulator extends FacetsAccumulator {
+   private final ExecutorService executor;
+   private final int workers;
+
+   /**
+    * Initializes a new instance of ParallelFacetsAccumulator, with one
+    * worker per available processor.
+    * @param eexecutor The executor on which to run the workers.
+    * @param searchParams The facets to accumulate, which must all be
+    * count requests.
+    * @param indexReader The reader of the regular index.
+    * @param taxonomyReader The reader of the taxonomy index.
+    */
+   public ParallelFacetsAccumulator(
+         final ExecutorService eexecutor,
+         final FacetSearchParams searchParams,
+         final IndexReader indexReader,
+         final TaxonomyReader taxonomyReader) {
+      this(
+            eexecutor,
+            Runtime.getRuntime().availableProcessors(),
+            searchParams,
+            indexReader,
+            taxonomyReader
+      );
+   }
+
+   /**
+    * Initializes a new instance of ParallelFacetsAccumulator.
+    * @param eexecutor The executor on which to run the workers.
+    * @param wworkers The greatest number of workers to count with.
+    * @param searchParams The facets to accumulate, which must all be
+    * count requests.
+    * @param indexReader The reader of the regular index.
+    * @param taxonomyReader The reader of the taxonomy index.
+    */
+   public ParallelFacetsAccumulator(
+         final ExecutorService eexecutor,
+         final int wworkers,
+         final FacetSearchParams searchParams,
+         final IndexReader indexReader,
+         final TaxonomyReader taxonomyReader) {
+      super(searchParams, indexReader, taxonomyReader);
+      if (eexecutor == null) {
+         throw new IllegalArgumentException(
+               "A parallel facets accumulator requires an executor"
+         );
+      }
+      if (wworkers < 1) {
+         throw new IllegalArgumentException(
+               "A parallel facets accumulator requires at least one worker"
+         );
+      }
+      if (supports(searchParams) == false) {
+         throw new IllegalArgumentException(
+               "A parallel facets accumulator can only count facets"
+         );
+      }
+      executor = eexecutor;
+      workers = wworkers;
+   }
+
+   /**
+    * Gets whether the given facets can be accumulated in parallel,
+    * which is the case when every one of them is a plain count.
+    * @param searchParams The facets to accumulate.
+    * @return True if the facets can be accumulated in parallel.
+    */
+   static boolean supports(final FacetSearchParams searchParams) {
+      for (FacetRequest request : searchParams.facetRequests) {
+         if (request.getClass() != CountFacetRequest.class) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.facet.search.FacetsAccumulator#accumulate(java.util.List)
+    */
+   @Override
+   public List<FacetResult> accumulate(final List<MatchingDocs> matchingDocs)
+         throws IOException {
+      final int count = Math.min(workers, matchingDocs.size());
+      if (count < 2) {
+         return super.accumulate(matchingDocs);
+      }
+
+      final AtomicInteger next = new AtomicInteger();
+      final List<Future<int[]>> futures = new ArrayList<Future<int[]>>(count);
+      for (int i = 0; i < count; i++) {
+         futures.add(executor.submit(new Callable<int[]>() {
+            public int[] call() throws IOException {
+               return countSegments(matchingDocs, next);
+            }
+         }));
+      }
+
+      final int[] counts = facetArrays.getIntArray();
+      for (Future<int[]> future : futures) {
+         final int[] workerCounts = getCounts(future);
+         for (int i = 0; i < counts.length; i++) {
+            counts[i] += workerCounts[i];
+         }
+      }
+
+      // The counts are already in place, so only the rollup and the
+      // ranking of the results are left for the base implementation.
+      return super.accumulate(Collections.<MatchingDocs>emptyList());
+   }
+
+   /**
+    * Counts the ordinals of segments into an array local to the
+    * calling worker until there are no segments left to count.
+    * @param matchingDocs The matching documents of every segment.
+    * @param next The index of the next segment to be counted, shared
+    * by every worker.
+    * @return The counts of the segments that this worker counted.
+    * @throws IOException A fatal exception occurred while reading the
+    * category lists of the index.
+    */
+   private int[] countSegments(
+         final List<MatchingDocs> matchingDocs,
+         final AtomicInteger next) throws IOException {
+      final FacetArrays arrays = new FacetArrays(facetArrays.arrayLength);
+      final FacetsAggregator aggregator = getAggregator();
+      int segment;
+      while ((segment = next.getAndIncrement()) < matchingDocs.size()) {
+         for (CategoryListParams clp : getCategoryLists()) {
+            aggregator.aggregate(matchingDocs.get(segment), clp, arrays);
+         }
+      }
+      return arrays.getIntArray();
+   }
+
+   /**
+    * Waits for a worker to finish counting.
+    * @param future The future result of the worker.
+    * @return The counts of the worker.
+    * @throws IOException The worker failed to read the index.
+    */
+   private static int[] getCounts(final Future<int[]> future)
+         throws IOException {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+         final Throwable cause = e.getCause();
+         if (cause instanceof IOException) {
+            throw (IOException) cause;
+         } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         } else if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new RuntimeException(cause);
+      }
+   }
+}
@@ -0,0 +1,250 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.AttributeSource;
+
+import com.fuerve.villageelder.search.QueryRejectedException.Reason;
+
+/**
+ * Estimates the cost of a query before it runs, from the number of
+ * clauses it has and the number of terms to which its wildcard,
+ * prefix, fuzzy and range queries expand against the index, and
+ * refuses queries that exceed the configured limits.  Terms are only
+ * counted up to the limit, so estimating the cost of a query is cheap
+ * even when running it would not be.  A single instance may be shared
+ * by any number of searches.
+ * @author lparker
+ *
+ */
+public class QueryCostEstimator {
+   private final long maxTerms;
+   private final int maxClauses;
+
+   /**
+    * Initializes a new instance of QueryCostEstimator.
+    * @param mmaxTerms The greatest number of terms to which the
+    * multi-term queries of a query may expand, in total.
+    * @param mmaxClauses The greatest number of clauses that a query
+    * may have, counting every nested clause.
+    */
+   public QueryCostEstimator(final long mmaxTerms, final int mmaxClauses) {
+      if (mmaxTerms < 1) {
+         throw new IllegalArgumentException("The term limit must be positive");
+      }
+      if (mmaxClauses < 1) {
+         throw new IllegalArgumentException("The clause limit must be positive");
+      }
+      maxTerms = mmaxTerms;
+      maxClauses = mmaxClauses;
+   }
+
+   /**
+    * Gets the greatest number of terms to which a query may expand.
+    * @return The term limit.
+    */
+   public long getMaxTerms() {
+      return maxTerms;
+   }
+
+   /**
+    * Gets the greatest number of clauses that a query may have.
+    * @return The clause limit.
+    */
+   public int getMaxClauses() {
+      return maxClauses;
+   }
+
+   /**
+    * Refuses a query if it exceeds the clause or term limits.
+    * @param reader The reader of the index against which the query is
+    * to run.
+    * @param query The query to check.
+    * @throws QueryRejectedException The query exceeds a limit.
+    * @throws IOException A fatal exception occurred while reading the
+    * terms of the index.
+    */
+   public void check(final IndexReader reader, final Query query)
+         throws IOException {
+      final int clauses = countClauses(query);
+      if (clauses > maxClauses) {
+         throw new QueryRejectedException(
+               Reason.TOO_MANY_CLAUSES,
+               "The query has " + clauses + " clauses, more than the limit of " + maxClauses
+         );
+      }
+
+      if (countTerms(reader, query, maxTerms) > maxTerms) {
+         throw new QueryRejectedException(
+               Reason.TOO_MANY_TERMS,
+               "The query expands to more than the limit of " + maxTerms + " terms"
+         );
+      }
+   }
+
+   /**
+    * Counts the clauses of a query, including the clauses of nested
+    * boolean and disjunction queries.
+    * @param query The query whose clauses are to be counted.
+    * @return The number of leaf clauses of the query.
+    */
+   public int countClauses(final Query query) {
+      if (query instanceof BooleanQuery) {
+         int clauses = 0;
+         for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+            clauses += countClauses(clause.getQuery());
+         }
+         return clauses;
+      } else if (query instanceof DisjunctionMaxQuery) {
+         int clauses = 0;
+         for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+            clauses += countClauses(disjunct);
+         }
+         return clauses;
+      } else if (query instanceof FilteredQuery) {
+         return countClauses(((FilteredQuery) query).getQuery());
+      } else if (query instanceof ConstantScoreQuery &&
+            ((ConstantScoreQuery) query).getQuery() != null) {
+         return countClauses(((ConstantScoreQuery) query).getQuery());
+      }
+      return 1;
+   }
+
+   /**
+    * Counts the terms to which the multi-term queries within a query
+    * expand against an index, giving up once the count exceeds a limit.
+    * @param reader The reader of the index against which to expand.
+    * @param query The query whose terms are to be counted.
+    * @param limit The count beyond which counting stops.
+    * @return The number of terms, which is greater than the limit if
+    * the query expands to more terms than the limit.
+    * @throws IOException A fatal exception occurred while reading the
+    * terms of the index.
+    */
+   public long countTerms(
+         final IndexReader reader,
+         final Query query,
+         final long limit) throws IOException {
+      if (query instanceof MultiTermQuery) {
+         return countTerms(reader, (MultiTermQuery) query, limit);
+      } else if (query instanceof BooleanQuery) {
+         long terms = 0;
+         for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+            terms += countTerms(reader, clause.getQuery(), limit - terms);
+            if (terms > limit) {
+               break;
+            }
+         }
+         return terms;
+      } else if (query instanceof DisjunctionMaxQuery) {
+         long terms = 0;
+         for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+            terms += countTerms(reader, disjunct, limit - terms);
+            if (terms > limit) {
+               break;
+            }
+         }
+         return terms;
+      } else if (query instanceof FilteredQuery) {
+         return countTerms(reader, ((FilteredQuery) query).getQuery(), limit);
+      } else if (query instanceof ConstantScoreQuery &&
+            ((ConstantScoreQuery) query).getQuery() != null) {
+         return countTerms(reader, ((ConstantScoreQuery) query).getQuery(), limit);
+      }
+      return 0;
+   }
+
+   /**
+    * Counts the terms to which a multi-term query expands.
+    * @param reader The reader of the index against which to expand.
+    * @param query The multi-term query.
+    * @param limit The count beyond which counting stops.
+    * @return The number of terms, up to one more than the limit.
+    * @throws IOException A fatal exception occurred while reading the
+    * terms of the index.
+    */
+   private static long countTerms(
+         final IndexReader reader,
+         final MultiTermQuery query,
+         final long limit) throws IOException {
+      final TermCountingRewrite rewrite = new TermCountingRewrite(limit);
+      rewrite.rewrite(reader, query);
+      return rewrite.getCount();
+   }
+
+   /**
+    * A rewrite method that counts the terms to which a multi-term
+    * query expands, enumerating them exactly as the query's own
+    * rewrite would, and stopping once the count exceeds a limit.
+    * The query it produces matches the same documents as the query
+    * being rewritten, but does not enumerate the terms until it runs.
+    * An instance counts the terms of a single query.
+    */
+   private static final class TermCountingRewrite extends MultiTermQuery.RewriteMethod {
+      private final long limit;
+      private long count;
+
+      /**
+       * Initializes a new instance of TermCountingRewrite.
+       * @param llimit The count beyond which counting stops.
+       */
+      public TermCountingRewrite(final long llimit) {
+         limit = llimit;
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.search.MultiTermQuery.RewriteMethod#rewrite(org.apache.lucene.index.IndexReader, org.apache.lucene.search.MultiTermQuery)
+       */
+      @Override
+      public Query rewrite(final IndexReader reader, final MultiTermQuery query)
+            throws IOException {
+         count = 0;
+         final Terms terms = MultiFields.getTerms(reader, query.getField());
+         if (terms != null) {
+            final TermsEnum termsEnum =
+                  getTermsEnum(query, terms, new AttributeSource());
+            while (count <= limit && termsEnum.next() != null) {
+               count++;
+            }
+         }
+         return MultiTermQuery.CONSTANT_SCORE_FILTER_REWRITE.rewrite(reader, query);
+      }
+
+      /**
+       * Gets the number of terms counted by the last rewrite.
+       * @return The number of terms, up to one more than the limit.
+       */
+      public long getCount() {
+         return count;
+      }
+   }
+}
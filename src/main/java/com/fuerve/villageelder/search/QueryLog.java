@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A log of the most recent query strings searched, from which the
+ * most frequent ones can be replayed to warm a new reader.  The log
+ * may be kept in a file, one query per line from the oldest to the
+ * newest, so that it survives restarts.  A query log is safe for use
+ * by multiple threads.
+ * @author lparker
+ *
+ */
+public class QueryLog {
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+
+   private final File file;
+   private final int capacity;
+   private final Deque<String> queries = new ArrayDeque<String>();
+
+   /**
+    * Initializes a new instance of QueryLog that is kept in memory only.
+    * @param ccapacity The number of recent queries to keep.
+    */
+   public QueryLog(final int ccapacity) {
+      this(null, ccapacity);
+   }
+
+   /**
+    * Initializes a new instance of QueryLog that may be loaded from and
+    * saved to a file.
+    * @param ffile The file in which the log is kept, or null to keep it
+    * in memory only.
+    * @param ccapacity The number of recent queries to keep.
+    */
+   public QueryLog(final File ffile, final int ccapacity) {
+      if (ccapacity < 1) {
+         throw new IllegalArgumentException("A query log must keep at least one query");
+      }
+      file = ffile;
+      capacity = ccapacity;
+   }
+
+   /**
+    * Records a query that was searched, forgetting the oldest query if
+    * the log is full.
+    * @param query The query string.
+    */
+   public synchronized void record(final String query) {
+      if (query == null) {
+         return;
+      }
+      // Line breaks are mere whitespace to the query parser, and
+      // would split the query in the log file.
+      final String line = query.replace('\r', ' ').replace('\n', ' ').trim();
+      if (line.isEmpty()) {
+         return;
+      }
+      queries.addLast(line);
+      if (queries.size() > capacity) {
+         queries.removeFirst();
+      }
+   }
+
+   /**
+    * Gets the number of queries in the log.
+    * @return The number of recent queries kept.
+    */
+   public synchronized int size() {
+      return queries.size();
+   }
+
+   /**
+    * Gets the most frequent of the recent queries.
+    * @param count The greatest number of queries to return.
+    * @return The distinct queries, from the most frequent to the
+    * least, with the more recent of equally frequent queries first.
+    */
+   public synchronized List<String> getTopQueries(final int count) {
+      final Map<String, int[]> frequencies = new LinkedHashMap<String, int[]>();
+      final Iterator<String> newestFirst = queries.descendingIterator();
+      while (newestFirst.hasNext()) {
+         final String query = newestFirst.next();
+         final int[] frequency = frequencies.get(query);
+         if (frequency == null) {
+            frequencies.put(query, new int[] { 1 });
+         } else {
+            frequency[0]++;
+         }
+      }
+
+      // The sort is stable, so ties stay in order of recency.
+      final List<Entry<String, int[]>> ranked =
+            new ArrayList<Entry<String, int[]>>(frequencies.entrySet());
+      Collections.sort(ranked, new Comparator<Entry<String, int[]>>() {
+         public int compare(final Entry<String, int[]> a, final Entry<String, int[]> b) {
+            return b.getValue()[0] - a.getValue()[0];
+         }
+      });
+
+      final List<String> result = new ArrayList<String>(Math.min(count, ranked.size()));
+      for (int i = 0; i < ranked.size() && i < count; i++) {
+         result.add(ranked.get(i).getKey());
+      }
+      return result;
+   }
+
+   /**
+    * Replaces the queries in the log with those of the log file, if
+    * it exists.
+    * @throws IOException A fatal exception occurred while reading the
+    * log file.
+    */
+   public synchronized void load() throws IOException {
+      if (file == null || file.exists() == false) {
+         return;
+      }
+
+      queries.clear();
+      final BufferedReader reader =
+            new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+      try {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            record(line);
+         }
+      } finally {
+         reader.close();
+      }
+   }
+
+   /**
+    * Writes the queries in the log to the log file.
+    * @throws IOException A fatal exception occurred while writing the
+    * log file.
+    */
+   public synchronized void save() throws IOException {
+      if (file == null) {
+         return;
+      }
+
+      final BufferedWriter writer =
+            new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF8));
+      try {
+         for (String query : queries) {
+            writer.write(query);
+            writer.newLine();
+         }
+      } finally {
+         writer.close();
+      }
+   }
+}
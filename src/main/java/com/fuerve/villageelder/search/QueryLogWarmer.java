@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortField.Type;
+
+/**
+ * A {@link SearcherWarmer} that loads the values of the sort fields,
+ * touches the terms index of every field and then replays the most
+ * frequent recent queries of a {@link QueryLog}, sorted just as the
+ * searches that logged them were.  Queries that no longer parse are
+ * skipped.
+ * @author lparker
+ *
+ */
+public class QueryLogWarmer implements SearcherWarmer {
+   private static final Sort DEFAULT_SORT =
+         new Sort(new SortField("RevisionNumber", Type.LONG, true));
+   private static final int REPLAYED_HITS = 10;
+
+   private final QueryLog queryLog;
+   private final int queries;
+   private final Sort sort;
+   private FilterCache filterCache;
+
+   /**
+    * Initializes a new instance of QueryLogWarmer that warms the
+    * default sort order of searches.
+    * @param qqueryLog The log of recent queries.
+    * @param qqueries The number of queries to replay.
+    */
+   public QueryLogWarmer(final QueryLog qqueryLog, final int qqueries) {
+      this(qqueryLog, qqueries, DEFAULT_SORT);
+   }
+
+   /**
+    * Initializes a new instance of QueryLogWarmer.
+    * @param qqueryLog The log of recent queries.
+    * @param qqueries The number of queries to replay.
+    * @param ssort The sort order whose fields to load, and in which to
+    * replay queries.
+    */
+   public QueryLogWarmer(final QueryLog qqueryLog, final int qqueries, final Sort ssort) {
+      if (qqueryLog == null) {
+         throw new IllegalArgumentException("A query log warmer requires a query log");
+      }
+      if (ssort == null) {
+         throw new IllegalArgumentException("A query log warmer requires a sort order");
+      }
+      if (qqueries < 0) {
+         throw new IllegalArgumentException("The number of queries to replay cannot be negative");
+      }
+      queryLog = qqueryLog;
+      queries = qqueries;
+      sort = ssort;
+   }
+
+   /**
+    * Sets the filter cache through which replayed queries are
+    * rewritten, so that their structured filters are cached for the
+    * new reader as well.  This should be the filter cache of the
+    * {@link Searcher} being warmed.
+    * @param ffilterCache The filter cache, or null to replay queries
+    * as they are.
+    */
+   public void setFilterCache(final FilterCache ffilterCache) {
+      filterCache = ffilterCache;
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.search.SearcherWarmer#warm(org.apache.lucene.search.IndexSearcher)
+    */
+   public void warm(final IndexSearcher searcher) throws IOException {
+      // Sorting every document loads the sort values of every segment.
+      searcher.search(new MatchAllDocsQuery(), null, 1, sort);
+
+      for (AtomicReaderContext leaf : searcher.getIndexReader().leaves()) {
+         final Fields fields = leaf.reader().fields();
+         if (fields == null) {
+            continue;
+         }
+         for (String field : fields) {
+            final Terms terms = fields.terms(field);
+            if (terms != null) {
+               terms.iterator(null).next();
+            }
+         }
+      }
+
+      for (String queryString : queryLog.getTopQueries(queries)) {
+         final Query query;
+         try {
+            query = new Search(queryString).getQuery();
+         } catch (ParseException e) {
+            continue;
+         }
+         searcher.search(
+               filterCache == null ? query : filterCache.rewrite(query),
+               null,
+               REPLAYED_HITS,
+               sort
+         );
+      }
+   }
+}
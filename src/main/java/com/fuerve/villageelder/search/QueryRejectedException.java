@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a search is refused before it runs, either because its
+ * query is estimated to be too expensive or because too many searches
+ * are already running.
+ * @author lparker
+ *
+ */
+public class QueryRejectedException extends IOException {
+   private static final long serialVersionUID = 1L;
+
+   /**
+    * The reasons for which a search may be refused.
+    */
+   public enum Reason {
+      /**
+       * The query expands to more terms than are allowed.
+       */
+      TOO_MANY_TERMS,
+      /**
+       * The query has more clauses than are allowed.
+       */
+      TOO_MANY_CLAUSES,
+      /**
+       * Too many searches are running or waiting to run.
+       */
+      OVERLOADED
+   }
+
+   private final Reason reason;
+
+   /**
+    * Initializes a new instance of QueryRejectedException.
+    * @param rreason The reason for which the search was refused.
+    * @param message A description of the refusal.
+    */
+   public QueryRejectedException(final Reason rreason, final String message) {
+      super(message);
+      reason = rreason;
+   }
+
+   /**
+    * Gets the reason for which the search was refused.
+    * @return The reason for the refusal.
+    */
+   public Reason getReason() {
+      return reason;
+   }
+}
@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.search.FacetResultNode;
+
+/**
+ * A request to count the values of a numeric field, such as
+ * RevisionNumber or Date, that fall into a set of arbitrary, named
+ * ranges.  Ranges may overlap, in which case a document is counted
+ * in each of them.  Ranges are returned in the order in which they
+ * were added, including those with no matches.
+ * @author lparker
+ *
+ */
+public class RangeFacetRequest extends NumericFacetRequest {
+   /**
+    * A single named range of values.
+    */
+   public static class Range {
+      private final String label;
+      private final long min;
+      private final long max;
+
+      /**
+       * Initializes a new instance of Range.
+       * @param llabel The label under which the range is reported.
+       * @param mmin The inclusive lower bound of the range.
+       * @param mmax The inclusive upper bound of the range.
+       */
+      public Range(final String llabel, final long mmin, final long mmax) {
+         if (llabel == null || llabel.isEmpty()) {
+            throw new IllegalArgumentException("A range requires a label");
+         }
+         label = llabel;
+         min = mmin;
+         max = mmax;
+      }
+
+      /**
+       * Gets the label under which the range is reported.
+       * @return The label of the range.
+       */
+      public String getLabel() {
+         return label;
+      }
+
+      /**
+       * Gets the inclusive lower bound of the range.
+       * @return The lower bound of the range.
+       */
+      public long getMin() {
+         return min;
+      }
+
+      /**
+       * Gets the inclusive upper bound of the range.
+       * @return The upper bound of the range.
+       */
+      public long getMax() {
+         return max;
+      }
+   }
+
+   private final List<Range> ranges = new ArrayList<Range>();
+
+   /**
+    * Initializes a new instance of RangeFacetRequest with no ranges.
+    * @param field The name of the numeric doc values field to count.
+    */
+   public RangeFacetRequest(final String field) {
+      super(field, Integer.MAX_VALUE);
+   }
+
+   /**
+    * Adds a range to this request.
+    * @param label The label under which the range is reported.
+    * @param min The inclusive lower bound of the range.
+    * @param max The inclusive upper bound of the range.
+    * @return This request, so that ranges may be chained.
+    */
+   public RangeFacetRequest addRange(final String label, final long min, final long max) {
+      ranges.add(new Range(label, min, max));
+      return this;
+   }
+
+   /**
+    * Gets the ranges of this request.
+    * @return The list of ranges, in the order in which they were added.
+    */
+   public List<Range> getRanges() {
+      return ranges;
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.search.NumericFacetRequest#createCounter()
+    */
+   @Override
+   Counter createCounter() {
+      final long[] mins = new long[ranges.size()];
+      final long[] maxes = new long[ranges.size()];
+      for (int i = 0; i < ranges.size(); i++) {
+         mins[i] = ranges.get(i).getMin();
+         maxes[i] = ranges.get(i).getMax();
+      }
+
+      return new Counter() {
+         private final int[] counts = new int[mins.length];
+         private int hits;
+
+         @Override
+         void count(final long value) {
+            boolean matched = false;
+            for (int i = 0; i < mins.length; i++) {
+               if (value >= mins[i] && value <= maxes[i]) {
+                  counts[i]++;
+                  matched = true;
+               }
+            }
+            if (matched) {
+               hits++;
+            }
+         }
+
+         @Override
+         FacetResult getFacetResult() {
+            final List<FacetResultNode> children =
+                  new ArrayList<FacetResultNode>(counts.length);
+            int validValues = 0;
+            for (int i = 0; i < counts.length; i++) {
+               children.add(createNode(ranges.get(i).getLabel(), counts[i]));
+               if (counts[i] > 0) {
+                  validValues++;
+               }
+            }
+            return createResult(children, hits, validValues);
+         }
+      };
+   }
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+
+/**
+ * A handle to every hit of an executed search, kept as a compact set
+ * of document IDs for each segment of the reader that was searched.
+ * A later search of the same reader may be restricted to these hits
+ * with {@link Search#setWithin(ResultSet)}, so that refining a broad
+ * search step by step only evaluates each new clause against the hits
+ * of the previous step.  Document IDs are only meaningful to the
+ * reader that produced them, so a result set cannot filter searches
+ * of any other reader, and should be dropped once its Searcher is
+ * disposed.
+ * @author lparker
+ *
+ */
+public class ResultSet extends Filter {
+   private final IndexReader reader;
+   private final DocIdSet[] segments;
+   private final int size;
+   private final boolean partial;
+
+   /**
+    * Initializes a new instance of ResultSet.
+    * @param rreader The top-level reader that was searched.
+    * @param ssegments The hits of each segment of the reader, in the
+    * order of its leaves.
+    * @param ssize The total number of hits.
+    * @param ppartial True if the search stopped before it collected
+    * every hit.
+    */
+   ResultSet(
+         final IndexReader rreader,
+         final DocIdSet[] ssegments,
+         final int ssize,
+         final boolean ppartial) {
+      reader = rreader;
+      segments = ssegments;
+      size = ssize;
+      partial = ppartial;
+   }
+
+   /**
+    * Gets the number of hits in this result set.
+    * @return The number of hits.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Gets whether the search that produced this result set ran past
+    * its deadline, in which case it only holds the hits collected
+    * before the deadline.
+    * @return True if the result set is partial.
+    */
+   public boolean isPartial() {
+      return partial;
+   }
+
+   /**
+    * Gets whether this result set can filter searches of a reader.
+    * @param rreader The top-level reader.
+    * @return True if the reader is the one that produced this result
+    * set.
+    */
+   public boolean isValidFor(final IndexReader rreader) {
+      return reader == rreader;
+   }
+
+   /**
+    * Gets the top-level reader that produced this result set.
+    * @return The reader that was searched.
+    */
+   IndexReader getReader() {
+      return reader;
+   }
+
+   /**
+    * Gets the hits of a segment of the reader that was searched.
+    * @param ord The position of the segment among the leaves of the
+    * reader.
+    * @return The hits of the segment.
+    */
+   DocIdSet getSegment(final int ord) {
+      return segments[ord];
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Filter#getDocIdSet(org.apache.lucene.index.AtomicReaderContext, org.apache.lucene.util.Bits)
+    */
+   @Override
+   public DocIdSet getDocIdSet(
+         final AtomicReaderContext context,
+         final Bits acceptDocs) throws IOException {
+      if (isValidFor(ReaderUtil.getTopLevelContext(context).reader()) == false) {
+         throw new IllegalStateException(
+               "A result set can only filter searches of the reader that produced it"
+         );
+      }
+      return BitsFilteredDocIdSet.wrap(segments[context.ord], acceptDocs);
+   }
+
+   @Override
+   public String toString() {
+      return "ResultSet(" + size + " hits)";
+   }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.FixedBitSet;
+
+/**
+ * A {@link Collector} that gathers every hit of a search into a
+ * {@link ResultSet}, one bit set per segment, which is compacted once
+ * the search is done.
+ * @author lparker
+ *
+ */
+class ResultSetCollector extends Collector {
+   private final IndexReader reader;
+   private final FixedBitSet[] segments;
+   private FixedBitSet current;
+   private int size;
+
+   /**
+    * Initializes a new instance of ResultSetCollector.
+    * @param rreader The top-level reader that is searched.
+    */
+   public ResultSetCollector(final IndexReader rreader) {
+      reader = rreader;
+      segments = new FixedBitSet[rreader.leaves().size()];
+   }
+
+   /**
+    * Gets the result set of the hits collected so far.
+    * @param partial True if the search stopped before it collected
+    * every hit.
+    * @return The result set.
+    */
+   public ResultSet getResultSet(final boolean partial) {
+      final DocIdSet[] result = new DocIdSet[segments.length];
+      for (int i = 0; i < result.length; i++) {
+         // Segments that were never collected, such as those skipped
+         // by the searcher, have no hits.
+         result[i] =
+               segments[i] == null ?
+                     DocIdSet.EMPTY_DOCIDSET :
+                     PackedDocIdSet.compact(segments[i]);
+      }
+      return new ResultSet(reader, result, size, partial);
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#setScorer(org.apache.lucene.search.Scorer)
+    */
+   @Override
+   public void setScorer(final Scorer scorer) {
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#collect(int)
+    */
+   @Override
+   public void collect(final int doc) {
+      if (current.getAndSet(doc) == false) {
+         size++;
+      }
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#setNextReader(org.apache.lucene.index.AtomicReaderContext)
+    */
+   @Override
+   public void setNextReader(final AtomicReaderContext context) throws IOException {
+      current = new FixedBitSet(context.reader().maxDoc());
+      segments[context.ord] = current;
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.Collector#acceptsDocsOutOfOrder()
+    */
+   @Override
+   public boolean acceptsDocsOutOfOrder() {
+      return true;
+   }
+}
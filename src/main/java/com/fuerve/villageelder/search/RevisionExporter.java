@@ -0,0 +1,442 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.util.SorterTemplate;
+
+/**
+ * Writes every revision that matches a query to a CSV or JSON stream,
+ * for audits that need all of them rather than the top few.  The hits
+ * are collected into a compact set of document IDs for each segment
+ * rather than a priority queue, and their stored fields are read and
+ * written one revision at a time, so the memory used does not grow
+ * with the number of hits.  Revisions are written in the order of
+ * their document IDs, which is the cheapest order to read the stored
+ * fields in, or by ascending revision number through the doc values
+ * of each segment.
+ * @author lparker
+ *
+ */
+public class RevisionExporter {
+   private static final Set<String> FIELDS = Collections.unmodifiableSet(
+         new HashSet<String>(Arrays.asList("Revision", "Author", "Date", "Message", "Path"))
+   );
+   private static final String REVISION_FIELD = "RevisionNumber";
+   private static final Comparator<Cursor> BY_REVISION = new Comparator<Cursor>() {
+      public int compare(final Cursor a, final Cursor b) {
+         if (a.revision != b.revision) {
+            return compareRevisions(a.revision, b.revision);
+         }
+         return a.context.ord - b.context.ord;
+      }
+   };
+
+
+   private final Searcher searcher;
+   private final ExportFormat format;
+   private boolean revisionOrder;
+   private boolean partial;
+   private final SimpleDateFormat dateFormat;
+
+   /**
+    * Initializes a new instance of RevisionExporter.
+    * @param ssearcher The initialized searcher of the index to export.
+    * @param fformat The format in which to write the revisions.
+    */
+   public RevisionExporter(final Searcher ssearcher, final ExportFormat fformat) {
+      if (ssearcher == null) {
+         throw new IllegalArgumentException("An exporter requires a searcher");
+      }
+      if (fformat == null) {
+         throw new IllegalArgumentException("An exporter requires a format");
+      }
+      searcher = ssearcher;
+      format = fformat;
+      dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+      dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+   }
+
+   /**
+    * Sets whether revisions are written by ascending revision number
+    * rather than in the order of their document IDs.
+    * @param rrevisionOrder True to write revisions by revision number.
+    */
+   public void setRevisionOrder(final boolean rrevisionOrder) {
+      revisionOrder = rrevisionOrder;
+   }
+
+   /**
+    * Gets whether revisions are written by ascending revision number.
+    * @return True if revisions are written by revision number, false
+    * if they are written in the order of their document IDs.
+    */
+   public boolean isRevisionOrder() {
+      return revisionOrder;
+   }
+
+   /**
+    * Gets whether the last export ran past the deadline of its search,
+    * in which case it only wrote the revisions collected before the
+    * deadline.
+    * @return True if the last export was partial.
+    */
+   public boolean isPartial() {
+      return partial;
+   }
+
+   /**
+    * Writes every revision that matches a query.
+    * @param query The query whose revisions to export.
+    * @param writer The writer to which to write the revisions, which
+    * is flushed but not closed.
+    * @return The number of revisions written.
+    * @throws ParseException The query could not be parsed.
+    * @throws IOException A fatal exception occurred while reading the
+    * index or writing the revisions.
+    */
+   public long export(final String query, final Writer writer)
+         throws ParseException, IOException {
+      final Search search = searcher.createSearch(query);
+      search.setCollectResultSet(true);
+      searcher.search(new TotalHitCountCollector());
+      final ResultSet hits = search.getResultSet();
+      partial = hits.isPartial();
+
+      final List<AtomicReaderContext> leaves = hits.getReader().leaves();
+      final Cursor[] cursors = new Cursor[leaves.size()];
+      for (int i = 0; i < cursors.length; i++) {
+         cursors[i] = new Cursor(leaves.get(i), hits.getSegment(i));
+      }
+
+      long count = 0;
+      writeHeader(writer);
+      if (revisionOrder) {
+         final PriorityQueue<Cursor> queue =
+               new PriorityQueue<Cursor>(Math.max(1, cursors.length), BY_REVISION);
+         for (Cursor cursor : cursors) {
+            if (cursor.next()) {
+               queue.add(cursor);
+            }
+         }
+         while (queue.isEmpty() == false) {
+            final Cursor cursor = queue.poll();
+            writeRevision(writer, cursor.document(), count++);
+            if (cursor.next()) {
+               queue.add(cursor);
+            }
+         }
+      } else {
+         for (Cursor cursor : cursors) {
+            while (cursor.next()) {
+               writeRevision(writer, cursor.document(), count++);
+            }
+         }
+      }
+      writeFooter(writer);
+      writer.flush();
+      return count;
+   }
+
+   /**
+    * Writes what comes before the first revision.
+    * @param writer The writer.
+    * @throws IOException A fatal exception occurred while writing.
+    */
+   private void writeHeader(final Writer writer) throws IOException {
+      switch (format) {
+      case CSV:
+         writer.write("Revision,Author,Date,Paths,Message\n");
+         break;
+      case JSON:
+         writer.write("[");
+         break;
+      }
+   }
+
+   /**
+    * Writes a revision.
+    * @param writer The writer.
+    * @param document The stored fields of the revision.
+    * @param position The number of revisions written before this one.
+    * @throws IOException A fatal exception occurred while writing.
+    */
+   private void writeRevision(
+         final Writer writer,
+         final Document document,
+         final long position) throws IOException {
+      final IndexableField dateField = document.getField("Date");
+      final String date =
+            dateField == null ?
+                  "" : dateFormat.format(new Date(dateField.numericValue().longValue()));
+      final String[] paths = document.getValues("Path");
+      final String author = document.get("Author") == null ? "" : document.get("Author");
+      final String message = document.get("Message") == null ? "" : document.get("Message");
+
+      switch (format) {
+      case CSV:
+         writer.write(StringEscapeUtils.escapeCsv(document.get("Revision")));
+         writer.write(',');
+         writer.write(StringEscapeUtils.escapeCsv(author));
+         writer.write(',');
+         writer.write(date);
+         writer.write(',');
+         final StringBuilder joined = new StringBuilder();
+         for (String path : paths) {
+            if (joined.length() > 0) {
+               joined.append(' ');
+            }
+            joined.append(path);
+         }
+         writer.write(StringEscapeUtils.escapeCsv(joined.toString()));
+         writer.write(',');
+         writer.write(StringEscapeUtils.escapeCsv(message));
+         writer.write('\n');
+         break;
+      case JSON:
+         writer.write(position == 0 ? "\n" : ",\n");
+         writer.write("{\"revision\":");
+         writer.write(document.get("Revision"));
+         writer.write(",\"author\":");
+         writeJsonString(writer, author);
+         writer.write(",\"date\":");
+         writeJsonString(writer, date);
+         writer.write(",\"paths\":[");
+         for (int i = 0; i < paths.length; i++) {
+            if (i > 0) {
+               writer.write(',');
+            }
+            writeJsonString(writer, paths[i]);
+         }
+         writer.write("],\"message\":");
+         writeJsonString(writer, message);
+         writer.write('}');
+         break;
+      }
+   }
+
+   /**
+    * Writes what comes after the last revision.
+    * @param writer The writer.
+    * @throws IOException A fatal exception occurred while writing.
+    */
+   private void writeFooter(final Writer writer) throws IOException {
+      if (format == ExportFormat.JSON) {
+         writer.write("\n]\n");
+      }
+   }
+
+   /**
+    * Writes a quoted and escaped JSON string.
+    * @param writer The writer.
+    * @param value The string to write.
+    * @throws IOException A fatal exception occurred while writing.
+    */
+   static void writeJsonString(final Writer writer, final String value)
+         throws IOException {
+      writer.write('"');
+      for (int i = 0; i < value.length(); i++) {
+         final char c = value.charAt(i);
+         switch (c) {
+         case '"':
+            writer.write("\\\"");
+            break;
+         case '\\':
+            writer.write("\\\\");
+            break;
+         case '\n':
+            writer.write("\\n");
+            break;
+         case '\r':
+            writer.write("\\r");
+            break;
+         case '\t':
+            writer.write("\\t");
+            break;
+         default:
+            if (c < 0x20) {
+               writer.write(String.format("\\u%04x", (int) c));
+            } else {
+               writer.write(c);
+            }
+         }
+      }
+      writer.write('"');
+   }
+
+   /**
+    * Walks the hits of a segment, in the order of their document IDs
+    * or by ascending revision number.
+    */
+   private final class Cursor {
+      private final AtomicReaderContext context;
+      private final DocIdSet hits;
+      private NumericDocValues revisions;
+      private DocIdSetIterator iterator;
+      private int[] sorted;
+      private int position;
+      private int doc;
+      private long revision;
+
+      Cursor(final AtomicReaderContext ccontext, final DocIdSet hhits) {
+         context = ccontext;
+         hits = hhits;
+      }
+
+      /**
+       * Moves to the next hit of the segment.
+       * @return True if there was a next hit, false if the segment has
+       * no more hits.
+       * @throws IOException A fatal exception occurred while reading
+       * the segment.
+       */
+      boolean next() throws IOException {
+         if (iterator == null && sorted == null && start() == false) {
+            return false;
+         }
+         if (sorted != null) {
+            if (position == sorted.length) {
+               return false;
+            }
+            doc = sorted[position++];
+         } else {
+            doc = iterator.nextDoc();
+            if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+               return false;
+            }
+         }
+         if (revisions != null) {
+            revision = revisions.get(doc);
+         }
+         return true;
+      }
+
+      /**
+       * Reads the stored fields of the current hit.
+       * @return The stored fields that are exported.
+       * @throws IOException A fatal exception occurred while reading
+       * the stored fields.
+       */
+      Document document() throws IOException {
+         return HitDocuments.read(context.reader(), doc, FIELDS);
+      }
+
+      /**
+       * Prepares to walk the hits of the segment.  Revisions are
+       * indexed in order, so the hits of a segment are almost always
+       * in revision order already; only a segment whose hits are not is
+       * sorted, at the cost of an int for each of its hits.
+       * @return True if the segment has hits.
+       * @throws IOException A fatal exception occurred while reading
+       * the segment.
+       */
+      private boolean start() throws IOException {
+         iterator = hits.iterator();
+         if (iterator == null) {
+            return false;
+         }
+         if (revisionOrder == false) {
+            return true;
+         }
+
+         revisions = context.reader().getNumericDocValues(REVISION_FIELD);
+         if (revisions == null) {
+            throw new IllegalStateException("The index has no revision numbers to sort by");
+         }
+         int count = 0;
+         boolean ordered = true;
+         long last = Long.MIN_VALUE;
+         for (int d = iterator.nextDoc(); d != DocIdSetIterator.NO_MORE_DOCS; d = iterator.nextDoc()) {
+            final long value = revisions.get(d);
+            ordered &= value >= last;
+            last = value;
+            count++;
+         }
+         iterator = hits.iterator();
+         if (ordered) {
+            return true;
+         }
+
+         sorted = new int[count];
+         int i = 0;
+         for (int d = iterator.nextDoc(); d != DocIdSetIterator.NO_MORE_DOCS; d = iterator.nextDoc()) {
+            sorted[i++] = d;
+         }
+         iterator = null;
+         new SorterTemplate() {
+            private long pivot;
+
+            @Override
+            protected void swap(final int a, final int b) {
+               final int temp = sorted[a];
+               sorted[a] = sorted[b];
+               sorted[b] = temp;
+            }
+
+            @Override
+            protected int compare(final int a, final int b) {
+               return compareRevisions(revisions.get(sorted[a]), revisions.get(sorted[b]));
+            }
+
+            @Override
+            protected void setPivot(final int a) {
+               pivot = revisions.get(sorted[a]);
+            }
+
+            @Override
+            protected int comparePivot(final int b) {
+               return compareRevisions(pivot, revisions.get(sorted[b]));
+            }
+         }.mergeSort(0, count - 1);
+         return true;
+      }
+   }
+
+   /**
+    * Compares two revision numbers.
+    * @param a The first revision number.
+    * @param b The second revision number.
+    * @return A negative number, zero or a positive number as the first
+    * revision is before, the same as or after the second.
+    */
+   private static int compareRevisions(final long a, final long b) {
+      return a < b ? -1 : a == b ? 0 : 1;
+   }
+}
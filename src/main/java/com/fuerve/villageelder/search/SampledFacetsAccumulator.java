@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.lucene.facet.params.FacetSearchParams;
+import org.apache.lucene.facet.sampling.RandomSampler;
+import org.apache.lucene.facet.sampling.SampleFixer;
+import org.apache.lucene.facet.sampling.SamplingAccumulator;
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.search.FacetResultNode;
+import org.apache.lucene.facet.search.ScoredDocIDs;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.IndexReader;
+
+/**
+ * A {@link SamplingAccumulator} for a single search that remembers
+ * whether the facets it accumulated were counted over a sample, and
+ * that either scales sampled counts up or re-counts the top values
+ * exactly, as its {@link FacetSampling} dictates.
+ * @author lparker
+ *
+ */
+class SampledFacetsAccumulator extends SamplingAccumulator {
+   private final TrackingSampler sampler;
+
+   /**
+    * Initializes a new instance of SampledFacetsAccumulator.
+    * @param sampling The sampling configuration.
+    * @param searchParams The facets to accumulate.
+    * @param indexReader The reader of the regular index.
+    * @param taxonomyReader The reader of the taxonomy index.
+    */
+   public SampledFacetsAccumulator(
+         final FacetSampling sampling,
+         final FacetSearchParams searchParams,
+         final IndexReader indexReader,
+         final TaxonomyReader taxonomyReader) {
+      this(new TrackingSampler(sampling), searchParams, indexReader, taxonomyReader);
+   }
+
+   private SampledFacetsAccumulator(
+         final TrackingSampler ssampler,
+         final FacetSearchParams searchParams,
+         final IndexReader indexReader,
+         final TaxonomyReader taxonomyReader) {
+      super(ssampler, searchParams, indexReader, taxonomyReader);
+      sampler = ssampler;
+   }
+
+   /**
+    * Gets whether the facet counts accumulated so far are estimates
+    * rather than exact counts.  This is only the case when the hits
+    * were sampled and the sampled counts were scaled rather than
+    * re-counted.
+    * @return True if the facet counts are estimated.
+    */
+   public boolean isEstimated() {
+      return sampler.sampled && sampler.exactTopCounts == false;
+   }
+
+   /**
+    * Gets whether the hits were sampled.
+    * @return True if facets were counted over a sample of the hits.
+    */
+   public boolean isSampled() {
+      return sampler.sampled;
+   }
+
+   /**
+    * A random sampler that records the ratio of the sample it took
+    * and chooses the fixer for the sampled results.
+    */
+   private static class TrackingSampler extends RandomSampler {
+      private final boolean exactTopCounts;
+      private boolean sampled;
+      private double ratio = 1.0;
+
+      /**
+       * Initializes a new instance of TrackingSampler.
+       * @param sampling The sampling configuration.
+       */
+      public TrackingSampler(final FacetSampling sampling) {
+         super(sampling.getSamplingParams(), new Random());
+         exactTopCounts = sampling.isExactTopCounts();
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.facet.sampling.Sampler#getSampleSet(org.apache.lucene.facet.search.ScoredDocIDs)
+       */
+      @Override
+      public SampleResult getSampleSet(final ScoredDocIDs docids)
+            throws IOException {
+         final SampleResult result = super.getSampleSet(docids);
+         ratio = result.actualSampleRatio;
+         sampled = ratio < 1.0;
+         return result;
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.facet.sampling.Sampler#getSampleFixer(org.apache.lucene.index.IndexReader, org.apache.lucene.facet.taxonomy.TaxonomyReader, org.apache.lucene.facet.params.FacetSearchParams)
+       */
+      @Override
+      public SampleFixer getSampleFixer(
+            final IndexReader indexReader,
+            final TaxonomyReader taxonomyReader,
+            final FacetSearchParams searchParams) {
+         if (exactTopCounts) {
+            return super.getSampleFixer(indexReader, taxonomyReader, searchParams);
+         }
+
+         return new SampleFixer() {
+            public void fixResult(final ScoredDocIDs origDocIds, final FacetResult fres)
+                  throws IOException {
+               if (sampled) {
+                  scale(fres.getFacetResultNode(), 1.0 / ratio);
+               }
+            }
+         };
+      }
+
+      /**
+       * Scales the count of a result node and its descendants.
+       * @param node The result node.
+       * @param factor The factor by which to scale the counts.
+       */
+      private static void scale(final FacetResultNode node, final double factor) {
+         node.value = Math.round(node.value * factor);
+         if (node.subResults != null) {
+            for (FacetResultNode child : node.subResults) {
+               scale(child, factor);
+            }
+         }
+      }
+   }
+}
@@ -23,12 +23,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.DateTools.Resolution;
 import org.apache.lucene.facet.params.FacetSearchParams;
 import org.apache.lucene.facet.search.CountFacetRequest;
 import org.apache.lucene.facet.search.FacetRequest;
+import org.apache.lucene.facet.search.FacetResult;
 import org.apache.lucene.facet.search.FacetsCollector;
 import org.apache.lucene.facet.taxonomy.CategoryPath;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
@@ -40,6 +42,8 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.SortField.Type;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.util.BytesRef;
 
 import com.fuerve.villageelder.common.Lucene;
 
@@ -59,12 +63,35 @@ public class Search {
    private static final int DEFAULT_HITS = 100;
    
    private final Query query;
+   private final String queryString;
    private final Sort sort;
 
    private List<FacetRequest> facets;
+   private List<DocValuesFacetRequest> docValuesFacets;
+   private List<NumericFacetRequest> numericFacets;
    
    private TopFieldCollector collector;
    private FacetsCollector facetsCollector;
+   private DocValuesFacetsCollector docValuesFacetsCollector;
+   private NumericFacetsCollector numericFacetsCollector;
+   
+   private FacetSampling facetSampling;
+   private SampledFacetsAccumulator sampledFacetsAccumulator;
+   private ExecutorService facetExecutor;
+   
+   private GroupRequest grouping;
+   private TopGroups<BytesRef> topGroups;
+   
+   private long timeout;
+   private boolean timedOut;
+   
+   private List<FacetResult> facetResults;
+   
+   private ResultSet within;
+   private boolean collectResultSet;
+   private ResultSet resultSet;
+   
+   private long version = -1L;
 
    /**
     * Initializes a new instance of Search with a query.
@@ -107,6 +134,7 @@ public class Search {
          final List<FacetRequest> ffacets,
          final Sort ssort) {
       query = qquery;
+      queryString = null;
       facets = ffacets;
       sort = ssort;
    }
@@ -227,6 +255,7 @@ public class Search {
              );
       parser.setDateResolution(Resolution.HOUR);
       query = parser.parse(qquery);
+      queryString = qquery;
       
       if (ffacets == null) {
          facets = null;
@@ -248,7 +277,9 @@ public class Search {
    /**
     * Adds a facet request to the existing list of facet requests,
     * or creates a new list of facet requests if one does not
-    * already exist.
+    * already exist.  A {@link DocValuesFacetRequest} or a
+    * {@link NumericFacetRequest} is added to the list of doc values
+    * or numeric facets instead.
     * @param facetRequest The facet request to add to the list.
     */
    public void addFacet(final FacetRequest facetRequest) {
@@ -256,6 +287,16 @@ public class Search {
          return;
       }
       
+      if (facetRequest instanceof DocValuesFacetRequest) {
+         addDocValuesFacet((DocValuesFacetRequest) facetRequest);
+         return;
+      }
+      
+      if (facetRequest instanceof NumericFacetRequest) {
+         addNumericFacet((NumericFacetRequest) facetRequest);
+         return;
+      }
+      
       if (facets == null) {
          facets = new ArrayList<FacetRequest>();
       }
@@ -288,6 +329,56 @@ public class Search {
       facets.add(facetRequest);
    }
    
+   /**
+    * Adds a request to count the values of a flat facet directly from
+    * the doc values of the regular index, without consulting the
+    * taxonomy index.
+    * @param facetRequest The doc values facet request to add.
+    */
+   public void addDocValuesFacet(final DocValuesFacetRequest facetRequest) {
+      if (facetRequest == null) {
+         return;
+      }
+      
+      if (docValuesFacets == null) {
+         docValuesFacets = new ArrayList<DocValuesFacetRequest>();
+      }
+      docValuesFacets.add(facetRequest);
+   }
+   
+   /**
+    * Adds a request to count the values of a flat facet directly from
+    * the doc values of the regular index, without consulting the
+    * taxonomy index.
+    * @param field The name of the doc values field to count, such as
+    * Author or Change.
+    * @param count The maximum number of facet results to return for
+    * this facet.
+    */
+   public void addDocValuesFacet(final String field, final int count) {
+      if (field == null) {
+         return;
+      }
+      
+      addDocValuesFacet(new DocValuesFacetRequest(field, count));
+   }
+   
+   /**
+    * Adds a request for a histogram or range facet, which is computed
+    * at query time from the numeric doc values of the regular index.
+    * @param facetRequest The numeric facet request to add.
+    */
+   public void addNumericFacet(final NumericFacetRequest facetRequest) {
+      if (facetRequest == null) {
+         return;
+      }
+      
+      if (numericFacets == null) {
+         numericFacets = new ArrayList<NumericFacetRequest>();
+      }
+      numericFacets.add(facetRequest);
+   }
+   
    /**
     * Returns a Collector instance for this search that can be used with an
     * IndexSearcher to return results from the index.  If one has not already
@@ -344,7 +435,9 @@ public class Search {
     * the index.
     * @param taxonomyReader The {@link TaxonomyReader} being used to read from
     * the taxonomy index.
-    * @return
+    * @return The {@link FacetsCollector} for this search, which samples
+    * the hits if facet sampling has been enabled, or otherwise counts
+    * segments in parallel if a facet executor has been set.
     */
    public FacetsCollector getFacetsCollector(
          final DirectoryReader indexReader,
@@ -352,15 +445,321 @@ public class Search {
       if (facets != null && facetsCollector == null) {
          final FacetSearchParams facetSearchParams =
                new FacetSearchParams(facets);
-         facetsCollector =
-               FacetsCollector.create(
-                     facetSearchParams,
-                     indexReader,
-                     taxonomyReader);
+         if (facetSampling == null &&
+               facetExecutor != null &&
+               ParallelFacetsAccumulator.supports(facetSearchParams)) {
+            facetsCollector =
+                  FacetsCollector.create(
+                        new ParallelFacetsAccumulator(
+                              facetExecutor,
+                              facetSearchParams,
+                              indexReader,
+                              taxonomyReader));
+         } else if (facetSampling == null) {
+            facetsCollector =
+                  FacetsCollector.create(
+                        facetSearchParams,
+                        indexReader,
+                        taxonomyReader);
+         } else {
+            sampledFacetsAccumulator =
+                  new SampledFacetsAccumulator(
+                        facetSampling,
+                        facetSearchParams,
+                        indexReader,
+                        taxonomyReader);
+            facetsCollector = FacetsCollector.create(sampledFacetsAccumulator);
+         }
       }
       return facetsCollector;
    }
    
+   /**
+    * Returns a collector that counts the doc values facets requested for
+    * this search, or null if none have been requested.
+    * @return The {@link DocValuesFacetsCollector} for this search.
+    */
+   public DocValuesFacetsCollector getDocValuesFacetsCollector() {
+      if (docValuesFacets != null && docValuesFacetsCollector == null) {
+         docValuesFacetsCollector =
+               new DocValuesFacetsCollector(docValuesFacets);
+      }
+      return docValuesFacetsCollector;
+   }
+   
+   /**
+    * Returns a collector that computes the numeric facets requested for
+    * this search, or null if none have been requested.
+    * @return The {@link NumericFacetsCollector} for this search.
+    */
+   public NumericFacetsCollector getNumericFacetsCollector() {
+      if (numericFacets != null && numericFacetsCollector == null) {
+         numericFacetsCollector = new NumericFacetsCollector(numericFacets);
+      }
+      return numericFacetsCollector;
+   }
+   
+   /**
+    * Enables sampling of the taxonomy facets of this search when it
+    * matches a large number of documents.  This must be called before
+    * the facets collector is created.
+    * @param ffacetSampling The sampling configuration, or null to
+    * always count facets exactly.
+    */
+   public void setFacetSampling(final FacetSampling ffacetSampling) {
+      facetSampling = ffacetSampling;
+   }
+   
+   /**
+    * Gets the facet sampling configuration of this search.
+    * @return The sampling configuration, or null if facets are
+    * always counted exactly.
+    */
+   public FacetSampling getFacetSampling() {
+      return facetSampling;
+   }
+   
+   /**
+    * Enables counting of the taxonomy facets of this search on a pool
+    * of worker threads, one segment at a time.  The counts are the
+    * same as when counting on the search thread.  Sampling, when it
+    * is enabled, takes precedence.  This must be called before the
+    * facets collector is created.
+    * @param ffacetExecutor The executor on which to count facets, or
+    * null to count them on the search thread.  The caller remains
+    * responsible for shutting it down.
+    */
+   public void setFacetExecutor(final ExecutorService ffacetExecutor) {
+      facetExecutor = ffacetExecutor;
+   }
+   
+   /**
+    * Gets the executor on which the taxonomy facets of this search
+    * are counted.
+    * @return The facet executor, or null if facets are counted on
+    * the search thread.
+    */
+   public ExecutorService getFacetExecutor() {
+      return facetExecutor;
+   }
+   
+   /**
+    * Gets whether the taxonomy facet counts of this search are
+    * estimates, which is only the case once the search has run,
+    * its hits have been sampled and the sampled counts were scaled
+    * rather than re-counted exactly.
+    * @return True if the facet counts are estimated, false if they
+    * are exact.
+    */
+   public boolean isFacetCountsEstimated() {
+      return sampledFacetsAccumulator != null &&
+            sampledFacetsAccumulator.isEstimated();
+   }
+   
+   /**
+    * Gets whether any taxonomy facets have been requested for this
+    * search.
+    * @return True if taxonomy facets have been requested.
+    */
+   public boolean hasTaxonomyFacets() {
+      return facets != null && facets.isEmpty() == false;
+   }
+   
+   /**
+    * Groups the hits of this search by the value of a doc values
+    * field.  The top documents and facets of the search are still
+    * collected alongside the groups.
+    * @param ggrouping The grouping to apply, or null to leave the
+    * hits ungrouped.
+    */
+   public void setGrouping(final GroupRequest ggrouping) {
+      grouping = ggrouping;
+   }
+   
+   /**
+    * Gets the grouping that is applied to the hits of this search.
+    * @return The {@link GroupRequest} for this search, or null if the
+    * hits are not grouped.
+    */
+   public GroupRequest getGrouping() {
+      return grouping;
+   }
+   
+   /**
+    * Gets the top groups of this search, once it has been executed.
+    * @return The top groups, with the top documents of each, or null
+    * if the search has not been executed or is not grouped.  If the
+    * search timed out while finding the groups, they have no
+    * documents.
+    */
+   public TopGroups<BytesRef> getTopGroups() {
+      return topGroups;
+   }
+   
+   /**
+    * Sets the top groups of this search, once it has been executed.
+    * @param ttopGroups The top groups of the search.
+    */
+   void setTopGroups(final TopGroups<BytesRef> ttopGroups) {
+      topGroups = ttopGroups;
+   }
+   
+   /**
+    * Gets the facet results of this search, once it has been executed
+    * as part of a batch.  Searches executed on their own leave their
+    * facet results to {@link Searcher#getFacetResults()}.
+    * @return The taxonomy, doc values and numeric facet results, or
+    * null if the search has not been executed in a batch or requested
+    * no facets.
+    */
+   public List<FacetResult> getFacetResults() {
+      return facetResults;
+   }
+   
+   /**
+    * Sets the facet results of this search, once it has been executed
+    * as part of a batch.
+    * @param ffacetResults The facet results of the search.
+    */
+   void setFacetResults(final List<FacetResult> ffacetResults) {
+      facetResults = ffacetResults;
+   }
+   
+   /**
+    * Sets the deadline of this search.  Once it passes, the search
+    * stops collecting hits and keeps the top documents and facet
+    * counts of the hits collected so far.
+    * @param ttimeout The deadline of the search, in milliseconds, or
+    * zero for no deadline.
+    */
+   public void setTimeout(final long ttimeout) {
+      if (ttimeout < 0) {
+         throw new IllegalArgumentException("The search timeout cannot be negative");
+      }
+      timeout = ttimeout;
+   }
+   
+   /**
+    * Gets the deadline of this search.
+    * @return The deadline of the search, in milliseconds, or zero if
+    * it has none.
+    */
+   public long getTimeout() {
+      return timeout;
+   }
+   
+   /**
+    * Gets whether this search ran past its deadline, in which case
+    * its top documents, facets and groups are partial.
+    * @return True if the search timed out.
+    */
+   public boolean isTimedOut() {
+      return timedOut;
+   }
+   
+   /**
+    * Sets whether this search ran past its deadline.
+    * @param ttimedOut True if the search timed out.
+    */
+   void setTimedOut(final boolean ttimedOut) {
+      timedOut = ttimedOut;
+   }
+   
+   /**
+    * Restricts this search to the hits of an earlier search of the
+    * same reader.  Only those hits are matched against the query of
+    * this search, so a search may be refined step by step by querying
+    * only for each new clause.
+    * @param wwithin The result set of the earlier search, or null to
+    * search every document.
+    */
+   public void setWithin(final ResultSet wwithin) {
+      within = wwithin;
+   }
+   
+   /**
+    * Gets the result set to which this search is restricted.
+    * @return The result set of an earlier search, or null if every
+    * document is searched.
+    */
+   public ResultSet getWithin() {
+      return within;
+   }
+   
+   /**
+    * Sets whether to keep every hit of this search in a result set,
+    * which later searches may be restricted to.
+    * @param ccollectResultSet True to collect a result set.
+    */
+   public void setCollectResultSet(final boolean ccollectResultSet) {
+      collectResultSet = ccollectResultSet;
+   }
+   
+   /**
+    * Gets whether every hit of this search is kept in a result set.
+    * @return True if a result set is collected.
+    */
+   public boolean isCollectResultSet() {
+      return collectResultSet;
+   }
+   
+   /**
+    * Gets the result set of this search, once it has been executed.
+    * @return Every hit of this search, or null if the search has not
+    * been executed or does not collect a result set.
+    */
+   public ResultSet getResultSet() {
+      return resultSet;
+   }
+   
+   /**
+    * Sets the result set of this search, once it has been executed.
+    * @param rresultSet Every hit of the search.
+    */
+   void setResultSet(final ResultSet rresultSet) {
+      resultSet = rresultSet;
+   }
+   
+   /**
+    * Runs this search against a particular version of the index, such
+    * as the one that served the first page of an earlier search, so
+    * that later pages are read from the same snapshot of the index.
+    * @param vversion The version of the reader, as reported by an
+    * executed search, or a negative number to search the current
+    * reader.
+    */
+   public void setVersion(final long vversion) {
+      version = vversion;
+   }
+   
+   /**
+    * Gets the version of the index that this search runs against.
+    * Once the search has been executed, this is the version of the
+    * reader that it ran against.
+    * @return The reader version, or a negative number if the search
+    * runs against the current reader and has not yet been executed.
+    */
+   public long getVersion() {
+      return version;
+   }
+   
+   /**
+    * Gets the sort order of this search.
+    * @return The {@link Sort} for this search.
+    */
+   public Sort getSort() {
+      return sort;
+   }
+   
+   /**
+    * Gets the string from which the query of this search was parsed.
+    * @return The query string, or null if the search was created from
+    * a {@link Query}.
+    */
+   public String getQueryString() {
+      return queryString;
+   }
+   
    /**
     * Gets the primary query for this search.
     * @return The {@link Query} for this search.
@@ -18,8 +18,13 @@
  */
 package com.fuerve.villageelder.search;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.document.DateTools;
 import org.apache.lucene.queryparser.classic.CharStream;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
@@ -34,11 +39,26 @@ import org.apache.lucene.util.Version;
  * for particular fields that behave a little differently than
  * QueryParser can understand on its own.  Specifically, numeric and
  * date ranges are beyond Lucene's own QueryParser, so this thin wrapper
- * is necessary in order to implement them.
+ * is necessary in order to implement them.  Date ranges may also be
+ * relative to the current time, as described by {@link DateMath}.
  * @author lparker
  *
  */
 public class SearchQueryParser extends QueryParser {
+   private static final Set<String> FILTER_FIELDS =
+         Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+               "Author",
+               "Revision",
+               "RevisionNumber",
+               "Date",
+               "Path",
+               "Change",
+               "CopyPath",
+               "CopyRevision",
+               "CopyRevisionNumber"
+         )));
+   
+   private Long now;
 
    /**
     * Initializes a new instance of SearchQueryParser with an input stream.
@@ -68,6 +88,27 @@ public class SearchQueryParser extends QueryParser {
       super(matchVersion, f, a);
    }
    
+   /**
+    * Fixes the time against which relative dates, such as NOW-7DAYS,
+    * are evaluated.  This lets a batch of queries share one instant.
+    * @param nnow The current time, or null to use the system clock
+    * whenever a date range is composed.
+    */
+   public void setNow(final Date nnow) {
+      now = nnow == null ? null : nnow.getTime();
+   }
+   
+   /**
+    * Gets whether a field is structured, so that queries against it
+    * only ever filter hits and never need to be scored.  Every field
+    * other than the commit message is structured.
+    * @param field The name of the field.
+    * @return True if the field is structured.
+    */
+   public static boolean isFilterField(final String field) {
+      return FILTER_FIELDS.contains(field);
+   }
+   
    /**
     * Called by Lucene's {@link QueryParserBase} to compose a range query when
     * a range field is detected in the input.  This is overridden here in order
@@ -107,11 +148,15 @@ public class SearchQueryParser extends QueryParser {
             return query;
          }
       } else if ("Date".equals(field)) {
+         // Bounds may be absolute DateTools strings or relative
+         // expressions such as NOW-7DAYS/HOUR, and "*" leaves a bound
+         // open.
+         final long time = now == null ? System.currentTimeMillis() : now;
          try {
             return NumericRangeQuery.newLongRange(
                   field,
-                  DateTools.stringToTime(part1),
-                  DateTools.stringToTime(part2),
+                  part1 == null ? null : DateMath.parse(part1, time),
+                  part2 == null ? null : DateMath.parse(part2, time),
                   startInclusive,
                   endInclusive);
          } catch (java.text.ParseException e) {
@@ -120,4 +165,20 @@ public class SearchQueryParser extends QueryParser {
       }
       return query;
    }
+   
+   /**
+    * Composes the query for a single value of a field, analyzing the
+    * value just as if it had appeared in the input, but without
+    * interpreting any query syntax within it.
+    * @param field The name of the field for which the query is being composed.
+    * @param value The value to search for.
+    * @return The Lucene {@link Query} object for the value, or null if
+    * the value analyzes to nothing.
+    * @throws ParseException A fatal exception occurred while composing
+    * the query.
+    */
+   Query getValueQuery(final String field, final String value)
+         throws ParseException {
+      return getFieldQuery(field, value, false);
+   }
 }
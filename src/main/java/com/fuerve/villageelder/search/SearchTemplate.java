@@ -0,0 +1,712 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.DateTools;
+import org.apache.lucene.document.DateTools.Resolution;
+import org.apache.lucene.facet.search.CountFacetRequest;
+import org.apache.lucene.facet.search.FacetRequest;
+import org.apache.lucene.facet.taxonomy.CategoryPath;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.SortField.Type;
+
+import com.fuerve.villageelder.common.Lucene;
+
+/**
+ * A search whose query is parsed once, with named and typed
+ * placeholders for the values that change from one search to the
+ * next, such as {@code Author:${author} AND RevisionNumber:[${from:long}
+ * TO ${to:long}]}.  Binding values to the placeholders builds a new
+ * query without parsing the template again, and values are never
+ * interpreted as query syntax.  Placeholders may stand for a whole
+ * term or for either bound of a range.  Date ranges relative to the
+ * current time, such as {@code Date:[NOW-7DAYS TO NOW]}, are evaluated
+ * afresh every time the template is bound.  A template is immutable, and
+ * may be bound by any number of threads at once, since every binding
+ * composes its values with a query parser of its own.
+ * @author lparker
+ *
+ */
+public class SearchTemplate {
+   /**
+    * The types of value that a placeholder accepts.
+    */
+   public enum ParameterType {
+      /**
+       * Any character sequence, analyzed as the field requires.
+       */
+      STRING,
+      /**
+       * A whole number, such as a revision number.
+       */
+      LONG,
+      /**
+       * A {@link Date}, such as a bound of a Date range.
+       */
+      DATE
+   }
+
+   private static final Sort DEFAULT_SORT =
+         new Sort(new SortField("RevisionNumber", Type.LONG, true));
+   private static final Analyzer DEFAULT_ANALYZER = Lucene.getPerFieldAnalyzer();
+   private static final int CACHE_SIZE = 256;
+   private static final Pattern PLACEHOLDER =
+         Pattern.compile("\\$\\{([A-Za-z][A-Za-z0-9_]*)(?::([A-Za-z]+))?\\}");
+   // Placeholders are parsed as lowercase words, which every analyzer
+   // of the index leaves intact.
+   private static final String SLOT_PREFIX = "zzslot";
+   private static final String SLOT_SUFFIX = "zz";
+
+   private static final Map<String, SearchTemplate> CACHE =
+         new LinkedHashMap<String, SearchTemplate>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                  final Entry<String, SearchTemplate> eldest) {
+               return size() > CACHE_SIZE;
+            }
+         };
+
+   private final String template;
+   private final List<String> names = new ArrayList<String>();
+   private final List<ParameterType> types = new ArrayList<ParameterType>();
+   private final List<FacetRequest> facets;
+   private final Sort sort;
+   private final Analyzer analyzer;
+   private final Node root;
+
+   /**
+    * Initializes a new instance of SearchTemplate with a query template.
+    * @param ttemplate The query template, in Lucene syntax with
+    * placeholders.
+    * @throws ParseException A fatal exception occurred while parsing
+    * the template.
+    */
+   public SearchTemplate(final String ttemplate) throws ParseException {
+      this(ttemplate, null, DEFAULT_ANALYZER, DEFAULT_SORT);
+   }
+
+   /**
+    * Initializes a new instance of SearchTemplate with a query template
+    * and a set of facets (in {@link String} form with integer counts).
+    * @param ttemplate The query template, in Lucene syntax with
+    * placeholders.
+    * @param ffacets The facets for which to search.
+    * @throws ParseException A fatal exception occurred while parsing
+    * the template.
+    */
+   public SearchTemplate(
+         final String ttemplate,
+         final Map<String, Integer> ffacets) throws ParseException {
+      this(ttemplate, ffacets, DEFAULT_ANALYZER, DEFAULT_SORT);
+   }
+
+   /**
+    * Initializes a new instance of SearchTemplate with a query template,
+    * a set of facets (in {@link String} form with integer counts), an
+    * analyzer and a custom sort.
+    * @param ttemplate The query template, in Lucene syntax with
+    * placeholders.
+    * @param ffacets The facets for which to search.
+    * @param aanalyzer The analyzer with which to parse the template
+    * and analyze bound values.
+    * @param ssort The custom sort order.
+    * @throws ParseException A fatal exception occurred while parsing
+    * the template.
+    */
+   public SearchTemplate(
+         final String ttemplate,
+         final Map<String, Integer> ffacets,
+         final Analyzer aanalyzer,
+         final Sort ssort) throws ParseException {
+      if (ttemplate == null) {
+         throw new IllegalArgumentException("A search template is required");
+      }
+      if (ttemplate.contains(SLOT_PREFIX)) {
+         throw new ParseException(
+               "A search template may not contain the reserved word " + SLOT_PREFIX
+         );
+      }
+
+      template = ttemplate;
+      analyzer = aanalyzer;
+      root = compile(newTemplateParser().parse(substitute(ttemplate)));
+
+      if (ffacets == null) {
+         facets = null;
+      } else {
+         final List<FacetRequest> requests = new ArrayList<FacetRequest>(ffacets.size());
+         for (Entry<String, Integer> facet : ffacets.entrySet()) {
+            requests.add(
+                  new CountFacetRequest(
+                        new CategoryPath(facet.getKey(), '/'),
+                        facet.getValue()
+                  )
+            );
+         }
+         facets = Collections.unmodifiableList(requests);
+      }
+      sort = ssort;
+   }
+
+   /**
+    * Gets a compiled template from the cache of recently used templates,
+    * compiling it if it is not there.  Templates obtained this way use
+    * the default analyzer and sort order.
+    * @param template The query template, in Lucene syntax with
+    * placeholders.
+    * @param facets The facets for which to search, or null for none.
+    * @return The compiled template.
+    * @throws ParseException A fatal exception occurred while parsing
+    * the template.
+    */
+   public static SearchTemplate prepare(
+         final String template,
+         final Map<String, Integer> facets) throws ParseException {
+      final String key =
+            facets == null ?
+                  template :
+                  template + '\u0000' + new TreeMap<String, Integer>(facets);
+      synchronized (CACHE) {
+         final SearchTemplate cached = CACHE.get(key);
+         if (cached != null) {
+            return cached;
+         }
+      }
+
+      // Compiling outside of the lock may occasionally compile a
+      // template twice, which is harmless.
+      final SearchTemplate compiled = new SearchTemplate(template, facets);
+      synchronized (CACHE) {
+         CACHE.put(key, compiled);
+      }
+      return compiled;
+   }
+
+   /**
+    * Gets a compiled template with no facets from the cache of recently
+    * used templates, compiling it if it is not there.
+    * @param template The query template, in Lucene syntax with
+    * placeholders.
+    * @return The compiled template.
+    * @throws ParseException A fatal exception occurred while parsing
+    * the template.
+    */
+   public static SearchTemplate prepare(final String template)
+         throws ParseException {
+      return prepare(template, null);
+   }
+
+   /**
+    * Gets the query template from which this template was compiled.
+    * @return The query template.
+    */
+   public String getTemplate() {
+      return template;
+   }
+
+   /**
+    * Gets the names of the placeholders of this template.
+    * @return The names of the placeholders, in order of first
+    * appearance.
+    */
+   public List<String> getParameterNames() {
+      return Collections.unmodifiableList(names);
+   }
+
+   /**
+    * Gets the type of a placeholder of this template.
+    * @param name The name of the placeholder.
+    * @return The type of the placeholder, or null if there is no
+    * placeholder with that name.
+    */
+   public ParameterType getParameterType(final String name) {
+      final int slot = names.indexOf(name);
+      return slot < 0 ? null : types.get(slot);
+   }
+
+   /**
+    * Builds the query of this template with values bound to its
+    * placeholders, evaluating relative dates against the current time.
+    * @param values The value of every placeholder, by name.
+    * @return The bound query.
+    * @throws ParseException A fatal exception occurred while composing
+    * the query for a bound value.
+    */
+   public Query bind(final Map<String, ?> values) throws ParseException {
+      return bind(values, new Date());
+   }
+
+   /**
+    * Builds the query of this template with values bound to its
+    * placeholders, evaluating relative dates, such as NOW-7DAYS,
+    * against a given time.
+    * @param values The value of every placeholder, by name.
+    * @param now The time against which relative dates are evaluated.
+    * @return The bound query.
+    * @throws ParseException A fatal exception occurred while composing
+    * the query for a bound value.
+    */
+   public Query bind(final Map<String, ?> values, final Date now)
+         throws ParseException {
+      if (now == null) {
+         throw new IllegalArgumentException("A time is required to bind a template");
+      }
+      final SearchQueryParser parser = newParser();
+      parser.setNow(now);
+      final Query result = root.bind(parser, toSlotValues(values));
+      return result == null ? new BooleanQuery() : result;
+   }
+
+   /**
+    * Creates a search from this template with values bound to its
+    * placeholders.  The facets of the template are shared by every
+    * search created from it, and are never rebuilt.
+    * @param values The value of every placeholder, by name.
+    * @return The new {@link Search}.
+    * @throws ParseException A fatal exception occurred while composing
+    * the query for a bound value.
+    */
+   public Search newSearch(final Map<String, ?> values) throws ParseException {
+      return new Search(
+            bind(values),
+            facets == null ? null : new ArrayList<FacetRequest>(facets),
+            sort
+      );
+   }
+
+   /**
+    * Creates a query parser for this template.  The classic parser is
+    * not safe for use by more than one thread, so each parse and each
+    * binding has one of its own.
+    * @return The new parser.
+    */
+   private SearchQueryParser newParser() {
+      final SearchQueryParser result = new SearchQueryParser(
+            Lucene.LUCENE_VERSION,
+            Lucene.DEFAULT_QUERY_FIELD,
+            analyzer
+      );
+      result.setDateResolution(Resolution.HOUR);
+      return result;
+   }
+
+   /**
+    * Creates the query parser for the template itself, which leaves
+    * Date ranges that are relative to the current time as unevaluated
+    * term ranges, so that they can be compiled into nodes that evaluate
+    * them whenever the template is bound.
+    * @return The new parser.
+    */
+   private SearchQueryParser newTemplateParser() {
+      final SearchQueryParser result = new SearchQueryParser(
+            Lucene.LUCENE_VERSION,
+            Lucene.DEFAULT_QUERY_FIELD,
+            analyzer) {
+         @Override
+         public Query getRangeQuery(
+               final String field,
+               final String part1,
+               final String part2,
+               final boolean startInclusive,
+               final boolean endInclusive) throws ParseException {
+            if (isRelativeDateRange(field, part1, part2)) {
+               return TermRangeQuery.newStringRange(
+                     field,
+                     part1,
+                     part2,
+                     startInclusive,
+                     endInclusive
+               );
+            }
+            return super.getRangeQuery(field, part1, part2, startInclusive, endInclusive);
+         }
+      };
+      result.setDateResolution(Resolution.HOUR);
+      return result;
+   }
+
+   /**
+    * Gets whether a range is a Date range with a bound that is relative
+    * to the current time.
+    * @param field The name of the field of the range.
+    * @param lower The lower bound, or null if it is open.
+    * @param upper The upper bound, or null if it is open.
+    * @return True if the range must be evaluated whenever it is bound.
+    */
+   private static boolean isRelativeDateRange(
+         final String field,
+         final String lower,
+         final String upper) {
+      return "Date".equals(field) &&
+            (DateMath.isRelative(lower) || DateMath.isRelative(upper));
+   }
+
+   /**
+    * Converts the bound values of the placeholders into the strings
+    * that would have appeared in the template in their place.
+    * @param values The value of every placeholder, by name.
+    * @return The value of every placeholder, by slot.
+    */
+   private String[] toSlotValues(final Map<String, ?> values) {
+      if (values == null) {
+         throw new IllegalArgumentException("Values are required to bind a template");
+      }
+      for (String name : values.keySet()) {
+         if (names.contains(name) == false) {
+            throw new IllegalArgumentException(
+                  "The template has no placeholder named " + name
+            );
+         }
+      }
+
+      final String[] result = new String[names.size()];
+      for (int i = 0; i < result.length; i++) {
+         final Object value = values.get(names.get(i));
+         if (value == null) {
+            throw new IllegalArgumentException(
+                  "No value was bound to the placeholder " + names.get(i)
+            );
+         }
+
+         switch (types.get(i)) {
+         case LONG:
+            if (value instanceof Number == false) {
+               throw new IllegalArgumentException(
+                     "The placeholder " + names.get(i) + " requires a number"
+               );
+            }
+            result[i] = Long.toString(((Number) value).longValue());
+            break;
+         case DATE:
+            if (value instanceof Date == false) {
+               throw new IllegalArgumentException(
+                     "The placeholder " + names.get(i) + " requires a date"
+               );
+            }
+            result[i] = DateTools.dateToString((Date) value, Resolution.MILLISECOND);
+            break;
+         default:
+            if (value instanceof CharSequence == false) {
+               throw new IllegalArgumentException(
+                     "The placeholder " + names.get(i) + " requires a string"
+               );
+            }
+            result[i] = value.toString();
+            break;
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Replaces every placeholder of a template with the word that stands
+    * for its slot, recording the name and type of each placeholder.
+    * @param ttemplate The query template.
+    * @return The template with words in place of its placeholders.
+    * @throws ParseException A placeholder has an unknown type, or its
+    * type conflicts with another placeholder of the same name.
+    */
+   private String substitute(final String ttemplate) throws ParseException {
+      final Matcher matcher = PLACEHOLDER.matcher(ttemplate);
+      final StringBuffer result = new StringBuffer();
+      while (matcher.find()) {
+         final String name = matcher.group(1);
+         final ParameterType type;
+         try {
+            type =
+                  matcher.group(2) == null ?
+                        ParameterType.STRING :
+                        ParameterType.valueOf(matcher.group(2).toUpperCase());
+         } catch (IllegalArgumentException e) {
+            throw new ParseException(
+                  "Unknown type " + matcher.group(2) + " for placeholder " + name
+            );
+         }
+
+         int slot = names.indexOf(name);
+         if (slot < 0) {
+            slot = names.size();
+            names.add(name);
+            types.add(type);
+         } else if (types.get(slot) != type) {
+            throw new ParseException(
+                  "The placeholder " + name + " is used with more than one type"
+            );
+         }
+         matcher.appendReplacement(result, slotWord(slot));
+      }
+      matcher.appendTail(result);
+      return result.toString();
+   }
+
+   /**
+    * Gets the word that stands for a slot within a parsed template.
+    * @param slot The index of the slot.
+    * @return The lowercase word for the slot.
+    */
+   private static String slotWord(final int slot) {
+      final StringBuilder result = new StringBuilder(SLOT_PREFIX);
+      int remaining = slot;
+      do {
+         result.append((char) ('a' + remaining % 26));
+         remaining /= 26;
+      } while (remaining > 0);
+      return result.append(SLOT_SUFFIX).toString();
+   }
+
+   /**
+    * Gets the slot for which a word stands.
+    * @param word A word from a parsed template.
+    * @return The index of the slot, or -1 if the word does not stand
+    * for a slot.
+    */
+   private int slotOf(final String word) {
+      if (word == null) {
+         return -1;
+      }
+      for (int i = 0; i < names.size(); i++) {
+         if (slotWord(i).equals(word)) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Compiles a parsed template into a tree that can be bound quickly.
+    * @param query The parsed template.
+    * @return The root of the compiled tree.
+    * @throws ParseException A placeholder appears somewhere other than
+    * a whole term or a range bound.
+    */
+   private Node compile(final Query query) throws ParseException {
+      if (query instanceof BooleanQuery) {
+         final BooleanQuery booleanQuery = (BooleanQuery) query;
+         final List<Node> children = new ArrayList<Node>();
+         final List<BooleanClause.Occur> occurs = new ArrayList<BooleanClause.Occur>();
+         boolean bound = false;
+         for (BooleanClause clause : booleanQuery.clauses()) {
+            final Node child = compile(clause.getQuery());
+            bound |= child instanceof ConstantNode == false;
+            children.add(child);
+            occurs.add(clause.getOccur());
+         }
+         if (bound) {
+            return new BooleanNode(booleanQuery, children, occurs);
+         }
+      } else if (query instanceof TermQuery) {
+         final int slot = slotOf(((TermQuery) query).getTerm().text());
+         if (slot >= 0) {
+            return new TermNode(((TermQuery) query).getTerm().field(), slot, query.getBoost());
+         }
+      } else if (query instanceof TermRangeQuery) {
+         final TermRangeQuery range = (TermRangeQuery) query;
+         final String lower = range.getLowerTerm() == null ? null : range.getLowerTerm().utf8ToString();
+         final String upper = range.getUpperTerm() == null ? null : range.getUpperTerm().utf8ToString();
+         if (slotOf(lower) >= 0 || slotOf(upper) >= 0 ||
+               isRelativeDateRange(range.getField(), lower, upper)) {
+            return new RangeNode(
+                  range.getField(),
+                  lower,
+                  slotOf(lower),
+                  upper,
+                  slotOf(upper),
+                  range.includesLower(),
+                  range.includesUpper(),
+                  query.getBoost()
+            );
+         }
+      }
+
+      if (query.toString().contains(SLOT_PREFIX)) {
+         throw new ParseException(
+               "Placeholders may only stand for whole terms or range bounds: " + template
+         );
+      }
+      return new ConstantNode(query);
+   }
+
+   /**
+    * A node of a compiled template.
+    */
+   private abstract static class Node {
+      /**
+       * Builds the query for this node.
+       * @param parser The parser with which to compose queries for
+       * bound values.
+       * @param values The value of every slot.
+       * @return The query, or null if it matches nothing.
+       * @throws ParseException A fatal exception occurred while
+       * composing the query for a bound value.
+       */
+      abstract Query bind(SearchQueryParser parser, String[] values)
+            throws ParseException;
+   }
+
+   /**
+    * A part of a template with no placeholders, of which every bound
+    * query gets a copy of its own.
+    */
+   private static final class ConstantNode extends Node {
+      private final Query query;
+
+      ConstantNode(final Query qquery) {
+         query = qquery;
+      }
+
+      @Override
+      Query bind(final SearchQueryParser parser, final String[] values) {
+         return query.clone();
+      }
+   }
+
+   /**
+    * A boolean query with placeholders among its clauses.
+    */
+   private static final class BooleanNode extends Node {
+      private final boolean disableCoord;
+      private final int minimumShouldMatch;
+      private final float boost;
+      private final Node[] children;
+      private final BooleanClause.Occur[] occurs;
+
+      BooleanNode(
+            final BooleanQuery query,
+            final List<Node> cchildren,
+            final List<BooleanClause.Occur> ooccurs) {
+         disableCoord = query.isCoordDisabled();
+         minimumShouldMatch = query.getMinimumNumberShouldMatch();
+         boost = query.getBoost();
+         children = cchildren.toArray(new Node[cchildren.size()]);
+         occurs = ooccurs.toArray(new BooleanClause.Occur[ooccurs.size()]);
+      }
+
+      @Override
+      Query bind(final SearchQueryParser parser, final String[] values)
+            throws ParseException {
+         final BooleanQuery result = new BooleanQuery(disableCoord);
+         for (int i = 0; i < children.length; i++) {
+            final Query child = children[i].bind(parser, values);
+            if (child != null) {
+               result.add(child, occurs[i]);
+            }
+         }
+         if (result.clauses().isEmpty()) {
+            return null;
+         }
+         result.setMinimumNumberShouldMatch(minimumShouldMatch);
+         result.setBoost(boost);
+         return result;
+      }
+   }
+
+   /**
+    * A placeholder that stands for a whole term.
+    */
+   private static final class TermNode extends Node {
+      private final String field;
+      private final int slot;
+      private final float boost;
+
+      TermNode(final String ffield, final int sslot, final float bboost) {
+         field = ffield;
+         slot = sslot;
+         boost = bboost;
+      }
+
+      @Override
+      Query bind(final SearchQueryParser parser, final String[] values)
+            throws ParseException {
+         final Query result = parser.getValueQuery(field, values[slot]);
+         if (result != null) {
+            result.setBoost(boost);
+         }
+         return result;
+      }
+   }
+
+   /**
+    * A range with a placeholder for one or both of its bounds, or a
+    * Date range relative to the current time.
+    */
+   private static final class RangeNode extends Node {
+      private final String field;
+      private final String lower;
+      private final int lowerSlot;
+      private final String upper;
+      private final int upperSlot;
+      private final boolean includesLower;
+      private final boolean includesUpper;
+      private final float boost;
+
+      RangeNode(
+            final String ffield,
+            final String llower,
+            final int llowerSlot,
+            final String uupper,
+            final int uupperSlot,
+            final boolean iincludesLower,
+            final boolean iincludesUpper,
+            final float bboost) {
+         field = ffield;
+         lower = llower;
+         lowerSlot = llowerSlot;
+         upper = uupper;
+         upperSlot = uupperSlot;
+         includesLower = iincludesLower;
+         includesUpper = iincludesUpper;
+         boost = bboost;
+      }
+
+      @Override
+      Query bind(final SearchQueryParser parser, final String[] values)
+            throws ParseException {
+         final Query result = parser.getRangeQuery(
+               field,
+               lowerSlot < 0 ? lower : values[lowerSlot],
+               upperSlot < 0 ? upper : values[upperSlot],
+               includesLower,
+               includesUpper
+         );
+         result.setBoost(boost);
+         return result;
+      }
+   }
+}
@@ -18,27 +18,57 @@
  */
 package com.fuerve.villageelder.search;
 
-import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.codecs.BlockTreeTermsReader;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.search.FacetRequest;
+import org.apache.lucene.facet.search.FacetResult;
 import org.apache.lucene.facet.search.FacetsCollector;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.CachingCollector;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilteredQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.grouping.GroupDocs;
+import org.apache.lucene.search.grouping.SearchGroup;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.search.grouping.term.TermAllGroupsCollector;
+import org.apache.lucene.search.grouping.term.TermFirstPassGroupingCollector;
+import org.apache.lucene.search.grouping.term.TermSecondPassGroupingCollector;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+import com.fuerve.villageelder.common.DirectoryFactory;
 
 /**
  * This class provides an interface for regular and faceted search
@@ -49,8 +79,13 @@ import org.apache.lucene.store.FSDirectory;
  *
  */
 public class Searcher {
+   private static final int DEFAULT_DOCUMENT_BATCH = 64;
+   private static final int BATCH_FILTERS_PER_SEARCH = 8;
+   
    private Directory indexDirectory;
    private Directory taxonomyDirectory;
+   private IndexWriter indexWriter;
+   private DirectoryTaxonomyWriter taxonomyWriter;
    private String indexDirectoryName;
    private String taxonomyDirectoryName;
    private boolean stringDirectories;
@@ -60,14 +95,56 @@ public class Searcher {
    private TaxonomyReader taxonomyReader;
    
    private Search search;
+   private FacetSampling facetSampling;
+   private ExecutorService facetExecutor;
+   private long timeout;
+   private Counter clock = TimeLimitingCollector.getGlobalCounter();
+   private QueryCostEstimator costEstimator;
+   private AdmissionController admissionController;
+   private FilterCache filterCache;
+   private DocumentCache documentCache;
+   private SearcherWarmer warmer;
+   private QueryLog queryLog;
+   private DirectoryFactory directoryFactory = new DirectoryFactory();
+   private boolean lowMemory;
+   private SearcherLeases leases;
+   private IndexSearcher activeSearcher;
+   private boolean activeLeased;
    
    private boolean initialized;
    
+   /**
+    * Initializes a new instance of Searcher with a preconstructed regular index
+    * Directory and no taxonomy.  Only doc values facets may be requested from
+    * searches created by this Searcher.
+    * @param iindexDirectory The Directory in which the primary Lucene index exists.
+    */
+   public Searcher(final Directory iindexDirectory) {
+      this(iindexDirectory, null);
+   }
+   
+   /**
+    * Initializes a new instance of Searcher with a String pathname to the
+    * directory in which the regular index exists, and no taxonomy.  Only doc
+    * values facets may be requested from searches created by this Searcher.
+    * @param iindexDirectory The pathname of the directory in which the primary
+    * Lucene index exists.
+    */
+   public Searcher(final String iindexDirectory) {
+      if (iindexDirectory == null) {
+         throw new IllegalArgumentException("The index directory was unspecified");
+      }
+      
+      stringDirectories = true;
+      indexDirectoryName = iindexDirectory;
+   }
+   
    /**
     * Initializes a new instance of Searcher with a preconstructed regular index
     * Directory and taxonomy Directory.
     * @param iindexDirectory The Directory in which the primary Lucene index exists.
-    * @param ttaxonomyDirectory The Directory in which the taxonomy index exists.
+    * @param ttaxonomyDirectory The Directory in which the taxonomy index exists,
+    * or null if there is no taxonomy.
     */
    public Searcher(final Directory iindexDirectory, final Directory ttaxonomyDirectory) {
       indexDirectory = iindexDirectory;
@@ -92,6 +169,54 @@ public class Searcher {
       taxonomyDirectoryName = ttaxonomyDirectory;
    }
    
+   /**
+    * Initializes a new instance of Searcher that searches the writers
+    * of an index as it is being written.  Its readers are opened from
+    * the writers, so {@link #refresh()} makes revisions searchable as
+    * soon as they are indexed, before they are committed.
+    * @param iindexWriter The writer of the regular index.
+    * @param ttaxonomyWriter The writer of the taxonomy index, or null
+    * if there is no taxonomy.
+    */
+   public Searcher(final IndexWriter iindexWriter, final TaxonomyWriter ttaxonomyWriter) {
+      if (iindexWriter == null) {
+         throw new IllegalArgumentException("The index writer was unspecified");
+      }
+      if (ttaxonomyWriter != null && ttaxonomyWriter instanceof DirectoryTaxonomyWriter == false) {
+         throw new IllegalArgumentException(
+               "Only a directory taxonomy writer can be searched in near-real-time"
+         );
+      }
+      indexWriter = iindexWriter;
+      taxonomyWriter = (DirectoryTaxonomyWriter) ttaxonomyWriter;
+   }
+   
+   /**
+    * Initializes a new instance of Searcher that runs one search of a
+    * batch on behalf of another Searcher.  It shares the readers and
+    * settings of that Searcher, but keeps a current search of its own
+    * so that the searches of a batch may run concurrently.  It must
+    * never be disposed, since it does not own its readers.
+    * @param parent The Searcher that runs the batch.
+    * @param ffilterCache The filter cache shared by the whole batch.
+    */
+   private Searcher(final Searcher parent, final FilterCache ffilterCache) {
+      indexReader = parent.indexReader;
+      indexSearcher = parent.indexSearcher;
+      taxonomyReader = parent.taxonomyReader;
+      facetSampling = parent.facetSampling;
+      facetExecutor = parent.facetExecutor;
+      timeout = parent.timeout;
+      clock = parent.clock;
+      costEstimator = parent.costEstimator;
+      filterCache = ffilterCache;
+      documentCache = parent.documentCache;
+      queryLog = parent.queryLog;
+      lowMemory = parent.lowMemory;
+      leases = parent.leases;
+      initialized = true;
+   }
+   
    /**
     * Performs initialization of the Lucene regular and taxonomy
     * indices by opening the directories and initializing
@@ -121,8 +246,10 @@ public class Searcher {
    private void initializeDirectories() throws IOException {
       if (stringDirectories == true) {
          indexDirectory = initializeDirectoryFromString(indexDirectoryName);
-         taxonomyDirectory =
-               initializeDirectoryFromString(taxonomyDirectoryName);
+         if (taxonomyDirectoryName != null) {
+            taxonomyDirectory =
+                  initializeDirectoryFromString(taxonomyDirectoryName);
+         }
       }
    }
    
@@ -140,25 +267,126 @@ public class Searcher {
                "An empty pathname was specified for the index directory"
          );
       } else {
-         return FSDirectory.open(new File(path));
+         return directoryFactory.open(path);
       }
    }
    
    /**
     * Initializes an index searcher and taxonomy reader for
-    * search operations.
+    * search operations.  The index searcher skips any segment
+    * whose revision numbers and dates fall outside of the ranges
+    * that a query requires.  No taxonomy reader is opened when
+    * there is no taxonomy directory.
     * @throws IOException A fatal exception occurred when trying
     * to interact with the indices or their directories.
     */
    private void initializeSearcher() throws IOException {
-      if (indexDirectory == null || taxonomyDirectory == null) {
+      if (indexDirectory == null && indexWriter == null) {
          throw new IllegalArgumentException(
                "Tried to open a searcher on null directories."
          );
       }
-      indexReader = DirectoryReader.open(indexDirectory);
-      indexSearcher = new IndexSearcher(indexReader);
-      taxonomyReader = new DirectoryTaxonomyReader(taxonomyDirectory);
+      final DirectoryReader reader =
+            indexWriter != null ?
+                  DirectoryReader.open(indexWriter, true) :
+                  DirectoryReader.open(indexDirectory);
+      final IndexSearcher searcher = new SegmentSkippingIndexSearcher(reader);
+      try {
+         warm(searcher);
+      } catch (IOException e) {
+         reader.close();
+         throw e;
+      } catch (RuntimeException e) {
+         reader.close();
+         throw e;
+      }
+      
+      indexReader = reader;
+      indexSearcher = searcher;
+      if (leases != null) {
+         leases.record(searcher);
+      }
+      if (taxonomyWriter != null) {
+         taxonomyReader = new DirectoryTaxonomyReader(taxonomyWriter);
+      } else if (taxonomyDirectory != null) {
+         taxonomyReader = new DirectoryTaxonomyReader(taxonomyDirectory);
+      }
+   }
+   
+   /**
+    * Reopens the indices if they have changed since they were last
+    * opened.  The new reader is warmed before it replaces the old one,
+    * so searches never run against a cold reader.  Result sets of
+    * searches of the old reader cannot filter searches of the new one.
+    * If this Searcher keeps leases, the old reader stays open for the
+    * searches that ask for its version until its lease expires.
+    * @return True if either index had changed and was reopened.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index directories.
+    */
+   public boolean refresh() throws IOException {
+      if (initialized == false) {
+         throw new IllegalStateException("Tried to refresh an uninitialized searcher.");
+      }
+      
+      final DirectoryReader newReader = DirectoryReader.openIfChanged(indexReader);
+      IndexSearcher newSearcher = indexSearcher;
+      if (newReader != null) {
+         newSearcher = new SegmentSkippingIndexSearcher(newReader);
+         try {
+            warm(newSearcher);
+         } catch (IOException e) {
+            newReader.close();
+            throw e;
+         } catch (RuntimeException e) {
+            newReader.close();
+            throw e;
+         }
+      }
+      
+      // The taxonomy is reopened after the index, so that it knows of
+      // every category that the new reader refers to.
+      TaxonomyReader newTaxonomyReader = null;
+      if (taxonomyReader != null) {
+         try {
+            newTaxonomyReader = TaxonomyReader.openIfChanged(taxonomyReader);
+         } catch (IOException e) {
+            if (newReader != null) {
+               newReader.close();
+            }
+            throw e;
+         }
+      }
+      
+      if (newReader != null) {
+         final DirectoryReader oldReader = indexReader;
+         indexReader = newReader;
+         indexSearcher = newSearcher;
+         if (leases != null) {
+            // The leases hold a reference of their own to the old
+            // reader, which keeps it open until it is evicted.
+            leases.record(newSearcher);
+         }
+         oldReader.close();
+      }
+      if (newTaxonomyReader != null) {
+         final TaxonomyReader oldTaxonomyReader = taxonomyReader;
+         taxonomyReader = newTaxonomyReader;
+         oldTaxonomyReader.close();
+      }
+      return newReader != null || newTaxonomyReader != null;
+   }
+   
+   /**
+    * Warms a freshly opened searcher, if a warmer has been set.
+    * @param searcher The searcher of the new reader.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index.
+    */
+   private void warm(final IndexSearcher searcher) throws IOException {
+      if (warmer != null) {
+         warmer.warm(searcher);
+      }
    }
    
    /**
@@ -325,7 +553,23 @@ public class Searcher {
       search = new Search(query, facets, analyzer, sort);
       return search;
    }
-   
+
+   /**
+    * Initializes a new instance of Search from a prepared template,
+    * binding values to its placeholders without parsing it again.
+    * @param template The prepared search template.
+    * @param values The value of every placeholder, by name.
+    * @throws ParseException A fatal exception occurred while
+    * composing the query for a bound value.
+    */
+   public Search createSearch(
+         final SearchTemplate template,
+         final Map<String, ?> values)
+      throws ParseException {
+      search = template.newSearch(values);
+      return search;
+   }
+
    /**
     * Gets this Searcher's {@link Search} object.  This will be null
     * if the search hasn't been initialized using one of the
@@ -381,7 +625,326 @@ public class Searcher {
       if (search == null) {
          return null;
       } else {
-         return search.getFacetsCollector(indexReader, taxonomyReader);
+         if (taxonomyReader == null && search.hasTaxonomyFacets()) {
+            throw new IllegalArgumentException(
+                  "Taxonomy facets were requested from a searcher with no taxonomy"
+            );
+         }
+         if (search.getFacetSampling() == null) {
+            search.setFacetSampling(facetSampling);
+         }
+         if (search.getFacetExecutor() == null) {
+            search.setFacetExecutor(facetExecutor);
+         }
+         return search.getFacetsCollector(getActiveReader(), taxonomyReader);
+      }
+   }
+   
+   /**
+    * Gets a DocValuesFacetsCollector instance for the current search.
+    * @return The {@link DocValuesFacetsCollector} containing the
+    * requested doc values facets for this search.
+    */
+   public DocValuesFacetsCollector getDocValuesFacetsCollector() {
+      if (search == null) {
+         return null;
+      } else {
+         return search.getDocValuesFacetsCollector();
+      }
+   }
+   
+   /**
+    * Gets a NumericFacetsCollector instance for the current search.
+    * @return The {@link NumericFacetsCollector} containing the
+    * requested histogram and range facets for this search.
+    */
+   public NumericFacetsCollector getNumericFacetsCollector() {
+      if (search == null) {
+         return null;
+      } else {
+         return search.getNumericFacetsCollector();
+      }
+   }
+   
+   /**
+    * Gets the results of the taxonomy, doc values and numeric facets
+    * of the current search, once it has been executed.
+    * @return The list of facet results, taxonomy facets first, or
+    * null if no facets were requested.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the taxonomy index.
+    */
+   public List<FacetResult> getFacetResults() throws IOException {
+      final FacetsCollector facetsCollector = getFacetsCollector();
+      final DocValuesFacetsCollector docValuesFacetsCollector =
+            getDocValuesFacetsCollector();
+      final NumericFacetsCollector numericFacetsCollector =
+            getNumericFacetsCollector();
+      if (facetsCollector == null &&
+            docValuesFacetsCollector == null &&
+            numericFacetsCollector == null) {
+         return null;
+      }
+      
+      final List<FacetResult> result = new ArrayList<FacetResult>();
+      if (facetsCollector != null) {
+         result.addAll(facetsCollector.getFacetResults());
+      }
+      if (docValuesFacetsCollector != null) {
+         result.addAll(docValuesFacetsCollector.getFacetResults());
+      }
+      if (numericFacetsCollector != null) {
+         result.addAll(numericFacetsCollector.getFacetResults());
+      }
+      return result;
+   }
+   
+   /**
+    * Sets the default facet sampling configuration for searches
+    * created by this Searcher.  A search whose own sampling has been
+    * set keeps it.
+    * @param ffacetSampling The sampling configuration, or null to
+    * always count facets exactly.
+    */
+   public void setFacetSampling(final FacetSampling ffacetSampling) {
+      facetSampling = ffacetSampling;
+   }
+   
+   /**
+    * Sets the default executor on which the taxonomy facets of
+    * searches created by this Searcher are counted.  A search whose
+    * own executor has been set keeps it.
+    * @param ffacetExecutor The executor on which to count facets, or
+    * null to count them on the search thread.  The caller remains
+    * responsible for shutting it down.
+    */
+   public void setFacetExecutor(final ExecutorService ffacetExecutor) {
+      facetExecutor = ffacetExecutor;
+   }
+   
+   /**
+    * Gets whether the facet counts of the current search are
+    * estimated from a sample of its hits rather than exact.
+    * @return True if the facet counts are estimated.
+    */
+   public boolean isFacetCountsEstimated() {
+      return search != null && search.isFacetCountsEstimated();
+   }
+   
+   /**
+    * Sets the default deadline for searches created by this Searcher.
+    * A search that runs past its deadline stops collecting hits, and
+    * keeps the top documents and facet counts of the hits collected
+    * so far.  A search whose own deadline has been set keeps it.  The
+    * deadline bounds the collection of hits, not the rewriting of the
+    * query that precedes it.
+    * @param ttimeout The deadline of each search, in milliseconds, or
+    * zero for no deadline.
+    */
+   public void setTimeout(final long ttimeout) {
+      if (ttimeout < 0) {
+         throw new IllegalArgumentException("The search timeout cannot be negative");
+      }
+      timeout = ttimeout;
+   }
+   
+   /**
+    * Sets the clock against which the deadlines of searches are
+    * measured.
+    * @param cclock A clock that counts milliseconds.
+    */
+   void setClock(final Counter cclock) {
+      clock = cclock;
+   }
+   
+   /**
+    * Sets the estimator that refuses searches whose queries are too
+    * expensive to run.
+    * @param ccostEstimator The query cost estimator, or null to run
+    * every query.
+    */
+   public void setCostEstimator(final QueryCostEstimator ccostEstimator) {
+      costEstimator = ccostEstimator;
+   }
+   
+   /**
+    * Sets the controller that bounds the number of searches that run
+    * at once.  To bound every search of an index, the same controller
+    * must be shared by each of its Searchers.
+    * @param aadmissionController The admission controller, or null to
+    * run searches as soon as they are requested.
+    */
+   public void setAdmissionController(
+         final AdmissionController aadmissionController) {
+      admissionController = aadmissionController;
+   }
+   
+   /**
+    * Sets the cache of the structured filters of queries.  When set,
+    * the structured clauses of every query, such as Author, Path or
+    * RevisionNumber, are evaluated as cached constant-score filters
+    * rather than scored.  To share cached filters between Searchers
+    * of the same index, the same cache must be set on each.
+    * @param ffilterCache The filter cache, or null to score every
+    * clause of every query.
+    */
+   public void setFilterCache(final FilterCache ffilterCache) {
+      filterCache = ffilterCache;
+   }
+   
+   /**
+    * Sets the cache of recently viewed documents.  When set, the stored
+    * fields of documents are read through the cache, so that showing a
+    * popular revision again reads neither the disk nor decompresses its
+    * stored fields.  To share cached documents between Searchers of the
+    * same index, the same cache must be set on each.
+    * @param ddocumentCache The document cache, or null to always read
+    * documents from the index.
+    */
+   public void setDocumentCache(final DocumentCache ddocumentCache) {
+      documentCache = ddocumentCache;
+   }
+   
+   /**
+    * Sets the warmer that prepares every reader that this Searcher
+    * opens before searches may use it.  The warmer must be set before
+    * the Searcher is initialized to warm its first reader.
+    * @param wwarmer The warmer, or null to search cold readers.
+    */
+   public void setWarmer(final SearcherWarmer wwarmer) {
+      warmer = wwarmer;
+   }
+   
+   /**
+    * Sets the log in which the query strings of the searches executed
+    * by this Searcher are recorded, so that they may be replayed to
+    * warm later readers.
+    * @param qqueryLog The query log, or null to record no queries.
+    */
+   public void setQueryLog(final QueryLog qqueryLog) {
+      queryLog = qqueryLog;
+   }
+   
+   /**
+    * Sets the factory with which this Searcher opens the index and
+    * taxonomy directories when it was given their pathnames.  The
+    * factory must be set before the Searcher is initialized.
+    * @param ddirectoryFactory The directory factory.
+    */
+   public void setDirectoryFactory(final DirectoryFactory ddirectoryFactory) {
+      if (ddirectoryFactory == null) {
+         throw new IllegalArgumentException("A searcher requires a directory factory");
+      }
+      directoryFactory = ddirectoryFactory;
+   }
+   
+   /**
+    * Sets the leases through which this Searcher keeps replaced readers
+    * open, so that searches may ask for the version of the index that
+    * served an earlier page.  The leases are closed when this Searcher
+    * is disposed.
+    * @param lleases The leases, or null to only search the current
+    * reader.
+    * @throws IOException A fatal exception occurred while evicting the
+    * readers of the previous leases.
+    */
+   public void setLeases(final SearcherLeases lleases) throws IOException {
+      if (initialized == true && lleases != null) {
+         lleases.record(indexSearcher);
+      }
+      leases = lleases;
+   }
+   
+   /**
+    * Sets whether this Searcher runs with as little heap as it can.  A
+    * low-memory Searcher never caches hits in memory to group them in a
+    * single pass, running the query a second time instead.  The terms
+    * index, which is usually the largest consumer of heap, is made
+    * smaller by writing the index for low-memory searchers; see
+    * {@link com.fuerve.villageelder.indexing.Indexer#setLowMemory(boolean)}.
+    * @param llowMemory True to search in low-memory mode.
+    */
+   public void setLowMemory(final boolean llowMemory) {
+      lowMemory = llowMemory;
+   }
+   
+   /**
+    * Gets whether this Searcher runs with as little heap as it can.
+    * @return True if this Searcher is in low-memory mode.
+    */
+   public boolean isLowMemory() {
+      return lowMemory;
+   }
+   
+   /**
+    * Estimates the heap held by the terms index of each field of the
+    * open index, summed over its segments.  This walks every block of
+    * every terms dictionary, so it is meant for diagnostics rather
+    * than for use alongside searches.
+    * @return The estimated number of bytes of terms index per field, in
+    * the order of the field names.
+    * @throws IOException A fatal exception occurred while reading the
+    * terms dictionaries.
+    */
+   public SortedMap<String, Long> getHeapUsage() throws IOException {
+      if (initialized == false) {
+         throw new IllegalStateException("The searcher has not been initialized");
+      }
+      final DirectoryReader reader = indexReader;
+      final SortedMap<String, Long> result = new TreeMap<String, Long>();
+      for (AtomicReaderContext leaf : reader.leaves()) {
+         final Fields fields = leaf.reader().fields();
+         if (fields == null) {
+            continue;
+         }
+         for (String field : fields) {
+            final Terms terms = fields.terms(field);
+            if (terms instanceof BlockTreeTermsReader.FieldReader) {
+               final long bytes =
+                     ((BlockTreeTermsReader.FieldReader) terms).computeStats().indexNumBytes;
+               final Long total = result.get(field);
+               result.put(field, total == null ? bytes : total + bytes);
+            }
+         }
+      }
+      return result;
+   }
+   
+   /**
+    * Gets whether the current search ran past its deadline, in which
+    * case its results are partial.
+    * @return True if the current search timed out.
+    */
+   public boolean isTimedOut() {
+      return search != null && search.isTimedOut();
+   }
+   
+   /**
+    * Gets the result set of the current search, once it has been
+    * executed.
+    * @return Every hit of the current search, or null if it does not
+    * collect a result set.
+    */
+   public ResultSet getResultSet() {
+      if (search == null) {
+         return null;
+      } else {
+         return search.getResultSet();
+      }
+   }
+   
+   /**
+    * Gets the top groups of the current search, once it has been
+    * executed.
+    * @return The top groups, with the top documents of each, or null
+    * if the current search is not grouped.  If the search timed out
+    * while finding the groups, they have no documents.
+    */
+   public TopGroups<BytesRef> getTopGroups() {
+      if (search == null) {
+         return null;
+      } else {
+         return search.getTopGroups();
       }
    }
    
@@ -394,7 +957,19 @@ public class Searcher {
     */
    public void search(final Collector results) throws IOException {
       if (search != null) {
-         indexSearcher.search(search.getQuery(), results);
+         acquireSearcher();
+         admit();
+         try {
+            applyDefaultTimeout();
+            final ResultSetCollector resultSetCollector =
+                  search.isCollectResultSet() ?
+                        new ResultSetCollector(getActiveReader()) : null;
+            collect(MultiCollector.wrap(results, resultSetCollector), clock.get());
+            setResultSet(resultSetCollector);
+         } finally {
+            release();
+         }
+         search.setVersion(getActiveReader().getVersion());
       }
    }
    
@@ -408,12 +983,7 @@ public class Searcher {
     */
    public void search() throws IOException {
       if (search != null) {
-         final Collector collector = search.getCollector();
-         final FacetsCollector facetsCollector = search.getFacetsCollector(indexReader, taxonomyReader);
-         indexSearcher.search(
-               search.getQuery(),
-               MultiCollector.wrap(collector, facetsCollector)
-         );
+         execute(search.getCollector());
       }
    }
    
@@ -429,13 +999,442 @@ public class Searcher {
     */
    public void search(final int count) throws IOException {
       if (search != null) {
-         Collector collector = search.getCollector(count);
-         FacetsCollector facetsCollector = search.getFacetsCollector(indexReader, taxonomyReader);
-         indexSearcher.search(
-               search.getQuery(),
-               MultiCollector.wrap(collector, facetsCollector)
+         execute(search.getCollector(count));
+      }
+   }
+   
+   /**
+    * Executes a batch of related searches, such as the counts and
+    * facets of a dashboard, against a single snapshot of the index.
+    * The structured clauses that the searches have in common, such as
+    * the same author or date range, are evaluated once per segment and
+    * shared between them, through the filter cache of this Searcher or,
+    * if it has none, a cache that lasts as long as the batch.  The
+    * batch is admitted as a single search, and its searches run
+    * concurrently on the given executor.  Once the batch is done, the
+    * top documents, facet results and groups of each search are held
+    * by the search itself, and the last search of the batch becomes
+    * the current search of this Searcher, so that the documents of
+    * every search may be read from the same snapshot.
+    * @param searches The searches to execute, which must not ask for
+    * different versions of the index.
+    * @param executor The executor on which to run the searches, or
+    * null to run them one after the other on the calling thread.  The
+    * caller remains responsible for shutting it down.
+    * @throws SearcherExpiredException The version that the searches
+    * ask for is no longer retained.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index.
+    */
+   public void search(final List<Search> searches, final ExecutorService executor)
+         throws IOException {
+      if (initialized == false) {
+         throw new IllegalStateException("The searcher has not been initialized");
+      }
+      if (searches == null || searches.isEmpty()) {
+         throw new IllegalArgumentException("A batch requires at least one search");
+      }
+      
+      long version = -1L;
+      for (Search batched : searches) {
+         if (batched.getVersion() >= 0 && version >= 0 && batched.getVersion() != version) {
+            throw new IllegalArgumentException(
+                  "The searches of a batch must all ask for the same version of the index"
+            );
+         }
+         version = Math.max(version, batched.getVersion());
+      }
+      if (version < 0) {
+         version = indexReader.getVersion();
+      }
+      for (Search batched : searches) {
+         batched.setVersion(version);
+      }
+      
+      final FilterCache batchFilterCache =
+            filterCache != null ?
+                  filterCache :
+                  new FilterCache(
+                        searches.size() * indexReader.leaves().size() * BATCH_FILTERS_PER_SEARCH + 1,
+                        false
+                  );
+      final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(searches.size());
+      for (final Search batched : searches) {
+         tasks.add(new Callable<Void>() {
+            public Void call() throws IOException {
+               new Searcher(Searcher.this, batchFilterCache).executeBatched(batched);
+               return null;
+            }
+         });
+      }
+      
+      if (admissionController != null) {
+         admissionController.acquire();
+      }
+      try {
+         if (executor == null) {
+            for (Callable<Void> task : tasks) {
+               runBatched(task);
+            }
+         } else {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+            for (Callable<Void> task : tasks) {
+               futures.add(executor.submit(task));
+            }
+            // Every search is waited for, even after one has failed,
+            // so that none of them still holds a lease once the batch
+            // returns.
+            IOException failure = null;
+            RuntimeException runtimeFailure = null;
+            for (Future<Void> future : futures) {
+               try {
+                  waitForBatched(future);
+               } catch (IOException e) {
+                  failure = failure == null ? e : failure;
+               } catch (RuntimeException e) {
+                  runtimeFailure = runtimeFailure == null ? e : runtimeFailure;
+               }
+            }
+            if (failure != null) {
+               throw failure;
+            } else if (runtimeFailure != null) {
+               throw runtimeFailure;
+            }
+         }
+      } finally {
+         release();
+      }
+      
+      search = searches.get(searches.size() - 1);
+      acquireSearcher();
+   }
+   
+   /**
+    * Executes a search of a batch as the current search of this
+    * Searcher, and keeps its facet results with the search.
+    * @param batched The search to execute.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index.
+    */
+   private void executeBatched(final Search batched) throws IOException {
+      search = batched;
+      try {
+         execute(batched.getCollector());
+         batched.setFacetResults(getFacetResults());
+      } finally {
+         releaseSearcher();
+      }
+   }
+   
+   /**
+    * Runs a search of a batch on the calling thread.
+    * @param task The search to run.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index.
+    */
+   private static void runBatched(final Callable<Void> task) throws IOException {
+      try {
+         task.call();
+      } catch (IOException e) {
+         throw e;
+      } catch (RuntimeException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new RuntimeException(e);
+      }
+   }
+   
+   /**
+    * Waits for a search of a batch to finish.
+    * @param future The future result of the search.
+    * @throws IOException The search failed to read the index.
+    */
+   private static void waitForBatched(final Future<Void> future) throws IOException {
+      try {
+         future.get();
+      } catch (InterruptedException e) {
+         throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+         final Throwable cause = e.getCause();
+         if (cause instanceof IOException) {
+            throw (IOException) cause;
+         } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         } else if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new RuntimeException(cause);
+      }
+   }
+   
+   /**
+    * Executes the current search, aggregating its results into the
+    * given top documents collector and the facets collectors of the
+    * search.  If the search is grouped, its groups are collected in
+    * the same pass over the index.
+    * @param collector The collector of the top documents.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index.
+    */
+   private void execute(final Collector collector) throws IOException {
+      acquireSearcher();
+      admit();
+      try {
+         executeAdmitted(collector);
+      } finally {
+         release();
+      }
+      search.setVersion(getActiveReader().getVersion());
+   }
+   
+   /**
+    * Selects the searcher of the reader version that the current
+    * search asks for, giving back the searcher of the previous search
+    * if it was leased.
+    * @throws SearcherExpiredException The version that the search asks
+    * for is no longer retained.
+    * @throws IOException A fatal exception occurred while closing an
+    * evicted reader.
+    */
+   private void acquireSearcher() throws IOException {
+      releaseSearcher();
+      final long version = search.getVersion();
+      if (leases == null) {
+         if (version >= 0 && version != indexReader.getVersion()) {
+            throw new SearcherExpiredException(version);
+         }
+         activeSearcher = indexSearcher;
+         return;
+      }
+      
+      // Even the current reader is leased, so that a refresh cannot
+      // close it in the middle of a search.
+      final IndexSearcher searcher =
+            leases.acquire(version < 0 ? indexReader.getVersion() : version);
+      if (searcher == null) {
+         throw new SearcherExpiredException(version);
+      }
+      activeSearcher = searcher;
+      activeLeased = true;
+   }
+   
+   /**
+    * Gives back the searcher of the previous search, if it was leased.
+    * @throws IOException A fatal exception occurred while closing an
+    * evicted reader.
+    */
+   private void releaseSearcher() throws IOException {
+      final IndexSearcher searcher = activeSearcher;
+      final boolean leased = activeLeased;
+      activeSearcher = null;
+      activeLeased = false;
+      if (leased == true) {
+         leases.release(searcher);
+      }
+   }
+   
+   /**
+    * Gets the reader of the current search.
+    * @return The reader that the current search runs against, or the
+    * current reader if no search has been executed.
+    */
+   private DirectoryReader getActiveReader() {
+      if (activeSearcher == null) {
+         return indexReader;
+      }
+      return (DirectoryReader) activeSearcher.getIndexReader();
+   }
+   
+   /**
+    * Executes the current search once it has been admitted.
+    * @param collector The collector of the top documents.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index.
+    */
+   private void executeAdmitted(final Collector collector) throws IOException {
+      applyDefaultTimeout();
+      final long baseline = clock.get();
+      final ResultSetCollector resultSetCollector =
+            search.isCollectResultSet() ? new ResultSetCollector(getActiveReader()) : null;
+      final Collector results =
+            MultiCollector.wrap(
+                  collector,
+                  getFacetsCollector(),
+                  search.getDocValuesFacetsCollector(),
+                  search.getNumericFacetsCollector(),
+                  resultSetCollector
+            );
+      
+      final GroupRequest grouping = search.getGrouping();
+      if (grouping == null) {
+         collect(results, baseline);
+         setResultSet(resultSetCollector);
+         return;
+      }
+      
+      final Sort groupSort =
+            grouping.getGroupSort() == null ?
+                  search.getSort() : grouping.getGroupSort();
+      final Sort sortWithinGroup =
+            grouping.getSortWithinGroup() == null ?
+                  search.getSort() : grouping.getSortWithinGroup();
+      final TermFirstPassGroupingCollector firstPass =
+            new TermFirstPassGroupingCollector(
+                  grouping.getField(),
+                  groupSort,
+                  grouping.getGroups());
+      final TermAllGroupsCollector allGroups =
+            new TermAllGroupsCollector(grouping.getField());
+      
+      Collector first = MultiCollector.wrap(results, firstPass, allGroups);
+      CachingCollector cache = null;
+      if (grouping.getStrategy() == GroupRequest.Strategy.SINGLE_PASS
+            && lowMemory == false) {
+         cache = CachingCollector.create(first, true, grouping.getMaxCacheMB());
+         first = cache;
+      }
+      final boolean firstPassComplete = collect(first, baseline);
+      setResultSet(resultSetCollector);
+      
+      final Collection<SearchGroup<BytesRef>> topGroups =
+            firstPass.getTopGroups(0, true);
+      if (topGroups == null) {
+         // Nothing matched, so there are no groups to fill in.
+         @SuppressWarnings({"unchecked", "rawtypes"})
+         final GroupDocs<BytesRef>[] none = new GroupDocs[0];
+         search.setTopGroups(
+               new TopGroups<BytesRef>(
+                     new TopGroups<BytesRef>(
+                           groupSort.getSort(),
+                           sortWithinGroup.getSort(),
+                           0,
+                           0,
+                           none,
+                           Float.NaN),
+                     0)
+         );
+         return;
+      }
+      
+      final TermSecondPassGroupingCollector secondPass =
+            new TermSecondPassGroupingCollector(
+                  grouping.getField(),
+                  topGroups,
+                  groupSort,
+                  sortWithinGroup,
+                  grouping.getDocsPerGroup(),
+                  false,
+                  false,
+                  true);
+      if (cache != null && cache.isCached()) {
+         cache.replay(secondPass);
+      } else if (firstPassComplete) {
+         collect(secondPass, baseline);
+      }
+      // Otherwise the deadline has already passed, so the top groups
+      // found by the first pass are reported without their documents.
+      
+      search.setTopGroups(
+            new TopGroups<BytesRef>(
+                  secondPass.getTopGroups(0),
+                  allGroups.getGroupCount())
+      );
+   }
+   
+   /**
+    * Hands the result set of the current search to the search, once
+    * its hits have been collected.
+    * @param resultSetCollector The collector of the result set, or
+    * null if the search does not collect one.
+    */
+   private void setResultSet(final ResultSetCollector resultSetCollector) {
+      if (resultSetCollector != null) {
+         search.setResultSet(resultSetCollector.getResultSet(search.isTimedOut()));
+      }
+   }
+   
+   /**
+    * Runs the query of the current search into a collector, giving up
+    * once the deadline of the search has passed.  The collector keeps
+    * whatever it collected before the deadline.
+    * @param collector The collector in which to aggregate results.
+    * @param baseline The clock time, in milliseconds, from which the
+    * deadline of the search is measured.
+    * @return True if every hit was collected, or false if the deadline
+    * passed first.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index.
+    */
+   private boolean collect(final Collector collector, final long baseline)
+         throws IOException {
+      Query query =
+            filterCache == null ?
+                  search.getQuery() :
+                  filterCache.rewrite(search.getQuery());
+      if (search.getWithin() != null) {
+         // Walk the earlier hits and only check each of them against
+         // the query, rather than the other way around.
+         query = new FilteredQuery(
+               query,
+               search.getWithin(),
+               FilteredQuery.LEAP_FROG_FILTER_FIRST_STRATEGY
          );
       }
+      if (search.getTimeout() <= 0) {
+         activeSearcher.search(query, collector);
+         return true;
+      }
+      
+      final TimeLimitingCollector limited =
+            new TimeLimitingCollector(collector, clock, search.getTimeout());
+      limited.setBaseline(baseline);
+      try {
+         activeSearcher.search(query, limited);
+      } catch (TimeLimitingCollector.TimeExceededException e) {
+         search.setTimedOut(true);
+         return false;
+      }
+      return true;
+   }
+   
+   /**
+    * Refuses the current search if its query is too expensive, and
+    * otherwise waits for permission to run it and records its query
+    * in the query log.  Every successful call must be matched by a
+    * call to {@link #release()}.
+    * @throws QueryRejectedException The search was refused.
+    * @throws IOException A fatal exception occurred while reading the
+    * terms of the index.
+    */
+   private void admit() throws IOException {
+      if (costEstimator != null) {
+         costEstimator.check(getActiveReader(), search.getQuery());
+      }
+      if (admissionController != null) {
+         admissionController.acquire();
+      }
+      if (queryLog != null) {
+         queryLog.record(search.getQueryString());
+      }
+   }
+   
+   /**
+    * Gives back the permission to run the current search.
+    */
+   private void release() {
+      if (admissionController != null) {
+         admissionController.release();
+      }
+   }
+   
+   /**
+    * Applies the default deadline of this Searcher to the current
+    * search, unless the search has a deadline of its own.
+    */
+   private void applyDefaultTimeout() {
+      if (search.getTimeout() <= 0) {
+         search.setTimeout(timeout);
+      }
    }
    
    /**
@@ -448,22 +1447,107 @@ public class Searcher {
     * with the index.
     */
    public Document doc(final int docID) throws IOException {
-      if (indexSearcher != null) {
-         return indexSearcher.doc(docID);
-      } else {
+      return doc(docID, null);
+   }
+   
+   /**
+    * Obtains only some of the stored fields of a document from the
+    * index by numeric ID, which is much cheaper than loading the whole
+    * document when it has a long message or many changed paths.
+    * @param docID The numeric ID of the Document to retrieve from the index.
+    * @param fields The names of the stored fields to load, or null to
+    * load every stored field.
+    * @return The Lucene Document in the index corresponding to the ID,
+    * holding only the requested fields.
+    * @throws IOException A fatal exception has occurred while interacting
+    * with the index.
+    */
+   public Document doc(final int docID, final Set<String> fields) throws IOException {
+      final IndexSearcher searcher =
+            activeSearcher != null ? activeSearcher : indexSearcher;
+      if (searcher == null) {
          return null;
+      } else if (documentCache != null) {
+         return documentCache.getDocument(searcher.getIndexReader(), docID, fields);
+      } else if (fields == null) {
+         return searcher.doc(docID);
+      } else {
+         return searcher.doc(docID, fields);
       }
    }
    
    /**
-    * Closes and disposes of open resources.
+    * Gets the stored documents of the hits of the current search, to
+    * be loaded lazily as they are iterated.
+    * @param hits The hits of the current search, in the order in which
+    * to return their documents.
+    * @param fields The names of the stored fields to load, or null to
+    * load every stored field.
+    * @return The documents of the hits.
+    */
+   public HitDocuments getDocuments(final ScoreDoc[] hits, final Set<String> fields) {
+      return getDocuments(hits, fields, DEFAULT_DOCUMENT_BATCH);
+   }
+   
+   /**
+    * Gets the stored documents of the hits of the current search, to
+    * be loaded lazily as they are iterated.
+    * @param hits The hits of the current search, in the order in which
+    * to return their documents.
+    * @param fields The names of the stored fields to load, or null to
+    * load every stored field.
+    * @param batchSize The number of documents to read at a time.
+    * @return The documents of the hits.
+    */
+   public HitDocuments getDocuments(
+         final ScoreDoc[] hits,
+         final Set<String> fields,
+         final int batchSize) {
+      if (initialized == false) {
+         throw new IllegalStateException("The searcher has not been initialized");
+      }
+      return new HitDocuments(
+            activeSearcher != null ? activeSearcher : indexSearcher,
+            hits,
+            fields,
+            batchSize,
+            documentCache
+      );
+   }
+   
+   /**
+    * Gets the summaries of the revisions of the hits of the current
+    * search, to be loaded lazily as they are iterated.  Only the stored
+    * summary of each revision is read.
+    * @param hits The hits of the current search, in the order in which
+    * to return their summaries.
+    * @return The summaries of the hits.
+    */
+   public HitSummaries getSummaries(final ScoreDoc[] hits) {
+      return new HitSummaries(
+            getDocuments(hits, HitDocuments.SUMMARY_FIELDS, DEFAULT_DOCUMENT_BATCH)
+      );
+   }
+   
+   /**
+    * Closes and disposes of open resources, and saves the query log so
+    * that the next searcher may warm its readers with these searches.
     * @throws IOException A fatal exception occurred while
-    * attempting to close index readers.
+    * attempting to close index readers or save the query log.
     */
    public void dispose() throws IOException {
       if (initialized) {
+         releaseSearcher();
          indexReader.close();
-         taxonomyReader.close();
+         if (taxonomyReader != null) {
+            taxonomyReader.close();
+         }
+         if (leases != null) {
+            leases.close();
+         }
+         if (queryLog != null) {
+            queryLog.save();
+         }
          initialized = false;
       }
    }
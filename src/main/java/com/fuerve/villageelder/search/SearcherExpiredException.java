@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a search asks for a reader version that is no longer
+ * retained, because its lease has expired or because the Searcher
+ * keeps no leases.  The search must be started over against the
+ * current reader.
+ * @author lparker
+ *
+ */
+public class SearcherExpiredException extends IOException {
+   private static final long serialVersionUID = 1L;
+
+   private final long version;
+
+   /**
+    * Initializes a new instance of SearcherExpiredException.
+    * @param vversion The version of the reader that was asked for.
+    */
+   public SearcherExpiredException(final long vversion) {
+      super("The reader of version " + vversion + " is no longer retained");
+      version = vversion;
+   }
+
+   /**
+    * Gets the version of the reader that was asked for.
+    * @return The reader version.
+    */
+   public long getVersion() {
+      return version;
+   }
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherLifetimeManager;
+
+/**
+ * Keeps the readers that a {@link Searcher} has replaced open for a
+ * while, so that the later pages of a search can be read from the
+ * very reader that served its first page, even though the index has
+ * been refreshed since.  A reader is identified by its version, which
+ * every executed {@link Search} reports.  Readers are evicted once
+ * they have been replaced for longer than the maximum age, or once
+ * more readers than the maximum count are retained, the oldest first.
+ * The current reader is never evicted.  Searcher leases are safe for
+ * use by multiple threads.
+ * @author lparker
+ *
+ */
+public class SearcherLeases implements Closeable {
+   private final SearcherLifetimeManager manager = new SearcherLifetimeManager();
+   private final int maxReaders;
+   private final double maxAgeSeconds;
+
+   /**
+    * Initializes a new instance of SearcherLeases.
+    * @param mmaxReaders The greatest number of readers to retain,
+    * including the current one.
+    * @param mmaxAgeSeconds The number of seconds for which a reader is
+    * retained after it has been replaced.
+    */
+   public SearcherLeases(final int mmaxReaders, final double mmaxAgeSeconds) {
+      if (mmaxReaders < 1) {
+         throw new IllegalArgumentException("Searcher leases must retain at least one reader");
+      }
+      if (mmaxAgeSeconds < 0.0) {
+         throw new IllegalArgumentException("The maximum age of a reader cannot be negative");
+      }
+      maxReaders = mmaxReaders;
+      maxAgeSeconds = mmaxAgeSeconds;
+   }
+
+   /**
+    * Gets the greatest number of readers that are retained.
+    * @return The greatest number of readers, including the current one.
+    */
+   public int getMaxReaders() {
+      return maxReaders;
+   }
+
+   /**
+    * Gets the number of seconds for which a reader is retained after it
+    * has been replaced.
+    * @return The maximum age of a replaced reader, in seconds.
+    */
+   public double getMaxAgeSeconds() {
+      return maxAgeSeconds;
+   }
+
+   /**
+    * Retains a newly published searcher, and evicts the readers that
+    * have outlived their leases.
+    * @param searcher The searcher of the new reader.
+    * @return The version of the reader.
+    * @throws IOException A fatal exception occurred while closing an
+    * evicted reader.
+    */
+   long record(final IndexSearcher searcher) throws IOException {
+      final long version = manager.record(searcher);
+      prune();
+      return version;
+   }
+
+   /**
+    * Takes a reference to a retained searcher.  Every searcher acquired
+    * must be given back through {@link #release(IndexSearcher)}.
+    * @param version The version of the reader of the searcher.
+    * @return The searcher, or null if its reader has been evicted.
+    */
+   IndexSearcher acquire(final long version) {
+      return manager.acquire(version);
+   }
+
+   /**
+    * Gives back a reference to a retained searcher.
+    * @param searcher The searcher, which was acquired from these leases.
+    * @throws IOException A fatal exception occurred while closing an
+    * evicted reader.
+    */
+   void release(final IndexSearcher searcher) throws IOException {
+      manager.release(searcher);
+   }
+
+   /**
+    * Evicts the readers that have outlived their leases.  This happens
+    * whenever a new reader is retained, but may also be called
+    * periodically to free old readers of an index that rarely changes.
+    * A reader still in use by a search is closed once the search is
+    * done with it.
+    * @throws IOException A fatal exception occurred while closing an
+    * evicted reader.
+    */
+   public void prune() throws IOException {
+      manager.prune(new SearcherLifetimeManager.Pruner() {
+         private int retained;
+
+         public boolean doPrune(final double ageSec, final IndexSearcher searcher) {
+            // Readers are visited from the newest to the oldest.
+            retained++;
+            return retained > maxReaders || ageSec > maxAgeSeconds;
+         }
+      });
+   }
+
+   /**
+    * Releases every retained reader.
+    * @throws IOException A fatal exception occurred while closing the
+    * readers.
+    */
+   public void close() throws IOException {
+      manager.close();
+   }
+}
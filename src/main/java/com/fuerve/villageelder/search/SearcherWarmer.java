@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Prepares a freshly opened reader for searching before a
+ * {@link Searcher} publishes it, so that the first searches of the
+ * reader do not pay for loading its caches and faulting in its files.
+ * @author lparker
+ *
+ */
+public interface SearcherWarmer {
+   /**
+    * Warms a freshly opened searcher.  This is called when a
+    * {@link Searcher} is initialized and whenever it refreshes its
+    * reader, before any search can use it.
+    * @param searcher The searcher of the new reader.
+    * @throws IOException A fatal exception occurred while interacting
+    * with the index.
+    */
+   void warm(IndexSearcher searcher) throws IOException;
+}
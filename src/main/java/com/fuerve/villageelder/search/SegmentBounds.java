@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.TermsEnum.SeekStatus;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+
+/**
+ * This class records the lowest and highest revision number and
+ * commit date found in a single index segment.  Revisions are
+ * indexed in ingest order, so each segment tends to cover a
+ * contiguous slice of history, and a range clause that falls
+ * entirely outside of that slice cannot match anything in the
+ * segment.
+ * The bounds are derived from the full-precision terms of the
+ * numeric fields, so nothing extra needs to be written to the
+ * index.  They are computed once per segment core and cached
+ * for as long as that core is alive.
+ * @author lparker
+ *
+ */
+public final class SegmentBounds {
+   public static final String REVISION_FIELD = "RevisionNumber";
+   public static final String DATE_FIELD = "Date";
+
+   private static final Map<Object, SegmentBounds> cache =
+         new WeakHashMap<Object, SegmentBounds>();
+
+   private final long[] revisionBounds;
+   private final long[] dateBounds;
+
+   /**
+    * Initializes a new instance of SegmentBounds.
+    * @param rrevisionBounds The lowest and highest revision numbers,
+    * or null if the segment contains no revision numbers.
+    * @param ddateBounds The lowest and highest commit dates, or null
+    * if the segment contains no dates.
+    */
+   private SegmentBounds(final long[] rrevisionBounds, final long[] ddateBounds) {
+      revisionBounds = rrevisionBounds;
+      dateBounds = ddateBounds;
+   }
+
+   /**
+    * Gets the bounds of a segment, computing them if they have not
+    * already been computed for the segment's core.
+    * @param reader The segment reader.
+    * @return The bounds of the segment.
+    * @throws IOException A fatal exception occurred while reading
+    * the terms dictionary of the segment.
+    */
+   public static SegmentBounds get(final AtomicReader reader) throws IOException {
+      if (reader == null) {
+         throw new IllegalArgumentException("Tried to get the bounds of a null segment");
+      }
+
+      final Object key = reader.getCoreCacheKey();
+      synchronized (cache) {
+         final SegmentBounds cached = cache.get(key);
+         if (cached != null) {
+            return cached;
+         }
+      }
+
+      final SegmentBounds result =
+            new SegmentBounds(
+                  computeBounds(reader, REVISION_FIELD),
+                  computeBounds(reader, DATE_FIELD)
+            );
+
+      synchronized (cache) {
+         cache.put(key, result);
+      }
+      return result;
+   }
+
+   /**
+    * Computes the lowest and highest values of a trie-encoded long
+    * field within a single segment.  The lowest value is the first
+    * full-precision term; the highest is found by a binary search
+    * over the terms dictionary, which costs a few dozen seeks rather
+    * than a walk over every unique value.
+    * @param reader The segment reader.
+    * @param field The name of the numeric field.
+    * @return A two-element array holding the lowest and highest
+    * values, or null if the field does not exist in the segment.
+    * @throws IOException A fatal exception occurred while reading
+    * the terms dictionary.
+    */
+   private static long[] computeBounds(final AtomicReader reader, final String field)
+         throws IOException {
+      final Terms terms = reader.terms(field);
+      if (terms == null) {
+         return null;
+      }
+
+      final TermsEnum fullPrecision =
+            NumericUtils.filterPrefixCodedLongs(terms.iterator(null));
+      final BytesRef first = fullPrecision.next();
+      if (first == null) {
+         return null;
+      }
+
+      final TermsEnum termsEnum = terms.iterator(null);
+      final BytesRef probe = new BytesRef(NumericUtils.BUF_SIZE_LONG);
+      long low = NumericUtils.prefixCodedToLong(first);
+      long high = Long.MAX_VALUE;
+
+      // Full-precision terms sort before all of the lower-precision
+      // ones, so the highest value is the last term whose ceiling is
+      // still a full-precision term.
+      while (low < high) {
+         final long middle = low + ((high - low) >>> 1) + 1;
+         NumericUtils.longToPrefixCoded(middle, 0, probe);
+         final SeekStatus status = termsEnum.seekCeil(probe);
+
+         if (status == SeekStatus.END ||
+               NumericUtils.getPrefixCodedLongShift(termsEnum.term()) != 0) {
+            high = middle - 1;
+         } else {
+            low = NumericUtils.prefixCodedToLong(termsEnum.term());
+         }
+      }
+
+      return new long[] { NumericUtils.prefixCodedToLong(first), low };
+   }
+
+   /**
+    * Determines whether the segment could contain a value of the
+    * given field within an inclusive range.
+    * @param field The name of the field, either {@link #REVISION_FIELD}
+    * or {@link #DATE_FIELD}.
+    * @param lower The inclusive lower bound of the range.
+    * @param upper The inclusive upper bound of the range.
+    * @return True if the segment may hold a matching value, false if
+    * it certainly does not.
+    */
+   public boolean overlaps(final String field, final long lower, final long upper) {
+      final long[] bounds = getBounds(field);
+      if (bounds == null) {
+         return false;
+      }
+      return lower <= bounds[1] && upper >= bounds[0];
+   }
+
+   /**
+    * Gets the bounds recorded for a field.
+    * @param field The name of the field.
+    * @return The lowest and highest values, or null if the segment
+    * contains no values for the field.
+    */
+   private long[] getBounds(final String field) {
+      if (REVISION_FIELD.equals(field)) {
+         return revisionBounds;
+      } else if (DATE_FIELD.equals(field)) {
+         return dateBounds;
+      } else {
+         throw new IllegalArgumentException(
+               "No segment bounds are recorded for the field " + field
+         );
+      }
+   }
+
+   /**
+    * Gets whether the segment contains any revision numbers.
+    * @return True if the segment contains revision numbers.
+    */
+   public boolean hasRevisions() {
+      return revisionBounds != null;
+   }
+
+   /**
+    * Gets the lowest revision number in the segment.
+    * @return The lowest revision number, or -1 if the segment
+    * contains no revision numbers.
+    */
+   public long getMinRevision() {
+      return revisionBounds == null ? -1L : revisionBounds[0];
+   }
+
+   /**
+    * Gets the highest revision number in the segment.
+    * @return The highest revision number, or -1 if the segment
+    * contains no revision numbers.
+    */
+   public long getMaxRevision() {
+      return revisionBounds == null ? -1L : revisionBounds[1];
+   }
+
+   /**
+    * Gets whether the segment contains any commit dates.
+    * @return True if the segment contains commit dates.
+    */
+   public boolean hasDates() {
+      return dateBounds != null;
+   }
+
+   /**
+    * Gets the earliest commit date in the segment, in milliseconds
+    * since the epoch.
+    * @return The earliest commit date, or Long.MIN_VALUE if the segment
+    * contains no dates.
+    */
+   public long getMinDate() {
+      return dateBounds == null ? Long.MIN_VALUE : dateBounds[0];
+   }
+
+   /**
+    * Gets the latest commit date in the segment, in milliseconds
+    * since the epoch.
+    * @return The latest commit date, or Long.MIN_VALUE if the segment
+    * contains no dates.
+    */
+   public long getMaxDate() {
+      return dateBounds == null ? Long.MIN_VALUE : dateBounds[1];
+   }
+}
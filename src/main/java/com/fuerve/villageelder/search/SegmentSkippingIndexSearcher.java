@@ -0,0 +1,312 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+
+/**
+ * An {@link IndexSearcher} that skips whole segments when a query
+ * requires a revision number or date range that the segment cannot
+ * satisfy.  The required ranges are gathered from the
+ * {@link NumericRangeQuery} clauses produced by
+ * {@link SearchQueryParser#getRangeQuery}, and compared against the
+ * {@link SegmentBounds} of each segment before any scorer is built
+ * for it.
+ * @author lparker
+ *
+ */
+class SegmentSkippingIndexSearcher extends IndexSearcher {
+   /**
+    * Initializes a new instance of SegmentSkippingIndexSearcher.
+    * @param reader The index reader to search.
+    */
+   public SegmentSkippingIndexSearcher(final IndexReader reader) {
+      super(reader);
+   }
+
+   /**
+    * Creates a normalized weight for a query, which remembers the
+    * query as it was before rewriting so that the revision and date
+    * ranges it requires can still be found when the weight is
+    * searched.
+    * @param query The query to be executed.
+    * @return The normalized weight.
+    * @throws IOException A fatal exception occurred while rewriting
+    * the query or creating its weight.
+    */
+   @Override
+   public Weight createNormalizedWeight(final Query query) throws IOException {
+      return new UnrewrittenWeight(query, super.createNormalizedWeight(query));
+   }
+
+   /* (non-Javadoc)
+    * @see org.apache.lucene.search.IndexSearcher#search(java.util.List, org.apache.lucene.search.Weight, org.apache.lucene.search.Collector)
+    */
+   @Override
+   protected void search(
+         final List<AtomicReaderContext> leaves,
+         final Weight weight,
+         final Collector collector) throws IOException {
+      super.search(getMatchingLeaves(leaves, weight.getQuery()), weight, collector);
+   }
+
+   /**
+    * Gets the segments that could possibly contain a match for a
+    * query, based upon the revision and date ranges it requires.
+    * @param query The query to be executed.
+    * @return The list of segments worth searching.
+    * @throws IOException A fatal exception occurred while computing
+    * the bounds of a segment.
+    */
+   List<AtomicReaderContext> getMatchingLeaves(final Query query)
+         throws IOException {
+      return getMatchingLeaves(leafContexts, query);
+   }
+
+   /**
+    * Gets the segments among a list of candidates that could possibly
+    * contain a match for a query, based upon the revision and date
+    * ranges it requires.
+    * @param leaves The candidate segments.
+    * @param query The query to be executed.
+    * @return The list of segments worth searching.
+    * @throws IOException A fatal exception occurred while computing
+    * the bounds of a segment.
+    */
+   private static List<AtomicReaderContext> getMatchingLeaves(
+         final List<AtomicReaderContext> leaves,
+         final Query query) throws IOException {
+      final Map<String, long[]> required = new HashMap<String, long[]>();
+      collectRequiredRanges(query, required);
+
+      if (required.isEmpty()) {
+         return leaves;
+      }
+
+      final List<AtomicReaderContext> result =
+            new ArrayList<AtomicReaderContext>(leaves.size());
+      for (AtomicReaderContext leaf : leaves) {
+         final SegmentBounds bounds = SegmentBounds.get(leaf.reader());
+         boolean matches = true;
+
+         for (Entry<String, long[]> range : required.entrySet()) {
+            final long[] value = range.getValue();
+            if (bounds.overlaps(range.getKey(), value[0], value[1]) == false) {
+               matches = false;
+               break;
+            }
+         }
+
+         if (matches) {
+            result.add(leaf);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Walks a query and narrows the set of required ranges by every
+    * revision number or date range that a matching document must
+    * satisfy.  Optional and prohibited clauses impose no requirement
+    * and are ignored.
+    * @param query The query to examine.
+    * @param required The map of field names to inclusive lower and
+    * upper bounds, which is narrowed in place.
+    */
+   static void collectRequiredRanges(
+         final Query query,
+         final Map<String, long[]> required) {
+      if (query instanceof NumericRangeQuery<?>) {
+         narrow((NumericRangeQuery<?>) query, required);
+      } else if (query instanceof BooleanQuery) {
+         for (BooleanClause clause : ((BooleanQuery) query).getClauses()) {
+            if (clause.getOccur() == Occur.MUST) {
+               collectRequiredRanges(clause.getQuery(), required);
+            }
+         }
+      } else if (query instanceof FilteredQuery) {
+         collectRequiredRanges(((FilteredQuery) query).getQuery(), required);
+         final Query filter =
+               FilterCache.getFilterQuery(((FilteredQuery) query).getFilter());
+         if (filter != null) {
+            collectRequiredRanges(filter, required);
+         }
+      } else if (query instanceof ConstantScoreQuery) {
+         Query inner = ((ConstantScoreQuery) query).getQuery();
+         if (inner == null) {
+            inner = FilterCache.getFilterQuery(((ConstantScoreQuery) query).getFilter());
+         }
+         if (inner != null) {
+            collectRequiredRanges(inner, required);
+         }
+      }
+   }
+
+   /**
+    * Narrows the required range of a field by a single numeric
+    * range clause.
+    * @param query The numeric range clause.
+    * @param required The map of field names to inclusive lower and
+    * upper bounds, which is narrowed in place.
+    */
+   private static void narrow(
+         final NumericRangeQuery<?> query,
+         final Map<String, long[]> required) {
+      final String field = query.getField();
+      if (SegmentBounds.REVISION_FIELD.equals(field) == false &&
+            SegmentBounds.DATE_FIELD.equals(field) == false) {
+         return;
+      }
+      if ((query.getMin() != null && query.getMin() instanceof Long == false) ||
+            (query.getMax() != null && query.getMax() instanceof Long == false)) {
+         return;
+      }
+
+      long lower = Long.MIN_VALUE;
+      long upper = Long.MAX_VALUE;
+
+      if (query.getMin() != null) {
+         lower = (Long) query.getMin();
+         if (query.includesMin() == false) {
+            if (lower == Long.MAX_VALUE) {
+               // Nothing can be greater than the largest long.
+               upper = Long.MIN_VALUE;
+            } else {
+               lower++;
+            }
+         }
+      }
+
+      if (query.getMax() != null) {
+         final long max = (Long) query.getMax();
+         if (query.includesMax() == false) {
+            if (max == Long.MIN_VALUE) {
+               lower = Long.MAX_VALUE;
+            } else {
+               upper = Math.min(upper, max - 1);
+            }
+         } else {
+            upper = Math.min(upper, max);
+         }
+      }
+
+      final long[] existing = required.get(field);
+      if (existing == null) {
+         required.put(field, new long[] { lower, upper });
+      } else {
+         existing[0] = Math.max(existing[0], lower);
+         existing[1] = Math.min(existing[1], upper);
+      }
+   }
+
+   /**
+    * A weight that scores exactly as the weight of a rewritten query,
+    * but reports the query as it was before rewriting.  Rewriting
+    * turns numeric range clauses into term or filter queries, which
+    * no longer say what range they cover.
+    */
+   private static final class UnrewrittenWeight extends Weight {
+      private final Query query;
+      private final Weight weight;
+
+      /**
+       * Initializes a new instance of UnrewrittenWeight.
+       * @param qquery The query before rewriting.
+       * @param wweight The weight of the rewritten query.
+       */
+      public UnrewrittenWeight(final Query qquery, final Weight wweight) {
+         query = qquery;
+         weight = wweight;
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.search.Weight#explain(org.apache.lucene.index.AtomicReaderContext, int)
+       */
+      @Override
+      public Explanation explain(final AtomicReaderContext context, final int doc)
+            throws IOException {
+         return weight.explain(context, doc);
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.search.Weight#getQuery()
+       */
+      @Override
+      public Query getQuery() {
+         return query;
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.search.Weight#getValueForNormalization()
+       */
+      @Override
+      public float getValueForNormalization() throws IOException {
+         return weight.getValueForNormalization();
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.search.Weight#normalize(float, float)
+       */
+      @Override
+      public void normalize(final float norm, final float topLevelBoost) {
+         weight.normalize(norm, topLevelBoost);
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.search.Weight#scorer(org.apache.lucene.index.AtomicReaderContext, boolean, boolean, org.apache.lucene.util.Bits)
+       */
+      @Override
+      public Scorer scorer(
+            final AtomicReaderContext context,
+            final boolean scoreDocsInOrder,
+            final boolean topScorer,
+            final Bits acceptDocs) throws IOException {
+         return weight.scorer(context, scoreDocsInOrder, topScorer, acceptDocs);
+      }
+
+      /* (non-Javadoc)
+       * @see org.apache.lucene.search.Weight#scoresDocsOutOfOrder()
+       */
+      @Override
+      public boolean scoresDocsOutOfOrder() {
+         return weight.scoresDocsOutOfOrder();
+      }
+   }
+}
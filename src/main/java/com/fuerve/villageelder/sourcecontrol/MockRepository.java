@@ -91,6 +91,15 @@ public final class MockRepository extends Repository {
       return result;
    }
 
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.sourcecontrol.Repository#getLatestRevision()
+    */
+   @Override
+   public long getLatestRevision() throws IOException {
+      // Revisions are numbered by their position in the history.
+      return history == null ? -1 : history.size() - 1;
+   }
+
    /**
     * Sets the entire revision history for this mock repository.
     * @param revisions A list of RevisionInfo objects containing
@@ -104,4 +104,14 @@ public abstract class Repository {
          final long begin,
          final long end)
          throws IOException;
+   
+   /**
+    * Gets the number of the most recent revision in the repository,
+    * which is cheap enough to ask for repeatedly while waiting for
+    * new revisions to arrive.
+    * @return The number of the head revision, or -1 if the repository
+    * has no revisions.
+    */
+   public abstract long getLatestRevision()
+         throws IOException;
 }
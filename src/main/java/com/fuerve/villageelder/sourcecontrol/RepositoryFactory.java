@@ -47,6 +47,8 @@ public final class RepositoryFactory {
          return new MockRepository(path);
       case SUBVERSION:
          return new SubversionRepository(path);
+      case SUBVERSION_XML_LOG:
+         return new SubversionXmlLogRepository(path);
       default:
          return null;
       }
@@ -71,6 +73,8 @@ public final class RepositoryFactory {
          return new MockRepository(path, username, password);
       case SUBVERSION:
          return new SubversionRepository(path, username, password);
+      case SUBVERSION_XML_LOG:
+         return new SubversionXmlLogRepository(path, username, password);
       default:
          return null;
       }
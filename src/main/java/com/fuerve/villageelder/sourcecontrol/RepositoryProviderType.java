@@ -28,5 +28,6 @@ package com.fuerve.villageelder.sourcecontrol;
 public enum RepositoryProviderType {
    UNKNOWN,
    MOCK,
-   SUBVERSION
+   SUBVERSION,
+   SUBVERSION_XML_LOG
 }
@@ -178,6 +178,21 @@ public class SubversionRepository extends Repository {
       return result;
    }
    
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.sourcecontrol.Repository#getLatestRevision()
+    */
+   @Override
+   public long getLatestRevision() throws IOException {
+      initializeRepository();
+      
+      try {
+         return repositoryReference.getLatestRevision();
+      } catch (SVNException e) {
+         throw new IOException("Could not retrieve the latest revision from " +
+               "Subversion", e);
+      }
+   }
+   
    /**
     * Builds a ChangePath from an SVNLogEntryPath object.
     * @param svnLogEntryPath The SVNLogEntryPath object from which to
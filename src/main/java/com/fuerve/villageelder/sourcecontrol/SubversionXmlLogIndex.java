@@ -0,0 +1,357 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.sourcecontrol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A side index of the byte offsets of the entries of an
+ * {@code svn log --xml} file, from which a range of revisions can be
+ * read without parsing every entry before it.  The offset of every
+ * few hundredth entry is recorded, so the index stays small however
+ * large the log grows.  The index is built by scanning the bytes of
+ * the log for its entry tags, which is far cheaper than parsing it,
+ * and is saved next to the log so that it is only rebuilt when the
+ * log changes.
+ * @author lparker
+ *
+ */
+final class SubversionXmlLogIndex {
+   static final int DEFAULT_INTERVAL = 256;
+
+   private static final int MAGIC = 0x53564e58;
+   private static final int FORMAT = 1;
+   private static final String SUFFIX = ".offsets";
+   private static final byte[] TAG = "<logentry".getBytes();
+   private static final int BUFFER_SIZE = 65536;
+
+   private final long[] revisions;
+   private final long[] offsets;
+   private final int order;
+   private final long latestRevision;
+
+   /**
+    * Initializes a new instance of SubversionXmlLogIndex.
+    * @param rrevisions The revisions of the recorded entries.
+    * @param ooffsets The byte offsets of the recorded entries.
+    * @param oorder 1 if the log is in ascending revision order, -1 if
+    * it is in descending order, or 0 if it is in neither.
+    * @param llatestRevision The highest revision in the log, or -1 if
+    * the log is empty.
+    */
+   private SubversionXmlLogIndex(
+         final long[] rrevisions,
+         final long[] ooffsets,
+         final int oorder,
+         final long llatestRevision) {
+      revisions = rrevisions;
+      offsets = ooffsets;
+      order = oorder;
+      latestRevision = llatestRevision;
+   }
+
+   /**
+    * Gets the index of a log, loading it from beside the log if it is
+    * up to date, or building it and saving it there otherwise.  An
+    * index that cannot be saved, such as beside a read-only log, is
+    * simply rebuilt the next time.
+    * @param log The log file.
+    * @param interval The number of entries between recorded offsets.
+    * @return The index of the log.
+    * @throws IOException A fatal exception occurred while reading the
+    * log.
+    */
+   static SubversionXmlLogIndex open(final File log, final int interval) throws IOException {
+      final File file = new File(log.getPath() + SUFFIX);
+      if (file.isFile()) {
+         try {
+            final SubversionXmlLogIndex result = load(file, log, interval);
+            if (result != null) {
+               return result;
+            }
+         } catch (IOException e) {
+            // A damaged index is rebuilt.
+         }
+      }
+
+      final SubversionXmlLogIndex result = build(log, interval);
+      try {
+         result.save(file, log, interval);
+      } catch (IOException e) {
+         file.delete();
+      }
+      return result;
+   }
+
+   /**
+    * Gets the byte offset from which to read a range of revisions.
+    * Every entry of the range lies after the offset.
+    * @param begin The lowest revision of the range.
+    * @param end The highest revision of the range.
+    * @return The offset of an entry before the range, or zero to read
+    * the log from its start.
+    */
+   long seek(final long begin, final long end) {
+      long result = 0;
+      if (order > 0) {
+         for (int i = 0; i < revisions.length && revisions[i] < begin; i++) {
+            result = offsets[i];
+         }
+      } else if (order < 0) {
+         for (int i = 0; i < revisions.length && revisions[i] > end; i++) {
+            result = offsets[i];
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Gets the order of the revisions of the log.
+    * @return 1 if the log is in ascending revision order, -1 if it is
+    * in descending order, or 0 if it is in neither.
+    */
+   int getOrder() {
+      return order;
+   }
+
+   /**
+    * Gets the highest revision of the log.
+    * @return The highest revision, or -1 if the log is empty.
+    */
+   long getLatestRevision() {
+      return latestRevision;
+   }
+
+   /**
+    * Gets the number of entries whose offsets are recorded.
+    * @return The number of recorded offsets.
+    */
+   int size() {
+      return offsets.length;
+   }
+
+   /**
+    * Builds the index of a log by scanning it for entry tags.  Entry
+    * tags cannot occur within the text of the log, where '<' is always
+    * escaped.
+    * @param log The log file.
+    * @param interval The number of entries between recorded offsets.
+    * @return The index of the log.
+    * @throws IOException A fatal exception occurred while reading the
+    * log.
+    */
+   static SubversionXmlLogIndex build(final File log, final int interval) throws IOException {
+      final LongList revisions = new LongList();
+      final LongList offsets = new LongList();
+      int order = 0;
+      boolean ordered = true;
+      long previous = -1;
+      long latest = -1;
+      long entries = 0;
+
+      final InputStream input = new FileInputStream(log);
+      try {
+         final byte[] buffer = new byte[BUFFER_SIZE];
+         final StringBuilder attributes = new StringBuilder();
+         long position = 0;
+         long start = -1;
+         int matched = 0;
+         boolean inTag = false;
+         int read;
+         while ((read = input.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++, position++) {
+               final byte b = buffer[i];
+               if (inTag) {
+                  if (b != '>') {
+                     attributes.append((char) b);
+                     continue;
+                  }
+                  inTag = false;
+                  final long revision = parseRevision(attributes);
+                  if (entries > 0 && revision != previous) {
+                     final int step = revision > previous ? 1 : -1;
+                     if (order == 0 && ordered) {
+                        order = step;
+                     } else if (order != step) {
+                        ordered = false;
+                     }
+                  }
+                  if (entries % interval == 0) {
+                     revisions.add(revision);
+                     offsets.add(start);
+                  }
+                  entries++;
+                  previous = revision;
+                  latest = Math.max(latest, revision);
+               } else if (matched == TAG.length && (b == '>' || Character.isWhitespace(b))) {
+                  matched = 0;
+                  if (b == '>') {
+                     throw new IOException("Log entry without a revision at byte " + start);
+                  }
+                  attributes.setLength(0);
+                  inTag = true;
+               } else if (matched < TAG.length && b == TAG[matched]) {
+                  if (matched == 0) {
+                     start = position;
+                  }
+                  matched++;
+               } else {
+                  matched = 0;
+                  if (b == TAG[0]) {
+                     start = position;
+                     matched = 1;
+                  }
+               }
+            }
+         }
+      } finally {
+         input.close();
+      }
+
+      return new SubversionXmlLogIndex(
+            revisions.toArray(),
+            offsets.toArray(),
+            ordered ? order : 0,
+            latest
+      );
+   }
+
+   /**
+    * Gets the revision attribute of an entry tag.
+    * @param attributes The attributes of the tag.
+    * @return The revision.
+    * @throws IOException The tag has no revision.
+    */
+   private static long parseRevision(final CharSequence attributes) throws IOException {
+      final String text = attributes.toString();
+      final int name = text.indexOf("revision");
+      if (name >= 0) {
+         int quote = name + "revision".length();
+         while (quote < text.length() && text.charAt(quote) != '"' && text.charAt(quote) != '\'') {
+            quote++;
+         }
+         final int end = quote < text.length() ? text.indexOf(text.charAt(quote), quote + 1) : -1;
+         if (end > quote) {
+            try {
+               return Long.parseLong(text.substring(quote + 1, end).trim());
+            } catch (NumberFormatException e) {
+               // Reported below.
+            }
+         }
+      }
+      throw new IOException("Log entry without a revision: " + text);
+   }
+
+   /**
+    * Loads a saved index, if it was built from the current log.
+    * @param file The saved index.
+    * @param log The log file.
+    * @param interval The number of entries between recorded offsets.
+    * @return The index, or null if it is out of date.
+    * @throws IOException A fatal exception occurred while reading the
+    * saved index.
+    */
+   private static SubversionXmlLogIndex load(
+         final File file,
+         final File log,
+         final int interval) throws IOException {
+      final DataInputStream input =
+            new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+         if (input.readInt() != MAGIC || input.readInt() != FORMAT ||
+               input.readLong() != log.length() ||
+               input.readLong() != log.lastModified() ||
+               input.readInt() != interval) {
+            return null;
+         }
+         final int order = input.readInt();
+         final long latest = input.readLong();
+         final int count = input.readInt();
+         final long[] revisions = new long[count];
+         final long[] offsets = new long[count];
+         for (int i = 0; i < count; i++) {
+            revisions[i] = input.readLong();
+            offsets[i] = input.readLong();
+         }
+         return new SubversionXmlLogIndex(revisions, offsets, order, latest);
+      } finally {
+         input.close();
+      }
+   }
+
+   /**
+    * Saves this index beside its log.
+    * @param file The file in which to save the index.
+    * @param log The log file.
+    * @param interval The number of entries between recorded offsets.
+    * @throws IOException A fatal exception occurred while writing the
+    * index.
+    */
+   private void save(final File file, final File log, final int interval) throws IOException {
+      final DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      try {
+         output.writeInt(MAGIC);
+         output.writeInt(FORMAT);
+         output.writeLong(log.length());
+         output.writeLong(log.lastModified());
+         output.writeInt(interval);
+         output.writeInt(order);
+         output.writeLong(latestRevision);
+         output.writeInt(offsets.length);
+         for (int i = 0; i < offsets.length; i++) {
+            output.writeLong(revisions[i]);
+            output.writeLong(offsets[i]);
+         }
+      } finally {
+         output.close();
+      }
+   }
+
+   /**
+    * A growable list of longs.
+    */
+   private static final class LongList {
+      private long[] values = new long[16];
+      private int size;
+
+      void add(final long value) {
+         if (size == values.length) {
+            final long[] grown = new long[size * 2];
+            System.arraycopy(values, 0, grown, 0, size);
+            values = grown;
+         }
+         values[size++] = value;
+      }
+
+      long[] toArray() {
+         final long[] result = new long[size];
+         System.arraycopy(values, 0, result, 0, size);
+         return result;
+      }
+   }
+}
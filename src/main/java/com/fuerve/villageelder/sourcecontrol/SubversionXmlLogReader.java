@@ -0,0 +1,276 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.sourcecontrol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TimeZone;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the entries of an {@code svn log -v --xml} file one at a time
+ * with a streaming parser, so that only the entry being read is ever
+ * held in memory.  Only the entries within a range of revisions are
+ * returned; once the log is known to be in revision order, reading
+ * stops at the first entry past the range.  The reader must be closed
+ * unless it is read to the end.
+ * @author lparker
+ *
+ */
+public class SubversionXmlLogReader implements Iterator<RevisionInfo>, Closeable {
+   private static final XMLInputFactory FACTORY = createFactory();
+   private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+   private final InputStream input;
+   private final XMLStreamReader reader;
+   private final long begin;
+   private final long end;
+   private final int order;
+   private RevisionInfo next;
+   private boolean done;
+
+   /**
+    * Initializes a new instance of SubversionXmlLogReader.
+    * @param iinput The log, which is closed with the reader.
+    * @param bbegin The lowest revision to return.
+    * @param eend The highest revision to return.
+    * @param oorder 1 if the log is in ascending revision order, -1 if
+    * it is in descending order, or 0 if it may be in any order.
+    * @throws IOException A fatal exception occurred while starting to
+    * parse the log.
+    */
+   SubversionXmlLogReader(
+         final InputStream iinput,
+         final long bbegin,
+         final long eend,
+         final int oorder) throws IOException {
+      input = iinput;
+      begin = bbegin;
+      end = eend;
+      order = oorder;
+      try {
+         reader = FACTORY.createXMLStreamReader(input, "UTF-8");
+      } catch (XMLStreamException e) {
+         input.close();
+         throw new IOException("Could not parse the Subversion log", e);
+      }
+   }
+
+   /* (non-Javadoc)
+    * @see java.util.Iterator#hasNext()
+    */
+   public boolean hasNext() {
+      if (next == null && done == false) {
+         try {
+            next = read();
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      }
+      return next != null;
+   }
+
+   /* (non-Javadoc)
+    * @see java.util.Iterator#next()
+    */
+   public RevisionInfo next() {
+      if (hasNext() == false) {
+         throw new NoSuchElementException();
+      }
+      final RevisionInfo result = next;
+      next = null;
+      return result;
+   }
+
+   /* (non-Javadoc)
+    * @see java.util.Iterator#remove()
+    */
+   public void remove() {
+      throw new UnsupportedOperationException();
+   }
+
+   /* (non-Javadoc)
+    * @see java.io.Closeable#close()
+    */
+   public void close() throws IOException {
+      done = true;
+      try {
+         reader.close();
+      } catch (XMLStreamException e) {
+         throw new IOException("Could not close the Subversion log", e);
+      } finally {
+         input.close();
+      }
+   }
+
+   /**
+    * Reads the next entry within the range.
+    * @return The entry, or null if there are no more.
+    * @throws IOException A fatal exception occurred while reading or
+    * parsing the log.
+    */
+   private RevisionInfo read() throws IOException {
+      try {
+         while (reader.hasNext()) {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT ||
+                  "logentry".equals(reader.getLocalName()) == false) {
+               continue;
+            }
+            final RevisionInfo entry = readEntry();
+            final long revision = entry.getRevision();
+            if (revision >= begin && revision <= end) {
+               return entry;
+            }
+            if ((order > 0 && revision > end) || (order < 0 && revision < begin)) {
+               break;
+            }
+         }
+      } catch (XMLStreamException e) {
+         close();
+         throw new IOException("Could not parse the Subversion log", e);
+      }
+      close();
+      return null;
+   }
+
+   /**
+    * Reads the entry at which the parser stands.
+    * @return The entry.
+    * @throws XMLStreamException The entry could not be parsed.
+    */
+   private RevisionInfo readEntry() throws XMLStreamException {
+      final String revisionText = reader.getAttributeValue(null, "revision");
+      final long revision;
+      try {
+         revision = Long.parseLong(revisionText);
+      } catch (NumberFormatException e) {
+         throw new XMLStreamException("Invalid revision: " + revisionText, reader.getLocation());
+      }
+      
+      String author = null;
+      Date date = null;
+      String message = null;
+      final List<ChangePath> paths = new ArrayList<ChangePath>();
+      while (reader.hasNext()) {
+         final int event = reader.next();
+         if (event == XMLStreamConstants.END_ELEMENT &&
+               "logentry".equals(reader.getLocalName())) {
+            break;
+         } else if (event != XMLStreamConstants.START_ELEMENT) {
+            continue;
+         }
+         
+         final String name = reader.getLocalName();
+         if ("author".equals(name)) {
+            author = reader.getElementText();
+         } else if ("date".equals(name)) {
+            date = parseDate(reader.getElementText());
+         } else if ("msg".equals(name)) {
+            message = reader.getElementText();
+         } else if ("path".equals(name)) {
+            paths.add(readPath());
+         }
+      }
+      
+      final RevisionInfo result = new RevisionInfo(revision, author, date, message);
+      for (ChangePath path : paths) {
+         result.addChangePath(path);
+      }
+      return result;
+   }
+
+   /**
+    * Reads the changed path at which the parser stands.
+    * @return The changed path.
+    * @throws XMLStreamException The path could not be parsed.
+    */
+   private ChangePath readPath() throws XMLStreamException {
+      final String action = reader.getAttributeValue(null, "action");
+      final String copyPath = reader.getAttributeValue(null, "copyfrom-path");
+      final String copyRevision = reader.getAttributeValue(null, "copyfrom-rev");
+      final String path = reader.getElementText();
+      if (copyPath != null && copyRevision != null) {
+         try {
+            return new ChangePath(path, action, copyPath, Long.parseLong(copyRevision));
+         } catch (NumberFormatException e) {
+            throw new XMLStreamException("Invalid copy revision: " + copyRevision, reader.getLocation());
+         }
+      }
+      return new ChangePath(path, action);
+   }
+
+   /**
+    * Parses a Subversion date, such as 2013-04-01T09:30:15.123456Z,
+    * in which the fraction of a second has microseconds.
+    * @param text The date.
+    * @return The date, to the millisecond.
+    * @throws XMLStreamException The date could not be parsed.
+    */
+   static Date parseDate(final String text) throws XMLStreamException {
+      try {
+         final Calendar calendar = new GregorianCalendar(UTC);
+         calendar.clear();
+         calendar.set(
+               Integer.parseInt(text.substring(0, 4)),
+               Integer.parseInt(text.substring(5, 7)) - 1,
+               Integer.parseInt(text.substring(8, 10)),
+               Integer.parseInt(text.substring(11, 13)),
+               Integer.parseInt(text.substring(14, 16)),
+               Integer.parseInt(text.substring(17, 19))
+         );
+         int millis = 0;
+         if (text.length() > 20 && text.charAt(19) == '.') {
+            for (int i = 20, scale = 100; i < 23 && Character.isDigit(text.charAt(i)); i++, scale /= 10) {
+               millis += (text.charAt(i) - '0') * scale;
+            }
+         }
+         calendar.set(Calendar.MILLISECOND, millis);
+         return calendar.getTime();
+      } catch (NumberFormatException e) {
+         throw new XMLStreamException("Invalid date: " + text);
+      } catch (IndexOutOfBoundsException e) {
+         throw new XMLStreamException("Invalid date: " + text);
+      }
+   }
+
+   /**
+    * Creates the factory of streaming parsers, which never reads
+    * external entities.
+    * @return The factory.
+    */
+   private static XMLInputFactory createFactory() {
+      final XMLInputFactory result = XMLInputFactory.newInstance();
+      result.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+      result.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+      return result;
+   }
+}
@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.sourcecontrol;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A repository whose history is read from a local
+ * {@code svn log -v --xml} file, such as the dump of a mirror, rather
+ * than from a Subversion server.  The log is parsed as a stream, so
+ * that logs of any size are read in constant memory, and a side index
+ * of the byte offsets of its entries lets a range of revisions be read
+ * without parsing the entries before it.  The log may be in ascending
+ * or descending revision order.
+ * @author lparker
+ *
+ */
+public class SubversionXmlLogRepository extends Repository {
+   private static final int BUFFER_SIZE = 65536;
+   private static final byte[] PROLOGUE =
+         "<?xml version=\"1.0\" encoding=\"UTF-8\"?><log>".getBytes();
+
+   private final File log;
+   private final int interval;
+   private SubversionXmlLogIndex index;
+   private long indexedLength = -1;
+   private long indexedModified = -1;
+
+   /**
+    * Initializes a new instance of SubversionXmlLogRepository.
+    * @param path The pathname of the log file.
+    */
+   public SubversionXmlLogRepository(final String path) {
+      this(path, SubversionXmlLogIndex.DEFAULT_INTERVAL);
+   }
+
+   /**
+    * Initializes a new instance of SubversionXmlLogRepository.  A log
+    * needs no credentials, so the username and password are ignored.
+    * @param path The pathname of the log file.
+    * @param username The repository username.
+    * @param password The repository password.
+    */
+   public SubversionXmlLogRepository(
+         final String path,
+         final String username,
+         final String password) {
+      super(path, username, password);
+      log = new File(path);
+      interval = SubversionXmlLogIndex.DEFAULT_INTERVAL;
+   }
+
+   /**
+    * Initializes a new instance of SubversionXmlLogRepository that
+    * records the offset of every given number of entries.
+    * @param path The pathname of the log file.
+    * @param iinterval The number of entries between recorded offsets.
+    */
+   SubversionXmlLogRepository(final String path, final int iinterval) {
+      super(path);
+      if (iinterval < 1) {
+         throw new IllegalArgumentException("The offset interval must be positive");
+      }
+      log = new File(path);
+      interval = iinterval;
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.sourcecontrol.Repository#getRevision(long)
+    */
+   @Override
+   public RevisionInfo getRevision(final long revision) throws IOException {
+      final SubversionXmlLogReader reader = getRevisions(revision, revision);
+      try {
+         return reader.hasNext() ? reader.next() : null;
+      } finally {
+         reader.close();
+      }
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.sourcecontrol.Repository#getRevisionRange(long, long)
+    */
+   @Override
+   public List<RevisionInfo> getRevisionRange(final long begin, final long end)
+         throws IOException {
+      final List<RevisionInfo> result = new ArrayList<RevisionInfo>();
+      final SubversionXmlLogReader reader = getRevisions(begin, end);
+      try {
+         while (reader.hasNext()) {
+            result.add(reader.next());
+         }
+      } catch (RuntimeException e) {
+         if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+         }
+         throw e;
+      } finally {
+         reader.close();
+      }
+      return result;
+   }
+
+   /**
+    * Reads a range of revisions one at a time, in the order of the
+    * log, without holding the range in memory.
+    * @param begin The lowest revision number to read.
+    * @param end The highest revision number to read, or -1 to read
+    * through the head revision.
+    * @return The reader of the revisions, which must be closed unless
+    * it is read to the end.
+    * @throws IOException A fatal exception occurred while opening the
+    * log.
+    */
+   public SubversionXmlLogReader getRevisions(final long begin, final long end)
+         throws IOException {
+      final long actualBegin = Math.max(begin, 0);
+      final long actualEnd = end < 0 ? Long.MAX_VALUE : end;
+      final SubversionXmlLogIndex offsets = getIndex();
+      final long offset = offsets.seek(actualBegin, actualEnd);
+
+      final FileInputStream file = new FileInputStream(log);
+      InputStream input = file;
+      try {
+         if (offset > 0) {
+            // The entries from the offset on are parsed as the body of
+            // a log of their own.
+            file.getChannel().position(offset);
+            input = new SequenceInputStream(new ByteArrayInputStream(PROLOGUE), file);
+         }
+      } catch (IOException e) {
+         file.close();
+         throw e;
+      }
+      return new SubversionXmlLogReader(
+            new BufferedInputStream(input, BUFFER_SIZE),
+            actualBegin,
+            actualEnd,
+            offsets.getOrder()
+      );
+   }
+
+   /* (non-Javadoc)
+    * @see com.fuerve.villageelder.sourcecontrol.Repository#getLatestRevision()
+    */
+   @Override
+   public long getLatestRevision() throws IOException {
+      return getIndex().getLatestRevision();
+   }
+
+   /**
+    * Gets the side index of the log, which is rebuilt whenever the log
+    * changes.
+    * @return The index of the log.
+    * @throws IOException A fatal exception occurred while reading the
+    * log.
+    */
+   synchronized SubversionXmlLogIndex getIndex() throws IOException {
+      if (log.isFile() == false) {
+         throw new IOException("No Subversion log exists at " + log.getPath());
+      }
+      if (index == null || log.length() != indexedLength || log.lastModified() != indexedModified) {
+         indexedLength = log.length();
+         indexedModified = log.lastModified();
+         index = SubversionXmlLogIndex.open(log, interval);
+      }
+      return index;
+   }
+}
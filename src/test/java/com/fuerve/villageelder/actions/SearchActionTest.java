@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.actions;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.actions.results.SearchResult;
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.search.Searcher;
+import com.fuerve.villageelder.search.SearcherLeases;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link SearchAction}.
+ * @author lparker
+ *
+ */
+public class SearchActionTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.actions.SearchAction#setVersion(long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testSetVersion() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      addRevisions(indexDirectory, 1, 30);
+      Searcher searcher = new Searcher(indexDirectory);
+      searcher.setLeases(new SearcherLeases(2, 600.0));
+      searcher.initializeSearch();
+
+      // TEST 1: The first page reports the version of its reader.
+      searcher.createSearch("Author:foo");
+      SearchAction target = new SearchAction(searcher);
+      SearchResult first = target.doWork();
+      assertEquals(30, first.getTopDocs().totalHits);
+      final long version = first.getVersion();
+      assertTrue(version >= 0);
+
+      // TEST 2: A later page of the same version, after a refresh,
+      // neither repeats nor skips hits.
+      addRevisions(indexDirectory, 31, 5);
+      assertTrue(searcher.refresh());
+      searcher.createSearch("Author:foo");
+      target = new SearchAction(searcher);
+      target.setVersion(version);
+      SearchResult second = target.doWork();
+      assertEquals(30, second.getTopDocs().totalHits);
+      assertEquals(version, second.getVersion());
+      for (int i = 0; i < first.getTopDocs().scoreDocs.length; i++) {
+         ScoreDoc expected = first.getTopDocs().scoreDocs[i];
+         ScoreDoc actual = second.getTopDocs().scoreDocs[i];
+         assertEquals(expected.doc, actual.doc);
+      }
+
+      // TEST 3: A new search sees the refreshed reader.
+      searcher.createSearch("Author:foo");
+      SearchResult latest = new SearchAction(searcher).doWork();
+      assertEquals(35, latest.getTopDocs().totalHits);
+      assertTrue(latest.getVersion() > version);
+
+      searcher.dispose();
+   }
+
+   private void addRevisions(
+         final Directory indexDirectory,
+         final int first,
+         final int count) throws IOException {
+      Indexer indexer = new Indexer(
+            indexDirectory,
+            null,
+            first == 1 ? OpenMode.CREATE : OpenMode.APPEND
+      );
+      indexer.initializeIndex();
+      for (int i = first; i < first + count; i++) {
+         indexer.indexRevision(new RevisionInfo(i, "foo", new Date(i * 1000L), "stuff"));
+      }
+      indexer.dispose();
+   }
+}
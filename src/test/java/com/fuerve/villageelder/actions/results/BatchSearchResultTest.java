@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.actions.results;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link BatchSearchResult} class.
+ * @author lparker
+ *
+ */
+public class BatchSearchResultTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.actions.results.BatchSearchResult#aggregate(java.util.List)}.
+    */
+   @Test
+   public final void testAggregate() throws Exception {
+      BatchSearchResult target = new BatchSearchResult();
+      assertEquals(0, target.size());
+      
+      List<SearchResultItem> items = new ArrayList<SearchResultItem>();
+      items.add(new SearchResultItem(new TopDocs(1, new ScoreDoc[0], 1.0f), null));
+      items.add(new SearchResultItem(new TopDocs(2, new ScoreDoc[0], 1.0f), null));
+      target.aggregate(items);
+      
+      assertEquals(2, target.size());
+      assertEquals(2, target.get(1).getTopDocs().totalHits);
+      int total = 0;
+      for (SearchResultItem item : target) {
+         total += item.getTopDocs().totalHits;
+      }
+      assertEquals(3, total);
+   }
+}
@@ -0,0 +1,45 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.actions.results;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ExportResult} class.
+ * @author lparker
+ *
+ */
+public class ExportResultTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.actions.results.ExportResult#aggregate(com.fuerve.villageelder.actions.results.ExportResultItem)}.
+    */
+   @Test
+   public final void testAggregateExportResultItem() throws Exception {
+      ExportResult target = new ExportResult();
+      assertEquals(-1, target.getRevisionCount());
+      assertFalse(target.isPartial());
+      
+      target.aggregate(new ExportResultItem(12, true));
+      assertEquals(12, target.getRevisionCount());
+      assertTrue(target.isPartial());
+   }
+}
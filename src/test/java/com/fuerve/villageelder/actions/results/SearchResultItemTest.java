@@ -48,13 +48,16 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.RAMDirectory;
 import org.junit.Test;
 
 import com.fuerve.villageelder.common.Lucene;
+import com.fuerve.villageelder.common.RevisionSummary;
 import com.fuerve.villageelder.search.SearchQueryParser;
 
 /**
@@ -96,6 +99,33 @@ public class SearchResultItemTest {
       assertEquals(1, target.getFacetResults().size());
    }
 
+   /**
+    * Test method for the optional parts of {@link com.fuerve.villageelder.actions.results.SearchResultItem}.
+    */
+   @Test
+   public final void testOptionalParts() {
+      SearchResultItem target = new SearchResultItem(new TopDocs(0, new ScoreDoc[0], Float.NaN), null);
+      
+      // TEST 1: The optional parts are absent unless they are set.
+      assertFalse(target.isFacetCountsEstimated());
+      assertNull(target.getTopGroups());
+      assertFalse(target.isTimedOut());
+      assertNull(target.getDocuments());
+      assertNull(target.getSummaries());
+      
+      // TEST 2: The optional parts are kept once they are set.
+      List<Document> documents = new ArrayList<Document>();
+      List<RevisionSummary> summaries = new ArrayList<RevisionSummary>();
+      target.setFacetCountsEstimated(true);
+      target.setTimedOut(true);
+      target.setDocuments(documents);
+      target.setSummaries(summaries);
+      assertTrue(target.isFacetCountsEstimated());
+      assertTrue(target.isTimedOut());
+      assertSame(documents, target.getDocuments());
+      assertSame(summaries, target.getSummaries());
+   }
+
    private void buildDummyIndex(
          final Directory indexDirectory,
          final Directory taxonomyDirectory) throws IOException {
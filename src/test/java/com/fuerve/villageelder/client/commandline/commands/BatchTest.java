@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the Batch command class.
+ * @author lparker
+ *
+ */
+public class BatchTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Batch#getCommandName()}.
+    */
+   @Test
+   public final void testGetCommandName() {
+      assertEquals("batch", new Batch(new HashMap<String, Command>()).getCommandName());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Batch#execute(java.lang.String[])}.
+    * @throws Exception
+    */
+   @Test
+   public final void testExecute() throws Exception {
+      RecordingCommand record = new RecordingCommand(0);
+      RecordingCommand fail = new RecordingCommand(1);
+      Map<String, Command> commands = new HashMap<String, Command>();
+      commands.put("record", record);
+      commands.put("fail", fail);
+      Batch target = new Batch(commands);
+      commands.put("batch", target);
+
+      File file = writeBatch(
+            "# A comment",
+            "record one \"two three\"",
+            "",
+            "fail",
+            "batch",
+            "record 'four'"
+      );
+      PrintStream err = System.err;
+      System.setErr(new PrintStream(new ByteArrayOutputStream()));
+      int result;
+      try {
+         result = target.execute(new String[] { "-f", file.getPath() });
+      } finally {
+         System.setErr(err);
+         file.delete();
+      }
+
+      // Every command runs, but a failure fails the batch.  A batch
+      // cannot run itself.
+      assertEquals(1, result);
+      assertEquals("[[one, two three], [four]]", record.runs.toString());
+      assertEquals(1, fail.runs.size());
+
+      // Every command of the batch shares one session, which is
+      // forgotten once the batch ends.
+      assertNotNull(record.sessions.get(0));
+      assertSame(record.sessions.get(0), record.sessions.get(1));
+      assertSame(record.sessions.get(0), fail.sessions.get(0));
+      assertNull(record.getSession());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Batch#execute(java.lang.String[])}.
+    * @throws Exception
+    */
+   @Test
+   public final void testExecuteStopOnError() throws Exception {
+      RecordingCommand record = new RecordingCommand(0);
+      Map<String, Command> commands = new HashMap<String, Command>();
+      commands.put("record", record);
+      Batch target = new Batch(commands);
+
+      File file = writeBatch("record one", "unknown", "record two");
+      PrintStream err = System.err;
+      System.setErr(new PrintStream(new ByteArrayOutputStream()));
+      int result;
+      try {
+         result = target.execute(new String[] { "-f", file.getPath(), "-x" });
+      } finally {
+         System.setErr(err);
+         file.delete();
+      }
+
+      assertEquals(1, result);
+      assertEquals("[[one]]", record.runs.toString());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Batch#tokenize(java.lang.String)}.
+    */
+   @Test
+   public final void testTokenize() {
+      assertEquals(
+            Arrays.asList("export", "-q", "Author:alice AND Message:fix", "-f", "json"),
+            Arrays.asList(Batch.tokenize("  export -q \"Author:alice AND Message:fix\"  -f json "))
+      );
+      assertEquals(
+            Arrays.asList("export", "-q", "Message:\"null pointer\""),
+            Arrays.asList(Batch.tokenize("export -q 'Message:\"null pointer\"'"))
+      );
+      assertEquals(Arrays.asList("a", ""), Arrays.asList(Batch.tokenize("a \"\"")));
+      assertEquals(0, Batch.tokenize("   ").length);
+      assertEquals(0, Batch.tokenize(" # export -q x").length);
+
+      try {
+         Batch.tokenize("export -q \"unterminated");
+         fail("An unterminated quote was accepted");
+      } catch (IllegalArgumentException e) {
+         // Expected.
+      }
+   }
+
+   private static File writeBatch(final String... lines) throws Exception {
+      File result = File.createTempFile("batch", ".txt");
+      Writer writer = new OutputStreamWriter(new FileOutputStream(result), "UTF-8");
+      try {
+         for (String line : lines) {
+            writer.write(line);
+            writer.write('\n');
+         }
+      } finally {
+         writer.close();
+      }
+      return result;
+   }
+
+   private static class RecordingCommand extends Command {
+      private final int code;
+      private final List<List<String>> runs = new ArrayList<List<String>>();
+      private final List<Session> sessions = new ArrayList<Session>();
+
+      RecordingCommand(final int ccode) {
+         code = ccode;
+      }
+
+      @Override
+      protected String getCommandName() {
+         return "record";
+      }
+
+      @Override
+      public int execute(final String[] args) {
+         runs.add(Arrays.asList(args));
+         sessions.add(getSession());
+         return code;
+      }
+   }
+}
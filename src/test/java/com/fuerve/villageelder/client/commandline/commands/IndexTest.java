@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.MockRepository;
+import com.fuerve.villageelder.sourcecontrol.Repository;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+import com.fuerve.villageelder.sourcecontrol.SubversionXmlLogRepository;
+
+/**
+ * Unit tests for the Index command class.
+ * @author lparker
+ *
+ */
+public class IndexTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Index#getCommandName()}.
+    */
+   @Test
+   public final void testGetCommandName() {
+      assertEquals("index", new Index().getCommandName());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Index#execute(java.lang.String[])}.
+    */
+   @Test
+   public final void testExecuteInvalidFetchSize() {
+      PrintStream out = System.out;
+      System.setOut(new PrintStream(new ByteArrayOutputStream()));
+      try {
+         assertEquals(1, new Index().execute(new String[] { "--fetchsize", "0" }));
+         assertEquals(1, new Index().execute(new String[] { "--fetchsize", "many" }));
+      } finally {
+         System.setOut(out);
+      }
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Index#indexRevisionRanges(com.fuerve.villageelder.indexing.Indexer, com.fuerve.villageelder.sourcecontrol.Repository, long, long, int)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testIndexRevisionRanges() throws Exception {
+      final MockRepository delegate = new MockRepository("mock");
+      for (int i = 0; i < 8; i++) {
+         delegate.addRevision(new RevisionInfo(i, "alice", new Date(i * 1000L), "change"));
+      }
+      final List<String> ranges = new ArrayList<String>();
+      Repository repository = new Repository("mock") {
+         @Override
+         public RevisionInfo getRevision(final long revision) throws IOException {
+            return delegate.getRevision(revision);
+         }
+
+         @Override
+         public List<RevisionInfo> getRevisionRange(final long begin, final long end)
+               throws IOException {
+            ranges.add(begin + "-" + end);
+            return new ArrayList<RevisionInfo>(delegate.getRevisionRange(begin, end));
+         }
+
+         @Override
+         public long getLatestRevision() throws IOException {
+            return delegate.getLatestRevision();
+         }
+      };
+
+      // TEST 1: The range is fetched a chunk at a time through the head
+      // revision, and the last chunk holds what is left.
+      Directory directory = new RAMDirectory();
+      RecordingIndexer indexer = new RecordingIndexer(directory);
+      indexer.initializeIndex();
+      assertEquals(7, Index.indexRevisionRanges(indexer, repository, 1, -1, 3));
+      indexer.dispose();
+      assertEquals("[1-3, 4-6, 7-7]", ranges.toString());
+      assertEquals("[3, 3, 1]", indexer.batches.toString());
+      assertEquals(7, count(directory));
+
+      // TEST 2: A fetch size that divides the range leaves no empty
+      // chunk, and an explicit end is honoured.
+      ranges.clear();
+      directory = new RAMDirectory();
+      indexer = new RecordingIndexer(directory);
+      indexer.initializeIndex();
+      assertEquals(4, Index.indexRevisionRanges(indexer, repository, 0, 3, 2));
+      indexer.dispose();
+      assertEquals("[0-1, 2-3]", ranges.toString());
+      assertEquals(4, count(directory));
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Index#indexRevisionLog(com.fuerve.villageelder.indexing.Indexer, com.fuerve.villageelder.sourcecontrol.SubversionXmlLogRepository, long, long, int)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testIndexRevisionLog() throws Exception {
+      File log = writeLog(9, 8, 7, 6, 5, 4, 3, 2, 1);
+      try {
+         SubversionXmlLogRepository repository = new SubversionXmlLogRepository(log.getPath());
+
+         // TEST 1: The log is read once, and indexed a chunk at a time.
+         Directory directory = new RAMDirectory();
+         RecordingIndexer indexer = new RecordingIndexer(directory);
+         indexer.initializeIndex();
+         assertEquals(7, Index.indexRevisionLog(indexer, repository, 2, 8, 3));
+         indexer.dispose();
+         assertEquals("[3, 3, 1]", indexer.batches.toString());
+         assertEquals(7, count(directory));
+
+         // TEST 2: The whole log fills whole chunks.
+         directory = new RAMDirectory();
+         indexer = new RecordingIndexer(directory);
+         indexer.initializeIndex();
+         assertEquals(9, Index.indexRevisionLog(indexer, repository, 0, -1, 3));
+         indexer.dispose();
+         assertEquals("[3, 3, 3]", indexer.batches.toString());
+         assertEquals(9, count(directory));
+      } finally {
+         new File(log.getPath() + ".offsets").delete();
+         log.delete();
+      }
+   }
+
+   private static int count(final Directory directory) throws IOException {
+      DirectoryReader reader = DirectoryReader.open(directory);
+      try {
+         return reader.numDocs();
+      } finally {
+         reader.close();
+      }
+   }
+
+   private static File writeLog(final long... revisions) throws Exception {
+      File result = File.createTempFile("svnlog", ".xml");
+      Writer writer = new OutputStreamWriter(new FileOutputStream(result), "UTF-8");
+      try {
+         writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<log>\n");
+         for (long revision : revisions) {
+            writer.write("<logentry revision=\"" + revision + "\">\n");
+            writer.write("<author>alice</author>\n");
+            writer.write("<date>2013-04-01T09:30:15.123456Z</date>\n");
+            writer.write("<paths>\n<path action=\"M\" kind=\"file\">/trunk/a</path>\n</paths>\n");
+            writer.write("<msg>change</msg>\n");
+            writer.write("</logentry>\n");
+         }
+         writer.write("</log>\n");
+      } finally {
+         writer.close();
+      }
+      return result;
+   }
+
+   /**
+    * Records the size of every batch of revisions indexed.
+    */
+   private static class RecordingIndexer extends Indexer {
+      private final List<Integer> batches = new ArrayList<Integer>();
+
+      RecordingIndexer(final Directory directory) {
+         super(directory);
+      }
+
+      @Override
+      public void indexRevisions(final Iterable<RevisionInfo> revisions) throws IOException {
+         int size = 0;
+         for (@SuppressWarnings("unused") RevisionInfo revision : revisions) {
+            size++;
+         }
+         batches.add(size);
+         super.indexRevisions(revisions);
+      }
+   }
+}
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.util.Date;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.common.DirectoryFactory;
+import com.fuerve.villageelder.common.DirectoryType;
+import com.fuerve.villageelder.configuration.CommonProperties;
+import com.fuerve.villageelder.configuration.SearchProperties;
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.search.QueryLog;
+import com.fuerve.villageelder.search.QueryLogWarmer;
+import com.fuerve.villageelder.search.Searcher;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for the SearcherFactory class.
+ * @author lparker
+ *
+ */
+public class SearcherFactoryTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.SearcherFactory#newSearcher(org.apache.lucene.store.Directory)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testNewSearcher() throws Exception {
+      File file = File.createTempFile("querylog", ".txt");
+      file.deleteOnExit();
+      SearchProperties properties = new SearchProperties(new StringReader(
+            "Search.TimeoutMillis = 250\n"
+            + "Search.MaxExpandedTerms = 100\n"
+            + "Search.MaxConcurrentSearches = 2\n"
+            + "Search.FilterCacheSize = 8\n"
+            + "Search.DocumentCacheMB = 1\n"
+            + "Search.FacetSampling.Threshold = 1000\n"
+            + "Search.LowMemory = true\n"
+            + "Search.LeaseReaders = 2\n"
+            + "Search.QueryLogFile = " + file.getPath().replace('\\', '/') + "\n"
+      ));
+      properties.load();
+      Directory indexDirectory = new RAMDirectory();
+      buildIndex(indexDirectory);
+      
+      SearcherFactory target = new SearcherFactory(null, properties);
+      Searcher first = target.newSearcher(indexDirectory);
+      Searcher second = target.newSearcher(indexDirectory);
+      
+      // TEST 1: Every setting is applied to every searcher.
+      for (Searcher searcher : new Searcher[] { first, second }) {
+         assertEquals(250L, get(searcher, "timeout"));
+         assertTrue(searcher.isLowMemory());
+         assertNotNull(get(searcher, "costEstimator"));
+         assertNotNull(get(searcher, "facetSampling"));
+         assertNotNull(get(searcher, "leases"));
+         assertTrue(get(searcher, "warmer") instanceof QueryLogWarmer);
+         assertEquals(true, get(searcher, "initialized"));
+      }
+      
+      // TEST 2: The controller, the caches and the query log are shared,
+      // while each searcher keeps leases of its own readers.
+      for (String field : new String[] {
+            "admissionController", "filterCache", "documentCache", "queryLog" }) {
+         assertNotNull(field, get(first, field));
+         assertSame(field, get(first, field), get(second, field));
+      }
+      assertNotSame(get(first, "leases"), get(second, "leases"));
+      
+      // TEST 3: Searches are recorded in the configured query log.
+      first.createSearch("Author:foo");
+      first.search();
+      first.dispose();
+      second.dispose();
+      QueryLog saved = new QueryLog(file, 10);
+      saved.load();
+      assertEquals("Author:foo", saved.getTopQueries(1).get(0));
+   }
+   
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.SearcherFactory#newSearcher(org.apache.lucene.store.Directory)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testNewSearcherUnconfigured() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      buildIndex(indexDirectory);
+      
+      Searcher target = new SearcherFactory(null, null).newSearcher(indexDirectory);
+      assertEquals(0L, get(target, "timeout"));
+      assertFalse(target.isLowMemory());
+      assertNull(get(target, "filterCache"));
+      assertNull(get(target, "queryLog"));
+      assertEquals(true, get(target, "initialized"));
+      target.dispose();
+   }
+   
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.SearcherFactory#newSearcher(java.lang.String)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testNewSearcherDirectoryType() throws Exception {
+      File path = File.createTempFile("index", "");
+      assertTrue(path.delete());
+      assertTrue(path.mkdir());
+      try {
+         Directory indexDirectory = FSDirectory.open(path);
+         buildIndex(indexDirectory);
+         indexDirectory.close();
+         CommonProperties properties = new CommonProperties(new StringReader(
+               "Common.DirectoryType = nio\nCommon.DirectoryPreload = true\n"
+         ));
+         properties.load();
+
+         // TEST: The configured directory type and preloading reach the
+         // opened searcher.
+         Searcher target = new SearcherFactory(properties, null).newSearcher(path.getPath());
+         DirectoryFactory actual = (DirectoryFactory) get(target, "directoryFactory");
+         assertEquals(DirectoryType.NIO, actual.getType());
+         assertTrue(actual.isPreload());
+         assertTrue(get(target, "indexDirectory") instanceof NIOFSDirectory);
+         assertEquals(6, ((DirectoryReader) get(target, "indexReader")).numDocs());
+         target.dispose();
+      } finally {
+         for (File file : path.listFiles()) {
+            file.delete();
+         }
+         path.delete();
+      }
+   }
+   
+   private static Object get(final Searcher searcher, final String name) throws Exception {
+      Field field = Searcher.class.getDeclaredField(name);
+      field.setAccessible(true);
+      return field.get(searcher);
+   }
+   
+   private static void buildIndex(final Directory indexDirectory) throws IOException {
+      Indexer indexer = new Indexer(indexDirectory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= 6; i++) {
+         RevisionInfo revision = new RevisionInfo(i, "foo", new Date(i * 1000L), "stuff");
+         revision.addChangePath(new ChangePath("/trunk/a", "M"));
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+   }
+}
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.client.commandline.commands;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Date;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fuerve.villageelder.sourcecontrol.MockRepository;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+import com.fuerve.villageelder.sourcecontrol.RepositoryProviderType;
+
+/**
+ * Unit tests for the Watch command class.
+ * @author lparker
+ *
+ */
+public class WatchTest {
+   private File indexPath;
+   private File taxonomyPath;
+
+   /**
+    * Creates empty directories for the index.
+    * @throws Exception
+    */
+   @Before
+   public void setUp() throws Exception {
+      indexPath = createDirectory("index");
+      taxonomyPath = createDirectory("taxonomy");
+   }
+
+   /**
+    * Removes the index from disk.
+    */
+   @After
+   public void tearDown() {
+      deleteDirectory(indexPath);
+      deleteDirectory(taxonomyPath);
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Watch#getCommandName()}.
+    */
+   @Test
+   public final void testGetCommandName() {
+      assertEquals("watch", new Watch().getCommandName());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.client.commandline.commands.Watch#getShutdownHook()}.
+    * @throws Exception
+    */
+   @Test(timeout = 30000)
+   public final void testShutdownHook() throws Exception {
+      // The session hands the watch the repository that the test fills.
+      Session session = new Session(new SearcherFactory(null, null));
+      MockRepository repository =
+            (MockRepository) session.getRepository(RepositoryProviderType.MOCK, "mock");
+      for (int i = 0; i < 5; i++) {
+         repository.addRevision(new RevisionInfo(i, "alice", new Date(i * 1000L), "change"));
+      }
+
+      final Watch target = new Watch();
+      target.setSession(session);
+      final String[] args = new String[] {
+            "--indexdir", indexPath.getPath(),
+            "--taxonomydir", taxonomyPath.getPath(),
+            "--repository", "mock",
+            "--repositoryType", "MOCK",
+            "-i", "10",
+            "-m", "10",
+            "-c", "1000000",
+            "-t", "100000000"
+      };
+      final int[] result = new int[] { -1 };
+      Thread watch = new Thread() {
+         @Override
+         public void run() {
+            result[0] = target.execute(args);
+         }
+      };
+
+      PrintStream out = System.out;
+      System.setOut(new PrintStream(new ByteArrayOutputStream()));
+      try {
+         watch.start();
+         while (target.getShutdownHook() == null) {
+            Thread.sleep(1);
+         }
+
+         // TEST: The hook stops the watch, and only returns once the
+         // pending revisions have been committed.
+         target.getShutdownHook().run();
+         assertEquals(5, count(indexPath));
+         watch.join();
+      } finally {
+         System.setOut(out);
+      }
+      assertEquals(0, result[0]);
+   }
+
+   private static int count(final File path) throws IOException {
+      Directory directory = FSDirectory.open(path);
+      try {
+         DirectoryReader reader = DirectoryReader.open(directory);
+         try {
+            return reader.numDocs();
+         } finally {
+            reader.close();
+         }
+      } finally {
+         directory.close();
+      }
+   }
+
+   private static File createDirectory(final String prefix) throws IOException {
+      File result = File.createTempFile(prefix, "");
+      assertTrue(result.delete());
+      assertTrue(result.mkdir());
+      return result;
+   }
+
+   private static void deleteDirectory(final File path) {
+      for (File file : path.listFiles()) {
+         file.delete();
+      }
+      path.delete();
+   }
+}
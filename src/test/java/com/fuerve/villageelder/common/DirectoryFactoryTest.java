@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.common;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Date;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link DirectoryFactory}.
+ * @author lparker
+ *
+ */
+public class DirectoryFactoryTest {
+   private File path;
+
+   /**
+    * Builds a small index on disk.
+    * @throws Exception
+    */
+   @Before
+   public void setUp() throws Exception {
+      path = File.createTempFile("index", "");
+      assertTrue(path.delete());
+      assertTrue(path.mkdir());
+
+      Directory directory = FSDirectory.open(path);
+      Indexer indexer = new Indexer(directory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= 10; i++) {
+         indexer.indexRevision(new RevisionInfo(i, "foo", new Date(i * 1000L), "stuff"));
+      }
+      indexer.dispose();
+      directory.close();
+   }
+
+   /**
+    * Removes the index from disk.
+    */
+   @After
+   public void tearDown() {
+      for (File file : path.listFiles()) {
+         file.delete();
+      }
+      path.delete();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.common.DirectoryFactory#open(java.io.File)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testOpen() throws Exception {
+      assertOpens(new DirectoryFactory(), FSDirectory.open(path).getClass());
+      assertOpens(new DirectoryFactory(DirectoryType.MMAP, false), MMapDirectory.class);
+      assertOpens(new DirectoryFactory(DirectoryType.MMAP, true, 2), MMapDirectory.class);
+      assertOpens(new DirectoryFactory(DirectoryType.NIO, true), NIOFSDirectory.class);
+      assertOpens(new DirectoryFactory(DirectoryType.RAM, true), RAMDirectory.class);
+
+      try {
+         new DirectoryFactory().open("");
+         fail("An empty pathname was opened");
+      } catch (IllegalArgumentException e) {
+         // Expected.
+      }
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.common.DirectoryFactory#preload(org.apache.lucene.store.Directory, int)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testPreload() throws Exception {
+      Directory directory = new MMapDirectory(path);
+      DirectoryFactory.preload(directory, 3);
+      DirectoryFactory.preload(new RAMDirectory(), 3);
+      directory.close();
+   }
+
+   private void assertOpens(
+         final DirectoryFactory target,
+         final Class<? extends Directory> expected) throws Exception {
+      Directory directory = target.open(path.getPath());
+      assertEquals(expected, directory.getClass());
+      DirectoryReader reader = DirectoryReader.open(directory);
+      assertEquals(10, reader.numDocs());
+      reader.close();
+      directory.close();
+   }
+}
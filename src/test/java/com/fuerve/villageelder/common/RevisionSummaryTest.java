@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.common;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link RevisionSummary}.
+ * @author lparker
+ *
+ */
+public class RevisionSummaryTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.common.RevisionSummary#fromRevision(com.fuerve.villageelder.sourcecontrol.RevisionInfo)}.
+    */
+   @Test
+   public final void testFromRevision() {
+      StringBuilder longLine = new StringBuilder();
+      for (int i = 0; i < 20; i++) {
+         longLine.append("word ");
+      }
+      RevisionInfo revision = new RevisionInfo(
+            42,
+            "alice",
+            new Date(1000L),
+            "  " + longLine + "\nThe rest of the message."
+      );
+      revision.addChangePath(new ChangePath("/trunk/a", "M"));
+      revision.addChangePath(new ChangePath("/branches/b", "A"));
+      revision.addChangePath(new ChangePath("/trunk/c", "D"));
+
+      RevisionSummary actual = RevisionSummary.fromRevision(revision);
+      assertEquals(42L, actual.getRevision());
+      assertEquals("alice", actual.getAuthor());
+      assertEquals(new Date(1000L), actual.getDate());
+      assertEquals(RevisionSummary.MAX_MESSAGE_LENGTH, actual.getMessage().length());
+      assertTrue(actual.getMessage().startsWith("word word"));
+      assertEquals(3, actual.getPathCount());
+      assertEquals(Arrays.asList("trunk", "branches"), actual.getTopLevelPaths());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.common.RevisionSummary#decode(java.lang.String)}.
+    */
+   @Test
+   public final void testEncodeDecode() {
+      RevisionSummary expected = new RevisionSummary(
+            7,
+            "bob\tsmith",
+            new Date(123456789L),
+            "Fixed\tthe build",
+            12,
+            Arrays.asList("a", "b", "c", "d", "e", "f")
+      );
+      RevisionSummary actual = RevisionSummary.decode(expected.encode());
+      assertEquals(7L, actual.getRevision());
+      assertEquals("bob smith", actual.getAuthor());
+      assertEquals(new Date(123456789L), actual.getDate());
+      assertEquals("Fixed the build", actual.getMessage());
+      assertEquals(12, actual.getPathCount());
+      assertEquals(Arrays.asList("a", "b", "c", "d", "e"), actual.getTopLevelPaths());
+
+      // A revision that changed no paths has no top-level directories.
+      RevisionSummary empty = RevisionSummary.decode(
+            new RevisionSummary(1, null, new Date(0L), null, 0, null).encode()
+      );
+      assertEquals("", empty.getAuthor());
+      assertEquals("", empty.getMessage());
+      assertTrue(empty.getTopLevelPaths().isEmpty());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.common.RevisionSummary#decode(java.lang.String)}.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public final void testDecodeInvalid() {
+      RevisionSummary.decode("not a summary");
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.common.RevisionSummary#getTopLevelPath(java.lang.String)}.
+    */
+   @Test
+   public final void testGetTopLevelPath() {
+      assertEquals("trunk", RevisionSummary.getTopLevelPath("/trunk/src/Main.java"));
+      assertEquals("trunk", RevisionSummary.getTopLevelPath("//trunk"));
+      assertEquals("", RevisionSummary.getTopLevelPath("/"));
+      assertEquals("", RevisionSummary.getTopLevelPath(null));
+   }
+}
@@ -27,6 +27,9 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.junit.Test;
 
+import com.fuerve.villageelder.common.DirectoryFactory;
+import com.fuerve.villageelder.common.DirectoryType;
+
 /**
  * Unit tests for the CommonProperties class.
  * @author lparker
@@ -132,4 +135,25 @@ public class CommonPropertiesTest {
       
       assertEquals(null, target.getTaxonomyDirectory());
    }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.CommonProperties#getDirectoryFactory()}.
+    */
+   @Test
+   public final void testGetDirectoryFactory() throws Exception {
+      CommonProperties target = new CommonProperties(
+            new StringReader("Common.DirectoryType = nio\nCommon.DirectoryPreload = true\n")
+      );
+      target.load();
+      
+      DirectoryFactory actual = target.getDirectoryFactory();
+      assertEquals(DirectoryType.NIO, actual.getType());
+      assertEquals(true, actual.isPreload());
+      
+      target = new CommonProperties(new StringReader(""));
+      target.load();
+      actual = target.getDirectoryFactory();
+      assertEquals(DirectoryType.FS, actual.getType());
+      assertEquals(false, actual.isPreload());
+   }
 }
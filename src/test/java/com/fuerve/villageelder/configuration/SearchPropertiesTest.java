@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.configuration;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+import java.io.Writer;
+
+import org.junit.Test;
+
+import com.fuerve.villageelder.search.AdmissionController;
+import com.fuerve.villageelder.search.DocumentCache;
+import com.fuerve.villageelder.search.FacetSampling;
+import com.fuerve.villageelder.search.FilterCache;
+import com.fuerve.villageelder.search.QueryCostEstimator;
+import com.fuerve.villageelder.search.QueryLog;
+import com.fuerve.villageelder.search.SearcherLeases;
+
+/**
+ * Unit tests for the SearchProperties class.
+ * @author lparker
+ *
+ */
+public class SearchPropertiesTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getFacetSampling()}.
+    */
+   @Test
+   public final void testGetFacetSampling() throws Exception {
+      final String testProps =
+            "Search.FacetSampling.Threshold = 5000\nSearch.FacetSampling.ExactTopCounts = false\n";
+      SearchProperties target = new SearchProperties(new StringReader(testProps));
+      target.load();
+      
+      FacetSampling actual = target.getFacetSampling();
+      assertEquals(5000, actual.getThreshold());
+      assertEquals(0.1, actual.getSampleRatio(), 0.0);
+      assertEquals(false, actual.isExactTopCounts());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getFacetSampling()}.
+    */
+   @Test
+   public final void testGetFacetSamplingDisabled() throws Exception {
+      SearchProperties target = new SearchProperties(new StringReader("Search.FacetSampling.Ratio = 0.5\n"));
+      target.load();
+      
+      assertEquals(null, target.getFacetSampling());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getTimeout()}.
+    */
+   @Test
+   public final void testGetTimeout() throws Exception {
+      SearchProperties target = new SearchProperties(new StringReader("Search.TimeoutMillis = 2500\n"));
+      target.load();
+      assertEquals(2500L, target.getTimeout());
+      
+      target = new SearchProperties(new StringReader(""));
+      target.load();
+      assertEquals(0L, target.getTimeout());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getQueryCostEstimator()}.
+    */
+   @Test
+   public final void testGetQueryCostEstimator() throws Exception {
+      SearchProperties target = new SearchProperties(new StringReader("Search.MaxClauses = 64\n"));
+      target.load();
+      
+      QueryCostEstimator actual = target.getQueryCostEstimator();
+      assertEquals(64, actual.getMaxClauses());
+      assertEquals(Long.MAX_VALUE, actual.getMaxTerms());
+      
+      target = new SearchProperties(new StringReader(""));
+      target.load();
+      assertEquals(null, target.getQueryCostEstimator());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getAdmissionController()}.
+    */
+   @Test
+   public final void testGetAdmissionController() throws Exception {
+      SearchProperties target = new SearchProperties(new StringReader("Search.MaxConcurrentSearches = 4\n"));
+      target.load();
+      
+      AdmissionController actual = target.getAdmissionController();
+      assertEquals(4, actual.getAvailable());
+      assertEquals(0, actual.getQueued());
+      
+      target = new SearchProperties(new StringReader("Search.MaxQueuedSearches = 4\n"));
+      target.load();
+      assertEquals(null, target.getAdmissionController());
+   }
+   
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getFilterCache()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetFilterCache() throws Exception {
+      SearchProperties target = new SearchProperties(new StringReader("Search.FilterCacheSize = 64\n"));
+      target.load();
+      
+      FilterCache actual = target.getFilterCache();
+      assertEquals(0, actual.size());
+      
+      target = new SearchProperties(new StringReader("Search.FilterCacheSize = 0\n"));
+      target.load();
+      assertEquals(null, target.getFilterCache());
+   }
+   
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getDocumentCache()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetDocumentCache() throws Exception {
+      SearchProperties target = new SearchProperties(new StringReader("Search.DocumentCacheMB = 16\n"));
+      target.load();
+      
+      DocumentCache actual = target.getDocumentCache();
+      assertEquals(16L * 1024 * 1024, actual.getMaxBytes());
+      assertEquals(0, actual.size());
+      
+      target = new SearchProperties(new StringReader(""));
+      target.load();
+      assertEquals(null, target.getDocumentCache());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getQueryLog()}.
+    */
+   @Test
+   public final void testGetQueryLog() throws Exception {
+      File file = File.createTempFile("querylog", ".txt");
+      file.deleteOnExit();
+      Writer writer = new FileWriter(file);
+      writer.write("Author:qux\n");
+      writer.close();
+      
+      SearchProperties target = new SearchProperties(new StringReader(
+            "Search.QueryLogFile = " + file.getPath().replace('\\', '/')
+            + "\nSearch.QueryLogSize = 2\nSearch.WarmQueries = 5\n"
+      ));
+      target.load();
+      
+      // The log is loaded from its file.
+      QueryLog actual = target.getQueryLog();
+      assertEquals(1, actual.size());
+      assertEquals("Author:qux", actual.getTopQueries(1).get(0));
+      actual.record("Author:foo");
+      actual.record("Author:bar");
+      actual.record("Author:baz");
+      assertEquals(2, actual.size());
+      assertEquals(5, target.getWarmQueries());
+      
+      target = new SearchProperties(new StringReader(""));
+      target.load();
+      assertEquals(null, target.getQueryLog());
+      assertEquals(20, target.getWarmQueries());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#isLowMemory()}.
+    */
+   @Test
+   public final void testIsLowMemory() throws Exception {
+      SearchProperties target = new SearchProperties(new StringReader("Search.LowMemory = true\n"));
+      target.load();
+      assertEquals(true, target.isLowMemory());
+      
+      target = new SearchProperties(new StringReader(""));
+      target.load();
+      assertEquals(false, target.isLowMemory());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.SearchProperties#getSearcherLeases()}.
+    */
+   @Test
+   public final void testGetSearcherLeases() throws Exception {
+      SearchProperties target = new SearchProperties(new StringReader("Search.LeaseReaders = 4\n"));
+      target.load();
+      
+      SearcherLeases actual = target.getSearcherLeases();
+      assertEquals(4, actual.getMaxReaders());
+      assertEquals(300.0, actual.getMaxAgeSeconds(), 0.0);
+      actual.close();
+      
+      target = new SearchProperties(new StringReader(""));
+      target.load();
+      assertEquals(null, target.getSearcherLeases());
+   }
+}
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.configuration.types;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.common.DirectoryFactory;
+
+/**
+ * Unit tests for the DirectoryProperty class.
+ * @author lparker
+ *
+ */
+public class DirectoryPropertyTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.types.DirectoryProperty#DirectoryProperty()}.
+    */
+   @Test
+   public final void testDirectoryProperty() {
+      TypedProperty<?> target = new DirectoryProperty();
+      assertEquals(null, target.getValue());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.types.DirectoryProperty#getValue()}.
+    */
+   @Test
+   public final void testGetValue() {
+      RecordingDirectoryFactory factory = new RecordingDirectoryFactory();
+      TypedProperty<Directory> target = new DirectoryProperty(factory);
+      target.doParse("foo");
+
+      // TEST 1: Parsing does not open the directory.
+      assertEquals(0, factory.opened.size());
+
+      // TEST 2: The directory is opened once, when first asked for.
+      Directory actual = target.getValue();
+      assertNotNull(actual);
+      assertSame(actual, target.getValue());
+      assertEquals(1, factory.opened.size());
+      assertEquals("foo", factory.opened.get(0));
+
+      // TEST 3: An empty pathname has no directory.
+      target.doParse("");
+      assertEquals(null, target.getValue());
+      assertEquals(1, factory.opened.size());
+   }
+
+   private static class RecordingDirectoryFactory extends DirectoryFactory {
+      private final List<String> opened = new ArrayList<String>();
+
+      @Override
+      public Directory open(final File path) throws IOException {
+         opened.add(path.getPath());
+         return new RAMDirectory();
+      }
+   }
+}
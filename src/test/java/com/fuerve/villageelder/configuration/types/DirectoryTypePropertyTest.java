@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.configuration.types;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.fuerve.villageelder.common.DirectoryType;
+
+/**
+ * Unit tests for the DirectoryTypeProperty class.
+ * @author lparker
+ *
+ */
+public class DirectoryTypePropertyTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.types.DirectoryTypeProperty#DirectoryTypeProperty()}.
+    */
+   @Test
+   public final void testDirectoryTypeProperty() {
+      TypedProperty<?> target = new DirectoryTypeProperty();
+      assertEquals(null, target.getValue());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.types.DirectoryTypeProperty#DirectoryTypeProperty(com.fuerve.villageelder.common.DirectoryType)}.
+    */
+   @Test
+   public final void testDirectoryTypePropertyDirectoryType() {
+      TypedProperty<?> target = new DirectoryTypeProperty(DirectoryType.FS);
+      assertEquals(DirectoryType.FS, target.getValue());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.types.DirectoryTypeProperty#parse(java.lang.String)}.
+    */
+   @Test
+   public final void testParseString() {
+      TypedProperty<?> target = new DirectoryTypeProperty();
+      target.doParse("mmap");
+      assertEquals(DirectoryType.MMAP, target.getValue());
+   }
+
+}
@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.configuration.types;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the IntegerProperty class.
+ * 
+ * @author lparker
+ *
+ */
+public class IntegerPropertyTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.types.IntegerProperty#IntegerProperty()}.
+    */
+   @Test
+   public final void testIntegerProperty() {
+      TypedProperty<?> target = new IntegerProperty();
+      assertEquals(null, target.getValue());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.types.IntegerProperty#IntegerProperty(java.lang.Integer)}.
+    */
+   @Test
+   public final void testIntegerPropertyInteger() {
+      TypedProperty<?> target = new IntegerProperty(Integer.valueOf(42));
+      assertEquals(Integer.valueOf(42), target.getValue());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.configuration.types.IntegerProperty#parse(java.lang.String)}.
+    */
+   @Test
+   public final void testParseString() {
+      TypedProperty<?> target = new IntegerProperty();
+      target.doParse(" 17 ");
+      assertEquals(Integer.valueOf(17), target.getValue());
+   }
+
+}
\ No newline at end of file
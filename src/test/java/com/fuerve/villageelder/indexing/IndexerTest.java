@@ -32,11 +32,14 @@ import org.apache.lucene.document.LongField;
 import org.apache.lucene.facet.taxonomy.CategoryPath;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.RAMDirectory;
 import org.junit.Test;
 
+import com.fuerve.villageelder.common.Lucene;
 import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
 
 /**
@@ -204,7 +207,7 @@ public class IndexerTest {
       IndexWriter iw = (IndexWriter) iwField.get(testManager);
       
       assertEquals(1, iw.numDocs());
-      assertEquals(8, tw.getSize());
+      assertEquals(3, tw.getSize());
       
       target.dispose();
    }
@@ -238,7 +241,7 @@ public class IndexerTest {
       IndexWriter iw = (IndexWriter) iwField.get(testManager);
       
       assertEquals(2, iw.numDocs());
-      assertEquals(8, tw.getSize());
+      assertEquals(3, tw.getSize());
       
       target.dispose();
    }
@@ -288,8 +291,79 @@ public class IndexerTest {
       revisions.add(buildDumbRevisionInfo());
       target.indexRevisions(revisions);
       
-      assertEquals(8, target.getTaxonomySize());
+      assertEquals(3, target.getTaxonomySize());
+      
+      target.dispose();
+   }
+
+   @Test
+   public final void testIndexerWithoutTaxonomy() throws Exception {
+      RAMDirectory indexDirectory = new RAMDirectory();
       
+      Field twField = IndexManager.class.getDeclaredField("taxonomyWriter");
+      Field imField = Indexer.class.getDeclaredField("indexManager");
+      
+      twField.setAccessible(true);
+      imField.setAccessible(true);
+      
+      Indexer target = new Indexer(indexDirectory);
+      target.initializeIndex();
+      List<RevisionInfo> revisions = new ArrayList<RevisionInfo>();
+      revisions.add(buildDumbRevisionInfo());
+      revisions.add(buildDumbRevisionInfo());
+      target.indexRevisions(revisions);
+      
+      // TEST 1: No taxonomy writer was opened.
+      assertEquals(null, twField.get(imField.get(target)));
+      
+      // TEST 2: The regular index is still written, and the
+      // taxonomy is reported as empty.
+      assertEquals(2, target.getMaxDoc());
+      assertEquals(0, target.getTaxonomySize());
+      
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.indexing.Indexer#getLastRevision()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetLastRevision() throws Exception {
+      // An index written before revision numbers had doc values.
+      RAMDirectory indexDirectory = new RAMDirectory();
+      IndexWriter writer = new IndexWriter(
+            indexDirectory,
+            new IndexWriterConfig(Lucene.LUCENE_VERSION, Lucene.getPerFieldAnalyzer())
+      );
+      for (long revision = 1; revision <= 7; revision++) {
+         Document doc = new Document();
+         doc.add(new LongField("RevisionNumber", revision, Store.YES));
+         writer.addDocument(doc);
+      }
+      writer.close();
+      
+      Indexer target = new Indexer(indexDirectory, null, OpenMode.CREATE_OR_APPEND);
+      target.initializeIndex();
+      
+      // TEST 1: The revisions of older segments are found.
+      assertEquals(7, target.getLastRevision());
+      
+      // TEST 2: Newer revisions are found before they are committed.
+      target.indexRevision(new RevisionInfo(9, "alice", new Date(9000L), "change"));
+      assertEquals(9, target.getLastRevision());
+      
+      // TEST 3: Deleted revisions are ignored.
+      target.getIndexWriter().deleteDocuments(
+            NumericRangeQuery.newLongRange("RevisionNumber", 8L, 9L, true, true)
+      );
+      assertEquals(7, target.getLastRevision());
+      target.dispose();
+      
+      // TEST 4: An empty index has no last revision.
+      target = new Indexer(new RAMDirectory());
+      target.initializeIndex();
+      assertEquals(-1, target.getLastRevision());
       target.dispose();
    }
 
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.indexing;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.SortedMap;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.search.Search;
+import com.fuerve.villageelder.search.Searcher;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link LowMemoryCodec}.
+ * @author lparker
+ *
+ */
+public class LowMemoryCodecTest {
+   private static final int REVISIONS = 2000;
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.indexing.LowMemoryCodec#getPostingsFormatForField(java.lang.String)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetPostingsFormatForField() throws Exception {
+      Searcher expected = new Searcher(buildIndex(false));
+      Searcher actual = new Searcher(buildIndex(true));
+      expected.initializeSearch();
+      actual.initializeSearch();
+      SortedMap<String, Long> expectedUsage = expected.getHeapUsage();
+      SortedMap<String, Long> actualUsage = actual.getHeapUsage();
+
+      // The terms index of the path fields shrinks, and every other
+      // field is written as usual.
+      assertTrue(actualUsage.get("Path") < expectedUsage.get("Path"));
+      assertEquals(expectedUsage.get("Message"), actualUsage.get("Message"));
+      assertEquals(expectedUsage.get("Author"), actualUsage.get("Author"));
+
+      // Every path can still be found.
+      for (int i = 1; i <= REVISIONS; i += 97) {
+         Search search = actual.createSearch("Path:\"/trunk/file" + i + "\"");
+         actual.search();
+         assertEquals(1, search.getCollector().topDocs().totalHits);
+      }
+
+      expected.dispose();
+      actual.dispose();
+   }
+
+   private Directory buildIndex(final boolean lowMemory) throws IOException {
+      Directory indexDirectory = new RAMDirectory();
+      Indexer indexer = new Indexer(indexDirectory);
+      indexer.setLowMemory(lowMemory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= REVISIONS; i++) {
+         RevisionInfo revision = new RevisionInfo(
+               i,
+               i % 2 == 0 ? "alice" : "bob",
+               new Date(i * 1000L),
+               "change " + (i % 10)
+         );
+         revision.addChangePath(new ChangePath("/trunk/file" + i, "M"));
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+      return indexDirectory;
+   }
+}
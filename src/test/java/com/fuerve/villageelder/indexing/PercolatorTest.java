@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.indexing;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link Percolator}.
+ * @author lparker
+ *
+ */
+public class PercolatorTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.indexing.Percolator#percolate(java.util.List, java.util.List)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testPercolate() throws Exception {
+      RecordingSink sink = new RecordingSink();
+      Percolator target = new Percolator(sink);
+      target.register("security", new PrefixQuery(new Term("Path", "/trunk/security/")));
+      target.register("password", new TermQuery(new Term("Message", "password")));
+      target.register("bob", new TermQuery(new Term("Author", "bob")));
+      BooleanQuery notAlice = new BooleanQuery();
+      notAlice.add(new MatchAllDocsQuery(), Occur.MUST);
+      notAlice.add(new TermQuery(new Term("Author", "alice")), Occur.MUST_NOT);
+      target.register("notalice", notAlice);
+      assertEquals(4, target.size());
+
+      Indexer indexer = new Indexer(new RAMDirectory(), new RAMDirectory(), OpenMode.CREATE);
+      indexer.setPercolator(target);
+      indexer.initializeIndex();
+      List<RevisionInfo> revisions = new ArrayList<RevisionInfo>();
+      revisions.add(revision(1, "alice", "Reset the password hash", "/trunk/src/Login.java"));
+      revisions.add(revision(2, "carol", "Tighten the ACLs", "/trunk/security/acl.xml"));
+      indexer.indexRevisions(revisions);
+      indexer.indexRevision(revision(3, "alice", "Readme", "/trunk/README"));
+      indexer.dispose();
+
+      assertEquals("[security:2, password:1, notalice:2]", sink.matches.toString());
+
+      assertTrue(target.unregister("password"));
+      assertFalse(target.unregister("password"));
+      assertEquals(3, target.size());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.indexing.Percolator#percolate(java.util.List, java.util.List)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testPercolateSkipsAbsentTerms() throws Exception {
+      RecordingSink sink = new RecordingSink();
+      Percolator target = new Percolator(sink);
+      CountingQuery absent = new CountingQuery(new Term("Author", "dave"));
+      CountingQuery present = new CountingQuery(new Term("Author", "alice"));
+      target.register("absent", absent);
+      target.register("present", present);
+
+      Indexer indexer = new Indexer(new RAMDirectory());
+      indexer.setPercolator(target);
+      indexer.initializeIndex();
+      indexer.indexRevision(revision(1, "alice", "Initial import", "/trunk"));
+      indexer.dispose();
+
+      // The saved search for an author that is not in the batch is
+      // never run.
+      assertEquals(0, absent.runs);
+      assertEquals(1, present.runs);
+      assertEquals("[present:1]", sink.matches.toString());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.indexing.Percolator#getRequiredTerms(org.apache.lucene.search.Query)}.
+    */
+   @Test
+   public final void testGetRequiredTerms() {
+      Term alice = new Term("Author", "alice");
+      Term fix = new Term("Message", "fix");
+      Term trunk = new Term("Path", "/trunk/");
+
+      assertEquals(
+            "[Author:alice]",
+            Percolator.getRequiredTerms(new TermQuery(alice)).toString()
+      );
+      assertEquals(
+            "[Path:/trunk/*]",
+            Percolator.getRequiredTerms(new PrefixQuery(trunk)).toString()
+      );
+      assertNull(Percolator.getRequiredTerms(new MatchAllDocsQuery()));
+      assertNull(
+            Percolator.getRequiredTerms(
+                  TermRangeQuery.newStringRange("Author", "a", "c", true, true)
+            )
+      );
+
+      // The longest required term is the most selective.
+      BooleanQuery both = new BooleanQuery();
+      both.add(new TermQuery(fix), Occur.MUST);
+      both.add(new TermQuery(alice), Occur.MUST);
+      assertEquals("[Author:alice]", Percolator.getRequiredTerms(both).toString());
+
+      // Any optional clause may match.
+      BooleanQuery either = new BooleanQuery();
+      either.add(new TermQuery(fix), Occur.SHOULD);
+      either.add(new TermQuery(alice), Occur.SHOULD);
+      Set<Percolator.RequiredTerm> terms = Percolator.getRequiredTerms(either);
+      assertEquals(2, terms.size());
+
+      either.add(new MatchAllDocsQuery(), Occur.SHOULD);
+      assertNull(Percolator.getRequiredTerms(either));
+
+      BooleanQuery not = new BooleanQuery();
+      not.add(new TermQuery(alice), Occur.MUST_NOT);
+      assertNull(Percolator.getRequiredTerms(not));
+   }
+
+   private static RevisionInfo revision(
+         final long number,
+         final String author,
+         final String message,
+         final String path) {
+      RevisionInfo result = new RevisionInfo(number, author, new Date(number * 1000L), message);
+      result.addChangePath(new ChangePath(path, "M"));
+      return result;
+   }
+
+   private static class RecordingSink implements PercolatorSink {
+      private final List<String> matches = new ArrayList<String>();
+
+      public void match(final String id, final RevisionInfo revision) {
+         matches.add(id + ":" + revision.getRevision());
+      }
+   }
+
+   private static class CountingQuery extends TermQuery {
+      private int runs;
+
+      CountingQuery(final Term term) {
+         super(term);
+      }
+
+      @Override
+      public Weight createWeight(final IndexSearcher searcher) throws IOException {
+         runs++;
+         return super.createWeight(searcher);
+      }
+   }
+}
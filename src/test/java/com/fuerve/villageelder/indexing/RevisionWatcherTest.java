@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.indexing;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.sourcecontrol.MockRepository;
+import com.fuerve.villageelder.sourcecontrol.Repository;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link RevisionWatcher}.
+ * @author lparker
+ *
+ */
+public class RevisionWatcherTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.indexing.RevisionWatcher#poll()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testPoll() throws Exception {
+      MockRepository repository = new MockRepository("mock");
+      addRevisions(repository, 5);
+      Directory directory = new RAMDirectory();
+      Indexer indexer = new Indexer(directory);
+      indexer.initializeIndex();
+      final RangeCounter ranges = new RangeCounter(repository);
+      
+      RevisionWatcher target = new RevisionWatcher(ranges.repository, indexer, -1);
+      target.setDelay(100, 800);
+      target.setFetchSize(2);
+      target.setCommitPolicy(4, 60000);
+      
+      // TEST 1: The backlog is fetched a bounded range at a time, and
+      // committed once enough revisions are pending.
+      assertEquals(5, target.poll());
+      assertEquals(4, target.getLastRevision());
+      assertEquals(3, ranges.count);
+      assertEquals(1, target.getPendingCount());
+      assertEquals(4, count(directory));
+      assertEquals(4, indexer.getLastRevision());
+      assertEquals(100, target.getDelay());
+      
+      // TEST 2: Idle polls back off, up to the maximum delay.
+      assertEquals(0, target.poll());
+      assertEquals(200, target.getDelay());
+      target.poll();
+      target.poll();
+      target.poll();
+      assertEquals(800, target.getDelay());
+      assertEquals(3, ranges.count);
+      
+      // TEST 3: New revisions reset the delay, and only the new range
+      // is fetched.
+      addRevisions(repository, 1);
+      assertEquals(1, target.poll());
+      assertEquals(100, target.getDelay());
+      assertEquals(4, ranges.count);
+      assertEquals(2, target.getPendingCount());
+      
+      target.commit();
+      assertEquals(0, target.getPendingCount());
+      assertEquals(6, count(directory));
+      indexer.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.indexing.RevisionWatcher#poll()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testPollCommitsAfterInterval() throws Exception {
+      MockRepository repository = new MockRepository("mock");
+      addRevisions(repository, 2);
+      Directory directory = new RAMDirectory();
+      Indexer indexer = new Indexer(directory);
+      indexer.initializeIndex();
+      final long[] clock = { 0L };
+      
+      RevisionWatcher target = new RevisionWatcher(repository, indexer, -1) {
+         @Override
+         long now() {
+            return clock[0];
+         }
+      };
+      target.setCommitPolicy(100, 1000);
+      
+      assertEquals(2, target.poll());
+      assertEquals(2, target.getPendingCount());
+      assertFalse(DirectoryReader.indexExists(directory));
+      
+      // The pending revisions are committed by an idle poll once the
+      // oldest of them has waited long enough.
+      clock[0] = 1000L;
+      assertEquals(0, target.poll());
+      assertEquals(0, target.getPendingCount());
+      assertEquals(2, count(directory));
+      indexer.dispose();
+   }
+
+   private static void addRevisions(final MockRepository repository, final int count)
+         throws IOException {
+      for (int i = 0; i < count; i++) {
+         long number = repository.getLatestRevision() + 1;
+         repository.addRevision(new RevisionInfo(number, "alice", new Date(number * 1000L), "change"));
+      }
+   }
+
+   private static int count(final Directory directory) throws IOException {
+      DirectoryReader reader = DirectoryReader.open(directory);
+      try {
+         return reader.numDocs();
+      } finally {
+         reader.close();
+      }
+   }
+
+   /**
+    * Counts the ranges of revisions fetched from a repository.
+    */
+   private static class RangeCounter {
+      private final Repository repository;
+      private int count;
+
+      RangeCounter(final MockRepository delegate) {
+         repository = new Repository("mock") {
+            @Override
+            public RevisionInfo getRevision(final long revision) throws IOException {
+               return delegate.getRevision(revision);
+            }
+
+            @Override
+            public List<RevisionInfo> getRevisionRange(final long begin, final long end)
+                  throws IOException {
+               count++;
+               return new ArrayList<RevisionInfo>(delegate.getRevisionRange(begin, end));
+            }
+
+            @Override
+            public long getLatestRevision() throws IOException {
+               return delegate.getLatestRevision();
+            }
+         };
+      }
+   }
+}
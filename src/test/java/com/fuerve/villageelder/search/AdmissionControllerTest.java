@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AdmissionController}.
+ * @author lparker
+ *
+ */
+public class AdmissionControllerTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.AdmissionController#acquire()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testAcquireRelease() throws Exception {
+      AdmissionController target = new AdmissionController(2, 0, 0);
+      target.acquire();
+      target.acquire();
+      assertEquals(0, target.getAvailable());
+
+      // The queue holds nothing, so a third search is shed at once.
+      try {
+         target.acquire();
+         fail("A search was admitted beyond the limit");
+      } catch (QueryRejectedException e) {
+         assertEquals(QueryRejectedException.Reason.OVERLOADED, e.getReason());
+      }
+
+      target.release();
+      target.acquire();
+      target.release();
+      target.release();
+      assertEquals(2, target.getAvailable());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.AdmissionController#acquire()}
+    * with a search waiting in the queue.
+    * @throws Exception
+    */
+   @Test
+   public final void testQueue() throws Exception {
+      final AdmissionController target = new AdmissionController(1, 1, 10000);
+      final CountDownLatch admitted = new CountDownLatch(1);
+      target.acquire();
+
+      Thread waiter = new Thread() {
+         @Override
+         public void run() {
+            try {
+               target.acquire();
+               admitted.countDown();
+               target.release();
+            } catch (QueryRejectedException e) {
+               // The latch is never counted down.
+            }
+         }
+      };
+      waiter.start();
+      while (target.getQueued() == 0) {
+         Thread.sleep(1);
+      }
+
+      // TEST 1: The queue is full, so another search is shed.
+      try {
+         target.acquire();
+         fail("A search was queued beyond the limit");
+      } catch (QueryRejectedException e) {
+         assertEquals(QueryRejectedException.Reason.OVERLOADED, e.getReason());
+      }
+
+      // TEST 2: The queued search runs once the running one is done.
+      target.release();
+      assertTrue(admitted.await(10, TimeUnit.SECONDS));
+      waiter.join();
+      assertEquals(0, target.getQueued());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.AdmissionController#acquire()}
+    * when a search waits too long.
+    * @throws Exception
+    */
+   @Test(expected = QueryRejectedException.class)
+   public final void testWaitTooLong() throws Exception {
+      AdmissionController target = new AdmissionController(1, 1, 10);
+      target.acquire();
+      target.acquire();
+   }
+}
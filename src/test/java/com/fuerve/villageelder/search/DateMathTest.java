@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+
+import org.apache.lucene.document.DateTools;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DateMath}.
+ * @author lparker
+ *
+ */
+public class DateMathTest {
+   // Wednesday, 2013-05-15 13:47:21.500 UTC.
+   private static final long NOW = 1368625641500L;
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.DateMath#parse(java.lang.String, long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testParse() throws Exception {
+      // TEST 1: Anchors.
+      assertEquals(NOW, DateMath.parse("NOW", NOW));
+      assertEquals(NOW, DateMath.parse("now", NOW));
+      assertEquals(DateTools.stringToTime("2013010112"), DateMath.parse("2013010112", NOW));
+
+      // TEST 2: Arithmetic.
+      assertEquals("20130508134721500", format(DateMath.parse("NOW-7DAYS", NOW)));
+      assertEquals("20130515154721500", format(DateMath.parse("NOW+2HOURS", NOW)));
+      assertEquals("20120615134721500", format(DateMath.parse("NOW-1YEAR+1MONTH", NOW)));
+      assertEquals("20130201000000000", format(DateMath.parse("20130101+1MONTH", NOW)));
+
+      // TEST 3: Rounding.
+      assertEquals("20130515130000000", format(DateMath.parse("NOW/HOUR", NOW)));
+      assertEquals("20130515000000000", format(DateMath.parse("NOW/DAY", NOW)));
+      assertEquals("20130513000000000", format(DateMath.parse("NOW/WEEK", NOW)));
+      assertEquals("20130501000000000", format(DateMath.parse("NOW/MONTH", NOW)));
+      assertEquals("20130101000000000", format(DateMath.parse("NOW/YEAR", NOW)));
+      assertEquals("20130508130000000", format(DateMath.parse("NOW-7DAYS/HOUR", NOW)));
+      assertEquals("20130516000000000", format(DateMath.parse("NOW/DAY+1DAY", NOW)));
+
+      // TEST 4: Every time within the rounding window agrees.
+      assertEquals(
+            DateMath.parse("NOW-7DAYS/HOUR", NOW),
+            DateMath.parse("NOW-7DAYS/HOUR", NOW + 12 * 60 * 1000L)
+      );
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.DateMath#parse(java.lang.String, long)}.
+    */
+   @Test
+   public final void testParseInvalid() {
+      String[] expressions = {
+            "",
+            "YESTERDAY",
+            "NOW-DAY",
+            "NOW/2DAYS",
+            "NOW+1FORTNIGHT",
+            "NOW-99999999999DAYS"
+      };
+      for (String expression : expressions) {
+         try {
+            DateMath.parse(expression, NOW);
+            fail("An invalid expression was evaluated: " + expression);
+         } catch (ParseException e) {
+            // Expected
+         }
+      }
+   }
+
+   private String format(final long time) {
+      return DateTools.timeToString(time, DateTools.Resolution.MILLISECOND);
+   }
+}
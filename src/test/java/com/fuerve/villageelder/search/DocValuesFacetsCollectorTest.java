@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.search.FacetResultNode;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import com.fuerve.villageelder.common.Lucene;
+
+/**
+ * Unit tests for {@link DocValuesFacetsCollector}.
+ * @author lparker
+ *
+ */
+public class DocValuesFacetsCollectorTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.DocValuesFacetsCollector#getFacetResults()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetFacetResults() throws Exception {
+      Directory directory = new RAMDirectory();
+      buildDocValuesIndex(directory);
+      DirectoryReader reader = DirectoryReader.open(directory);
+      IndexSearcher searcher = new IndexSearcher(reader);
+
+      List<DocValuesFacetRequest> requests = new ArrayList<DocValuesFacetRequest>();
+      requests.add(new DocValuesFacetRequest("Author", 10));
+      requests.add(new DocValuesFacetRequest("Change", 1));
+      DocValuesFacetsCollector target = new DocValuesFacetsCollector(requests);
+      searcher.search(new MatchAllDocsQuery(), target);
+      List<FacetResult> results = target.getFacetResults();
+
+      // TEST 1: One result is returned per request.
+      assertEquals(2, results.size());
+
+      // TEST 2: Counts are merged across segments, ordered by
+      // descending count, and missing values are not reported.
+      FacetResultNode authors = results.get(0).getFacetResultNode();
+      assertEquals("Author", authors.label.toString('/'));
+      assertEquals(4.0, authors.value, 0.0);
+      assertEquals(2, results.get(0).getNumValidDescendants());
+      assertEquals(2, authors.subResults.size());
+      assertEquals("Author/foo", authors.subResults.get(0).label.toString('/'));
+      assertEquals(3.0, authors.subResults.get(0).value, 0.0);
+      assertEquals("Author/bar", authors.subResults.get(1).label.toString('/'));
+      assertEquals(1.0, authors.subResults.get(1).value, 0.0);
+
+      // TEST 3: Multi-valued fields count each value once per
+      // document, and only the requested number of values are
+      // returned.
+      FacetResultNode changes = results.get(1).getFacetResultNode();
+      assertEquals(3, results.get(1).getNumValidDescendants());
+      assertEquals(1, changes.subResults.size());
+      assertEquals("Change/M", changes.subResults.get(0).label.toString('/'));
+      assertEquals(3.0, changes.subResults.get(0).value, 0.0);
+
+      reader.close();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.DocValuesFacetsCollector#collect(int)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testCollectFiltered() throws Exception {
+      Directory directory = new RAMDirectory();
+      buildDocValuesIndex(directory);
+      DirectoryReader reader = DirectoryReader.open(directory);
+      IndexSearcher searcher = new IndexSearcher(reader);
+
+      List<DocValuesFacetRequest> requests = new ArrayList<DocValuesFacetRequest>();
+      requests.add(new DocValuesFacetRequest("Change", 10));
+      DocValuesFacetsCollector target = new DocValuesFacetsCollector(requests);
+      searcher.search(new TermQuery(new Term("Author", "bar")), target);
+      FacetResultNode changes = target.getFacetResults().get(0).getFacetResultNode();
+
+      // Only the values of matching documents are counted.
+      assertEquals(2, changes.subResults.size());
+      assertEquals("Change/A", changes.subResults.get(0).label.toString('/'));
+      assertEquals("Change/M", changes.subResults.get(1).label.toString('/'));
+      assertEquals(1.0, changes.value, 0.0);
+
+      reader.close();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.DocValuesFacetsCollector#DocValuesFacetsCollector(java.util.List)}.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public final void testNoRequests() {
+      new DocValuesFacetsCollector(new ArrayList<DocValuesFacetRequest>());
+   }
+
+   /**
+    * Builds an index of two segments with Author and Change doc
+    * values, including one document with no author.
+    * @param directory The directory in which to build the index.
+    * @throws IOException
+    */
+   static void buildDocValuesIndex(final Directory directory) throws IOException {
+      IndexWriterConfig iwc = new IndexWriterConfig(Lucene.LUCENE_VERSION, Lucene.getPerFieldAnalyzer());
+      iwc.setOpenMode(OpenMode.CREATE);
+      IndexWriter iw = new IndexWriter(directory, iwc);
+
+      iw.addDocument(buildDocument("foo", "M"));
+      iw.addDocument(buildDocument("bar", "A", "M"));
+      iw.commit();
+
+      iw.addDocument(buildDocument("foo", "M", "M"));
+      iw.addDocument(buildDocument("foo", "D"));
+      iw.addDocument(buildDocument(null));
+      iw.commit();
+      iw.close();
+   }
+
+   private static Document buildDocument(final String author, final String... changes) {
+      Document doc = new Document();
+      if (author != null) {
+         doc.add(new StringField("Author", author, Store.YES));
+         doc.add(new SortedDocValuesField("Author", new BytesRef(author)));
+      }
+      for (String change : changes) {
+         doc.add(new SortedSetDocValuesField("Change", new BytesRef(change)));
+      }
+      return doc;
+   }
+}
@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link DocumentCache}.
+ * @author lparker
+ *
+ */
+public class DocumentCacheTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.DocumentCache#getDocument(org.apache.lucene.index.IndexReader, int, java.util.Set)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetDocument() throws Exception {
+      Directory indexDirectory = buildIndex();
+      DocumentCache cache = new DocumentCache(1024L * 1024L);
+      Searcher target = new Searcher(indexDirectory);
+      target.setDocumentCache(cache);
+      target.initializeSearch();
+      Search search = target.createSearch("Message:change");
+      target.search();
+      ScoreDoc[] hits = search.getCollector().topDocs().scoreDocs;
+
+      // TEST 1: The first view of a document reads the index, and the
+      // second view finds it in the cache.
+      Document first = target.doc(hits[0].doc);
+      assertEquals(0, cache.getHitCount());
+      assertEquals(1, cache.getMissCount());
+      Document second = target.doc(hits[0].doc);
+      assertEquals(1, cache.getHitCount());
+      assertEquals(0.5, cache.getHitRate(), 0.0);
+      assertEquals(first.get("Revision"), second.get("Revision"));
+      assertEquals(3, second.getValues("Path").length);
+
+      // TEST 2: Modifying a returned document does not modify the cache.
+      second.add(new StoredField("Extra", "value"));
+      assertNull(target.doc(hits[0].doc).get("Extra"));
+
+      // TEST 3: Each set of fields is cached separately.
+      Set<String> fields = new HashSet<String>(Arrays.asList("Revision"));
+      assertEquals(1, target.doc(hits[0].doc, fields).getFields().size());
+      assertEquals(2, cache.size());
+
+      // TEST 4: Hit documents read through the cache.
+      for (Document document : target.getDocuments(hits, null)) {
+         assertNotNull(document.get("Message"));
+      }
+      assertEquals(hits.length + 1, cache.size());
+      assertTrue(cache.getSizeInBytes() > 0);
+
+      // TEST 5: The documents of a segment are evicted when the
+      // segment is closed.
+      target.dispose();
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.getSizeInBytes());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.DocumentCache#getDocument(org.apache.lucene.index.IndexReader, int, java.util.Set)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testEviction() throws Exception {
+      Directory indexDirectory = buildIndex();
+      Searcher target = new Searcher(indexDirectory);
+      target.initializeSearch();
+      Search search = target.createSearch("Message:change");
+      target.search();
+      ScoreDoc[] hits = search.getCollector().topDocs().scoreDocs;
+
+      // The cache holds about three documents.
+      long size = DocumentCache.estimateSize(target.doc(hits[0].doc));
+      DocumentCache cache = new DocumentCache(size * 3 + size / 2);
+      target.setDocumentCache(cache);
+      for (ScoreDoc hit : hits) {
+         target.doc(hit.doc);
+      }
+      assertEquals(3, cache.size());
+      assertTrue(cache.getSizeInBytes() <= cache.getMaxBytes());
+
+      // The most recently viewed documents are kept.
+      target.doc(hits[hits.length - 1].doc);
+      assertEquals(1, cache.getHitCount());
+      target.doc(hits[0].doc);
+      assertEquals(1, cache.getHitCount());
+
+      cache.clear();
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.getSizeInBytes());
+      target.dispose();
+   }
+
+   private Directory buildIndex() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      Indexer indexer = new Indexer(indexDirectory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= 10; i++) {
+         RevisionInfo revision = new RevisionInfo(
+               i,
+               "alice",
+               new Date(i * 1000L),
+               "change " + i
+         );
+         for (int path = 0; path < 3; path++) {
+            revision.addChangePath(new ChangePath("/trunk/" + i + "/" + path, "M"));
+         }
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+      return indexDirectory;
+   }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link FilterCache}.
+ * @author lparker
+ *
+ */
+public class FilterCacheTest {
+   private static final String[] QUERIES = {
+      "Author:alice",
+      "Author:alice AND Change:D AND Message:crash",
+      "Author:alice AND Change:D",
+      "Author:alice AND NOT Change:D",
+      "Author:alice OR Message:crash",
+      "+Author:alice Message:crash",
+      "Message:crash AND RevisionNumber:[10 TO 40]",
+      "(Author:alice OR Author:bob) AND Path:\"/trunk/a\" AND Message:fix",
+      "Message:crash AND (Author:bob OR Message:fix)"
+   };
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.FilterCache#rewrite(org.apache.lucene.search.Query)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testRewrite() throws Exception {
+      FilterCache target = new FilterCache(100);
+
+      // TEST 1: Required structured clauses filter the scored clauses.
+      Query actual = target.rewrite(new Search(QUERIES[1]).getQuery());
+      assertTrue(actual instanceof FilteredQuery);
+      Query inner = ((FilteredQuery) actual).getQuery();
+      assertTrue(inner instanceof FilteredQuery);
+      inner = ((FilteredQuery) inner).getQuery();
+      assertTrue(inner instanceof BooleanQuery);
+      assertEquals(1, ((BooleanQuery) inner).clauses().size());
+      assertTrue(((BooleanQuery) inner).clauses().get(0).getQuery() instanceof TermQuery);
+
+      // TEST 2: A purely structured query is not scored at all.
+      assertTrue(target.rewrite(new Search(QUERIES[0]).getQuery()) instanceof ConstantScoreQuery);
+
+      // TEST 3: Optional structured clauses stay in place.
+      actual = target.rewrite(new Search(QUERIES[4]).getQuery());
+      assertTrue(actual instanceof BooleanQuery);
+      assertTrue(((BooleanQuery) actual).clauses().get(0).getQuery() instanceof ConstantScoreQuery);
+
+      // TEST 4: Queries without structured clauses are untouched.
+      Query expected = new Search("Message:crash").getQuery();
+      assertSame(expected, target.rewrite(expected));
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.FilterCache#getFilter(org.apache.lucene.search.Query)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testSearch() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      buildIndex(indexDirectory);
+      FilterCache cache = new FilterCache(100);
+      Searcher scored = new Searcher(indexDirectory);
+      scored.initializeSearch();
+      Searcher filtered = new Searcher(indexDirectory);
+      filtered.initializeSearch();
+      filtered.setFilterCache(cache);
+
+      // TEST 1: Filtered searches match exactly what scored searches do.
+      for (String query : QUERIES) {
+         assertEquals(query, count(scored, query), count(filtered, query));
+      }
+      assertTrue(cache.size() > 0);
+
+      // TEST 2: Repeated filters are found in the cache.
+      long misses = cache.getMissCount();
+      long hits = cache.getHitCount();
+      count(filtered, QUERIES[1]);
+      assertEquals(misses, cache.getMissCount());
+      assertTrue(cache.getHitCount() > hits);
+
+      // TEST 3: The least recently used sets are evicted.
+      FilterCache small = new FilterCache(2);
+      filtered.setFilterCache(small);
+      count(filtered, QUERIES[1]);
+      count(filtered, QUERIES[6]);
+      assertEquals(2, small.size());
+
+      // TEST 4: The sets of a segment are evicted once it is closed.
+      scored.dispose();
+      filtered.dispose();
+      assertEquals(0, cache.size());
+      assertEquals(0, small.size());
+   }
+
+   private int count(final Searcher searcher, final String query) throws Exception {
+      Search search = searcher.createSearch(query);
+      searcher.search();
+      return search.getCollector().topDocs().totalHits;
+   }
+
+   private void buildIndex(final Directory indexDirectory) throws IOException {
+      // Two sessions commit two segments.
+      for (int segment = 0; segment < 2; segment++) {
+         Indexer indexer = new Indexer(
+               indexDirectory,
+               null,
+               segment == 0 ? OpenMode.CREATE : OpenMode.APPEND
+         );
+         indexer.initializeIndex();
+         for (int i = 1; i <= 25; i++) {
+            int number = segment * 25 + i;
+            RevisionInfo revision = new RevisionInfo(
+                  number,
+                  number % 3 == 0 ? "bob" : "alice",
+                  new Date(number * 1000L),
+                  number % 4 == 0 ? "fix crash" : number % 2 == 0 ? "crash" : "fix"
+            );
+            revision.addChangePath(
+                  new ChangePath(number % 5 == 0 ? "/trunk/b" : "/trunk/a", number % 2 == 0 ? "D" : "M")
+            );
+            indexer.indexRevision(revision);
+         }
+         indexer.dispose();
+      }
+   }
+}
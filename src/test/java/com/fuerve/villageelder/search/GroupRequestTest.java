@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import org.apache.lucene.search.Sort;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link GroupRequest}.
+ * @author lparker
+ *
+ */
+public class GroupRequestTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.GroupRequest#GroupRequest(java.lang.String)}.
+    */
+   @Test
+   public final void testGroupRequestString() {
+      GroupRequest target = new GroupRequest("Author");
+      assertEquals("Author", target.getField());
+      assertEquals(10, target.getGroups());
+      assertEquals(3, target.getDocsPerGroup());
+      assertEquals(GroupRequest.Strategy.TWO_PASS, target.getStrategy());
+      assertNull(target.getGroupSort());
+      assertNull(target.getSortWithinGroup());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.GroupRequest#setStrategy(com.fuerve.villageelder.search.GroupRequest.Strategy)}.
+    */
+   @Test
+   public final void testSetters() {
+      GroupRequest target =
+            new GroupRequest("Day", 5, 1)
+                  .setStrategy(GroupRequest.Strategy.SINGLE_PASS)
+                  .setMaxCacheMB(16.0)
+                  .setGroupSort(Sort.INDEXORDER);
+      assertEquals(5, target.getGroups());
+      assertEquals(1, target.getDocsPerGroup());
+      assertEquals(GroupRequest.Strategy.SINGLE_PASS, target.getStrategy());
+      assertEquals(16.0, target.getMaxCacheMB(), 0.0);
+      assertSame(Sort.INDEXORDER, target.getGroupSort());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.GroupRequest#GroupRequest(java.lang.String, int, int)}.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public final void testNoGroups() {
+      new GroupRequest("Author", 0, 3);
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.GroupRequest#GroupRequest(java.lang.String, int, int)}.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public final void testNoField() {
+      new GroupRequest(null);
+   }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link HitDocuments}.
+ * @author lparker
+ *
+ */
+public class HitDocumentsTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.HitDocuments#iterator()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testIterator() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      Indexer indexer = new Indexer(indexDirectory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= 25; i++) {
+         RevisionInfo revision = new RevisionInfo(
+               i,
+               i % 2 == 0 ? "alice" : "bob",
+               new Date(i * 1000L),
+               "a long message"
+         );
+         for (int path = 0; path < 5; path++) {
+            revision.addChangePath(new ChangePath("/trunk/" + path, "M"));
+         }
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+
+      Searcher target = new Searcher(indexDirectory);
+      target.initializeSearch();
+      Search search = target.createSearch("Message:message");
+      target.search();
+      ScoreDoc[] hits = search.getCollector().topDocs().scoreDocs;
+      assertEquals(25, hits.length);
+
+      // TEST 1: Every batch size returns the documents in the order of
+      // the hits, which is by descending revision.
+      for (int batchSize : new int[] { 1, 4, 25, 100 }) {
+         HitDocuments actual = target.getDocuments(
+               hits,
+               new HashSet<String>(Arrays.asList("Revision", "Author")),
+               batchSize
+         );
+         assertEquals(25, actual.size());
+         List<String> revisions = new ArrayList<String>();
+         for (Document document : actual) {
+            revisions.add(document.get("Revision"));
+            assertNotNull(document.get("Author"));
+
+            // TEST 2: Only the requested fields are loaded.
+            assertEquals(2, document.getFields().size());
+         }
+         assertEquals("25", revisions.get(0));
+         assertEquals("1", revisions.get(24));
+      }
+
+      // TEST 3: Without a projection, every stored field is loaded.
+      Document whole = target.getDocuments(hits, null).iterator().next();
+      assertEquals("a long message", whole.get("Message"));
+      assertEquals(5, whole.getValues("Path").length);
+      assertEquals(whole.get("Revision"), target.doc(hits[0].doc, new HashSet<String>(Arrays.asList("Revision"))).get("Revision"));
+
+      // TEST 4: An iterator ends with its hits.
+      Iterator<Document> empty = target.getDocuments(new ScoreDoc[0], null).iterator();
+      assertFalse(empty.hasNext());
+      try {
+         empty.next();
+         fail("An empty iterator returned a document");
+      } catch (NoSuchElementException e) {
+         // Expected.
+      }
+
+      target.dispose();
+   }
+}
@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.Test;
+
+import com.fuerve.villageelder.common.RevisionSummary;
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link HitSummaries}.
+ * @author lparker
+ *
+ */
+public class HitSummariesTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.HitSummaries#iterator()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testIterator() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      Indexer indexer = new Indexer(indexDirectory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= 10; i++) {
+         RevisionInfo revision = new RevisionInfo(
+               i,
+               "alice",
+               new Date(i * 1000L),
+               "Change " + i + "\nA long message that the list does not show."
+         );
+         revision.addChangePath(new ChangePath("/trunk/" + i, "M"));
+         revision.addChangePath(new ChangePath("/branches/" + i, "A"));
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+
+      Searcher target = new Searcher(indexDirectory);
+      target.initializeSearch();
+      Search search = target.createSearch("Message:message");
+      target.search();
+      ScoreDoc[] hits = search.getCollector().topDocs().scoreDocs;
+
+      // TEST 1: The summaries are returned in the order of the hits.
+      HitSummaries actual = target.getSummaries(hits);
+      assertEquals(10, actual.size());
+      List<Long> revisions = new ArrayList<Long>();
+      for (RevisionSummary summary : actual) {
+         revisions.add(summary.getRevision());
+         assertEquals("alice", summary.getAuthor());
+         assertEquals("Change " + summary.getRevision(), summary.getMessage());
+         assertEquals(2, summary.getPathCount());
+         assertEquals(Arrays.asList("trunk", "branches"), summary.getTopLevelPaths());
+      }
+      assertEquals(Long.valueOf(10L), revisions.get(0));
+      assertEquals(Long.valueOf(1L), revisions.get(9));
+
+      // TEST 2: Reading stops at the summary, so no other stored field
+      // of the revision is loaded.
+      Document document = target.getDocuments(
+            hits,
+            HitDocuments.SUMMARY_FIELDS
+      ).iterator().next();
+      assertEquals(1, document.getFields().size());
+      assertNotNull(document.get(RevisionSummary.FIELD));
+
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.HitSummaries#iterator()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testIteratorWithoutSummaries() throws Exception {
+      // An index written before summaries were stored.
+      Directory indexDirectory = new RAMDirectory();
+      IndexWriter writer = new IndexWriter(
+            indexDirectory,
+            new IndexWriterConfig(Version.LUCENE_42, new WhitespaceAnalyzer(Version.LUCENE_42))
+      );
+      Document document = new Document();
+      document.add(new LongField("RevisionNumber", 5L, Field.Store.YES));
+      document.add(new StringField("Revision", "5", Field.Store.YES));
+      document.add(new StringField("Author", "bob", Field.Store.YES));
+      document.add(new LongField("Date", 5000L, Field.Store.YES));
+      document.add(new TextField("Message", "An old change\nwith details", Field.Store.YES));
+      document.add(new StringField("Path", "/trunk/a", Field.Store.YES));
+      document.add(new StringField("Path", "/tags/b", Field.Store.YES));
+      writer.addDocument(document);
+      writer.close();
+
+      DirectoryReader reader = DirectoryReader.open(indexDirectory);
+      IndexSearcher searcher = new IndexSearcher(reader);
+      ScoreDoc[] hits = searcher.search(new MatchAllDocsQuery(), 10).scoreDocs;
+      HitSummaries target = new HitSummaries(
+            new HitDocuments(searcher, hits, HitDocuments.SUMMARY_FIELDS, 10)
+      );
+
+      RevisionSummary actual = target.iterator().next();
+      assertEquals(5L, actual.getRevision());
+      assertEquals("bob", actual.getAuthor());
+      assertEquals(new Date(5000L), actual.getDate());
+      assertEquals("An old change", actual.getMessage());
+      assertEquals(2, actual.getPathCount());
+      assertEquals(Arrays.asList("trunk", "tags"), actual.getTopLevelPaths());
+      reader.close();
+   }
+}
@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.search.FacetResultNode;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.common.Lucene;
+import com.fuerve.villageelder.search.DateHistogramFacetRequest.Interval;
+
+/**
+ * Unit tests for {@link NumericFacetsCollector}.
+ * @author lparker
+ *
+ */
+public class NumericFacetsCollectorTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.NumericFacetsCollector#getFacetResults()}
+    * with date histograms.
+    * @throws Exception
+    */
+   @Test
+   public final void testDateHistogram() throws Exception {
+      List<NumericFacetRequest> requests = new ArrayList<NumericFacetRequest>();
+      requests.add(new DateHistogramFacetRequest("Date", Interval.HOUR));
+      requests.add(new DateHistogramFacetRequest("Date", Interval.DAY));
+      requests.add(new DateHistogramFacetRequest("Date", Interval.WEEK));
+      requests.add(new DateHistogramFacetRequest("Date", Interval.MONTH));
+      requests.add(new DateHistogramFacetRequest(
+            "Date", Interval.DAY, TimeZone.getTimeZone("America/Los_Angeles")));
+      List<FacetResult> results = collect(requests);
+
+      // TEST 1: Hourly buckets.
+      assertBuckets(results.get(0),
+            "Date/2013-01-07T10", 2,
+            "Date/2013-01-08T23", 1,
+            "Date/2013-01-13T12", 1,
+            "Date/2013-02-01T00", 1);
+
+      // TEST 2: Daily buckets.
+      assertBuckets(results.get(1),
+            "Date/2013-01-07", 2,
+            "Date/2013-01-08", 1,
+            "Date/2013-01-13", 1,
+            "Date/2013-02-01", 1);
+
+      // TEST 3: Weekly buckets start on Monday.
+      assertBuckets(results.get(2),
+            "Date/2013-01-07", 4,
+            "Date/2013-01-28", 1);
+
+      // TEST 4: Monthly buckets.
+      assertBuckets(results.get(3),
+            "Date/2013-01", 4,
+            "Date/2013-02", 1);
+
+      // TEST 5: Bucket boundaries follow the requested time zone.
+      assertBuckets(results.get(4),
+            "Date/2013-01-07", 2,
+            "Date/2013-01-08", 1,
+            "Date/2013-01-13", 1,
+            "Date/2013-01-31", 1);
+      assertEquals(5.0, results.get(4).getFacetResultNode().value, 0.0);
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.NumericFacetsCollector#getFacetResults()}
+    * with numeric histograms and ranges.
+    * @throws Exception
+    */
+   @Test
+   public final void testHistogramAndRanges() throws Exception {
+      List<NumericFacetRequest> requests = new ArrayList<NumericFacetRequest>();
+      requests.add(new HistogramFacetRequest("RevisionNumber", 10L));
+      requests.add(new HistogramFacetRequest("RevisionNumber", 10L, 2));
+      requests.add(
+            new RangeFacetRequest("RevisionNumber")
+               .addRange("early", 1L, 5L)
+               .addRange("late", 10L, 100L)
+               .addRange("none", 200L, 300L)
+               .addRange("all", Long.MIN_VALUE, Long.MAX_VALUE));
+      List<FacetResult> results = collect(requests);
+
+      // TEST 1: Fixed-width buckets are labeled by their lower bound.
+      assertBuckets(results.get(0),
+            "RevisionNumber/0", 3,
+            "RevisionNumber/10", 1,
+            "RevisionNumber/20", 1);
+
+      // TEST 2: The number of buckets returned can be limited.
+      assertEquals(2, results.get(1).getFacetResultNode().subResults.size());
+      assertEquals(3, results.get(1).getNumValidDescendants());
+
+      // TEST 3: Ranges are returned in order, overlapping and empty
+      // ranges included.
+      assertBuckets(results.get(2),
+            "RevisionNumber/early", 3,
+            "RevisionNumber/late", 2,
+            "RevisionNumber/none", 0,
+            "RevisionNumber/all", 5);
+      assertEquals(3, results.get(2).getNumValidDescendants());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.HistogramFacetRequest#HistogramFacetRequest(java.lang.String, long)}.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public final void testBadInterval() {
+      new HistogramFacetRequest("RevisionNumber", 0L);
+   }
+
+   private List<FacetResult> collect(final List<NumericFacetRequest> requests)
+         throws IOException {
+      Directory directory = new RAMDirectory();
+      buildNumericIndex(directory);
+      DirectoryReader reader = DirectoryReader.open(directory);
+      IndexSearcher searcher = new IndexSearcher(reader);
+
+      NumericFacetsCollector target = new NumericFacetsCollector(requests);
+      searcher.search(new MatchAllDocsQuery(), target);
+      List<FacetResult> results = target.getFacetResults();
+      reader.close();
+      return results;
+   }
+
+   private void assertBuckets(final FacetResult result, final Object... expected) {
+      List<FacetResultNode> buckets = result.getFacetResultNode().subResults;
+      assertEquals(expected.length / 2, buckets.size());
+      for (int i = 0; i < buckets.size(); i++) {
+         assertEquals(expected[i * 2], buckets.get(i).label.toString('/'));
+         assertEquals(((Integer) expected[i * 2 + 1]).doubleValue(), buckets.get(i).value, 0.0);
+      }
+   }
+
+   /**
+    * Builds an index of two segments with RevisionNumber and Date
+    * numeric doc values.
+    * @param directory The directory in which to build the index.
+    * @throws IOException
+    */
+   static void buildNumericIndex(final Directory directory) throws IOException {
+      IndexWriterConfig iwc = new IndexWriterConfig(Lucene.LUCENE_VERSION, Lucene.getPerFieldAnalyzer());
+      iwc.setOpenMode(OpenMode.CREATE);
+      IndexWriter iw = new IndexWriter(directory, iwc);
+
+      // 2013-01-07T10:15Z, a Monday.
+      iw.addDocument(buildDocument(1L, 1357553700000L));
+      // 2013-01-07T10:45Z
+      iw.addDocument(buildDocument(2L, 1357555500000L));
+      // 2013-01-08T23:30Z
+      iw.addDocument(buildDocument(3L, 1357687800000L));
+      iw.commit();
+
+      // 2013-01-13T12:00Z, a Sunday.
+      iw.addDocument(buildDocument(10L, 1358078400000L));
+      // 2013-02-01T00:00Z
+      iw.addDocument(buildDocument(25L, 1359676800000L));
+      iw.commit();
+      iw.close();
+   }
+
+   private static Document buildDocument(final long revision, final long date) {
+      Document doc = new Document();
+      doc.add(new LongField("RevisionNumber", revision, Store.YES));
+      doc.add(new NumericDocValuesField("RevisionNumber", revision));
+      doc.add(new LongField("Date", date, Store.YES));
+      doc.add(new NumericDocValuesField("Date", date));
+      return doc;
+   }
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PackedDocIdSet}.
+ * @author lparker
+ *
+ */
+public class PackedDocIdSetTest {
+   private static final int MAX_DOC = 100000;
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.PackedDocIdSet#iterator()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testIterator() throws Exception {
+      FixedBitSet expected = randomBits(new Random(42), 1000);
+      PackedDocIdSet target = new PackedDocIdSet(expected);
+      assertEquals(expected.cardinality(), target.size());
+
+      // TEST 1: Every document is iterated in order.
+      DocIdSetIterator expectedIterator = expected.iterator();
+      DocIdSetIterator actualIterator = target.iterator();
+      assertEquals(-1, actualIterator.docID());
+      int doc;
+      while ((doc = expectedIterator.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+         assertEquals(doc, actualIterator.nextDoc());
+      }
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, actualIterator.nextDoc());
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, actualIterator.nextDoc());
+
+      // TEST 2: Sparse sets are far smaller than bit sets.
+      assertTrue(target.ramBytesUsed() * 2 < expected.getBits().length * 8L);
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.PackedDocIdSet#iterator()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testAdvance() throws Exception {
+      Random random = new Random(7);
+      FixedBitSet expected = randomBits(random, 3000);
+      PackedDocIdSet target = new PackedDocIdSet(expected);
+
+      for (int round = 0; round < 20; round++) {
+         DocIdSetIterator expectedIterator = expected.iterator();
+         DocIdSetIterator actualIterator = target.iterator();
+         int doc = -1;
+         while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+            int next = doc + 1 + random.nextInt(random.nextBoolean() ? 50 : 5000);
+            if (random.nextInt(4) == 0) {
+               doc = expectedIterator.nextDoc();
+               assertEquals(doc, actualIterator.nextDoc());
+            } else {
+               doc = expectedIterator.advance(next);
+               assertEquals(doc, actualIterator.advance(next));
+            }
+            assertEquals(doc, actualIterator.docID());
+         }
+      }
+
+      // TEST: Advancing an empty set is exhausted at once.
+      DocIdSetIterator empty = new PackedDocIdSet(new FixedBitSet(10)).iterator();
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, empty.advance(0));
+   }
+
+   private FixedBitSet randomBits(final Random random, final int count) {
+      FixedBitSet result = new FixedBitSet(MAX_DOC);
+      for (int i = 0; i < count; i++) {
+         result.set(random.nextInt(MAX_DOC));
+      }
+      result.set(MAX_DOC - 1);
+      return result;
+   }
+}
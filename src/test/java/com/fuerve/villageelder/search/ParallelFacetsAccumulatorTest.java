@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.lucene.facet.params.FacetSearchParams;
+import org.apache.lucene.facet.search.CountFacetRequest;
+import org.apache.lucene.facet.search.FacetRequest;
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.taxonomy.CategoryPath;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link ParallelFacetsAccumulator}.
+ * @author lparker
+ *
+ */
+public class ParallelFacetsAccumulatorTest {
+   private static final int SEGMENTS = 5;
+   private static final String[] AUTHORS = { "alice", "bob", "carol" };
+   private static final String[] CHANGES = { "M", "A", "D" };
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.ParallelFacetsAccumulator#accumulate(java.util.List)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testAccumulate() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      Directory taxonomyDirectory = new RAMDirectory();
+      buildIndex(indexDirectory, taxonomyDirectory);
+      DirectoryReader reader = DirectoryReader.open(indexDirectory);
+      assertEquals(SEGMENTS, reader.leaves().size());
+      reader.close();
+
+      List<FacetResult> expected = search(indexDirectory, taxonomyDirectory, null);
+      ExecutorService executor = Executors.newFixedThreadPool(3);
+      List<FacetResult> actual;
+      try {
+         actual = search(indexDirectory, taxonomyDirectory, executor);
+      } finally {
+         executor.shutdown();
+      }
+
+      // The parallel counts are identical to the serial counts, down
+      // to the order of the values and the number of descendants.
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+         assertEquals(expected.get(i).toString(), actual.get(i).toString());
+         assertEquals(
+               expected.get(i).getNumValidDescendants(),
+               actual.get(i).getNumValidDescendants()
+         );
+      }
+      assertEquals(
+            "Author/alice",
+            actual.get(0).getFacetResultNode().subResults.get(0).label.toString('/')
+      );
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.ParallelFacetsAccumulator#supports(org.apache.lucene.facet.params.FacetSearchParams)}.
+    */
+   @Test
+   public final void testSupports() {
+      List<FacetRequest> counts = new ArrayList<FacetRequest>();
+      counts.add(new DocValuesFacetRequest("Author", 10));
+      assertFalse(ParallelFacetsAccumulator.supports(new FacetSearchParams(counts)));
+
+      counts.clear();
+      counts.add(new CountFacetRequest(new CategoryPath("Author"), 10));
+      assertTrue(ParallelFacetsAccumulator.supports(new FacetSearchParams(counts)));
+   }
+
+   private List<FacetResult> search(
+         final Directory indexDirectory,
+         final Directory taxonomyDirectory,
+         final ExecutorService executor) throws Exception {
+      Searcher target = new Searcher(indexDirectory, taxonomyDirectory);
+      target.initializeSearch();
+      target.setFacetExecutor(executor);
+      Search search = target.createSearch("*:*");
+      search.addFacet("Author", 10);
+      search.addFacet("Change", 10);
+      target.search();
+      List<FacetResult> result = target.getFacetResults();
+      target.dispose();
+      return result;
+   }
+
+   private void buildIndex(
+         final Directory indexDirectory,
+         final Directory taxonomyDirectory) throws IOException {
+      // Every session commits a segment of its own.
+      int revision = 1;
+      for (int segment = 0; segment < SEGMENTS; segment++) {
+         Indexer indexer = new Indexer(
+               indexDirectory,
+               taxonomyDirectory,
+               segment == 0 ? OpenMode.CREATE : OpenMode.APPEND
+         );
+         indexer.initializeIndex();
+         for (int i = 0; i < 20 + segment * 7; i++, revision++) {
+            RevisionInfo info = new RevisionInfo(
+                  revision,
+                  AUTHORS[revision % 7 == 0 ? 2 : revision % 3 == 0 ? 1 : 0],
+                  new Date(revision * 1000L),
+                  "change"
+            );
+            info.addChangePath(new ChangePath("/trunk/" + revision, CHANGES[revision % 3]));
+            info.addChangePath(new ChangePath("/branches/" + revision, CHANGES[revision % 2]));
+            indexer.indexRevision(info);
+         }
+         indexer.dispose();
+      }
+   }
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link QueryCostEstimator}.
+ * @author lparker
+ *
+ */
+public class QueryCostEstimatorTest {
+   private static final int REVISIONS = 50;
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.QueryCostEstimator#countTerms(org.apache.lucene.index.IndexReader, org.apache.lucene.search.Query, long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testCountTerms() throws Exception {
+      Directory directory = buildIndex();
+      DirectoryReader reader = DirectoryReader.open(directory);
+      QueryCostEstimator target = new QueryCostEstimator(1000, 1000);
+
+      // TEST 1: Multi-term queries count the terms they expand to.
+      assertEquals(REVISIONS, target.countTerms(reader, new PrefixQuery(new Term("Path", "/trunk/")), 1000));
+      assertEquals(2, target.countTerms(reader, new WildcardQuery(new Term("Author", "*o*")), 1000));
+      assertEquals(0, target.countTerms(reader, new WildcardQuery(new Term("Nothing", "*")), 1000));
+
+      // TEST 2: Term queries expand to nothing, and nested queries add up.
+      BooleanQuery query = new BooleanQuery();
+      query.add(new TermQuery(new Term("Author", "bob")), Occur.MUST);
+      query.add(new PrefixQuery(new Term("Path", "/trunk/")), Occur.SHOULD);
+      query.add(new WildcardQuery(new Term("Author", "*o*")), Occur.SHOULD);
+      assertEquals(REVISIONS + 2, target.countTerms(reader, query, 1000));
+
+      // TEST 3: Counting stops just past the limit.
+      assertEquals(11, target.countTerms(reader, query, 10));
+
+      reader.close();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.QueryCostEstimator#countClauses(org.apache.lucene.search.Query)}.
+    */
+   @Test
+   public final void testCountClauses() {
+      QueryCostEstimator target = new QueryCostEstimator(1000, 1000);
+      BooleanQuery inner = new BooleanQuery();
+      inner.add(new TermQuery(new Term("Author", "bob")), Occur.SHOULD);
+      inner.add(new TermQuery(new Term("Author", "alice")), Occur.SHOULD);
+      BooleanQuery outer = new BooleanQuery();
+      outer.add(inner, Occur.MUST);
+      outer.add(new TermQuery(new Term("Change", "M")), Occur.MUST);
+
+      assertEquals(1, target.countClauses(new TermQuery(new Term("Author", "bob"))));
+      assertEquals(3, target.countClauses(outer));
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.QueryCostEstimator#check(org.apache.lucene.index.IndexReader, org.apache.lucene.search.Query)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testCheck() throws Exception {
+      Directory directory = buildIndex();
+      DirectoryReader reader = DirectoryReader.open(directory);
+      BooleanQuery query = new BooleanQuery();
+      query.add(new TermQuery(new Term("Author", "bob")), Occur.MUST);
+      query.add(new PrefixQuery(new Term("Path", "/trunk/")), Occur.MUST);
+
+      // Within the limits.
+      new QueryCostEstimator(REVISIONS, 2).check(reader, query);
+
+      try {
+         new QueryCostEstimator(REVISIONS - 1, 2).check(reader, query);
+         fail("A query that expands to too many terms was accepted");
+      } catch (QueryRejectedException e) {
+         assertEquals(QueryRejectedException.Reason.TOO_MANY_TERMS, e.getReason());
+      }
+
+      try {
+         new QueryCostEstimator(REVISIONS, 1).check(reader, query);
+         fail("A query with too many clauses was accepted");
+      } catch (QueryRejectedException e) {
+         assertEquals(QueryRejectedException.Reason.TOO_MANY_CLAUSES, e.getReason());
+      }
+
+      reader.close();
+   }
+
+   private Directory buildIndex() throws Exception {
+      Directory directory = new RAMDirectory();
+      Indexer indexer = new Indexer(directory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= REVISIONS; i++) {
+         RevisionInfo revision = new RevisionInfo(i, i % 2 == 0 ? "bob" : "joe", new Date(i * 1000L), "change");
+         revision.addChangePath(new ChangePath("/trunk/file" + i, "M"));
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+      return directory;
+   }
+}
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link QueryLog}.
+ * @author lparker
+ *
+ */
+public class QueryLogTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.QueryLog#getTopQueries(int)}.
+    */
+   @Test
+   public final void testGetTopQueries() {
+      QueryLog target = new QueryLog(6);
+      target.record("Author:foo");
+      target.record("Author:bar");
+      target.record("Author:foo");
+      target.record("Message:stuff");
+      target.record("Author:baz");
+      target.record("Author:bar");
+
+      // TEST 1: Queries rank by frequency, then by recency.
+      assertEquals(
+            Arrays.asList("Author:bar", "Author:foo", "Author:baz", "Message:stuff"),
+            target.getTopQueries(10)
+      );
+      assertEquals(Arrays.asList("Author:bar"), target.getTopQueries(1));
+
+      // TEST 2: The oldest queries are forgotten once the log is full.
+      target.record("Author:baz");
+      target.record("Author:baz");
+      assertEquals(6, target.size());
+      assertEquals(
+            Arrays.asList("Author:baz", "Author:bar", "Message:stuff", "Author:foo"),
+            target.getTopQueries(10)
+      );
+
+      // TEST 3: Line breaks are flattened, and blank queries ignored.
+      target.record("Author:foo\nAND Message:stuff");
+      target.record("  ");
+      target.record(null);
+      assertEquals("Author:foo AND Message:stuff", target.getTopQueries(10).get(1));
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.QueryLog#save()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testSaveLoad() throws Exception {
+      File file = File.createTempFile("querylog", ".txt");
+      file.deleteOnExit();
+
+      QueryLog expected = new QueryLog(file, 10);
+      expected.record("Author:foo");
+      expected.record("Author:bar");
+      expected.record("Author:foo");
+      expected.save();
+
+      QueryLog actual = new QueryLog(file, 10);
+      actual.load();
+      assertEquals(3, actual.size());
+      assertEquals(expected.getTopQueries(10), actual.getTopQueries(10));
+
+      // A log whose file does not exist yet starts out empty.
+      assertTrue(file.delete());
+      QueryLog empty = new QueryLog(file, 10);
+      empty.load();
+      assertEquals(0, empty.size());
+   }
+}
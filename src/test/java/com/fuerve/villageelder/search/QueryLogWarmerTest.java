@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link QueryLogWarmer}.
+ * @author lparker
+ *
+ */
+public class QueryLogWarmerTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.QueryLogWarmer#warm(org.apache.lucene.search.IndexSearcher)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testWarm() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      Indexer indexer = new Indexer(indexDirectory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= 10; i++) {
+         RevisionInfo revision = new RevisionInfo(
+               i,
+               i % 2 == 0 ? "alice" : "bob",
+               new Date(i * 1000L),
+               "fix"
+         );
+         revision.addChangePath(new ChangePath("/trunk/a", "M"));
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+
+      QueryLog queryLog = new QueryLog(10);
+      queryLog.record("Author:alice AND Message:fix");
+      queryLog.record("Author:alice AND Message:fix");
+      queryLog.record("Change:M AND Message:fix");
+      queryLog.record("Author:(alice");
+      FilterCache filterCache = new FilterCache(16);
+      QueryLogWarmer target = new QueryLogWarmer(queryLog, 10);
+      target.setFilterCache(filterCache);
+
+      // The logged queries fill the filter cache of the new reader,
+      // and the query that cannot be parsed is passed over.
+      DirectoryReader reader = DirectoryReader.open(indexDirectory);
+      target.warm(new IndexSearcher(reader));
+      assertEquals(2, filterCache.size());
+      assertEquals(0, filterCache.getHitCount());
+      reader.close();
+      assertEquals(0, filterCache.size());
+
+      try {
+         new QueryLogWarmer(queryLog, 10, null);
+         fail("A warmer without a sort was accepted");
+      } catch (IllegalArgumentException e) {
+         // Expected.
+      }
+   }
+}
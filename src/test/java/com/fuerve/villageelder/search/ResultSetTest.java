@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link ResultSet}.
+ * @author lparker
+ *
+ */
+public class ResultSetTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.ResultSet#getDocIdSet(org.apache.lucene.index.AtomicReaderContext, org.apache.lucene.util.Bits)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testRefine() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      buildIndex(indexDirectory);
+      Searcher target = new Searcher(indexDirectory);
+      target.initializeSearch();
+
+      // TEST 1: A broad search keeps its hits.
+      Search broad = target.createSearch("Author:foo");
+      broad.setCollectResultSet(true);
+      target.search();
+      ResultSet first = target.getResultSet();
+      assertEquals(broad.getCollector().topDocs().totalHits, first.size());
+      assertEquals(40, first.size());
+      assertFalse(first.isPartial());
+
+      // TEST 2: Each refinement only matches the earlier hits.
+      Search refined = target.createSearch("Path:\"/trunk/a\"");
+      refined.setWithin(first);
+      refined.setCollectResultSet(true);
+      target.search();
+      ResultSet second = refined.getResultSet();
+      assertEquals(30, refined.getCollector().topDocs().totalHits);
+      assertEquals(30, second.size());
+
+      Search narrowest = target.createSearch("Message:crash");
+      narrowest.setWithin(second);
+      target.search();
+      assertEquals(10, narrowest.getCollector().topDocs().totalHits);
+      assertNull(narrowest.getResultSet());
+
+      // TEST 3: Result sets only filter the reader that produced them.
+      Searcher other = new Searcher(indexDirectory);
+      other.initializeSearch();
+      other.createSearch("Message:crash").setWithin(first);
+      try {
+         other.search();
+         fail("A result set filtered another reader");
+      } catch (IllegalStateException e) {
+         // Expected
+      }
+      other.dispose();
+      target.dispose();
+   }
+
+   private void buildIndex(final Directory indexDirectory) throws IOException {
+      // Two sessions commit two segments.
+      for (int segment = 0; segment < 2; segment++) {
+         Indexer indexer = new Indexer(
+               indexDirectory,
+               null,
+               segment == 0 ? OpenMode.CREATE : OpenMode.APPEND
+         );
+         indexer.initializeIndex();
+         for (int i = 1; i <= 30; i++) {
+            int number = segment * 30 + i;
+            RevisionInfo revision = new RevisionInfo(
+                  number,
+                  number % 3 == 0 ? "bar" : "foo",
+                  new Date(number * 1000L),
+                  number % 2 == 0 ? "crash" : "fix"
+            );
+            revision.addChangePath(new ChangePath(number % 4 == 0 ? "/trunk/b" : "/trunk/a", "M"));
+            indexer.indexRevision(revision);
+         }
+         indexer.dispose();
+      }
+   }
+}
@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link RevisionExporter}.
+ * @author lparker
+ *
+ */
+public class RevisionExporterTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.RevisionExporter#export(java.lang.String, java.io.Writer)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testExportCsv() throws Exception {
+      Searcher searcher = new Searcher(buildIndex());
+      searcher.initializeSearch();
+      RevisionExporter target = new RevisionExporter(searcher, ExportFormat.CSV);
+      StringWriter writer = new StringWriter();
+
+      // TEST 1: Every matching revision is written, however many.
+      assertEquals(7, target.export("Author:alice", writer));
+      assertFalse(target.isPartial());
+      String[] lines = writer.toString().split("\n");
+      assertEquals(8, lines.length);
+      assertEquals("Revision,Author,Date,Paths,Message", lines[0]);
+      assertEquals(
+            "1,alice,1970-01-01T00:00:01Z,/trunk/1 /branches/1,\"Change 1, \"\"quoted\"\"\"",
+            lines[1]
+      );
+
+      // TEST 2: Nothing but the header is written without hits.
+      writer = new StringWriter();
+      assertEquals(0, target.export("Author:nobody", writer));
+      assertEquals("Revision,Author,Date,Paths,Message\n", writer.toString());
+      searcher.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.RevisionExporter#export(java.lang.String, java.io.Writer)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testExportJson() throws Exception {
+      Searcher searcher = new Searcher(buildIndex());
+      searcher.initializeSearch();
+      RevisionExporter target = new RevisionExporter(searcher, ExportFormat.JSON);
+      StringWriter writer = new StringWriter();
+
+      assertEquals(2, target.export("Author:bob", writer));
+      assertEquals(
+            "[\n" +
+            "{\"revision\":2,\"author\":\"bob\",\"date\":\"1970-01-01T00:00:02Z\"," +
+            "\"paths\":[\"/trunk/2\",\"/branches/2\"],\"message\":\"Change 2, \\\"quoted\\\"\"},\n" +
+            "{\"revision\":9,\"author\":\"bob\",\"date\":\"1970-01-01T00:00:09Z\"," +
+            "\"paths\":[\"/trunk/9\",\"/branches/9\"],\"message\":\"Change 9, \\\"quoted\\\"\"}\n" +
+            "]\n",
+            writer.toString()
+      );
+
+      writer = new StringWriter();
+      assertEquals(0, target.export("Author:nobody", writer));
+      assertEquals("[\n]\n", writer.toString());
+      searcher.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.RevisionExporter#setRevisionOrder(boolean)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testRevisionOrder() throws Exception {
+      Searcher searcher = new Searcher(buildIndex());
+      searcher.initializeSearch();
+      RevisionExporter target = new RevisionExporter(searcher, ExportFormat.CSV);
+
+      // TEST 1: Index order follows the segments, and the second
+      // segment holds its revisions out of order.
+      assertEquals(
+            "[1, 2, 3, 4, 5, 9, 7, 8, 6]",
+            revisions(target, "Message:change").toString()
+      );
+
+      // TEST 2: Revision order merges the segments and sorts the
+      // segment that is out of order.
+      target.setRevisionOrder(true);
+      assertTrue(target.isRevisionOrder());
+      assertEquals(
+            "[1, 2, 3, 4, 5, 6, 7, 8, 9]",
+            revisions(target, "Message:change").toString()
+      );
+      searcher.dispose();
+   }
+
+   private List<String> revisions(final RevisionExporter target, final String query)
+         throws Exception {
+      StringWriter writer = new StringWriter();
+      target.export(query, writer);
+      List<String> result = new ArrayList<String>();
+      String[] lines = writer.toString().split("\n");
+      for (int i = 1; i < lines.length; i++) {
+         result.add(lines[i].substring(0, lines[i].indexOf(',')));
+      }
+      return result;
+   }
+
+   private Directory buildIndex() throws IOException {
+      Directory indexDirectory = new RAMDirectory();
+      Directory taxonomyDirectory = new RAMDirectory();
+      long[][] segments = { { 1, 2, 3, 4, 5 }, { 9, 7, 8, 6 } };
+      for (int segment = 0; segment < segments.length; segment++) {
+         Indexer indexer = new Indexer(
+               indexDirectory,
+               taxonomyDirectory,
+               segment == 0 ? OpenMode.CREATE : OpenMode.APPEND
+         );
+         indexer.initializeIndex();
+         for (long revision : segments[segment]) {
+            RevisionInfo info = new RevisionInfo(
+                  revision,
+                  revision == 2 || revision == 9 ? "bob" : "alice",
+                  new Date(revision * 1000L),
+                  "Change " + revision + ", \"quoted\""
+            );
+            info.addChangePath(new ChangePath("/trunk/" + revision, "M"));
+            info.addChangePath(new ChangePath("/branches/" + revision, "A"));
+            indexer.indexRevision(info);
+         }
+         indexer.dispose();
+      }
+      return indexDirectory;
+   }
+}
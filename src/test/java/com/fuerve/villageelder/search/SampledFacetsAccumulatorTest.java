@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.lucene.facet.search.FacetResult;
+import org.apache.lucene.facet.search.FacetResultNode;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link SampledFacetsAccumulator}.
+ * @author lparker
+ *
+ */
+public class SampledFacetsAccumulatorTest {
+   private static final int REVISIONS = 2000;
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SampledFacetsAccumulator#isEstimated()}
+    * with exact re-counting of the top values.
+    * @throws Exception
+    */
+   @Test
+   public final void testExactTopCounts() throws Exception {
+      Searcher target = buildSearcher();
+      target.setFacetSampling(new FacetSampling(100, 0.1, true));
+      target.createSearch("*:*").addFacet("Author", 2);
+      target.search();
+
+      FacetResultNode authors = getAuthors(target.getFacetResults());
+
+      // The top counts are re-counted exactly, so they are not
+      // reported as estimates.
+      assertFalse(target.isFacetCountsEstimated());
+      assertEquals(1500.0, authors.subResults.get(0).value, 0.0);
+      assertEquals(500.0, authors.subResults.get(1).value, 0.0);
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SampledFacetsAccumulator#isEstimated()}
+    * with scaled sample counts.
+    * @throws Exception
+    */
+   @Test
+   public final void testEstimatedCounts() throws Exception {
+      Searcher target = buildSearcher();
+      target.setFacetSampling(new FacetSampling(100, 0.1, false));
+      target.createSearch("*:*").addFacet("Author", 2);
+      target.search();
+
+      FacetResultNode authors = getAuthors(target.getFacetResults());
+
+      // The sampled counts are scaled up to the size of the result
+      // set, and reported as estimates.
+      assertTrue(target.isFacetCountsEstimated());
+      assertEquals("Author/alice", authors.subResults.get(0).label.toString('/'));
+      assertEquals(1500.0, authors.subResults.get(0).value, 400.0);
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SampledFacetsAccumulator#isSampled()}
+    * below the sampling threshold.
+    * @throws Exception
+    */
+   @Test
+   public final void testBelowThreshold() throws Exception {
+      Searcher target = buildSearcher();
+      target.setFacetSampling(new FacetSampling(REVISIONS, 0.1, false));
+      target.createSearch("*:*").addFacet("Author", 2);
+      target.search();
+
+      FacetResultNode authors = getAuthors(target.getFacetResults());
+
+      // Small result sets are counted exactly.
+      assertFalse(target.isFacetCountsEstimated());
+      assertEquals(1500.0, authors.subResults.get(0).value, 0.0);
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.FacetSampling#FacetSampling(int, double, boolean)}.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public final void testBadRatio() {
+      new FacetSampling(100, 1.0, true);
+   }
+
+   private FacetResultNode getAuthors(final List<FacetResult> results) {
+      assertEquals(1, results.size());
+      FacetResultNode authors = results.get(0).getFacetResultNode();
+      assertEquals(2, authors.subResults.size());
+      return authors;
+   }
+
+   private Searcher buildSearcher() throws IOException {
+      Directory indexDirectory = new RAMDirectory();
+      Directory taxonomyDirectory = new RAMDirectory();
+      Indexer indexer = new Indexer(indexDirectory, taxonomyDirectory, OpenMode.CREATE);
+      indexer.initializeIndex();
+      for (int i = 1; i <= REVISIONS; i++) {
+         indexer.indexRevision(
+               new RevisionInfo(i, i % 4 == 0 ? "bob" : "alice", new Date(i * 1000L), "change")
+         );
+      }
+      indexer.dispose();
+
+      Searcher searcher = new Searcher(indexDirectory, taxonomyDirectory);
+      searcher.initializeSearch();
+      return searcher;
+   }
+}
@@ -21,6 +21,9 @@ package com.fuerve.villageelder.search;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.Date;
+
+import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.LongField;
@@ -105,6 +108,31 @@ public class SearchQueryParserTest {
       assertEquals(TermQuery.class, testQuery.getClass());
    }
 
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearchQueryParser#getRangeQuery(java.lang.String, java.lang.String, java.lang.String, boolean, boolean)}.
+    * @throws Exception 
+    */
+   @Test
+   public final void testGetRangeQueryRelativeDateRange() throws Exception {
+      SearchQueryParser target = new SearchQueryParser(Lucene.LUCENE_VERSION, "Message", Lucene.getPerFieldAnalyzer());
+      long now = DateTools.stringToTime("20130515134721");
+      
+      // TEST 1: Relative bounds are evaluated and rounded.
+      target.setNow(new Date(now));
+      NumericRangeQuery<?> expected = (NumericRangeQuery<?>) target.parse("Date:[NOW-7DAYS/HOUR TO NOW/HOUR]");
+      assertEquals(DateTools.stringToTime("2013050813"), expected.getMin());
+      assertEquals(DateTools.stringToTime("2013051513"), expected.getMax());
+      
+      // TEST 2: Queries within the same hour are identical.
+      target.setNow(new Date(now + 10 * 60 * 1000L));
+      assertEquals(expected, target.parse("Date:[NOW-7DAYS/HOUR TO NOW/HOUR]"));
+      
+      // TEST 3: Open bounds are left open.
+      NumericRangeQuery<?> open = (NumericRangeQuery<?>) target.parse("Date:[NOW/DAY TO *]");
+      assertEquals(DateTools.stringToTime("20130515"), open.getMin());
+      assertNull(open.getMax());
+   }
+   
    private IndexReader buildDummyIndex() throws IOException {
       RAMDirectory indexDirectory = new RAMDirectory();
       
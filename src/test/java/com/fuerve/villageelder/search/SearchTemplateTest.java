@@ -0,0 +1,312 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link SearchTemplate}.
+ * @author lparker
+ *
+ */
+public class SearchTemplateTest {
+   private static final String TEMPLATE =
+         "Author:${author} AND RevisionNumber:[${from:long} TO ${to:long}]";
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearchTemplate#bind(java.util.Map)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testBind() throws Exception {
+      SearchTemplate target = new SearchTemplate(TEMPLATE);
+      assertEquals(Arrays.asList("author", "from", "to"), target.getParameterNames());
+      assertEquals(SearchTemplate.ParameterType.LONG, target.getParameterType("from"));
+      assertNull(target.getParameterType("nothing"));
+
+      // TEST 1: Bound values are analyzed and converted as if they had
+      // been parsed in place.
+      Map<String, Object> values = new HashMap<String, Object>();
+      values.put("author", "Foo");
+      values.put("from", 3);
+      values.put("to", 9L);
+      Query actual = target.bind(values);
+      assertEquals("+Author:foo +RevisionNumber:[3 TO 9]", actual.toString());
+
+      // TEST 2: Every binding builds a query of its own.
+      values.put("author", "bar");
+      assertEquals("+Author:bar +RevisionNumber:[3 TO 9]", target.bind(values).toString());
+      assertEquals("+Author:foo +RevisionNumber:[3 TO 9]", actual.toString());
+
+      // TEST 3: Dates are bound to Date ranges.
+      SearchTemplate dates = new SearchTemplate("Date:[${since:date} TO ${until:date}]");
+      values.clear();
+      values.put("since", new Date(0L));
+      values.put("until", new Date(86400000L));
+      assertTrue(dates.bind(values) instanceof NumericRangeQuery);
+
+      // TEST 4: Values are never interpreted as query syntax.
+      values.clear();
+      values.put("author", "foo OR *:*");
+      values.put("from", 1);
+      values.put("to", 1);
+      assertEquals(
+            "+(Author:foo Author:or) +RevisionNumber:[1 TO 1]",
+            target.bind(values).toString()
+      );
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearchTemplate#bind(java.util.Map)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testBindInvalid() throws Exception {
+      SearchTemplate target = new SearchTemplate(TEMPLATE);
+      Map<String, Object> values = new HashMap<String, Object>();
+      values.put("author", "foo");
+      values.put("from", 1);
+
+      // TEST 1: Every placeholder requires a value.
+      try {
+         target.bind(values);
+         fail("A template was bound without every value");
+      } catch (IllegalArgumentException e) {
+         // Expected
+      }
+
+      // TEST 2: Values must be of the type of their placeholder.
+      values.put("to", "9");
+      try {
+         target.bind(values);
+         fail("A string was bound to a long placeholder");
+      } catch (IllegalArgumentException e) {
+         // Expected
+      }
+
+      // TEST 3: Values must have a placeholder.
+      values.put("to", 9);
+      values.put("nothing", "foo");
+      try {
+         target.bind(values);
+         fail("A value was bound to a missing placeholder");
+      } catch (IllegalArgumentException e) {
+         // Expected
+      }
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearchTemplate#SearchTemplate(java.lang.String)}.
+    */
+   @Test
+   public final void testSearchTemplateInvalid() {
+      String[] templates = {
+            "Author:${author} OR Author:${author:long}",
+            "Author:${author:time}",
+            "Author:foo${author}",
+            "Author:zzslotazz"
+      };
+      for (String template : templates) {
+         try {
+            new SearchTemplate(template);
+            fail("An invalid template was compiled: " + template);
+         } catch (ParseException e) {
+            // Expected
+         }
+      }
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearchTemplate#bind(java.util.Map)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testBindConcurrently() throws Exception {
+      final SearchTemplate target = new SearchTemplate(
+            TEMPLATE + " AND Date:[${since:date} TO ${until:date}]"
+      );
+      final int threads = 8;
+      final int bindings = 500;
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+      Thread[] workers = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+         final int id = t;
+         workers[t] = new Thread() {
+            @Override
+            public void run() {
+               try {
+                  start.await();
+                  for (int i = 0; i < bindings; i++) {
+                     Map<String, Object> values = new HashMap<String, Object>();
+                     values.put("author", "author" + (char) ('a' + id));
+                     values.put("from", id);
+                     values.put("to", id + i);
+                     values.put("since", new Date(0L));
+                     values.put("until", new Date(86400000L));
+                     String actual = target.bind(values).toString();
+                     if (actual.startsWith(
+                           "+Author:author" + (char) ('a' + id) + " +RevisionNumber:[" + id + " TO " + (id + i) + "]"
+                     ) == false) {
+                        failures.add(actual);
+                     }
+                  }
+               } catch (Exception e) {
+                  failures.add(e.toString());
+               }
+            }
+         };
+         workers[t].start();
+      }
+
+      // TEST: Every thread gets exactly the query for its own values.
+      start.countDown();
+      for (Thread worker : workers) {
+         worker.join();
+      }
+      assertTrue(failures.toString(), failures.isEmpty());
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearchTemplate#bind(java.util.Map, java.util.Date)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testBindRelativeDates() throws Exception {
+      final long day = 86400000L;
+      SearchTemplate target =
+            SearchTemplate.prepare("Author:${author} AND Date:[NOW-1DAY/DAY TO NOW]");
+      Map<String, Object> values = new HashMap<String, Object>();
+      values.put("author", "foo");
+
+      // TEST 1: Relative dates are evaluated against the time of the
+      // binding, not the time at which the template was compiled.
+      BooleanQuery actual = (BooleanQuery) target.bind(values, new Date(10 * day + 5000L));
+      NumericRangeQuery<?> range = (NumericRangeQuery<?>) actual.getClauses()[1].getQuery();
+      assertEquals(Long.valueOf(9 * day), range.getMin());
+      assertEquals(Long.valueOf(10 * day + 5000L), range.getMax());
+
+      // TEST 2: The same cached template bound later moves with the clock.
+      target = SearchTemplate.prepare("Author:${author} AND Date:[NOW-1DAY/DAY TO NOW]");
+      actual = (BooleanQuery) target.bind(values, new Date(20 * day));
+      range = (NumericRangeQuery<?>) actual.getClauses()[1].getQuery();
+      assertEquals(Long.valueOf(19 * day), range.getMin());
+      assertEquals(Long.valueOf(20 * day), range.getMax());
+
+      // TEST 3: Templates without placeholders are still evaluated
+      // whenever they are bound.
+      SearchTemplate constant = new SearchTemplate("Date:[NOW-1HOUR TO NOW]");
+      range = (NumericRangeQuery<?>) constant.bind(new HashMap<String, Object>(), new Date(day));
+      assertEquals(Long.valueOf(day - 3600000L), range.getMin());
+
+      // TEST 4: Absolute parts of a template are copied into every
+      // bound query, so changing one query leaves the others intact.
+      constant = new SearchTemplate("Author:foo AND Date:[19700101 TO 19700102]");
+      Query first = constant.bind(new HashMap<String, Object>());
+      Query second = constant.bind(new HashMap<String, Object>());
+      assertNotSame(first, second);
+      assertEquals(first, second);
+      first.setBoost(2.0f);
+      assertEquals(1.0f, second.getBoost(), 0.0f);
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearchTemplate#prepare(java.lang.String)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testPrepare() throws Exception {
+      SearchTemplate expected = SearchTemplate.prepare(TEMPLATE);
+      assertSame(expected, SearchTemplate.prepare(TEMPLATE));
+      assertEquals(TEMPLATE, expected.getTemplate());
+
+      Map<String, Integer> facets = new HashMap<String, Integer>();
+      facets.put("Author", 10);
+      SearchTemplate faceted = SearchTemplate.prepare(TEMPLATE, facets);
+      assertNotSame(expected, faceted);
+      assertSame(faceted, SearchTemplate.prepare(TEMPLATE, facets));
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearchTemplate#newSearch(java.util.Map)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testNewSearch() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      buildIndex(indexDirectory);
+      Searcher searcher = new Searcher(indexDirectory);
+      searcher.initializeSearch();
+      SearchTemplate template = SearchTemplate.prepare(TEMPLATE);
+
+      Map<String, Object> values = new HashMap<String, Object>();
+      values.put("author", "foo");
+      values.put("from", 1);
+      values.put("to", 6);
+      Search actual = searcher.createSearch(template, values);
+      searcher.search();
+      assertEquals(4, actual.getCollector().topDocs().totalHits);
+
+      values.put("author", "bar");
+      actual = searcher.createSearch(template, values);
+      searcher.search();
+      assertEquals(2, actual.getCollector().topDocs().totalHits);
+
+      searcher.dispose();
+   }
+
+   private void buildIndex(final Directory indexDirectory) throws IOException {
+      Indexer indexer = new Indexer(indexDirectory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= 12; i++) {
+         RevisionInfo revision = new RevisionInfo(
+               i,
+               i % 3 == 0 ? "bar" : "foo",
+               new Date(i * 1000L),
+               "stuff"
+         );
+         revision.addChangePath(new ChangePath("/trunk/a", "M"));
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+   }
+}
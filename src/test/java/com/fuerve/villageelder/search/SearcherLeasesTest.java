@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
+
+/**
+ * Unit tests for {@link SearcherLeases}.
+ * @author lparker
+ *
+ */
+public class SearcherLeasesTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearcherLeases#acquire(long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testLeases() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      addRevisions(indexDirectory, 1, 30);
+      Searcher target = new Searcher(indexDirectory);
+      target.setLeases(new SearcherLeases(2, 600.0));
+      target.initializeSearch();
+
+      // TEST 1: The first page reports the version of its reader.
+      Search search = target.createSearch("Author:foo");
+      target.search();
+      TopDocs first = search.getCollector().topDocs(0, 10);
+      assertEquals(30, first.totalHits);
+      final long version = search.getVersion();
+      assertTrue(version >= 0);
+
+      // TEST 2: Newer revisions are hidden from later pages of the
+      // same version, which neither repeat nor skip hits.
+      addRevisions(indexDirectory, 31, 5);
+      assertTrue(target.refresh());
+      search = target.createSearch("Author:foo");
+      search.setVersion(version);
+      target.search();
+      TopDocs second = search.getCollector().topDocs(10, 10);
+      assertEquals(30, second.totalHits);
+      assertEquals("20", target.doc(second.scoreDocs[0].doc).get("Revision"));
+      for (ScoreDoc hit : second.scoreDocs) {
+         for (ScoreDoc earlier : first.scoreDocs) {
+            assertTrue(hit.doc != earlier.doc);
+         }
+      }
+
+      // TEST 3: New searches see the refreshed reader.
+      search = target.createSearch("Author:foo");
+      target.search();
+      assertEquals(35, search.getCollector().topDocs().totalHits);
+      assertTrue(search.getVersion() > version);
+
+      // TEST 4: Once more readers than allowed are retained, the
+      // oldest is evicted.
+      addRevisions(indexDirectory, 36, 5);
+      assertTrue(target.refresh());
+      search = target.createSearch("Author:foo");
+      search.setVersion(version);
+      try {
+         target.search();
+         fail("An evicted reader was searched");
+      } catch (SearcherExpiredException e) {
+         assertEquals(version, e.getVersion());
+      }
+
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SearcherLeases#prune()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testPrune() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      addRevisions(indexDirectory, 1, 10);
+      SearcherLeases leases = new SearcherLeases(10, 0.0);
+      Searcher target = new Searcher(indexDirectory);
+      target.setLeases(leases);
+      target.initializeSearch();
+
+      Search search = target.createSearch("Author:foo");
+      target.search();
+      final long version = search.getVersion();
+
+      // A replaced reader outlives a lease of no time at all only until
+      // the leases are next pruned.
+      addRevisions(indexDirectory, 11, 1);
+      assertTrue(target.refresh());
+      Thread.sleep(10);
+      leases.prune();
+      search = target.createSearch("Author:foo");
+      search.setVersion(version);
+      try {
+         target.search();
+         fail("An expired reader was searched");
+      } catch (SearcherExpiredException e) {
+         // Expected.
+      }
+
+      // The current reader is never evicted.
+      search = target.createSearch("Author:foo");
+      target.search();
+      assertEquals(11, search.getCollector().topDocs().totalHits);
+      target.dispose();
+   }
+
+   /**
+    * Without leases, only the current reader may be searched.
+    * @throws Exception
+    */
+   @Test
+   public final void testNoLeases() throws Exception {
+      Directory indexDirectory = new RAMDirectory();
+      addRevisions(indexDirectory, 1, 10);
+      Searcher target = new Searcher(indexDirectory);
+      target.initializeSearch();
+
+      Search search = target.createSearch("Author:foo");
+      target.search();
+      final long version = search.getVersion();
+      search = target.createSearch("Author:foo");
+      search.setVersion(version);
+      target.search();
+      assertEquals(10, search.getCollector().topDocs().totalHits);
+
+      addRevisions(indexDirectory, 11, 1);
+      assertTrue(target.refresh());
+      search = target.createSearch("Author:foo");
+      search.setVersion(version);
+      try {
+         target.search();
+         fail("A replaced reader was searched");
+      } catch (SearcherExpiredException e) {
+         // Expected.
+      }
+      target.dispose();
+   }
+
+   private void addRevisions(
+         final Directory indexDirectory,
+         final int first,
+         final int count) throws IOException {
+      Indexer indexer = new Indexer(
+            indexDirectory,
+            null,
+            first == 1 ? OpenMode.CREATE : OpenMode.APPEND
+      );
+      indexer.initializeIndex();
+      for (int i = first; i < first + count; i++) {
+         indexer.indexRevision(new RevisionInfo(i, "foo", new Date(i * 1000L), "stuff"));
+      }
+      indexer.dispose();
+   }
+}
@@ -20,12 +20,17 @@ package com.fuerve.villageelder.search;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
@@ -36,6 +41,7 @@ import org.apache.lucene.facet.index.FacetFields;
 import org.apache.lucene.facet.params.FacetSearchParams;
 import org.apache.lucene.facet.search.CountFacetRequest;
 import org.apache.lucene.facet.search.FacetRequest;
+import org.apache.lucene.facet.search.FacetResult;
 import org.apache.lucene.facet.search.FacetsCollector;
 import org.apache.lucene.facet.taxonomy.CategoryPath;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
@@ -54,10 +60,17 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.search.grouping.GroupDocs;
+import org.apache.lucene.search.grouping.TopGroups;
 import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.Counter;
 import org.junit.Test;
 
 import com.fuerve.villageelder.common.Lucene;
+import com.fuerve.villageelder.indexing.Indexer;
+import com.fuerve.villageelder.sourcecontrol.ChangePath;
+import com.fuerve.villageelder.sourcecontrol.RevisionInfo;
 
 /**
  * Unit tests for Searcher.
@@ -453,6 +466,31 @@ public class SearcherTest {
       }
    }
 
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#dispose()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testDisposeSavesQueryLog() throws Exception {
+      File file = File.createTempFile("querylog", ".txt");
+      file.deleteOnExit();
+      Directory indexDirectory = new RAMDirectory();
+      buildRevisionIndex(indexDirectory);
+      
+      Searcher target = new Searcher(indexDirectory);
+      target.setQueryLog(new QueryLog(file, 10));
+      target.initializeSearch();
+      target.createSearch("Author:foo");
+      target.search();
+      target.dispose();
+      
+      // TEST: The searches of a disposed searcher are in the log file.
+      QueryLog actual = new QueryLog(file, 10);
+      actual.load();
+      assertEquals(1, actual.size());
+      assertEquals("Author:foo", actual.getTopQueries(1).get(0));
+   }
+   
    /**
     * Test method for {@link com.fuerve.villageelder.search.Searcher#dispose()}.
     */
@@ -516,6 +554,408 @@ public class SearcherTest {
       target.search();
    }
 
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#getFacetResults()}.
+    */
+   @Test
+   public final void testSearchWithoutTaxonomy() throws Exception {
+      Field taxonomyReaderField = Searcher.class.getDeclaredField("taxonomyReader");
+      taxonomyReaderField.setAccessible(true);
+      
+      // Setup
+      Directory indexDirectoryExpected = new RAMDirectory();
+      DocValuesFacetsCollectorTest.buildDocValuesIndex(indexDirectoryExpected);
+      
+      Searcher target = new Searcher(indexDirectoryExpected);
+      target.initializeSearch();
+      
+      // Execute the search.
+      Search searchActual = target.createSearch("Author:foo");
+      searchActual.addDocValuesFacet("Change", 10);
+      target.search();
+      List<FacetResult> facetResults = target.getFacetResults();
+      
+      // Test
+      assertEquals(null, taxonomyReaderField.get(target));
+      assertEquals(3, searchActual.getCollector().topDocs().totalHits);
+      assertEquals(1, facetResults.size());
+      assertEquals(2, facetResults.get(0).getFacetResultNode().subResults.size());
+      
+      // Taxonomy facets cannot be requested without a taxonomy.
+      searchActual = target.createSearch("Author:foo");
+      searchActual.addFacet("Author", 1);
+      try {
+         target.search();
+         fail("Taxonomy facets were counted without a taxonomy");
+      } catch (IllegalArgumentException e) {
+         // Expected.
+      }
+      
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#getTopGroups()}.
+    */
+   @Test
+   public final void testSearchGrouped() throws Exception {
+      // Setup
+      Directory indexDirectoryExpected = new RAMDirectory();
+      buildRevisionIndex(indexDirectoryExpected);
+      
+      Searcher target = new Searcher(indexDirectoryExpected);
+      target.initializeSearch();
+      
+      for (GroupRequest.Strategy strategy : GroupRequest.Strategy.values()) {
+         // Execute the search.
+         Search searchActual = target.createSearch("*:*");
+         searchActual.addDocValuesFacet("Author", 10);
+         searchActual.setGrouping(new GroupRequest("Day", 2, 3).setStrategy(strategy));
+         target.search();
+         TopGroups<BytesRef> groupsActual = target.getTopGroups();
+         
+         // TEST 1: The latest days come first, with their latest
+         // revisions, and every day is counted.
+         assertEquals(12, groupsActual.totalHitCount);
+         assertEquals(Integer.valueOf(3), groupsActual.totalGroupCount);
+         assertEquals(2, groupsActual.groups.length);
+         assertEquals("19700103", groupsActual.groups[0].groupValue.utf8ToString());
+         assertEquals(3, groupsActual.groups[0].totalHits);
+         assertEquals(3, groupsActual.groups[0].scoreDocs.length);
+         assertEquals("12", target.doc(groupsActual.groups[0].scoreDocs[0].doc).get("Revision"));
+         assertEquals("11", target.doc(groupsActual.groups[0].scoreDocs[1].doc).get("Revision"));
+         assertEquals("19700102", groupsActual.groups[1].groupValue.utf8ToString());
+         assertEquals(5, groupsActual.groups[1].totalHits);
+         
+         // TEST 2: Top documents and facets are collected in the same search.
+         assertEquals(12, searchActual.getCollector().topDocs().totalHits);
+         assertEquals(1, target.getFacetResults().size());
+      }
+      
+      // TEST 3: Revisions are grouped by the top level of their paths.
+      target.createSearch("*:*").setGrouping(new GroupRequest("TopLevelPath"));
+      target.search();
+      TopGroups<BytesRef> pathsActual = target.getTopGroups();
+      assertEquals(Integer.valueOf(2), pathsActual.totalGroupCount);
+      assertEquals("branches", pathsActual.groups[0].groupValue.utf8ToString());
+      assertEquals(3, pathsActual.groups[0].totalHits);
+      assertEquals("trunk", pathsActual.groups[1].groupValue.utf8ToString());
+      assertEquals(9, pathsActual.groups[1].totalHits);
+      
+      // TEST 4: A search that matches nothing has no groups.
+      target.createSearch("Author:nobody").setGrouping(new GroupRequest("Author"));
+      target.search();
+      assertEquals(0, target.getTopGroups().groups.length);
+      assertEquals(Integer.valueOf(0), target.getTopGroups().totalGroupCount);
+      
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#isTimedOut()}.
+    */
+   @Test
+   public final void testSearchTimedOut() throws Exception {
+      // Setup
+      Directory indexDirectoryExpected = new RAMDirectory();
+      buildRevisionIndex(indexDirectoryExpected);
+      
+      Searcher target = new Searcher(indexDirectoryExpected);
+      target.initializeSearch();
+      
+      // A clock that ticks once for every hit that is collected.
+      target.setClock(new Counter() {
+         private long ticks;
+         
+         @Override
+         public long addAndGet(final long delta) {
+            ticks += delta;
+            return ticks;
+         }
+         
+         @Override
+         public long get() {
+            return ticks++;
+         }
+      });
+      target.setTimeout(5);
+      
+      // Execute the search.
+      Search searchActual = target.createSearch("*:*");
+      searchActual.addDocValuesFacet("Author", 10);
+      target.search();
+      
+      // TEST 1: The search stopped at its deadline, and kept the top
+      // documents and facet counts of the hits collected before it.
+      assertEquals(true, target.isTimedOut());
+      int totalHitsActual = searchActual.getCollector().topDocs().totalHits;
+      assertEquals(5, totalHitsActual);
+      FacetResult authorsActual = target.getFacetResults().get(0);
+      assertEquals(totalHitsActual, (int) authorsActual.getFacetResultNode().value);
+      
+      // TEST 2: A search with a deadline of its own keeps it.
+      searchActual = target.createSearch("*:*");
+      searchActual.setTimeout(100);
+      target.search();
+      assertEquals(false, target.isTimedOut());
+      assertEquals(12, searchActual.getCollector().topDocs().totalHits);
+      
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#getTopGroups()}.
+    */
+   @Test
+   public final void testSearchGroupedTimedOut() throws Exception {
+      // Setup
+      Directory indexDirectoryExpected = new RAMDirectory();
+      buildRevisionIndex(indexDirectoryExpected);
+      
+      Searcher target = new Searcher(indexDirectoryExpected);
+      target.initializeSearch();
+      target.setTimeout(5);
+      
+      // Time out the search without grouping, for comparison.
+      TickingCounter clockExpected = new TickingCounter();
+      target.setClock(clockExpected);
+      target.createSearch("*:*");
+      target.search();
+      assertEquals(true, target.isTimedOut());
+      
+      // Execute the search.
+      TickingCounter clockActual = new TickingCounter();
+      target.setClock(clockActual);
+      target.createSearch("*:*").setGrouping(
+            new GroupRequest("Day", 2, 3).setStrategy(GroupRequest.Strategy.TWO_PASS));
+      target.search();
+      TopGroups<BytesRef> groupsActual = target.getTopGroups();
+      
+      // TEST 1: The groups found before the deadline are reported
+      // without their documents.
+      assertEquals(true, target.isTimedOut());
+      assertTrue(groupsActual.groups.length > 0);
+      for (GroupDocs<BytesRef> group : groupsActual.groups) {
+         assertEquals(0, group.scoreDocs.length);
+      }
+      
+      // TEST 2: The second pass never ran, so the grouped search
+      // read the clock no more often than the ungrouped one.
+      assertEquals(clockExpected.ticks, clockActual.ticks);
+      
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#setCostEstimator(com.fuerve.villageelder.search.QueryCostEstimator)}
+    * and {@link com.fuerve.villageelder.search.Searcher#setAdmissionController(com.fuerve.villageelder.search.AdmissionController)}.
+    */
+   @Test
+   public final void testSearchRejected() throws Exception {
+      // Setup
+      Directory indexDirectoryExpected = new RAMDirectory();
+      buildRevisionIndex(indexDirectoryExpected);
+      
+      Searcher target = new Searcher(indexDirectoryExpected);
+      target.initializeSearch();
+      target.setCostEstimator(new QueryCostEstimator(1, 10));
+      AdmissionController admission = new AdmissionController(1, 0, 0);
+      target.setAdmissionController(admission);
+      
+      // TEST 1: A query that expands to too many terms is refused.
+      target.createSearch("Author:[a TO z]");
+      try {
+         target.search();
+         fail("An expensive query was run");
+      } catch (QueryRejectedException e) {
+         assertEquals(QueryRejectedException.Reason.TOO_MANY_TERMS, e.getReason());
+      }
+      
+      // TEST 2: A cheap query runs, and gives back its permit.
+      Search searchActual = target.createSearch("Author:foo");
+      target.search();
+      assertEquals(8, searchActual.getCollector().topDocs().totalHits);
+      assertEquals(1, admission.getAvailable());
+      
+      // TEST 3: A search is shed while another one is running.
+      admission.acquire();
+      try {
+         target.search();
+         fail("A search was run beyond the limit");
+      } catch (QueryRejectedException e) {
+         assertEquals(QueryRejectedException.Reason.OVERLOADED, e.getReason());
+      } finally {
+         admission.release();
+      }
+      
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#refresh()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testRefresh() throws Exception {
+      // Setup
+      Directory indexDirectoryExpected = new RAMDirectory();
+      buildRevisionIndex(indexDirectoryExpected);
+      final List<IndexReader> warmed = new ArrayList<IndexReader>();
+      QueryLog queryLog = new QueryLog(10);
+      
+      Searcher target = new Searcher(indexDirectoryExpected);
+      target.setQueryLog(queryLog);
+      target.setWarmer(new SearcherWarmer() {
+         public void warm(final IndexSearcher searcher) {
+            warmed.add(searcher.getIndexReader());
+         }
+      });
+      target.initializeSearch();
+      
+      // TEST 1: The first reader is warmed, and searches are logged.
+      assertEquals(1, warmed.size());
+      Search searchActual = target.createSearch("Author:foo");
+      target.search();
+      assertEquals(8, searchActual.getCollector().topDocs().totalHits);
+      assertEquals("Author:foo", queryLog.getTopQueries(1).get(0));
+      
+      // TEST 2: An unchanged index is not reopened.
+      assertEquals(false, target.refresh());
+      assertEquals(1, warmed.size());
+      
+      // TEST 3: A changed index is reopened and warmed before use.
+      Indexer indexer = new Indexer(indexDirectoryExpected);
+      indexer.initializeIndex();
+      indexer.indexRevision(new RevisionInfo(13, "foo", new Date(0L), "stuff"));
+      indexer.dispose();
+      assertEquals(true, target.refresh());
+      assertEquals(2, warmed.size());
+      searchActual = target.createSearch("Author:foo");
+      target.search();
+      assertEquals(9, searchActual.getCollector().topDocs().totalHits);
+      
+      target.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#Searcher(org.apache.lucene.index.IndexWriter, org.apache.lucene.facet.taxonomy.TaxonomyWriter)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testRefreshNearRealTime() throws Exception {
+      // Setup
+      Directory indexDirectoryExpected = new RAMDirectory();
+      Indexer indexer = new Indexer(indexDirectoryExpected, new RAMDirectory(), OpenMode.CREATE);
+      indexer.initializeIndex();
+      indexer.indexRevision(new RevisionInfo(1, "foo", new Date(0L), "stuff"));
+      
+      Searcher target = new Searcher(indexer.getIndexWriter(), indexer.getTaxonomyWriter());
+      target.initializeSearch();
+      
+      // TEST 1: Revisions are searchable before they are committed.
+      Search searchActual = target.createSearch("Author:foo");
+      searchActual.addFacet("Author", 10);
+      target.search();
+      assertEquals(1, searchActual.getCollector().topDocs().totalHits);
+      assertEquals(false, DirectoryReader.indexExists(indexDirectoryExpected));
+      
+      // TEST 2: New revisions and their categories are seen as soon
+      // as the searcher is refreshed.
+      indexer.indexRevision(new RevisionInfo(2, "bar", new Date(0L), "stuff"));
+      assertEquals(true, target.refresh());
+      searchActual = target.createSearch("Message:stuff");
+      searchActual.addFacet("Author", 10);
+      target.search();
+      assertEquals(2, searchActual.getCollector().topDocs().totalHits);
+      assertEquals(2, target.getFacetResults().get(0).getNumValidDescendants());
+      
+      target.dispose();
+      indexer.dispose();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.Searcher#search(java.util.List, java.util.concurrent.ExecutorService)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testSearchBatch() throws Exception {
+      // Setup
+      Directory indexDirectoryExpected = new RAMDirectory();
+      buildRevisionIndex(indexDirectoryExpected);
+      FilterCache filterCache = new FilterCache(64);
+      
+      Searcher target = new Searcher(indexDirectoryExpected);
+      target.setFilterCache(filterCache);
+      target.initializeSearch();
+      ExecutorService executor = Executors.newFixedThreadPool(3);
+      
+      try {
+         for (ExecutorService batchExecutor : new ExecutorService[] { null, executor }) {
+            List<Search> batch = new ArrayList<Search>();
+            batch.add(new Search("Author:foo"));
+            batch.add(new Search("+Author:foo +Message:stuff"));
+            batch.add(new Search("+Author:foo +Path:\"/trunk/a\""));
+            Search faceted = new Search("Author:bar");
+            faceted.addDocValuesFacet("Author", 10);
+            batch.add(faceted);
+            target.search(batch, batchExecutor);
+            
+            // TEST 1: Every search of the batch has its own results.
+            assertEquals(8, batch.get(0).getCollector().topDocs().totalHits);
+            assertEquals(8, batch.get(1).getCollector().topDocs().totalHits);
+            assertEquals(6, batch.get(2).getCollector().topDocs().totalHits);
+            ScoreDoc[] bars = faceted.getCollector().topDocs().scoreDocs;
+            assertEquals(4, bars.length);
+            assertEquals(1, faceted.getFacetResults().size());
+            assertEquals(null, batch.get(0).getFacetResults());
+            
+            // TEST 2: Every search ran against the same snapshot, whose
+            // documents may still be read.
+            assertEquals(batch.get(0).getVersion(), faceted.getVersion());
+            assertEquals("bar", target.doc(bars[0].doc).get("Author"));
+         }
+         
+         // TEST 3: The filter that the searches have in common was
+         // evaluated once and shared.
+         assertEquals(true, filterCache.getHitCount() >= 2);
+         
+         // TEST 4: The searches of a batch cannot ask for different
+         // versions of the index.
+         List<Search> mixed = new ArrayList<Search>();
+         mixed.add(new Search("Author:foo"));
+         mixed.add(new Search("Author:bar"));
+         mixed.get(0).setVersion(1L);
+         mixed.get(1).setVersion(2L);
+         try {
+            target.search(mixed, null);
+            fail("A batch of searches of different versions was executed");
+         } catch (IllegalArgumentException e) {
+            // Expected.
+         }
+      } finally {
+         executor.shutdown();
+      }
+      
+      target.dispose();
+   }
+
+   private void buildRevisionIndex(final Directory indexDirectory)
+         throws IOException {
+      Indexer indexer = new Indexer(indexDirectory);
+      indexer.initializeIndex();
+      for (int i = 1; i <= 12; i++) {
+         RevisionInfo revision = new RevisionInfo(
+               i,
+               i % 3 == 0 ? "bar" : "foo",
+               new Date((i / 5) * 86400000L + i * 1000L),
+               "stuff"
+         );
+         revision.addChangePath(new ChangePath(i % 4 == 0 ? "/branches/b" : "/trunk/a", "M"));
+         indexer.indexRevision(revision);
+      }
+      indexer.dispose();
+   }
+
    private void buildDummyIndex(
          final Directory indexDirectory,
          final Directory taxonomyDirectory) throws IOException {
@@ -566,6 +1006,25 @@ public class SearcherTest {
       return collector;
    }
    
+   /**
+    * A clock that ticks once every time it is read, which is once for
+    * every hit that is collected against a deadline.
+    */
+   private static class TickingCounter extends Counter {
+      private long ticks;
+      
+      @Override
+      public long addAndGet(final long delta) {
+         ticks += delta;
+         return ticks;
+      }
+      
+      @Override
+      public long get() {
+         return ticks++;
+      }
+   }
+   
    public FacetsCollector getDummyFacetsCollector(
          final DirectoryReader indexReader,
          final TaxonomyReader taxonomyReader) {
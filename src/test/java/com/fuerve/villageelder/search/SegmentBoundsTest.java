@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.fuerve.villageelder.common.Lucene;
+
+/**
+ * Unit tests for {@link SegmentBounds}.
+ * @author lparker
+ *
+ */
+public class SegmentBoundsTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SegmentBounds#get(org.apache.lucene.index.AtomicReader)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGet() throws Exception {
+      Directory directory = new RAMDirectory();
+      buildSegmentedIndex(directory);
+      DirectoryReader reader = DirectoryReader.open(directory);
+      List<AtomicReaderContext> leaves = reader.leaves();
+
+      // TEST 1: Each commit produced its own segment.
+      assertEquals(2, leaves.size());
+
+      SegmentBounds first = SegmentBounds.get(leaves.get(0).reader());
+      SegmentBounds second = SegmentBounds.get(leaves.get(1).reader());
+
+      // TEST 2: The bounds of each segment cover exactly the values
+      // that were written to it.
+      assertEquals(1L, first.getMinRevision());
+      assertEquals(3L, first.getMaxRevision());
+      assertEquals(1000L, first.getMinDate());
+      assertEquals(3000L, first.getMaxDate());
+      assertEquals(100L, second.getMinRevision());
+      assertEquals(1234567L, second.getMaxRevision());
+
+      // TEST 3: Bounds are cached per segment core.
+      assertSame(first, SegmentBounds.get(leaves.get(0).reader()));
+
+      reader.close();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SegmentBounds#overlaps(java.lang.String, long, long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testOverlaps() throws Exception {
+      Directory directory = new RAMDirectory();
+      buildSegmentedIndex(directory);
+      DirectoryReader reader = DirectoryReader.open(directory);
+      SegmentBounds target = SegmentBounds.get(reader.leaves().get(0).reader());
+
+      assertTrue(target.overlaps("RevisionNumber", 3L, 50L));
+      assertTrue(target.overlaps("RevisionNumber", Long.MIN_VALUE, 1L));
+      assertFalse(target.overlaps("RevisionNumber", 4L, Long.MAX_VALUE));
+      assertTrue(target.overlaps("Date", 0L, 1000L));
+      assertFalse(target.overlaps("Date", 3001L, 5000L));
+
+      reader.close();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SegmentBounds#hasDates()}.
+    * @throws Exception
+    */
+   @Test
+   public final void testMissingField() throws Exception {
+      Directory directory = new RAMDirectory();
+      IndexWriterConfig iwc = new IndexWriterConfig(Lucene.LUCENE_VERSION, Lucene.getPerFieldAnalyzer());
+      IndexWriter iw = new IndexWriter(directory, iwc);
+      Document doc = new Document();
+      doc.add(new StringField("Author", "foo", Field.Store.YES));
+      iw.addDocument(doc);
+      iw.close();
+
+      DirectoryReader reader = DirectoryReader.open(directory);
+      SegmentBounds target = SegmentBounds.get(reader.leaves().get(0).reader());
+
+      assertFalse(target.hasRevisions());
+      assertFalse(target.hasDates());
+      assertFalse(target.overlaps("RevisionNumber", Long.MIN_VALUE, Long.MAX_VALUE));
+
+      reader.close();
+   }
+
+   /**
+    * Builds an index of two segments covering distinct revision
+    * and date ranges.
+    * @param directory The directory in which to build the index.
+    * @throws IOException
+    */
+   static void buildSegmentedIndex(final Directory directory) throws IOException {
+      IndexWriterConfig iwc = new IndexWriterConfig(Lucene.LUCENE_VERSION, Lucene.getPerFieldAnalyzer());
+      iwc.setOpenMode(OpenMode.CREATE);
+      IndexWriter iw = new IndexWriter(directory, iwc);
+
+      iw.addDocument(buildDocument(1L, 1000L));
+      iw.addDocument(buildDocument(2L, 2000L));
+      iw.addDocument(buildDocument(3L, 3000L));
+      iw.commit();
+
+      iw.addDocument(buildDocument(100L, 100000L));
+      iw.addDocument(buildDocument(1234567L, 200000L));
+      iw.commit();
+      iw.close();
+   }
+
+   private static Document buildDocument(final long revision, final long date) {
+      Document doc = new Document();
+      doc.add(new LongField("RevisionNumber", revision, Field.Store.YES));
+      doc.add(new StringField("Revision", Long.toString(revision), Field.Store.YES));
+      doc.add(new LongField("Date", date, Field.Store.YES));
+      return doc;
+   }
+}
@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.search;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
+import org.junit.Test;
+
+import com.fuerve.villageelder.common.Lucene;
+
+/**
+ * Unit tests for {@link SegmentSkippingIndexSearcher}.
+ * @author lparker
+ *
+ */
+public class SegmentSkippingIndexSearcherTest {
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SegmentSkippingIndexSearcher#getMatchingLeaves(org.apache.lucene.search.Query)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetMatchingLeaves() throws Exception {
+      Directory directory = new RAMDirectory();
+      SegmentBoundsTest.buildSegmentedIndex(directory);
+      DirectoryReader reader = DirectoryReader.open(directory);
+      SegmentSkippingIndexSearcher target = new SegmentSkippingIndexSearcher(reader);
+
+      // TEST 1: A range that only covers recent revisions skips
+      // the older segment.
+      assertEquals(1, target.getMatchingLeaves(parse("RevisionNumber:[50 TO 200]")).size());
+
+      // TEST 2: Required ranges inside a conjunction are honored.
+      assertEquals(1, target.getMatchingLeaves(parse("Revision:2 AND RevisionNumber:[1 TO 3]")).size());
+
+      // TEST 3: Optional ranges cannot be used to skip segments.
+      assertEquals(2, target.getMatchingLeaves(parse("Revision:2 OR RevisionNumber:[1 TO 3]")).size());
+
+      // TEST 4: Exclusive bounds are respected.
+      assertEquals(0, target.getMatchingLeaves(parse("RevisionNumber:{3 TO 100}")).size());
+
+      // TEST 5: Queries without ranges search every segment.
+      assertEquals(2, target.getMatchingLeaves(parse("Revision:2")).size());
+
+      // TEST 6: Ranges moved into cached filters are still honored.
+      FilterCache cache = new FilterCache(10);
+      assertEquals(1, target.getMatchingLeaves(cache.rewrite(parse("RevisionNumber:[50 TO 200]"))).size());
+      assertEquals(1, target.getMatchingLeaves(cache.rewrite(parse("Message:foo AND RevisionNumber:[1 TO 3]"))).size());
+
+      reader.close();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SegmentSkippingIndexSearcher#search(org.apache.lucene.search.Query, org.apache.lucene.search.Collector)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testSearch() throws Exception {
+      Directory directory = new RAMDirectory();
+      SegmentBoundsTest.buildSegmentedIndex(directory);
+      DirectoryReader reader = DirectoryReader.open(directory);
+      SegmentSkippingIndexSearcher target = new SegmentSkippingIndexSearcher(reader);
+
+      TotalHitCountCollector collector = new TotalHitCountCollector();
+      target.search(parse("RevisionNumber:[2 TO 100]"), collector);
+      assertEquals(3, collector.getTotalHits());
+
+      collector = new TotalHitCountCollector();
+      target.search(parse("RevisionNumber:[4 TO 99]"), collector);
+      assertEquals(0, collector.getTotalHits());
+
+      reader.close();
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.search.SegmentSkippingIndexSearcher#search(java.util.List, org.apache.lucene.search.Weight, org.apache.lucene.search.Collector)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testSearchTopDocs() throws Exception {
+      Directory directory = new RAMDirectory();
+      SegmentBoundsTest.buildSegmentedIndex(directory);
+      DirectoryReader reader = DirectoryReader.open(directory);
+      CountingSearcher target = new CountingSearcher(reader);
+
+      // TEST 1: The weight reports the query before it was rewritten.
+      Query query = parse("RevisionNumber:[2 TO 99]");
+      assertSame(query, target.createNormalizedWeight(query).getQuery());
+
+      // TEST 2: Top documents searches skip segments.
+      target.scorers = 0;
+      assertEquals(2, target.search(query, 10).totalHits);
+      assertEquals(1, target.scorers);
+
+      // TEST 3: Sorted searches skip segments.
+      target.scorers = 0;
+      Sort sort = new Sort(new SortField("RevisionNumber", SortField.Type.LONG));
+      assertEquals(2, target.search(query, 10, sort).totalHits);
+      assertEquals(1, target.scorers);
+
+      // TEST 4: Filtered searches skip segments by the filter's range.
+      target.scorers = 0;
+      Filter filter = new FilterCache(10).getFilter(parse("RevisionNumber:[4 TO 99]"));
+      assertEquals(0, target.search(parse("Revision:2"), filter, 10).totalHits);
+      assertEquals(0, target.scorers);
+
+      // TEST 5: Searches without ranges visit every segment.
+      target.scorers = 0;
+      target.search(parse("Revision:2"), 10);
+      assertEquals(2, target.scorers);
+
+      reader.close();
+   }
+
+   private Query parse(final String query) throws Exception {
+      QueryParser parser = new SearchQueryParser(Lucene.LUCENE_VERSION, "Message", Lucene.getPerFieldAnalyzer());
+      return parser.parse(query);
+   }
+
+   /**
+    * A segment skipping searcher that counts the scorers it builds,
+    * which is one for every segment that is actually searched.
+    */
+   private static class CountingSearcher extends SegmentSkippingIndexSearcher {
+      int scorers;
+
+      public CountingSearcher(final IndexReader reader) {
+         super(reader);
+      }
+
+      @Override
+      public Weight createNormalizedWeight(final Query query) throws IOException {
+         final Weight weight = super.createNormalizedWeight(query);
+         return new Weight() {
+            @Override
+            public Explanation explain(final AtomicReaderContext context, final int doc)
+                  throws IOException {
+               return weight.explain(context, doc);
+            }
+
+            @Override
+            public Query getQuery() {
+               return weight.getQuery();
+            }
+
+            @Override
+            public float getValueForNormalization() throws IOException {
+               return weight.getValueForNormalization();
+            }
+
+            @Override
+            public void normalize(final float norm, final float topLevelBoost) {
+               weight.normalize(norm, topLevelBoost);
+            }
+
+            @Override
+            public Scorer scorer(
+                  final AtomicReaderContext context,
+                  final boolean scoreDocsInOrder,
+                  final boolean topScorer,
+                  final Bits acceptDocs) throws IOException {
+               scorers++;
+               return weight.scorer(context, scoreDocsInOrder, topScorer, acceptDocs);
+            }
+         };
+      }
+   }
+}
@@ -65,4 +65,18 @@ public class RepositoryFactoryTest {
       assertEquals(passwordExpected, target.getPassword());
    }
 
+   /**
+    * Test method for {@link com.fuerve.villageelder.sourcecontrol.RepositoryFactory#getRepositoryInstance(com.fuerve.villageelder.sourcecontrol.RepositoryProviderType, java.lang.String)}.
+    */
+   @Test
+   public void testGetRepositoryInstanceSubversionXmlLog() {
+      final String pathExpected = "log.xml";
+      Repository target =
+            RepositoryFactory.getRepositoryInstance(
+                  RepositoryProviderType.SUBVERSION_XML_LOG, pathExpected
+            );
+      
+      assertTrue(target instanceof SubversionXmlLogRepository);
+      assertEquals(pathExpected, target.getPath());
+   }
 }
@@ -191,6 +191,11 @@ public class RepositoryTest {
          
          return result;
       }
+
+      @Override
+      public long getLatestRevision() throws IOException {
+         return DUMB_REVISION_NUMBER;
+      }
       
       private RevisionInfo buildDumbRevisionInfo() {
          return new RevisionInfo(DUMB_REVISION_NUMBER, DUMB_REVISION_AUTHOR, DUMB_REVISION_DATE, DUMB_REVISION_MESSAGE);
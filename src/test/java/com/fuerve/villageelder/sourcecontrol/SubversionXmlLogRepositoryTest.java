@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.fuerve.villageelder.sourcecontrol;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SubversionXmlLogRepository}.
+ * @author lparker
+ *
+ */
+public class SubversionXmlLogRepositoryTest {
+   /**
+    * Test method for {@link com.fuerve.villageelder.sourcecontrol.SubversionXmlLogRepository#getRevisionRange(long, long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetRevisionRangeAscending() throws Exception {
+      File log = writeLog(1, 2, 3, 4, 5, 6, 7);
+      try {
+         SubversionXmlLogRepository target = new SubversionXmlLogRepository(log.getPath(), 2);
+         assertEquals("[3, 4, 5]", revisions(target.getRevisionRange(3, 5)));
+         assertEquals("[1, 2, 3, 4, 5, 6, 7]", revisions(target.getRevisionRange(0, -1)));
+         assertEquals("[6, 7]", revisions(target.getRevisionRange(6, 100)));
+         assertEquals("[]", revisions(target.getRevisionRange(8, 9)));
+         assertEquals(7, target.getLatestRevision());
+
+         // The range is read from a recorded offset past the start of
+         // the log.
+         SubversionXmlLogIndex index = target.getIndex();
+         assertEquals(1, index.getOrder());
+         assertEquals(4, index.size());
+         assertTrue(index.seek(6, 7) > index.seek(3, 5));
+         assertTrue(new File(log.getPath() + ".offsets").isFile());
+      } finally {
+         delete(log);
+      }
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.sourcecontrol.SubversionXmlLogRepository#getRevisionRange(long, long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetRevisionRangeDescending() throws Exception {
+      File log = writeLog(7, 6, 5, 4, 3, 2, 1);
+      try {
+         SubversionXmlLogRepository target = new SubversionXmlLogRepository(log.getPath(), 2);
+         assertEquals("[5, 4, 3]", revisions(target.getRevisionRange(3, 5)));
+         assertEquals("[2, 1]", revisions(target.getRevisionRange(0, 2)));
+         assertEquals(7, target.getLatestRevision());
+         assertEquals(-1, target.getIndex().getOrder());
+         assertTrue(target.getIndex().seek(1, 2) > 0);
+
+         // A saved index is reused by the next repository of the log.
+         SubversionXmlLogRepository reopened = new SubversionXmlLogRepository(log.getPath(), 2);
+         assertEquals("[5, 4, 3]", revisions(reopened.getRevisionRange(3, 5)));
+      } finally {
+         delete(log);
+      }
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.sourcecontrol.SubversionXmlLogRepository#getRevisionRange(long, long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetRevisionRangeUnordered() throws Exception {
+      File log = writeLog(3, 1, 2, 5);
+      try {
+         SubversionXmlLogRepository target = new SubversionXmlLogRepository(log.getPath(), 1);
+         assertEquals(0, target.getIndex().getOrder());
+         assertEquals("[1, 2]", revisions(target.getRevisionRange(1, 2)));
+         assertEquals(5, target.getLatestRevision());
+      } finally {
+         delete(log);
+      }
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.sourcecontrol.SubversionXmlLogRepository#getRevision(long)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testGetRevision() throws Exception {
+      File log = writeLog(1, 2, 3);
+      try {
+         SubversionXmlLogRepository target = new SubversionXmlLogRepository(log.getPath());
+         RevisionInfo actual = target.getRevision(2);
+         assertEquals(2, actual.getRevision());
+         assertEquals("author2", actual.getAuthor());
+         assertEquals(new Date(1364808615123L + 2000L), actual.getDate());
+         assertEquals("Fix <logentry revision=\"99\"> & more", actual.getMessage());
+         assertEquals(2, actual.getChangePaths().size());
+         assertEquals("/trunk/file2", actual.getChangePaths().get(0).getPath());
+         assertEquals("M", actual.getChangePaths().get(0).getChangeType());
+         assertFalse(actual.getChangePaths().get(0).isCopy());
+         assertEquals("/branches/b2", actual.getChangePaths().get(1).getPath());
+         assertEquals("A", actual.getChangePaths().get(1).getChangeType());
+         assertEquals("/trunk", actual.getChangePaths().get(1).getCopyPath());
+         assertEquals(1, actual.getChangePaths().get(1).getCopyRevision());
+
+         assertNull(target.getRevision(4));
+      } finally {
+         delete(log);
+      }
+   }
+
+   /**
+    * Test method for {@link com.fuerve.villageelder.sourcecontrol.SubversionXmlLogReader#parseDate(java.lang.String)}.
+    * @throws Exception
+    */
+   @Test
+   public final void testParseDate() throws Exception {
+      assertEquals(
+            new Date(1364808615123L),
+            SubversionXmlLogReader.parseDate("2013-04-01T09:30:15.123456Z")
+      );
+      assertEquals(
+            new Date(1364808615000L),
+            SubversionXmlLogReader.parseDate("2013-04-01T09:30:15Z")
+      );
+   }
+
+   private static String revisions(final List<RevisionInfo> revisions) {
+      List<Long> result = new ArrayList<Long>();
+      for (RevisionInfo revision : revisions) {
+         result.add(revision.getRevision());
+      }
+      return result.toString();
+   }
+
+   private static File writeLog(final long... revisions) throws Exception {
+      File result = File.createTempFile("svnlog", ".xml");
+      Writer writer = new OutputStreamWriter(new FileOutputStream(result), "UTF-8");
+      try {
+         writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<log>\n");
+         for (long revision : revisions) {
+            writer.write("<logentry\n   revision=\"" + revision + "\">\n");
+            writer.write("<author>author" + revision + "</author>\n");
+            writer.write(
+                  String.format(
+                        "<date>2013-04-01T09:30:%02d.123456Z</date>\n",
+                        15 + revision
+                  )
+            );
+            writer.write("<paths>\n");
+            writer.write(
+                  "<path\n   action=\"M\"\n   kind=\"file\">/trunk/file" + revision + "</path>\n"
+            );
+            writer.write(
+                  "<path\n   copyfrom-path=\"/trunk\"\n   copyfrom-rev=\"" + (revision - 1) +
+                  "\"\n   action=\"A\"\n   kind=\"dir\">/branches/b" + revision + "</path>\n"
+            );
+            writer.write("</paths>\n");
+            writer.write("<msg>Fix &lt;logentry revision=\"99\"&gt; &amp; more</msg>\n");
+            writer.write("</logentry>\n");
+         }
+         writer.write("</log>\n");
+      } finally {
+         writer.close();
+      }
+      return result;
+   }
+
+   private static void delete(final File log) {
+      new File(log.getPath() + ".offsets").delete();
+      log.delete();
+   }
+}